@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles all Sass entry files (i.e. all SCSS files that are not partials) of a source directory to CSS.
+ * <p>The task is cacheable and relocatable: entry files and all files that may be imported (partials of the
+ * source directory and the contents of each directory of the include path) are tracked relative to their root
+ * directory, so that outputs can be taken from the build cache even if the project has been checked out to
+ * another location. The partials of the source directory and each include directory are separate inputs, in the
+ * order of the include path, as moving a file between them or reordering the include path may change the
+ * result. (This does not hold if {@link #getSourceComments() source comments} are enabled, because they
+ * contain absolute paths.)</p>
+ * <p>Entry files are compiled in parallel using the Gradle Worker API.</p>
+ */
+@CacheableTask
+public abstract class SassCompile extends DefaultTask {
+
+    /** Prefix of partials (files that are only meant to be imported). */
+    static final String PARTIAL_PREFIX = "_";
+
+    /**
+     * Returns the directory that contains all entry files.
+     * @return
+     *     The source directory.
+     */
+    @Internal
+    public abstract DirectoryProperty getSourceDir();
+
+    /**
+     * Returns the directories that will be searched for imports, in the order they will be searched.
+     * @return
+     *     The include path.
+     * @see #getIncludeDirectories()
+     */
+    @Internal
+    public abstract ConfigurableFileCollection getIncludePath();
+
+    /**
+     * Returns the output style. Must be the name of one of the {@link com.cathive.sass.SassOutputStyle} constants.
+     * @return
+     *     The output style.
+     */
+    @Input
+    public abstract Property<String> getOutputStyle();
+
+    @Input
+    public abstract Property<Integer> getPrecision();
+
+    @Input
+    public abstract Property<Boolean> getSourceComments();
+
+    /**
+     * Returns the directory that the compiled CSS files will be written to.
+     * The directory structure of the source directory is mirrored.
+     * @return
+     *     The destination directory.
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDir();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    protected abstract ObjectFactory getObjectFactory();
+
+    /**
+     * Returns all entry files of the source directory.
+     * @return
+     *     All SCSS files of the source directory that are not partials.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getEntries() {
+        return this.getSourceDir().getAsFileTree().matching(pattern -> {
+            pattern.include("**/*.scss");
+            pattern.exclude("**/" + PARTIAL_PREFIX + "*");
+        });
+    }
+
+    /**
+     * Returns all partials of the source directory, which may be imported by the entry files.
+     * @return
+     *     All SCSS files of the source directory that are partials.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getPartials() {
+        return this.getSourceDir().getAsFileTree().matching(pattern -> pattern.include("**/" + PARTIAL_PREFIX + "*.scss"));
+    }
+
+    /**
+     * Returns the contents of the include path, one nested input per directory.
+     * @return
+     *     All directories of the include path, in the order they will be searched.
+     */
+    @Nested
+    public List<SassIncludeDirectory> getIncludeDirectories() {
+        final List<SassIncludeDirectory> includeDirectories = new ArrayList<>();
+        for (final File directory : this.getIncludePath().getFiles()) {
+            final FileTree stylesheets = this.getObjectFactory().fileTree().from(directory).matching(pattern -> {
+                pattern.include("**/*.scss");
+                pattern.include("**/*.sass");
+                pattern.include("**/*.css");
+            });
+            includeDirectories.add(new SassIncludeDirectory(directory, stylesheets));
+        }
+        return includeDirectories;
+    }
+
+    @TaskAction
+    public void compile() {
+
+        // Stale outputs of deleted or renamed entry files must not end up in the build cache.
+        this.getFileSystemOperations().delete(spec -> spec.delete(this.getDestinationDir()));
+
+        // The native library can only be loaded once per JVM, so all workers share the plugin's class loader.
+        final WorkQueue queue = this.getWorkerExecutor().noIsolation();
+        this.getEntries().visit((final FileVisitDetails entry) -> {
+            if (entry.isDirectory()) {
+                return;
+            }
+            final String outputPath = SassCompileAction.toOutputPath(entry.getRelativePath().getPathString());
+            queue.submit(SassCompileAction.class, parameters -> {
+                parameters.getInputFile().set(entry.getFile());
+                parameters.getOutputFile().set(this.getDestinationDir().file(outputPath));
+                parameters.getIncludePath().from(this.getIncludePath());
+                parameters.getOutputStyle().set(this.getOutputStyle());
+                parameters.getPrecision().set(this.getPrecision());
+                parameters.getSourceComments().set(this.getSourceComments());
+            });
+        });
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.gradle;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassContext;
+import com.cathive.sass.SassFileContext;
+import com.cathive.sass.SassOptions;
+import com.cathive.sass.SassOutputStyle;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Compiles a single Sass entry file on behalf of a {@link SassCompile} task.
+ */
+public abstract class SassCompileAction implements WorkAction<SassCompileAction.Parameters> {
+
+    /**
+     * Parameters of a single compilation.
+     */
+    public interface Parameters extends WorkParameters {
+
+        RegularFileProperty getInputFile();
+
+        RegularFileProperty getOutputFile();
+
+        ConfigurableFileCollection getIncludePath();
+
+        Property<String> getOutputStyle();
+
+        Property<Integer> getPrecision();
+
+        Property<Boolean> getSourceComments();
+
+    }
+
+    @Override
+    public void execute() {
+
+        final Parameters parameters = this.getParameters();
+        final Path inputFile = parameters.getInputFile().get().getAsFile().toPath();
+        final Path outputFile = parameters.getOutputFile().get().getAsFile().toPath();
+
+        final SassContext context = SassFileContext.create(inputFile);
+        final SassOptions options = context.getOptions();
+        options.setOutputStyle(SassOutputStyle.valueOf(parameters.getOutputStyle().get()));
+        options.setPrecision(parameters.getPrecision().get());
+        options.setSourceComments(parameters.getSourceComments().get());
+        final List<Path> includePath = new ArrayList<>();
+        for (final File includeDir : parameters.getIncludePath()) {
+            includePath.add(includeDir.toPath());
+        }
+        options.setIncludePath(includePath);
+
+        try {
+            final String output = context.compile();
+            Files.createDirectories(outputFile.getParent());
+            Files.write(outputFile, output.getBytes(StandardCharsets.UTF_8));
+        } catch (final SassCompilationException e) {
+            throw new GradleException(format("Could not compile \"{0}\": {1}", inputFile, e.getMessage()), e);
+        } catch (final IOException e) {
+            throw new GradleException(format("Could not write \"{0}\".", outputFile), e);
+        }
+
+    }
+
+    /**
+     * Determines the relative path of the output file of an entry file.
+     * @param inputPath
+     *     Path of the entry file, relative to the source directory.
+     * @return
+     *     Path of the output file, relative to the destination directory.
+     */
+    static String toOutputPath(final String inputPath) {
+        final int separatorIndex = inputPath.lastIndexOf('/');
+        final int extensionIndex = inputPath.lastIndexOf('.');
+        final String basePath = extensionIndex > separatorIndex + 1 ? inputPath.substring(0, extensionIndex) : inputPath;
+        return basePath + ".css";
+    }
+
+}
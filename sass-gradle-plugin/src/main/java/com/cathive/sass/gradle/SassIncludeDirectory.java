@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.gradle;
+
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.File;
+
+/**
+ * A single directory of the include path of a {@link SassCompile} task.
+ * <p>Each directory is tracked as a separate nested input, in the order of the include path, because the order
+ * determines which file an import resolves to.</p>
+ */
+public class SassIncludeDirectory {
+
+    /** The include directory. */
+    private final File directory;
+
+    /** All stylesheets below the include directory. */
+    private final FileTree stylesheets;
+
+    SassIncludeDirectory(final File directory, final FileTree stylesheets) {
+        super();
+        this.directory = directory;
+        this.stylesheets = stylesheets;
+    }
+
+    @Internal
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns all files of this directory that may be imported.
+     * @return
+     *     All SCSS, Sass and CSS files below this directory.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getStylesheets() {
+        return this.stylesheets;
+    }
+
+}
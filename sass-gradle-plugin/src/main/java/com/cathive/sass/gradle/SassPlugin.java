@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Gradle plugin that registers a {@link SassCompile} task named {@value #COMPILE_SASS_TASK_NAME}.
+ * <p>By default, all Sass files in {@code src/main/scss} are compiled to {@code build/generated/sass}. If the
+ * Java plugin has been applied, the compiled CSS files are added to the resources of the main source set.</p>
+ */
+public class SassPlugin implements Plugin<Project> {
+
+    /** Name of the task that is registered by this plugin. */
+    public static final String COMPILE_SASS_TASK_NAME = "compileSass";
+
+    @Override
+    public void apply(final Project project) {
+
+        project.getTasks().withType(SassCompile.class).configureEach(task -> {
+            task.getOutputStyle().convention("NESTED");
+            task.getPrecision().convention(5);
+            task.getSourceComments().convention(false);
+        });
+
+        final TaskProvider<SassCompile> compileSass = project.getTasks().register(COMPILE_SASS_TASK_NAME, SassCompile.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Compiles all Sass files of the main source set.");
+            task.getSourceDir().convention(project.getLayout().getProjectDirectory().dir("src/main/scss"));
+            task.getDestinationDir().convention(project.getLayout().getBuildDirectory().dir("generated/sass"));
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, javaPlugin -> {
+            final SourceSet main = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            main.getResources().srcDir(compileSass);
+        });
+
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.gradle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @see com.cathive.sass.gradle.SassCompileAction
+ */
+public class SassCompileActionTest {
+
+    @Test
+    public void testToOutputPath() {
+        assertEquals("main.css", SassCompileAction.toOutputPath("main.scss"));
+        assertEquals("themes/dark/theme.css", SassCompileAction.toOutputPath("themes/dark/theme.scss"));
+        assertEquals("themes.v2/theme.css", SassCompileAction.toOutputPath("themes.v2/theme"));
+        assertEquals("themes/.hidden.css", SassCompileAction.toOutputPath("themes/.hidden"));
+    }
+
+}
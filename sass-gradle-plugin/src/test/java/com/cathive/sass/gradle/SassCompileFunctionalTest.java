@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.gradle;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@code compileSass} task in a build of its own.
+ * @see com.cathive.sass.gradle.SassCompile
+ */
+public class SassCompileFunctionalTest {
+
+    private static final String TASK_PATH = ":compileSass";
+
+    private Path projectDir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.projectDir = Files.createTempDirectory("sass-gradle-plugin-test");
+        write("settings.gradle", "buildCache {\n    local {\n        directory = file('build-cache')\n    }\n}\n");
+        write("src/main/scss/main.scss", "@import 'colors';\n\ndiv {\n  color: $color;\n}\n");
+        write("src/main/scss-lib1/_colors.scss", "$color: red;\n");
+        write("src/main/scss-lib2/_colors.scss", "$color: blue;\n");
+        writeBuildFile("'src/main/scss-lib1', 'src/main/scss-lib2'");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walkFileTree(this.projectDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCompile() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build().task(TASK_PATH).getOutcome());
+        assertTrue(read("build/generated/sass/main.css").contains("red"));
+        assertEquals(TaskOutcome.UP_TO_DATE, build().task(TASK_PATH).getOutcome());
+    }
+
+    @Test
+    public void testNoSource() throws IOException {
+        Files.delete(this.projectDir.resolve("src/main/scss/main.scss"));
+        assertEquals(TaskOutcome.NO_SOURCE, build().task(TASK_PATH).getOutcome());
+    }
+
+    @Test
+    public void testBuildCache() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        final String css = read("build/generated/sass/main.css");
+        assertEquals(TaskOutcome.FROM_CACHE, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        assertEquals(css, read("build/generated/sass/main.css"));
+    }
+
+    @Test
+    public void testIncludePathReordered() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        final String css = read("build/generated/sass/main.css");
+        writeBuildFile("'src/main/scss-lib2', 'src/main/scss-lib1'");
+        assertEquals(TaskOutcome.SUCCESS, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        assertNotEquals(css, read("build/generated/sass/main.css"));
+        assertTrue(read("build/generated/sass/main.css").contains("blue"));
+    }
+
+    @Test
+    public void testPartialMovedToSourceDir() throws IOException {
+        assertEquals(TaskOutcome.SUCCESS, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        final Path partial = this.projectDir.resolve("src/main/scss/_colors.scss");
+        Files.move(this.projectDir.resolve("src/main/scss-lib2/_colors.scss"), partial);
+        assertEquals(TaskOutcome.SUCCESS, build("clean", "compileSass", "--build-cache").task(TASK_PATH).getOutcome());
+        assertTrue(read("build/generated/sass/main.css").contains("blue"));
+    }
+
+    private BuildResult build(final String... arguments) {
+        return GradleRunner.create()
+                .withProjectDir(this.projectDir.toFile())
+                .withPluginClasspath()
+                .withArguments(arguments.length == 0 ? new String[] { "compileSass" } : arguments)
+                .build();
+    }
+
+    private void writeBuildFile(final String includePath) throws IOException {
+        write("build.gradle", "plugins {\n    id 'base'\n    id 'com.cathive.sass'\n}\n\ncompileSass {\n    includePath.from " + includePath + "\n}\n");
+    }
+
+    private void write(final String path, final String content) throws IOException {
+        final Path file = this.projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(final String path) throws IOException {
+        return new String(Files.readAllBytes(this.projectDir.resolve(path)), StandardCharsets.UTF_8);
+    }
+
+}
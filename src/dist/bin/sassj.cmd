@@ -0,0 +1,6 @@
+@echo off
+rem Launcher of the sassj command line compiler. (See bin/sassj for details.)
+setlocal
+set APP_HOME=%~dp0..
+if "%PROCESSOR_ARCHITECTURE%"=="AMD64" (set PLATFORM=win32-x86-64) else (set PLATFORM=win32-x86)
+"%APP_HOME%\runtime\bin\java" -Xshare:auto -XX:SharedArchiveFile="%APP_HOME%\lib\sassj.jsa" -XX:+IgnoreUnrecognizedVMOptions -XX:+AutoCreateSharedArchive -Xlog:disable -Xlog:all=warning:stderr -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Djna.library.path="%APP_HOME%\lib\native\%PLATFORM%" %SASSJ_OPTS% -cp "%APP_HOME%\lib\*" com.cathive.sass.SassJ %*
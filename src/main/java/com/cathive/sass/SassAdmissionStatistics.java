@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * A snapshot of the admission control of a {@link SassService}.
+ * @see SassService#getAdmissionStatistics()
+ */
+public final class SassAdmissionStatistics implements Serializable {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    private final int activeCompiles;
+    private final long inFlightBytes;
+    private final int interactiveQueueDepth;
+    private final int batchQueueDepth;
+    private final long admittedCount;
+    private final long queuedCount;
+    private final long rejectedCount;
+    private final long totalQueueWaitMillis;
+    private final long maxQueueWaitMillis;
+
+    @ConstructorProperties({ "activeCompiles", "inFlightBytes", "interactiveQueueDepth", "batchQueueDepth", "admittedCount",
+                             "queuedCount", "rejectedCount", "totalQueueWaitMillis", "maxQueueWaitMillis" })
+    public SassAdmissionStatistics(final int activeCompiles,
+                                   final long inFlightBytes,
+                                   final int interactiveQueueDepth,
+                                   final int batchQueueDepth,
+                                   final long admittedCount,
+                                   final long queuedCount,
+                                   final long rejectedCount,
+                                   final long totalQueueWaitMillis,
+                                   final long maxQueueWaitMillis) {
+        super();
+        this.activeCompiles = activeCompiles;
+        this.inFlightBytes = inFlightBytes;
+        this.interactiveQueueDepth = interactiveQueueDepth;
+        this.batchQueueDepth = batchQueueDepth;
+        this.admittedCount = admittedCount;
+        this.queuedCount = queuedCount;
+        this.rejectedCount = rejectedCount;
+        this.totalQueueWaitMillis = totalQueueWaitMillis;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
+    /**
+     * Returns the number of compilations that have been admitted and are still running.
+     * @return
+     *     Number of active compilations.
+     */
+    public int getActiveCompiles() {
+        return this.activeCompiles;
+    }
+
+    /**
+     * Returns the input size of all active compilations.
+     * @return
+     *     Number of source bytes (entry files only).
+     */
+    public long getInFlightBytes() {
+        return this.inFlightBytes;
+    }
+
+    public int getInteractiveQueueDepth() {
+        return this.interactiveQueueDepth;
+    }
+
+    public int getBatchQueueDepth() {
+        return this.batchQueueDepth;
+    }
+
+    /**
+     * Returns the number of compilations that have been admitted, immediately or after waiting in a queue.
+     * @return
+     *     Number of admitted compilations.
+     */
+    public long getAdmittedCount() {
+        return this.admittedCount;
+    }
+
+    /**
+     * Returns the number of compilations that had to wait in a queue before they were admitted.
+     * @return
+     *     Number of queued compilations.
+     */
+    public long getQueuedCount() {
+        return this.queuedCount;
+    }
+
+    /**
+     * Returns the number of compilations that have been rejected, because their queue was full.
+     * @return
+     *     Number of rejected compilations.
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    public long getTotalQueueWaitMillis() {
+        return this.totalQueueWaitMillis;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return this.maxQueueWaitMillis;
+    }
+
+    /**
+     * Returns the average time that queued compilations had to wait before they were admitted.
+     * @return
+     *     Average wait time in milliseconds or {@code 0} if no compilation had to wait.
+     */
+    public double getAverageQueueWaitMillis() {
+        return this.queuedCount == 0L ? 0.0 : (double) this.totalQueueWaitMillis / this.queuedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SassAdmissionStatistics{activeCompiles=" + this.activeCompiles
+                + ", inFlightBytes=" + this.inFlightBytes
+                + ", interactiveQueueDepth=" + this.interactiveQueueDepth
+                + ", batchQueueDepth=" + this.batchQueueDepth
+                + ", admittedCount=" + this.admittedCount
+                + ", queuedCount=" + this.queuedCount
+                + ", rejectedCount=" + this.rejectedCount
+                + ", maxQueueWaitMillis=" + this.maxQueueWaitMillis + "}";
+    }
+
+}
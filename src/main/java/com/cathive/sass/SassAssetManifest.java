@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import com.google.common.io.BaseEncoding;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maps logical asset paths (e.g. {@code img/logo.png}) to their fingerprinted paths (e.g. {@code img/logo-3f2a9c1e.png}).
+ * <p>Manifests are either read from a JSON file with a single object of string properties (the format that is written
+ * by {@link #writeTo(Path)} and by most asset pipelines) or computed by hashing all files below an asset directory.
+ * Both are cached: a manifest file is only parsed again if it has been modified, and a file is only hashed again if
+ * its size or modification time has changed.</p>
+ * @see SassUrlRewriter
+ */
+public final class SassAssetManifest {
+
+    /** Number of hex digits of a fingerprint. */
+    private static final int FINGERPRINT_LENGTH = 8;
+
+    /** Parsed manifest files by absolute path. */
+    private static final ConcurrentMap<Path, Cached<SassAssetManifest>> MANIFESTS = new ConcurrentHashMap<>();
+
+    /** Fingerprints of asset files by absolute path. */
+    private static final ConcurrentMap<Path, Cached<String>> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    /** Fingerprinted paths by logical path. (Forward slashes, no leading slash.) */
+    private final Map<String, String> entries;
+
+    private SassAssetManifest(@Nonnull final Map<String, String> entries) {
+        super();
+        this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+    }
+
+    /**
+     * Creates a manifest from the given entries.
+     * @param entries
+     *     Fingerprinted paths by logical path, both relative to the asset root.
+     * @return
+     *     A new manifest.
+     */
+    @Nonnull
+    public static SassAssetManifest of(@Nonnull final Map<String, String> entries) {
+        return new SassAssetManifest(entries);
+    }
+
+    /**
+     * Reads a manifest file.
+     * @param manifestFile
+     *     JSON file with a single object that maps logical paths to fingerprinted paths.
+     * @return
+     *     The (cached) manifest.
+     * @throws IOException
+     *     If the file can't be read or is not a flat JSON object of strings.
+     */
+    @Nonnull
+    public static SassAssetManifest load(@Nonnull final Path manifestFile) throws IOException {
+        final Path key = manifestFile.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        final Cached<SassAssetManifest> cached = MANIFESTS.get(key);
+        if (cached != null && cached.isValid(attributes)) {
+            return cached.value;
+        }
+        final SassAssetManifest manifest = new SassAssetManifest(parse(new String(Files.readAllBytes(key), StandardCharsets.UTF_8)));
+        MANIFESTS.put(key, new Cached<>(attributes, manifest));
+        return manifest;
+    }
+
+    /**
+     * Computes a manifest of all files below the given asset directory. The fingerprint is inserted in front of the
+     * file extension: {@code img/logo.png} becomes {@code img/logo-<hash>.png}.
+     * @param assetRoot
+     *     Root directory of all assets.
+     * @return
+     *     A manifest of all files below the asset directory.
+     * @throws IOException
+     *     If the directory or one of its files can't be read.
+     */
+    @Nonnull
+    public static SassAssetManifest fingerprint(@Nonnull final Path assetRoot) throws IOException {
+        final Path root = assetRoot.toAbsolutePath().normalize();
+        final Map<String, String> entries = new TreeMap<>();
+        try (final Stream<Path> files = Files.walk(root)) {
+            for (final Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                final String logicalPath = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                entries.put(logicalPath, fingerprinted(logicalPath, fingerprintOf(file)));
+            }
+        }
+        return new SassAssetManifest(entries);
+    }
+
+    /**
+     * Returns the fingerprinted path of the given asset.
+     * @param logicalPath
+     *     Path of the asset relative to the asset root, with forward slashes.
+     * @return
+     *     The fingerprinted path or {@code null} if the asset is unknown.
+     */
+    @Nullable
+    public String get(@Nonnull final String logicalPath) {
+        return this.entries.get(logicalPath);
+    }
+
+    @Nonnull
+    public Map<String, String> getEntries() {
+        return this.entries;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Writes this manifest as a JSON file. The file is replaced atomically.
+     * @param manifestFile
+     *     File to be written.
+     * @throws IOException
+     *     If writing fails.
+     */
+    public void writeTo(@Nonnull final Path manifestFile) throws IOException {
+        final StringBuilder json = new StringBuilder("{");
+        for (final Map.Entry<String, String> entry : this.entries.entrySet()) {
+            json.append(json.length() > 1 ? ",\n  " : "\n  ");
+            SassStrings.appendJsonString(json, entry.getKey());
+            json.append(": ");
+            SassStrings.appendJsonString(json, entry.getValue());
+        }
+        json.append(this.entries.isEmpty() ? "}\n" : "\n}\n");
+        final Path target = manifestFile.toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        final Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SassAssetManifest{size=" + this.entries.size() + "}";
+    }
+
+    @Nonnull
+    static String fingerprinted(@Nonnull final String logicalPath, @Nonnull final String fingerprint) {
+        final int slash = logicalPath.lastIndexOf('/');
+        final int dot = logicalPath.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            return logicalPath + "-" + fingerprint;
+        }
+        return logicalPath.substring(0, dot) + "-" + fingerprint + logicalPath.substring(dot);
+    }
+
+    @Nonnull
+    private static String fingerprintOf(@Nonnull final Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final Cached<String> cached = FINGERPRINTS.get(file);
+        if (cached != null && cached.isValid(attributes)) {
+            return cached.value;
+        }
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[8192];
+        try (final InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final String fingerprint = BaseEncoding.base16().lowerCase().encode(digest.digest()).substring(0, FINGERPRINT_LENGTH);
+        FINGERPRINTS.put(file, new Cached<>(attributes, fingerprint));
+        return fingerprint;
+    }
+
+    /**
+     * Parses a flat JSON object of string properties.
+     */
+    @Nonnull
+    static Map<String, String> parse(@Nonnull final String json) throws IOException {
+        final Map<String, String> entries = new TreeMap<>();
+        final int[] position = { skipWhitespace(json, 0) };
+        expect(json, position, '{');
+        if (peek(json, position) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                final String key = readString(json, position);
+                expect(json, position, ':');
+                entries.put(key, readString(json, position));
+                final char next = peek(json, position);
+                position[0]++;
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new IOException("Expected ',' or '}' at offset " + (position[0] - 1) + " of asset manifest.");
+                }
+            }
+        }
+        if (skipWhitespace(json, position[0]) != json.length()) {
+            throw new IOException("Unexpected content after offset " + position[0] + " of asset manifest.");
+        }
+        return entries;
+    }
+
+    private static void expect(@Nonnull final String json, @Nonnull final int[] position, final char expected) throws IOException {
+        if (peek(json, position) != expected) {
+            throw new IOException("Expected '" + expected + "' at offset " + position[0] + " of asset manifest.");
+        }
+        position[0]++;
+    }
+
+    private static char peek(@Nonnull final String json, @Nonnull final int[] position) throws IOException {
+        position[0] = skipWhitespace(json, position[0]);
+        if (position[0] >= json.length()) {
+            throw new IOException("Unexpected end of asset manifest.");
+        }
+        return json.charAt(position[0]);
+    }
+
+    private static int skipWhitespace(@Nonnull final String json, final int position) {
+        int i = position;
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull final String json, @Nonnull final int[] position) throws IOException {
+        expect(json, position, '"');
+        final StringBuilder value = new StringBuilder();
+        int i = position[0];
+        while (true) {
+            if (i >= json.length()) {
+                throw new IOException("Unterminated string in asset manifest.");
+            }
+            final char c = json.charAt(i++);
+            if (c == '"') {
+                break;
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (i >= json.length()) {
+                throw new IOException("Unterminated string in asset manifest.");
+            }
+            final char escaped = json.charAt(i++);
+            switch (escaped) {
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (i + 4 > json.length()) {
+                        throw new IOException("Invalid unicode escape in asset manifest.");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(json.substring(i, i + 4), 16));
+                    } catch (final NumberFormatException e) {
+                        throw new IOException("Invalid unicode escape in asset manifest.", e);
+                    }
+                    i += 4;
+                    break;
+                default: value.append(escaped); break;
+            }
+        }
+        position[0] = i;
+        return value.toString();
+    }
+
+    /**
+     * A value that is valid as long as its file has not been modified.
+     */
+    private static final class Cached<T> {
+
+        private final FileTime lastModified;
+        private final long size;
+        private final T value;
+
+        private Cached(@Nonnull final BasicFileAttributes attributes, @Nonnull final T value) {
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.value = value;
+        }
+
+        private boolean isValid(@Nonnull final BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.lastModified.equals(attributes.lastModifiedTime());
+        }
+
+    }
+
+}
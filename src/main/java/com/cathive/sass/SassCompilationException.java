@@ -31,6 +31,9 @@ public class SassCompilationException extends RuntimeException {
     /** Numeric status code as returned by the libsass compiler. */
     private final int status;
 
+    /** Error message as reported by the libsass compiler. */
+    private final String errorMessage;
+
     /** Name of the input file that caused issues. */
     private final String fileName;
 
@@ -69,6 +72,7 @@ public class SassCompilationException extends RuntimeException {
         super(MessageFormat.format("[{0}:{1}:{2}] {3}", fileName, line, column, message));
 
         this.status = status;
+        this.errorMessage = message;
         this.fileName = fileName;
         this.line = line;
         this.column = column;
@@ -80,6 +84,10 @@ public class SassCompilationException extends RuntimeException {
         return this.status;
     }
 
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
     public String getFileName() {
         return this.fileName;
     }
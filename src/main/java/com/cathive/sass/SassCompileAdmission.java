@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Limits the number of concurrent compilations and the size of their inputs.
+ * <p>A compilation is admitted immediately if it fits into the limits and nobody of its own or a higher
+ * priority lane is waiting. Otherwise it is queued in its lane. Whenever a compilation finishes, queued
+ * interactive compilations are admitted first, then queued batch compilations, each lane in FIFO order.
+ * Batch compilations never occupy the permits that are reserved for interactive compilations. At most all but one
+ * of the permits can be reserved, so that batch compilations can't starve. If the queue
+ * of a lane is full, compilations are rejected right away with a {@link SassCompileRejectedException}.</p>
+ * <p>A single compilation that is larger than the byte budget is admitted as soon as no other compilation is
+ * active, so that it can't block its lane forever.</p>
+ * <p>A compilation keeps its permit until it has actually finished. A runaway compilation that has exceeded its
+ * deadline still occupies a compile thread and native memory, so it keeps its permit (and counts as active)
+ * although its caller has already been released.</p>
+ */
+final class SassCompileAdmission {
+
+    /** Maximum number of concurrent compilations. ({@code 0} = unlimited) */
+    private int maxConcurrentCompiles = 0;
+
+    /** Maximum input size of all concurrent compilations. ({@code 0} = unlimited) */
+    private long maxInFlightBytes = 0L;
+
+    /** Maximum number of queued compilations per lane. ({@code 0} = unlimited) */
+    private int maxQueueDepth = 0;
+
+    /** Number of permits that can only be used by interactive compilations. */
+    private int reservedInteractiveCompiles = 0;
+
+    private int activeCompiles;
+    private long inFlightBytes;
+    private final Deque<Waiter> interactiveQueue = new ArrayDeque<>();
+    private final Deque<Waiter> batchQueue = new ArrayDeque<>();
+
+    private long admittedCount;
+    private long queuedCount;
+    private long rejectedCount;
+    private long totalQueueWaitNanos;
+    private long maxQueueWaitNanos;
+
+    SassCompileAdmission() {
+        super();
+    }
+
+    /**
+     * Checks whether any limit has been configured.
+     * @return
+     *     {@code false} if all compilations are admitted immediately.
+     */
+    synchronized boolean isEnabled() {
+        return this.maxConcurrentCompiles > 0 || this.maxInFlightBytes > 0L;
+    }
+
+    synchronized int getMaxConcurrentCompiles() {
+        return this.maxConcurrentCompiles;
+    }
+
+    void setMaxConcurrentCompiles(final int maxConcurrentCompiles) {
+        synchronized (this) {
+            this.maxConcurrentCompiles = Math.max(0, maxConcurrentCompiles);
+        }
+        this.dispatch();
+    }
+
+    synchronized long getMaxInFlightBytes() {
+        return this.maxInFlightBytes;
+    }
+
+    void setMaxInFlightBytes(final long maxInFlightBytes) {
+        synchronized (this) {
+            this.maxInFlightBytes = Math.max(0L, maxInFlightBytes);
+        }
+        this.dispatch();
+    }
+
+    synchronized int getMaxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    synchronized void setMaxQueueDepth(final int maxQueueDepth) {
+        this.maxQueueDepth = Math.max(0, maxQueueDepth);
+    }
+
+    synchronized int getReservedInteractiveCompiles() {
+        return this.reservedInteractiveCompiles;
+    }
+
+    void setReservedInteractiveCompiles(final int reservedInteractiveCompiles) {
+        synchronized (this) {
+            this.reservedInteractiveCompiles = Math.max(0, reservedInteractiveCompiles);
+        }
+        this.dispatch();
+    }
+
+    /**
+     * Starts the given compilation as soon as it has been admitted.
+     * @param priority
+     *     Priority lane of the compilation.
+     * @param inputSize
+     *     Size of the input in bytes or {@code -1} if unknown.
+     * @param input
+     *     Description of the input, used for rejections.
+     * @param compilation
+     *     Starts the compilation. Invoked on the calling thread if the compilation is admitted immediately,
+     *     otherwise on the thread that finishes the compilation that makes room for it. Receives a callback that
+     *     must be run once the compilation has actually finished (which may be later than the completion of the
+     *     returned future, e.g. if the compilation exceeded its deadline); the permit is released by it.
+     * @return
+     *     A future that will be completed with the result of the compilation, or exceptionally with a
+     *     {@link SassCompileRejectedException}. Cancelling it while the compilation is queued removes it from
+     *     the queue.
+     */
+    @Nonnull
+    CompletableFuture<String> submit(@Nonnull final SassCompilePriority priority,
+                                     final long inputSize,
+                                     @Nonnull final String input,
+                                     @Nonnull final Function<Runnable, CompletableFuture<String>> compilation) {
+        final CompletableFuture<Permit> permit = this.acquire(priority, Math.max(0L, inputSize), input);
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        result.whenComplete((output, failure) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        permit.whenComplete((granted, rejection) -> {
+            if (rejection != null) {
+                result.completeExceptionally(rejection);
+                return;
+            }
+            if (result.isDone()) {
+                granted.release();
+                return;
+            }
+            final CompletableFuture<String> running;
+            try {
+                running = compilation.apply(granted::release);
+            } catch (final Throwable e) {
+                granted.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            running.whenComplete((output, failure) -> {
+                if (failure == null) {
+                    result.complete(output);
+                } else {
+                    result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+                }
+            });
+            result.whenComplete((output, failure) -> {
+                if (result.isCancelled()) {
+                    running.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Acquires a permit for a compilation.
+     */
+    @Nonnull
+    CompletableFuture<Permit> acquire(@Nonnull final SassCompilePriority priority, final long inputSize, @Nonnull final String input) {
+        final Waiter waiter;
+        synchronized (this) {
+            final Deque<Waiter> queue = this.queueOf(priority);
+            final boolean queueAhead = !this.interactiveQueue.isEmpty() || (priority == SassCompilePriority.BATCH && !this.batchQueue.isEmpty());
+            if (!queueAhead && this.fits(priority, inputSize)) {
+                return CompletableFuture.completedFuture(this.grant(inputSize));
+            }
+            if (this.maxQueueDepth > 0 && queue.size() >= this.maxQueueDepth) {
+                this.rejectedCount++;
+                final CompletableFuture<Permit> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new SassCompileRejectedException(input, priority, queue.size()));
+                return rejected;
+            }
+            waiter = new Waiter(priority, inputSize);
+            queue.addLast(waiter);
+            this.queuedCount++;
+        }
+        waiter.future.whenComplete((permit, failure) -> {
+            if (waiter.future.isCancelled()) {
+                synchronized (this) {
+                    this.queueOf(waiter.priority).remove(waiter);
+                }
+            }
+        });
+        return waiter.future;
+    }
+
+    /**
+     * Returns a snapshot of the current state.
+     * @return
+     *     Statistics of this admission control.
+     */
+    @Nonnull
+    synchronized SassAdmissionStatistics getStatistics() {
+        return new SassAdmissionStatistics(this.activeCompiles, this.inFlightBytes, this.interactiveQueue.size(),
+                                           this.batchQueue.size(), this.admittedCount, this.queuedCount, this.rejectedCount,
+                                           TimeUnit.NANOSECONDS.toMillis(this.totalQueueWaitNanos),
+                                           TimeUnit.NANOSECONDS.toMillis(this.maxQueueWaitNanos));
+    }
+
+    private void release(@Nonnull final Permit permit) {
+        synchronized (this) {
+            this.activeCompiles--;
+            this.inFlightBytes -= permit.inputSize;
+        }
+        this.dispatch();
+    }
+
+    /**
+     * Admits as many queued compilations as possible.
+     */
+    private void dispatch() {
+        final List<Waiter> admitted = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.nanoTime();
+            while (true) {
+                final Waiter waiter;
+                if (!this.interactiveQueue.isEmpty()) {
+                    waiter = this.interactiveQueue.peekFirst();
+                } else {
+                    waiter = this.batchQueue.peekFirst();
+                }
+                if (waiter == null || !this.fits(waiter.priority, waiter.inputSize)) {
+                    break;
+                }
+                this.queueOf(waiter.priority).removeFirst();
+                waiter.permit = this.grant(waiter.inputSize);
+                final long waited = now - waiter.enqueued;
+                this.totalQueueWaitNanos += waited;
+                this.maxQueueWaitNanos = Math.max(this.maxQueueWaitNanos, waited);
+                admitted.add(waiter);
+            }
+        }
+        // Futures are completed outside of the lock, because they start the compilations.
+        for (final Waiter waiter : admitted) {
+            if (!waiter.future.complete(waiter.permit)) {
+                // Cancelled in the meantime.
+                waiter.permit.release();
+            }
+        }
+    }
+
+    private boolean fits(@Nonnull final SassCompilePriority priority, final long inputSize) {
+        if (this.maxConcurrentCompiles > 0) {
+            final int reserved = Math.min(this.reservedInteractiveCompiles, this.maxConcurrentCompiles - 1);
+            final int limit = priority == SassCompilePriority.BATCH
+                    ? this.maxConcurrentCompiles - reserved
+                    : this.maxConcurrentCompiles;
+            if (this.activeCompiles >= limit) {
+                return false;
+            }
+        }
+        return this.maxInFlightBytes <= 0L || this.activeCompiles == 0 || this.inFlightBytes + inputSize <= this.maxInFlightBytes;
+    }
+
+    @Nonnull
+    private Permit grant(final long inputSize) {
+        this.activeCompiles++;
+        this.inFlightBytes += inputSize;
+        this.admittedCount++;
+        return new Permit(inputSize);
+    }
+
+    @Nonnull
+    private Deque<Waiter> queueOf(@Nonnull final SassCompilePriority priority) {
+        return priority == SassCompilePriority.BATCH ? this.batchQueue : this.interactiveQueue;
+    }
+
+    /**
+     * Permission to run one compilation. Must be released exactly once when the compilation has finished.
+     */
+    final class Permit {
+
+        private final long inputSize;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(final long inputSize) {
+            this.inputSize = inputSize;
+        }
+
+        void release() {
+            if (this.released.compareAndSet(false, true)) {
+                SassCompileAdmission.this.release(this);
+            }
+        }
+
+    }
+
+    /**
+     * A queued compilation.
+     */
+    private static final class Waiter {
+
+        private final SassCompilePriority priority;
+        private final long inputSize;
+        private final long enqueued = System.nanoTime();
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+        private Permit permit;
+
+        private Waiter(final SassCompilePriority priority, final long inputSize) {
+            this.priority = priority;
+            this.inputSize = inputSize;
+        }
+
+    }
+
+}
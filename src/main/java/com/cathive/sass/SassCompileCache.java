@@ -0,0 +1,648 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import com.cathive.sass.jna.SassLibrary;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Striped;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent, content-addressed cache of compiled stylesheets that can be shared by many JVMs (e.g. all build
+ * agents or application nodes that mount the same directory).
+ * <p>The key of a compiled stylesheet is a hash of the contents of its entry file and of all files it has imported,
+ * its options and the version of libsass. Since the imported files are only known after a compilation, each
+ * lookup is done in two steps: a <em>manifest</em>, keyed by the entry contents, options and libsass version,
+ * lists the files that the entry has imported the last time it was compiled. Their current contents determine the
+ * key of the cached <em>object</em>, which holds the CSS, the source map and the list of dependencies.</p>
+ * <p>Paths are stored relative to the directory of the entry file, so that checkouts at different locations share
+ * their entries (unless source comments or source maps are generated, which may contain absolute paths). Files are hashed via memory-mapped reads; hashes are remembered as long as a file's size and
+ * modification time don't change.</p>
+ * <p>All files of the cache are written to temporary files that atomically replace their target, so readers never
+ * need to lock. Writers of the same key are serialized by a lock within this JVM and a file lock across JVMs.</p>
+ */
+public final class SassCompileCache {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassCompileCache.class.getName());
+
+    /** Marks the beginning of each cached object ("SASC"). */
+    private static final int MAGIC = 0x53415343;
+
+    /** Version of the cache format. Part of every key. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Number of lock stripes. */
+    private static final int LOCK_STRIPES = 64;
+
+    /** Maximum size of a single memory mapping. */
+    private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+    private static final String MANIFESTS_DIRECTORY = "manifests";
+    private static final String OBJECTS_DIRECTORY = "objects";
+    private static final String LOCK_FILE = "cache.lock";
+
+    /**
+     * Locks that serialize all writers of a cache directory within this JVM, by real path of the directory. File
+     * locks are held per JVM, not per thread or instance, so all instances on the same directory must share them.
+     */
+    private static final ConcurrentMap<Path, Striped<Lock>> DIRECTORY_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Performs a compilation on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Compiler {
+
+        /**
+         * Compiles the given Sass context.
+         * @param context
+         *     Sass context to be compiled.
+         * @return
+         *     The result of the compilation.
+         * @throws IOException
+         *     If the compilation fails.
+         */
+        String compile(@Nonnull SassContext context) throws IOException;
+
+    }
+
+    /** Root directory of the cache. */
+    private final Path directory;
+
+    /** Version of the native library, which is part of every key. */
+    private final String libsassVersion;
+
+    /** Serializes all writers of a key within this JVM. (Resolved on the first write.) */
+    private volatile Striped<Lock> locks;
+
+    /** Content hashes of all files that have been hashed so far. */
+    private final ConcurrentMap<Path, FileHash> fileHashes = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder storeCount = new LongAdder();
+
+    /**
+     * Creates a cache that is stored in the given directory.
+     * @param directory
+     *     Root directory of the cache. Will be created if it doesn't exist.
+     */
+    public SassCompileCache(@Nonnull final Path directory) {
+        this(directory, SassLibrary.INSTANCE.libsass_version());
+    }
+
+    SassCompileCache(@Nonnull final Path directory, @Nonnull final String libsassVersion) {
+        super();
+        this.directory = Objects.requireNonNull(directory, "Directory must not be null!").toAbsolutePath();
+        this.libsassVersion = Objects.requireNonNull(libsassVersion, "libsass version must not be null!");
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the cached result of the given context or compiles it and stores the result.
+     * <p>Only file contexts without callbacks (importers, headers) can be cached. All other contexts are just
+     * compiled. A result is only stored if the compilation has reported its imported files (i.e. if it has been
+     * compiled in-process) and if none of them has been modified since the compilation started.</p>
+     * @param context
+     *     Sass context to be compiled.
+     * @param compiler
+     *     Performs the compilation on a cache miss.
+     * @return
+     *     The (cached) result of the compilation.
+     * @throws IOException
+     *     If the compilation fails.
+     */
+    public String compile(@Nonnull final SassContext context, @Nonnull final Compiler compiler) throws IOException {
+        if (!isCacheable(context)) {
+            return compiler.compile(context);
+        }
+        final Path entry = ((SassFileContext) context).getInputFile();
+        final SassOptionsSnapshot options = SassOptionsSnapshot.of(context.getOptions());
+        final String cached = this.lookup(context, entry, options);
+        if (cached != null) {
+            return cached;
+        }
+        final long start = System.currentTimeMillis();
+        final String css = compiler.compile(context);
+        this.store(context, entry, options, css, start);
+        return css;
+    }
+
+    /**
+     * Returns the cached result of the given context or compiles it asynchronously and stores the result.
+     * <p>The same rules as for {@link #compile(SassContext, Compiler)} apply. The cache is looked up on the calling
+     * thread, the result is stored on the thread that completes the compilation.</p>
+     * @param context
+     *     Sass context to be compiled.
+     * @param compiler
+     *     Starts the compilation on a cache miss.
+     * @return
+     *     A future that will be completed with the (cached) result of the compilation.
+     */
+    @Nonnull
+    public CompletableFuture<String> compileAsync(@Nonnull final SassContext context,
+                                                  @Nonnull final Function<SassContext, CompletableFuture<String>> compiler) {
+        if (!isCacheable(context)) {
+            return compiler.apply(context);
+        }
+        final Path entry = ((SassFileContext) context).getInputFile();
+        final SassOptionsSnapshot options = SassOptionsSnapshot.of(context.getOptions());
+        final String cached = this.lookup(context, entry, options);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        final long start = System.currentTimeMillis();
+        return compiler.apply(context).thenApply(css -> {
+            this.store(context, entry, options, css, start);
+            return css;
+        });
+    }
+
+    /**
+     * Checks whether the result of the given context may be cached.
+     */
+    private static boolean isCacheable(@Nonnull final SassContext context) {
+        return context instanceof SassFileContext && !context.getOptions().hasCallbacks();
+    }
+
+    /**
+     * Looks up the cached result of the given context and records its dependencies on the context.
+     * @return
+     *     The cached CSS or {@code null} on a cache miss.
+     */
+    @Nullable
+    private String lookup(@Nonnull final SassContext context, @Nonnull final Path entry, @Nonnull final SassOptionsSnapshot options) {
+        try {
+            final Entry cached = this.lookup(entry, options);
+            if (cached != null) {
+                final List<Path> includedFiles = new ArrayList<>(cached.getDependencies().size() + 1);
+                includedFiles.add(entry);
+                includedFiles.addAll(cached.getDependencies());
+                context.setCachedResult(includedFiles, cached.getSourceMap());
+                return cached.getCss();
+            }
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read compile cache {0}: {1}", new Object[]{ this.directory, e.getMessage() });
+        }
+        return null;
+    }
+
+    /**
+     * Stores the result of the given context, unless its dependencies are unknown or have been modified since the
+     * compilation started.
+     */
+    private void store(@Nonnull final SassContext context,
+                       @Nonnull final Path entry,
+                       @Nonnull final SassOptionsSnapshot options,
+                       @Nonnull final String css,
+                       final long start) {
+        final List<Path> dependencies = context.getIncludedFiles();
+        if (!dependencies.isEmpty() && isUnmodifiedSince(dependencies, start)) {
+            try {
+                this.store(entry, options, css, context.getSourceMap(), dependencies);
+            } catch (final IOException | RuntimeException e) {
+                // The compilation itself has succeeded, so a cache that can't be written must not fail it.
+                LOGGER.log(Level.WARNING, "Could not write compile cache {0}: {1}", new Object[]{ this.directory, e });
+            }
+        }
+    }
+
+    /**
+     * Looks up the compiled result of the given entry file.
+     * @param entry
+     *     SCSS entry file.
+     * @param options
+     *     Options of the compilation.
+     * @return
+     *     The cached result or {@code null} if the entry or one of its dependencies has changed.
+     * @throws IOException
+     *     If reading the cache fails.
+     */
+    @Nullable
+    public Entry lookup(@Nonnull final Path entry, @Nonnull final SassOptionsSnapshot options) throws IOException {
+        final Path entryFile = entry.toAbsolutePath().normalize();
+        final Path base = entryFile.getParent();
+        final String manifestKey;
+        try {
+            manifestKey = this.manifestKey(entryFile, options);
+        } catch (final NoSuchFileException e) {
+            this.missCount.increment();
+            return null;
+        }
+        final byte[] manifest = readIfExists(this.path(MANIFESTS_DIRECTORY, manifestKey));
+        if (manifest == null) {
+            this.missCount.increment();
+            return null;
+        }
+        final List<String> dependencies = new ArrayList<>();
+        for (final String line : new String(manifest, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                dependencies.add(line);
+            }
+        }
+        final String objectKey;
+        try {
+            objectKey = this.objectKey(manifestKey, base, dependencies);
+        } catch (final NoSuchFileException e) {
+            this.missCount.increment();
+            return null;
+        }
+        final byte[] object = readIfExists(this.path(OBJECTS_DIRECTORY, objectKey));
+        final Entry result = object == null ? null : Entry.read(object, base);
+        if (result == null) {
+            this.missCount.increment();
+        } else {
+            this.hitCount.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Stores the compiled result of the given entry file.
+     * @param entry
+     *     SCSS entry file.
+     * @param options
+     *     Options of the compilation.
+     * @param css
+     *     The compiled CSS.
+     * @param sourceMap
+     *     The source map or {@code null} if none has been generated.
+     * @param dependencies
+     *     All files that have been read during the compilation. (Paths that are not absolute are ignored.)
+     * @throws IOException
+     *     If writing the cache fails.
+     */
+    public void store(@Nonnull final Path entry,
+                      @Nonnull final SassOptionsSnapshot options,
+                      @Nonnull final String css,
+                      @Nullable final String sourceMap,
+                      @Nonnull final Collection<Path> dependencies) throws IOException {
+        final Path entryFile = entry.toAbsolutePath().normalize();
+        final Path base = entryFile.getParent();
+        final TreeSet<String> relativeDependencies = new TreeSet<>();
+        for (final Path dependency : dependencies) {
+            if (dependency.isAbsolute() && !dependency.normalize().equals(entryFile)) {
+                relativeDependencies.add(toPortable(base, dependency.normalize()));
+            }
+        }
+        final List<String> sortedDependencies = new ArrayList<>(relativeDependencies);
+        final String manifestKey = this.manifestKey(entryFile, options);
+        final String objectKey = this.objectKey(manifestKey, base, sortedDependencies);
+
+        final ByteArrayOutputStream object = new ByteArrayOutputStream(css.length() + 256);
+        try (final DataOutputStream out = new DataOutputStream(object)) {
+            out.writeInt(MAGIC);
+            SassDataStreams.writeString(out, css);
+            SassDataStreams.writeString(out, sourceMap);
+            out.writeInt(sortedDependencies.size());
+            for (final String dependency : sortedDependencies) {
+                SassDataStreams.writeString(out, dependency);
+            }
+        }
+        final StringBuilder manifest = new StringBuilder();
+        for (final String dependency : sortedDependencies) {
+            manifest.append(dependency).append('\n');
+        }
+
+        this.write(this.path(OBJECTS_DIRECTORY, objectKey), object.toByteArray(), false);
+        this.write(this.path(MANIFESTS_DIRECTORY, manifestKey), manifest.toString().getBytes(StandardCharsets.UTF_8), true);
+        this.storeCount.increment();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    public long getStoreCount() {
+        return this.storeCount.sum();
+    }
+
+    /**
+     * Computes the key of the manifest of an entry file: format version, libsass version, options and the
+     * contents of the entry file.
+     */
+    @Nonnull
+    private String manifestKey(@Nonnull final Path entryFile, @Nonnull final SassOptionsSnapshot options) throws IOException {
+        final MessageDigest digest = sha256();
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(this.libsassVersion);
+            out.writeInt(options.getPrecision());
+            out.writeInt(options.getOutputStyle().getIntValue());
+            out.writeBoolean(options.getSourceComments());
+            out.writeBoolean(options.getSourceMapEmbed());
+            out.writeBoolean(options.getSourceMapContents());
+            out.writeBoolean(options.getOmitSourceMapUrl());
+            out.writeBoolean(options.getIsIndentedSyntaxSrc());
+            final Path base = entryFile.getParent();
+            SassDataStreams.writeString(out, relativize(base, options.getOutputPath()));
+            out.writeInt(options.getIncludePath().size());
+            for (final String includePath : options.getIncludePath()) {
+                SassDataStreams.writeString(out, relativize(base, includePath));
+            }
+            SassDataStreams.writeString(out, relativize(base, options.getSourceMapFile()));
+            SassDataStreams.writeString(out, options.getSourceMapRoot());
+            // Source comments and source maps may contain absolute paths, so they can't be shared across checkouts.
+            final boolean relocatable = !options.getSourceComments() && !options.getSourceMapEmbed() && options.getSourceMapFile() == null;
+            SassDataStreams.writeString(out, relocatable ? null : base.toString());
+        }
+        digest.update(header.toByteArray());
+        digest.update(this.hash(entryFile));
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Computes the key of a cached object: the manifest key and the paths and contents of all dependencies.
+     */
+    @Nonnull
+    private String objectKey(@Nonnull final String manifestKey, @Nonnull final Path base, @Nonnull final List<String> dependencies) throws IOException {
+        final MessageDigest digest = sha256();
+        digest.update(manifestKey.getBytes(StandardCharsets.US_ASCII));
+        for (final String dependency : dependencies) {
+            digest.update((byte) 0);
+            digest.update(dependency.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(this.hash(base.resolve(dependency).normalize()));
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 hash of the contents of the given file, using memory-mapped reads.
+     * @throws NoSuchFileException
+     *     If the file doesn't exist (anymore).
+     */
+    @Nonnull
+    private byte[] hash(@Nonnull final Path file) throws IOException {
+        final FileTime lastModified = Files.getLastModifiedTime(file);
+        final long size = Files.size(file);
+        final FileHash known = this.fileHashes.get(file);
+        if (known != null && known.size == size && known.lastModified.equals(lastModified)) {
+            return known.hash;
+        }
+        final MessageDigest digest = sha256();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long channelSize = channel.size();
+            for (long position = 0L; position < channelSize; position += MAX_MAPPING_SIZE) {
+                final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPING_SIZE, channelSize - position));
+                digest.update(mapping);
+            }
+        }
+        final byte[] hash = digest.digest();
+        this.fileHashes.put(file, new FileHash(size, lastModified, hash));
+        return hash;
+    }
+
+    /**
+     * Returns the locks of the directory of this cache, which are shared with all other instances on it.
+     */
+    @Nonnull
+    private Striped<Lock> getLocks() throws IOException {
+        Striped<Lock> locks = this.locks;
+        if (locks == null) {
+            locks = DIRECTORY_LOCKS.computeIfAbsent(this.directory.toRealPath(), directory -> Striped.lock(LOCK_STRIPES));
+            this.locks = locks;
+        }
+        return locks;
+    }
+
+    /**
+     * Atomically writes a file of this cache while holding the lock of its key.
+     * @param replace
+     *     Whether an existing file shall be replaced. (Objects are immutable, manifests are not.)
+     */
+    private void write(@Nonnull final Path target, @Nonnull final byte[] content, final boolean replace) throws IOException {
+        final Path parent = target.getParent();
+        Files.createDirectories(parent);
+        final int stripe = Math.floorMod(target.getFileName().toString().hashCode(), LOCK_STRIPES);
+        final Lock lock = this.getLocks().getAt(stripe);
+        lock.lock();
+        try (final FileChannel lockChannel = FileChannel.open(this.directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             final FileLock fileLock = lockChannel.lock(stripe, 1L, false)) {
+            if (!replace && Files.exists(target)) {
+                return;
+            }
+            final Path temp = Files.createTempFile(parent, "." + target.getFileName() + ".", ".tmp");
+            try {
+                Files.write(temp, content);
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (final AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nonnull
+    private Path path(@Nonnull final String type, @Nonnull final String key) {
+        return this.directory.resolve(type).resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+
+    @Nullable
+    private static byte[] readIfExists(@Nonnull final Path file) throws IOException {
+        try {
+            return Files.readAllBytes(file);
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether none of the given files has been modified at or after the given time.
+     */
+    private static boolean isUnmodifiedSince(@Nonnull final List<Path> files, final long millis) {
+        for (final Path file : files) {
+            if (!file.isAbsolute()) {
+                continue;
+            }
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() >= millis) {
+                    return false;
+                }
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes an absolute path relative to the given base directory, so that it doesn't depend on the
+     * location of the checkout.
+     */
+    @Nullable
+    private static String relativize(@Nonnull final Path base, @Nullable final String path) {
+        if (path == null) {
+            return null;
+        }
+        final Path resolved = base.getFileSystem().getPath(path);
+        return resolved.isAbsolute() ? toPortable(base, resolved.normalize()) : path;
+    }
+
+    /**
+     * Returns the given absolute path relative to the base directory, using forward slashes. Paths that can't be
+     * relativized (e.g. on another drive) are returned as they are.
+     */
+    @Nonnull
+    private static String toPortable(@Nonnull final Path base, @Nonnull final Path path) {
+        try {
+            return base.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+        } catch (final IllegalArgumentException e) {
+            return path.toString();
+        }
+    }
+
+    @Nonnull
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A compiled stylesheet that has been read from the cache.
+     */
+    public static final class Entry {
+
+        private final String css;
+        private final String sourceMap;
+        private final List<Path> dependencies;
+
+        private Entry(@Nonnull final String css, @Nullable final String sourceMap, @Nonnull final List<Path> dependencies) {
+            super();
+            this.css = css;
+            this.sourceMap = sourceMap;
+            this.dependencies = Collections.unmodifiableList(dependencies);
+        }
+
+        @Nullable
+        private static Entry read(@Nonnull final byte[] object, @Nonnull final Path base) {
+            try (final InputStream bytes = new ByteArrayInputStream(object);
+                 final DataInputStream in = new DataInputStream(bytes)) {
+                if (in.readInt() != MAGIC) {
+                    return null;
+                }
+                final String css = SassDataStreams.readString(in);
+                final String sourceMap = SassDataStreams.readString(in);
+                final int size = in.readInt();
+                final List<Path> dependencies = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    dependencies.add(base.resolve(SassDataStreams.readString(in)).normalize());
+                }
+                return css == null ? null : new Entry(css, sourceMap, dependencies);
+            } catch (final EOFException e) {
+                LOGGER.log(Level.FINE, "Ignoring truncated cache object.");
+                return null;
+            } catch (final IOException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Ignoring corrupt cache object.", e);
+                return null;
+            }
+        }
+
+        @Nonnull
+        public String getCss() {
+            return this.css;
+        }
+
+        @Nullable
+        public String getSourceMap() {
+            return this.sourceMap;
+        }
+
+        /**
+         * Returns all files (besides the entry file itself) that the stylesheet has been compiled from.
+         * @return
+         *     Absolute paths of all dependencies.
+         */
+        @Nonnull
+        public List<Path> getDependencies() {
+            return this.dependencies;
+        }
+
+    }
+
+    /**
+     * The content hash of a file, valid as long as its size and modification time don't change.
+     */
+    private static final class FileHash {
+
+        private final long size;
+        private final FileTime lastModified;
+        private final byte[] hash;
+
+        private FileHash(final long size, @Nonnull final FileTime lastModified, @Nonnull final byte[] hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical compilations ("single flight").
+ * <p>While a compilation of a given key is in flight, all further compilations of the same key don't start a
+ * compilation of their own but share the result (or failure) of the one that is already running. Keys are made
+ * of the entry file and a {@link SassOptionsSnapshot snapshot} of the options, so only file contexts without
+ * callbacks can be coalesced.</p>
+ * <p>Every caller receives a future of its own: cancelling it does not affect the shared compilation or any
+ * of the other callers.</p>
+ */
+final class SassCompileCoalescer {
+
+    /** Shared futures of all compilations that are currently in flight. */
+    private final ConcurrentMap<Object, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /** Number of compilations that have actually been started. */
+    private final LongAdder startedCount = new LongAdder();
+
+    /** Number of compilations that have been saved by joining a compilation that was already in flight. */
+    private final LongAdder coalescedCount = new LongAdder();
+
+    SassCompileCoalescer() {
+        super();
+    }
+
+    /**
+     * Determines the key of the given context.
+     * @param context
+     *     Sass context to be compiled.
+     * @return
+     *     The key of the context or {@code null} if the context must not be coalesced with other contexts.
+     */
+    @Nullable
+    static Object keyOf(@Nonnull final SassContext context) {
+        if (!(context instanceof SassFileContext) || context.getOptions().hasCallbacks()) {
+            return null;
+        }
+        return new Key(((SassFileContext) context).getInputFile().normalize(), SassOptionsSnapshot.of(context.getOptions()));
+    }
+
+    /**
+     * Starts a compilation unless an identical compilation is already in flight.
+     * @param key
+     *     Key of the compilation. (See {@link #keyOf(SassContext)})
+     * @param compilation
+     *     Starts the compilation. Only invoked if no compilation of the same key is in flight. May compile
+     *     synchronously on the calling thread.
+     * @return
+     *     A future that will be completed with the result of the (shared) compilation.
+     */
+    @Nonnull
+    CompletableFuture<String> submit(@Nonnull final Object key, @Nonnull final Supplier<CompletableFuture<String>> compilation) {
+        final CompletableFuture<String> shared = new CompletableFuture<>();
+        final CompletableFuture<String> existing = this.inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            this.coalescedCount.increment();
+            return copyOf(existing);
+        }
+        this.startedCount.increment();
+        CompletableFuture<String> started;
+        try {
+            started = compilation.get();
+        } catch (final RuntimeException | Error e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+        started.whenComplete((output, failure) -> {
+            this.inFlight.remove(key, shared);
+            if (failure == null) {
+                shared.complete(output);
+            } else {
+                shared.completeExceptionally(unwrap(failure));
+            }
+        });
+        return copyOf(shared);
+    }
+
+    /**
+     * Returns the number of compilations that have actually been started.
+     * @return
+     *     Number of started compilations.
+     */
+    long getStartedCount() {
+        return this.startedCount.sum();
+    }
+
+    /**
+     * Returns the number of compilations that have been saved.
+     * @return
+     *     Number of requests that joined a compilation that was already in flight.
+     */
+    long getCoalescedCount() {
+        return this.coalescedCount.sum();
+    }
+
+    /**
+     * Returns the number of distinct compilations that are currently in flight.
+     * @return
+     *     Number of in-flight compilations.
+     */
+    int getInFlightCount() {
+        return this.inFlight.size();
+    }
+
+    @Nonnull
+    private static CompletableFuture<String> copyOf(@Nonnull final CompletableFuture<String> future) {
+        final CompletableFuture<String> copy = new CompletableFuture<>();
+        future.whenComplete((output, failure) -> {
+            if (failure == null) {
+                copy.complete(output);
+            } else {
+                copy.completeExceptionally(unwrap(failure));
+            }
+        });
+        return copy;
+    }
+
+    @Nonnull
+    private static Throwable unwrap(@Nonnull final Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Identifies a compilation by its entry file and options.
+     */
+    private static final class Key {
+
+        private final Path entry;
+        private final SassOptionsSnapshot options;
+
+        private Key(final Path entry, final SassOptionsSnapshot options) {
+            this.entry = entry;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof Key)) { return false; }
+            final Key other = (Key) o;
+            return this.entry.equals(other.entry) && this.options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.entry, this.options);
+        }
+
+    }
+
+}
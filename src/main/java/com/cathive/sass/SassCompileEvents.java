@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Emits diagnostic events for the phases of a single compilation.
+ * <p>This is the Java 8 implementation, which does nothing at all. On Java 11 and later a
+ * JDK Flight Recorder based implementation is loaded from {@code META-INF/versions/11} of the
+ * (multi-release) JAR file.</p>
+ * @see SassContext#compile()
+ */
+final class SassCompileEvents {
+
+    /** The one and only (no-op) instance. */
+    private static final SassCompileEvents NOOP = new SassCompileEvents();
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassCompileEvents() {
+        super();
+    }
+
+    /**
+     * Starts recording the compilation of the given context. Must be invoked right before parsing starts.
+     * @param context
+     *     The context that is about to be compiled.
+     * @return
+     *     Event recorder for the compilation.
+     */
+    @Nonnull
+    static SassCompileEvents begin(@Nonnull final SassContext context) {
+        return NOOP;
+    }
+
+    /**
+     * Marks the end of the parse phase and the beginning of the execute phase.
+     * @param status
+     *     Status code reported by the native parser.
+     */
+    void parsed(final int status) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Marks the end of the execute phase and the beginning of output marshalling.
+     * @param status
+     *     Status code reported by the native compiler.
+     */
+    void executed(final int status) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Marks the end of output marshalling.
+     * @param output
+     *     The output that has been copied from native memory.
+     */
+    void marshalled(@Nullable final String output) {
+        // Nothing to be done.
+    }
+
+}
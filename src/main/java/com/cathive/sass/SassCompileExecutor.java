@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import com.cathive.sass.worker.SassWorkerPool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.text.MessageFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs compilations of Sass contexts asynchronously and enforces their deadlines.
+ * <p>Contexts are compiled in-process on a pool of daemon threads or, if a {@link SassWorkerPool} has been
+ * attached, by one of the worker processes (file contexts without {@link SassImporter importers} only).</p>
+ * <p>If a compilation exceeds its deadline, the returned future is completed exceptionally with a
+ * {@link SassCompileTimeoutException} and the caller is released immediately. A running native compilation
+ * can't be interrupted in-process: it keeps running on its thread as a <em>runaway</em> until libsass
+ * returns. Compilations that run in a worker process are killed together with the worker, unless hard
+ * kills have been disabled.</p>
+ * <p>Every runaway occupies a compile thread (and native memory) until it finishes. Once
+ * {@link #setMaxRunawayCompiles(int) too many runaways} are running, further in-process compilations are
+ * rejected with a {@link SassCompileRejectedException} instead of starting yet another thread. A context whose
+ * compilation timed out is still being compiled by its runaway and must not be used again until the runaway
+ * has finished.</p>
+ */
+public class SassCompileExecutor implements Closeable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassCompileExecutor.class.getName());
+
+    /** Threads that perform in-process compilations. */
+    private final ExecutorService compileThreads = Executors.newCachedThreadPool(new DaemonThreadFactory("sass-compile"));
+
+    /** Timer that enforces the deadlines. */
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("sass-compile-timer"));
+
+    /** Number of compilations that exceeded their deadline. */
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    /** Number of in-process compilations that exceeded their deadline and are still running. */
+    private final AtomicLong runawayCount = new AtomicLong();
+
+    /** Maximum number of runaway compilations before in-process compilations are rejected. ({@code 0} = unlimited) */
+    private volatile int maxRunawayCompiles = 8;
+
+    /** Optional pool of worker processes. */
+    private volatile SassWorkerPool workerPool;
+
+    /** Whether worker processes shall be killed if a compilation exceeds its deadline. */
+    private volatile boolean hardKill = true;
+
+    /**
+     * Creates a new executor that compiles in-process.
+     */
+    public SassCompileExecutor() {
+        super();
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Nullable
+    public SassWorkerPool getWorkerPool() {
+        return this.workerPool;
+    }
+
+    /**
+     * Attaches a pool of worker processes that will be used to compile all file contexts.
+     * @param workerPool
+     *     A started worker pool or {@code null} to compile in-process.
+     */
+    public void setWorkerPool(@Nullable final SassWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    public boolean isHardKill() {
+        return this.hardKill;
+    }
+
+    /**
+     * Determines whether a worker process shall be killed if it exceeds the deadline of its compilation.
+     * @param hardKill
+     *     {@code true} to kill (and restart) the worker, {@code false} to let it finish in the background.
+     */
+    public void setHardKill(final boolean hardKill) {
+        this.hardKill = hardKill;
+    }
+
+    public int getMaxRunawayCompiles() {
+        return this.maxRunawayCompiles;
+    }
+
+    /**
+     * Limits the number of threads that can be pinned by runaway compilations.
+     * @param maxRunawayCompiles
+     *     Maximum number of runaways before in-process compilations are rejected. ({@code 0} = unlimited)
+     */
+    public void setMaxRunawayCompiles(final int maxRunawayCompiles) {
+        this.maxRunawayCompiles = maxRunawayCompiles;
+    }
+
+    /**
+     * Returns the number of compilations that exceeded their deadline.
+     * @return
+     *     Number of compilations that timed out.
+     */
+    public long getTimedOutCount() {
+        return this.timedOutCount.get();
+    }
+
+    /**
+     * Returns the number of in-process compilations that exceeded their deadline and are still running.
+     * @return
+     *     Number of runaway compilations.
+     */
+    public long getRunawayCount() {
+        return this.runawayCount.get();
+    }
+
+    /**
+     * Submits the given context for compilation.
+     * @param context
+     *     Sass context to be compiled.
+     * @param timeout
+     *     Maximum time to wait for the compilation. ({@code 0} = no deadline)
+     * @param unit
+     *     Time unit of the timeout.
+     * @return
+     *     A future that will be completed with the compiled CSS, or exceptionally with a
+     *     {@link SassCompileRejectedException} if too many runaway compilations are still running.
+     */
+    @Nonnull
+    public CompletableFuture<String> submit(@Nonnull final SassContext context, final long timeout, @Nonnull final TimeUnit unit) {
+        return this.submit(context, timeout, unit, () -> { });
+    }
+
+    /**
+     * Submits the given context for compilation and reports when the compilation has actually finished.
+     * @param context
+     *     Sass context to be compiled.
+     * @param timeout
+     *     Maximum time to wait for the compilation. ({@code 0} = no deadline)
+     * @param unit
+     *     Time unit of the timeout.
+     * @param finished
+     *     Invoked exactly once when the compilation has finished or has been rejected. Runaway compilations
+     *     invoke it when libsass returns, i.e. after the returned future has been completed.
+     * @return
+     *     A future that will be completed with the compiled CSS, or exceptionally with a
+     *     {@link SassCompileRejectedException} if too many runaway compilations are still running.
+     */
+    @Nonnull
+    CompletableFuture<String> submit(@Nonnull final SassContext context,
+                                     final long timeout,
+                                     @Nonnull final TimeUnit unit,
+                                     @Nonnull final Runnable finished) {
+
+        final SassWorkerPool pool = this.workerPool;
+        final boolean outOfProcess = pool != null && context instanceof SassFileContext && !context.getOptions().hasCallbacks();
+
+        final CompletableFuture<String> compilation;
+        if (outOfProcess) {
+            compilation = pool.submit(((SassFileContext) context).getInputFile(), SassOptionsSnapshot.of(context.getOptions()));
+        } else {
+            final int maxRunawayCompiles = this.maxRunawayCompiles;
+            final long runaways = this.runawayCount.get();
+            if (maxRunawayCompiles > 0 && runaways >= maxRunawayCompiles) {
+                final CompletableFuture<String> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new SassCompileRejectedException(MessageFormat.format(
+                        "Compilation of \"{0}\" has been rejected, because {1,number,#} runaway compilations are still running.",
+                        context.getInputDescription(), runaways), context.getInputDescription(), context.getPriority()));
+                finished.run();
+                return rejected;
+            }
+            compilation = this.compileInProcess(context, finished);
+        }
+        if (outOfProcess) {
+            compilation.whenComplete((output, failure) -> finished.run());
+        }
+        if (timeout <= 0) {
+            return compilation;
+        }
+
+        final long start = System.nanoTime();
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        // Decides whether the compilation or its deadline comes first.
+        final AtomicBoolean settled = new AtomicBoolean();
+        compilation.whenComplete((output, failure) -> {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            if (failure == null) {
+                result.complete(output);
+            } else {
+                result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+        });
+
+        final ScheduledFuture<?> deadline = this.timer.schedule(() -> {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            // The counters are updated before the caller is released, so that it sees the runaway.
+            final String input = context.getInputDescription();
+            this.timedOutCount.incrementAndGet();
+            if (outOfProcess && this.hardKill) {
+                compilation.cancel(true);
+            } else {
+                this.runawayCount.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Compilation of \"{0}\" exceeded its deadline of {1} ms and is still running.",
+                           new Object[]{ input, unit.toMillis(timeout) });
+                compilation.whenComplete((output, failure) -> {
+                    this.runawayCount.decrementAndGet();
+                    LOGGER.log(Level.INFO, "Runaway compilation of \"{0}\" finished after {1} ms.",
+                               new Object[]{ input, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) });
+                });
+            }
+            result.completeExceptionally(new SassCompileTimeoutException(input, unit.toMillis(timeout)));
+        }, timeout, unit);
+
+        result.whenComplete((output, failure) -> {
+            deadline.cancel(false);
+            if (result.isCancelled()) {
+                compilation.cancel(true);
+            }
+        });
+
+        return result;
+
+    }
+
+    /**
+     * Compiles the given context on one of the compile threads. The returned future may be completed (or cancelled)
+     * before the compilation has finished, {@code finished} is run when libsass has returned.
+     */
+    @Nonnull
+    private CompletableFuture<String> compileInProcess(@Nonnull final SassContext context, @Nonnull final Runnable finished) {
+        final CompletableFuture<String> compilation = new CompletableFuture<>();
+        try {
+            this.compileThreads.execute(() -> {
+                try {
+                    if (!compilation.isDone()) {
+                        compilation.complete(context.compile());
+                    }
+                } catch (final Throwable e) {
+                    // Errors (e.g. of the native library) must not leave the compilation pending forever.
+                    compilation.completeExceptionally(e);
+                } finally {
+                    finished.run();
+                }
+            });
+        } catch (final RuntimeException e) {
+            finished.run();
+            throw e;
+        }
+        return compilation;
+    }
+
+    /**
+     * Stops all threads of this executor. An attached worker pool will not be closed.
+     */
+    @Override
+    public void close() {
+        this.timer.shutdownNow();
+        this.compileThreads.shutdownNow();
+    }
+
+    /**
+     * Creates named daemon threads, so that pending compilations never keep the JVM alive.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private DaemonThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, this.prefix + "-" + this.counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives notifications about the phases of each compilation, e.g. to attach tracing spans,
+ * log slow compilations or record custom metrics.
+ * <p>Listeners can be registered globally via {@link SassCompileListeners#register(SassCompileListener)}
+ * or by listing their class names in {@code META-INF/services/com.cathive.sass.SassCompileListener},
+ * for a single service via {@link SassService#addCompileListener(SassCompileListener)} or for a single
+ * context via {@link SassContext#addCompileListener(SassCompileListener)}.</p>
+ * <p>All methods are invoked synchronously on the compiling thread and should return quickly.
+ * Exceptions thrown by a listener are logged and otherwise ignored.</p>
+ */
+public interface SassCompileListener {
+
+    /**
+     * Invoked right before the given context is being parsed.
+     * @param context
+     *     The context that is about to be compiled.
+     */
+    default void compileStarted(@Nonnull SassContext context) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Invoked after the given context has been parsed successfully.
+     * <p>Will not be invoked if parsing fails.</p>
+     * @param context
+     *     The context that is being compiled.
+     * @param durationNanos
+     *     Time spent parsing the input and all of its imports.
+     */
+    default void parseCompleted(@Nonnull SassContext context, long durationNanos) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Invoked after the given context has been evaluated and its output has been rendered.
+     * <p>Will not be invoked if the compilation fails.</p>
+     * @param context
+     *     The context that has been compiled.
+     * @param durationNanos
+     *     Time spent evaluating the parsed input and rendering the output, without the time spent in
+     *     {@link SassPostProcessor post-processors}.
+     */
+    default void executeCompleted(@Nonnull SassContext context, long durationNanos) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Invoked if compilation of the given context fails.
+     * @param context
+     *     The context that could not be compiled.
+     * @param exception
+     *     The exception that will be thrown to the caller.
+     */
+    default void compileFailed(@Nonnull SassContext context, @Nonnull SassCompilationException exception) {
+        // Nothing to be done.
+    }
+
+    /**
+     * Invoked if a {@link SassPostProcessor post-processor} of the given context fails.
+     * @param context
+     *     The context whose output could not be post-processed.
+     * @param exception
+     *     The exception that will be thrown to the caller.
+     */
+    default void postProcessFailed(@Nonnull SassContext context, @Nonnull RuntimeException exception) {
+        // Nothing to be done.
+    }
+
+}
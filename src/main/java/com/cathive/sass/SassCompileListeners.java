@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of globally registered {@link SassCompileListener compile listeners}.
+ * <p>Listeners that are listed in {@code META-INF/services/com.cathive.sass.SassCompileListener} are
+ * discovered via {@link ServiceLoader} when this class is initialized.</p>
+ * <p>Listeners are kept in a copy-on-write array, so that compilations can check for the absence of
+ * listeners with a single volatile read.</p>
+ */
+public final class SassCompileListeners {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassCompileListeners.class.getName());
+
+    /** Shared empty array. */
+    static final SassCompileListener[] NONE = new SassCompileListener[0];
+
+    /** All globally registered listeners. */
+    private static volatile SassCompileListener[] listeners = discover();
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassCompileListeners() {
+        super();
+    }
+
+    /**
+     * Registers a listener that will be notified about all compilations in this JVM.
+     * @param listener
+     *     Listener to be registered.
+     */
+    public static synchronized void register(@Nonnull final SassCompileListener listener) {
+        Objects.requireNonNull(listener, "Listener must not be null!");
+        final SassCompileListener[] current = listeners;
+        final SassCompileListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     * @param listener
+     *     Listener to be unregistered.
+     */
+    public static synchronized void unregister(@Nonnull final SassCompileListener listener) {
+        final List<SassCompileListener> updated = new ArrayList<>(Arrays.asList(listeners));
+        if (updated.remove(listener)) {
+            listeners = updated.isEmpty() ? NONE : updated.toArray(new SassCompileListener[updated.size()]);
+        }
+    }
+
+    /**
+     * Returns all listeners that shall be notified about the compilation of a context.
+     * @param contextListeners
+     *     Listeners that have been registered for the context.
+     * @return
+     *     Global listeners followed by the context listeners. Only allocates if both are present.
+     */
+    @Nonnull
+    static SassCompileListener[] get(@Nonnull final SassCompileListener[] contextListeners) {
+        final SassCompileListener[] global = listeners;
+        if (contextListeners.length == 0) {
+            return global;
+        }
+        if (global.length == 0) {
+            return contextListeners;
+        }
+        final SassCompileListener[] combined = Arrays.copyOf(global, global.length + contextListeners.length);
+        System.arraycopy(contextListeners, 0, combined, global.length, contextListeners.length);
+        return combined;
+    }
+
+    static void fireCompileStarted(@Nonnull final SassCompileListener[] listeners, @Nonnull final SassContext context) {
+        for (final SassCompileListener listener : listeners) {
+            try {
+                listener.compileStarted(context);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Compile listener failed.", e);
+            }
+        }
+    }
+
+    static void fireParseCompleted(@Nonnull final SassCompileListener[] listeners, @Nonnull final SassContext context, final long durationNanos) {
+        for (final SassCompileListener listener : listeners) {
+            try {
+                listener.parseCompleted(context, durationNanos);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Compile listener failed.", e);
+            }
+        }
+    }
+
+    static void fireExecuteCompleted(@Nonnull final SassCompileListener[] listeners, @Nonnull final SassContext context, final long durationNanos) {
+        for (final SassCompileListener listener : listeners) {
+            try {
+                listener.executeCompleted(context, durationNanos);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Compile listener failed.", e);
+            }
+        }
+    }
+
+    static void fireCompileFailed(@Nonnull final SassCompileListener[] listeners, @Nonnull final SassContext context, @Nonnull final SassCompilationException exception) {
+        for (final SassCompileListener listener : listeners) {
+            try {
+                listener.compileFailed(context, exception);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Compile listener failed.", e);
+            }
+        }
+    }
+
+    static void firePostProcessFailed(@Nonnull final SassCompileListener[] listeners, @Nonnull final SassContext context, @Nonnull final RuntimeException exception) {
+        for (final SassCompileListener listener : listeners) {
+            try {
+                listener.postProcessFailed(context, exception);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Compile listener failed.", e);
+            }
+        }
+    }
+
+    @Nonnull
+    private static SassCompileListener[] discover() {
+        final List<SassCompileListener> discovered = new ArrayList<>();
+        try {
+            for (final SassCompileListener listener : ServiceLoader.load(SassCompileListener.class, SassCompileListener.class.getClassLoader())) {
+                discovered.add(listener);
+            }
+        } catch (final ServiceConfigurationError e) {
+            LOGGER.log(Level.WARNING, "Could not load compile listeners.", e);
+        }
+        if (!discovered.isEmpty()) {
+            LOGGER.log(Level.INFO, "Discovered {0} compile listener(s).", discovered.size());
+        }
+        return discovered.isEmpty() ? NONE : discovered.toArray(new SassCompileListener[discovered.size()]);
+    }
+
+}
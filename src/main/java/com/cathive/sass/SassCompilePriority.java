@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+/**
+ * Priority lane of a compilation.
+ * <p>If {@link SassService} limits the number of concurrent compilations, queued interactive compilations are
+ * always admitted before queued batch compilations.</p>
+ * @see SassContext#setPriority(SassCompilePriority)
+ */
+public enum SassCompilePriority {
+
+    /** Compilations that somebody is waiting for, e.g. to serve an HTTP request. (Default) */
+    INTERACTIVE,
+
+    /** Bulk compilations, e.g. precompilation of whole directories or theme variants. */
+    BATCH
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timings of a single compilation as recorded by a {@link SassCompileProfiler}.
+ */
+public final class SassCompileProfile implements Serializable {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    private final String input;
+    private final long parseNanos;
+    private final long executeNanos;
+    private final long outputSize;
+    private final int importCount;
+    private final List<ImportRead> importReads;
+
+    public SassCompileProfile(@Nonnull final String input,
+                              final long parseNanos,
+                              final long executeNanos,
+                              final long outputSize,
+                              final int importCount,
+                              @Nonnull final List<ImportRead> importReads) {
+        super();
+        this.input = input;
+        this.parseNanos = parseNanos;
+        this.executeNanos = executeNanos;
+        this.outputSize = outputSize;
+        this.importCount = importCount;
+        this.importReads = Collections.unmodifiableList(new ArrayList<>(importReads));
+    }
+
+    /**
+     * Returns the description of the compiled input.
+     * @return
+     *     Path of the input file or description of the input data.
+     * @see SassContext#getInputDescription()
+     */
+    @Nonnull
+    public String getInput() {
+        return this.input;
+    }
+
+    /**
+     * Returns the time spent parsing the input and resolving and reading all of its imports.
+     * @return
+     *     Duration of the parse phase in nanoseconds.
+     */
+    public long getParseNanos() {
+        return this.parseNanos;
+    }
+
+    /**
+     * Returns the time spent evaluating the parsed input and rendering (and post-processing) the output.
+     * @return
+     *     Duration of the execute phase in nanoseconds.
+     */
+    public long getExecuteNanos() {
+        return this.executeNanos;
+    }
+
+    public long getTotalNanos() {
+        return this.parseNanos + this.executeNanos;
+    }
+
+    /**
+     * Returns the size of the compiled CSS.
+     * @return
+     *     Number of characters of the output before post-processing.
+     */
+    public long getOutputSize() {
+        return this.outputSize;
+    }
+
+    /**
+     * Returns the number of files that have been imported.
+     * @return
+     *     Number of imported files, including those that have been resolved by libsass itself.
+     */
+    public int getImportCount() {
+        return this.importCount;
+    }
+
+    /**
+     * Returns the imports that have been resolved by an instrumented importer, in the order they were read.
+     * @return
+     *     Time spent resolving and reading each import.
+     */
+    @Nonnull
+    public List<ImportRead> getImportReads() {
+        return this.importReads;
+    }
+
+    @Override
+    public String toString() {
+        return "SassCompileProfile{input=" + this.input
+                + ", parseNanos=" + this.parseNanos
+                + ", executeNanos=" + this.executeNanos
+                + ", outputSize=" + this.outputSize
+                + ", importCount=" + this.importCount
+                + ", importReads=" + this.importReads + "}";
+    }
+
+    /**
+     * A single import that has been resolved and read by an importer.
+     */
+    public static final class ImportRead implements Serializable {
+
+        /** @see java.io.Serializable */
+        private static final long serialVersionUID = 1L;
+
+        private final String url;
+        private final String path;
+        private final long nanos;
+
+        public ImportRead(@Nonnull final String url, @Nullable final String path, final long nanos) {
+            super();
+            this.url = url;
+            this.path = path;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the URL as written in the {@code @import} rule.
+         * @return
+         *     URL of the import.
+         */
+        @Nonnull
+        public String getUrl() {
+            return this.url;
+        }
+
+        /**
+         * Returns the file that the import has been resolved to.
+         * @return
+         *     Absolute path of the imported file or {@code null} if it has been served from memory.
+         */
+        @Nullable
+        public String getPath() {
+            return this.path;
+        }
+
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "ImportRead{url=" + this.url + ", path=" + this.path + ", nanos=" + this.nanos + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,461 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the parse and execute time, output size and imports of each compiled stylesheet, to find out which
+ * entry points and partials are slow to compile.
+ * <p>Contexts have to be {@link #instrument(SassContext) instrumented} before they are compiled (which
+ * {@link SassService#setProfiler(SassCompileProfiler)} does automatically). All importers of an instrumented
+ * context are wrapped to measure the time spent resolving and reading each import. Imports of contexts without
+ * importers are resolved by libsass and are not timed, unless {@link #setMeasureFileImports(boolean) file imports
+ * are measured}: such contexts then get a {@link SassFileImporter}, which changes how their imports are resolved.
+ * Reports state whether this has been the case. As an instrumented context has Java callbacks, it is always
+ * compiled in-process and bypasses the compile cache.</p>
+ * <p>Contexts with {@link SassCompilePriority#BATCH batch} priority (warm-up, directory and variant compilations)
+ * are not profiled unless {@link #setProfileBatchCompiles(boolean) enabled}.</p>
+ * <p>Only the latest profile of each input is kept. Compilations that exceed the
+ * {@link #setSlowCompileThresholdMillis(long) slow compile threshold} are logged.</p>
+ */
+public class SassCompileProfiler {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassCompileProfiler.class.getName());
+
+    /** Sorts profiles by descending total time. */
+    private static final Comparator<SassCompileProfile> SLOWEST_FIRST =
+            Comparator.comparingLong(SassCompileProfile::getTotalNanos).reversed();
+
+    /** Cache that imported files are read through if a context has no importers of its own. */
+    private final SassImportCache importCache;
+
+    /** Latest profile by input. */
+    private final Map<String, SassCompileProfile> profiles = new ConcurrentHashMap<>();
+
+    /** Minimum duration of a compilation to be logged. ({@code 0} = don't log) */
+    private volatile long slowCompileThresholdMillis = 0L;
+
+    /** Whether contexts without importers get a {@link SassFileImporter}, so that their imports can be timed. */
+    private volatile boolean measureFileImports = false;
+
+    /** Whether contexts with {@link SassCompilePriority#BATCH batch} priority are profiled. */
+    private volatile boolean profileBatchCompiles = false;
+
+    /**
+     * Creates a new profiler with an import cache of its own.
+     */
+    public SassCompileProfiler() {
+        this(new SassImportCache());
+    }
+
+    /**
+     * Creates a new profiler.
+     * @param importCache
+     *     Cache that imported files will be read through if an instrumented context has no importers.
+     */
+    public SassCompileProfiler(@Nonnull final SassImportCache importCache) {
+        super();
+        this.importCache = Objects.requireNonNull(importCache, "Import cache must not be null!");
+    }
+
+    public long getSlowCompileThresholdMillis() {
+        return this.slowCompileThresholdMillis;
+    }
+
+    /**
+     * Sets the duration above which a compilation is logged as slow (with level {@code WARNING}).
+     * @param slowCompileThresholdMillis
+     *     Threshold in milliseconds. ({@code 0} = don't log)
+     */
+    public void setSlowCompileThresholdMillis(final long slowCompileThresholdMillis) {
+        this.slowCompileThresholdMillis = slowCompileThresholdMillis;
+    }
+
+    public boolean isMeasureFileImports() {
+        return this.measureFileImports;
+    }
+
+    /**
+     * Determines whether the imports of contexts without importers shall be timed. These contexts then get a
+     * {@link SassFileImporter}, i.e. their imports are resolved by Java instead of by libsass.
+     * @param measureFileImports
+     *     {@code true} to time file imports, {@code false} to leave them to libsass. (default: {@code false})
+     */
+    public void setMeasureFileImports(final boolean measureFileImports) {
+        this.measureFileImports = measureFileImports;
+    }
+
+    public boolean isProfileBatchCompiles() {
+        return this.profileBatchCompiles;
+    }
+
+    /**
+     * Determines whether contexts with {@link SassCompilePriority#BATCH batch} priority (e.g. the compilations of
+     * a {@link SassWarmUp warm-up}) shall be profiled.
+     * @param profileBatchCompiles
+     *     {@code true} to profile batch compilations as well. (default: {@code false})
+     */
+    public void setProfileBatchCompiles(final boolean profileBatchCompiles) {
+        this.profileBatchCompiles = profileBatchCompiles;
+    }
+
+    /**
+     * Prepares the given context to be profiled by this profiler. Contexts that have already been instrumented and
+     * batch contexts (unless {@link #setProfileBatchCompiles(boolean) enabled}) are left untouched.
+     * @param context
+     *     Context to be instrumented.
+     */
+    public void instrument(@Nonnull final SassContext context) {
+        if (context.getPriority() == SassCompilePriority.BATCH && !this.profileBatchCompiles) {
+            return;
+        }
+        final SassOptions options = context.getOptions();
+        final List<SassPostProcessor> postProcessors = new ArrayList<>(options.getPostProcessors());
+        for (final SassPostProcessor postProcessor : postProcessors) {
+            if (postProcessor instanceof Recording && ((Recording) postProcessor).getProfiler() == this) {
+                return;
+            }
+        }
+        final Recording recording = new Recording(context);
+        List<SassImporter> importers = options.getImporters();
+        if (importers.isEmpty() && this.measureFileImports) {
+            importers = Collections.<SassImporter>singletonList(new SassFileImporter(options.getIncludePath(), this.importCache));
+        }
+        final SassImporter[] instrumented = new SassImporter[importers.size()];
+        for (int i = 0; i < instrumented.length; i++) {
+            instrumented[i] = recording.instrument(importers.get(i));
+        }
+        options.setImporters(instrumented);
+        postProcessors.add(recording);
+        options.setPostProcessors(postProcessors.toArray(new SassPostProcessor[postProcessors.size()]));
+        context.addCompileListener(recording);
+    }
+
+    /**
+     * Returns the latest profile of each input that has been compiled.
+     * @return
+     *     All profiles, slowest first.
+     */
+    @Nonnull
+    public List<SassCompileProfile> getProfiles() {
+        final List<SassCompileProfile> profiles = new ArrayList<>(this.profiles.values());
+        profiles.sort(SLOWEST_FIRST);
+        return profiles;
+    }
+
+    /**
+     * Returns the latest profile of the given context.
+     * @param context
+     *     A context that has been instrumented by this profiler.
+     * @return
+     *     The profile of the latest successful compilation of the input of the context or {@code null} if it
+     *     hasn't been compiled yet.
+     */
+    @Nullable
+    public SassCompileProfile getProfile(@Nonnull final SassContext context) {
+        return this.profiles.get(context.getInputDescription());
+    }
+
+    /**
+     * Discards all profiles that have been recorded so far.
+     */
+    public void clear() {
+        this.profiles.clear();
+    }
+
+    /**
+     * Creates a JSON report of all profiles (slowest first) and of all imports (by descending total read time).
+     * Property {@code measureFileImports} tells whether the imports of contexts without importers have been
+     * resolved by a {@link SassFileImporter} instead of by libsass.
+     * @return
+     *     The report as JSON.
+     */
+    @Nonnull
+    public String toJson() {
+        final StringBuilder json = new StringBuilder("{\n  \"measureFileImports\": ").append(this.measureFileImports)
+                .append(",\n  \"profiles\": [");
+        final List<SassCompileProfile> profiles = this.getProfiles();
+        for (int i = 0; i < profiles.size(); i++) {
+            final SassCompileProfile profile = profiles.get(i);
+            json.append(i == 0 ? "\n    {" : ",\n    {").append("\"input\": ");
+            SassStrings.appendJsonString(json, profile.getInput());
+            json.append(", \"totalMillis\": ").append(millis(profile.getTotalNanos()))
+                .append(", \"parseMillis\": ").append(millis(profile.getParseNanos()))
+                .append(", \"executeMillis\": ").append(millis(profile.getExecuteNanos()))
+                .append(", \"outputSize\": ").append(profile.getOutputSize())
+                .append(", \"importCount\": ").append(profile.getImportCount())
+                .append(", \"importReads\": [");
+            final List<SassCompileProfile.ImportRead> reads = new ArrayList<>(profile.getImportReads());
+            reads.sort(Comparator.comparingLong(SassCompileProfile.ImportRead::getNanos).reversed());
+            for (int j = 0; j < reads.size(); j++) {
+                json.append(j == 0 ? "{\"url\": " : ", {\"url\": ");
+                SassStrings.appendJsonString(json, reads.get(j).getUrl());
+                json.append(", \"path\": ");
+                if (reads.get(j).getPath() == null) {
+                    json.append("null");
+                } else {
+                    SassStrings.appendJsonString(json, reads.get(j).getPath());
+                }
+                json.append(", \"millis\": ").append(millis(reads.get(j).getNanos())).append('}');
+            }
+            json.append("]}");
+        }
+        json.append(profiles.isEmpty() ? "],\n  \"imports\": [" : "\n  ],\n  \"imports\": [");
+        final List<ImportSummary> imports = summarizeImports(profiles);
+        for (int i = 0; i < imports.size(); i++) {
+            final ImportSummary summary = imports.get(i);
+            json.append(i == 0 ? "\n    {" : ",\n    {").append("\"import\": ");
+            SassStrings.appendJsonString(json, summary.name);
+            json.append(", \"reads\": ").append(summary.reads)
+                .append(", \"totalMillis\": ").append(millis(summary.totalNanos))
+                .append(", \"maxMillis\": ").append(millis(summary.maxNanos)).append('}');
+        }
+        return json.append(imports.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Creates a self-contained HTML report of all profiles and imports, whose tables can be sorted by clicking
+     * on a column header.
+     * @return
+     *     The report as HTML document.
+     */
+    @Nonnull
+    public String toHtml() {
+        final List<SassCompileProfile> profiles = this.getProfiles();
+        final StringBuilder html = new StringBuilder(4096);
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Sass compile profile</title>\n")
+            .append("<style>\nbody { font-family: sans-serif; } table { border-collapse: collapse; }\n")
+            .append("th, td { padding: 2px 8px; text-align: right; } th { cursor: pointer; background: #eee; }\n")
+            .append("td:first-child, th:first-child { text-align: left; }\n</style>\n</head>\n<body>\n")
+            .append(this.measureFileImports
+                    ? "<p>Imports of stylesheets without importers have been resolved by SassFileImporter instead of libsass.</p>\n"
+                    : "<p>Imports of stylesheets without importers have been resolved by libsass and are not timed.</p>\n")
+            .append("<h1>Stylesheets</h1>\n<table>\n<thead><tr><th>Input</th><th>Total (ms)</th><th>Parse (ms)</th>")
+            .append("<th>Execute (ms)</th><th>Output size</th><th>Imports</th><th>Slowest import</th></tr></thead>\n<tbody>\n");
+        for (final SassCompileProfile profile : profiles) {
+            SassCompileProfile.ImportRead slowest = null;
+            for (final SassCompileProfile.ImportRead read : profile.getImportReads()) {
+                if (slowest == null || read.getNanos() > slowest.getNanos()) {
+                    slowest = read;
+                }
+            }
+            html.append("<tr><td>").append(escapeHtml(profile.getInput()))
+                .append("</td><td>").append(millis(profile.getTotalNanos()))
+                .append("</td><td>").append(millis(profile.getParseNanos()))
+                .append("</td><td>").append(millis(profile.getExecuteNanos()))
+                .append("</td><td>").append(profile.getOutputSize())
+                .append("</td><td>").append(profile.getImportCount())
+                .append("</td><td>").append(slowest == null ? "" : escapeHtml(slowest.getUrl()) + " (" + millis(slowest.getNanos()) + " ms)")
+                .append("</td></tr>\n");
+        }
+        html.append("</tbody>\n</table>\n<h1>Imports</h1>\n<table>\n<thead><tr><th>Import</th><th>Reads</th>")
+            .append("<th>Total (ms)</th><th>Max (ms)</th></tr></thead>\n<tbody>\n");
+        for (final ImportSummary summary : summarizeImports(profiles)) {
+            html.append("<tr><td>").append(escapeHtml(summary.name))
+                .append("</td><td>").append(summary.reads)
+                .append("</td><td>").append(millis(summary.totalNanos))
+                .append("</td><td>").append(millis(summary.maxNanos))
+                .append("</td></tr>\n");
+        }
+        return html.append("</tbody>\n</table>\n<script>\n")
+            .append("document.querySelectorAll('th').forEach(function (th) {\n")
+            .append("  th.addEventListener('click', function () {\n")
+            .append("    var column = th.cellIndex, tbody = th.closest('table').tBodies[0];\n")
+            .append("    var descending = th.getAttribute('data-order') !== 'desc';\n")
+            .append("    th.setAttribute('data-order', descending ? 'desc' : 'asc');\n")
+            .append("    Array.prototype.slice.call(tbody.rows).sort(function (a, b) {\n")
+            .append("      var x = a.cells[column].textContent, y = b.cells[column].textContent;\n")
+            .append("      var result = isNaN(parseFloat(x)) || isNaN(parseFloat(y)) ? x.localeCompare(y) : parseFloat(x) - parseFloat(y);\n")
+            .append("      return descending ? -result : result;\n")
+            .append("    }).forEach(function (row) { tbody.appendChild(row); });\n")
+            .append("  });\n});\n</script>\n</body>\n</html>\n").toString();
+    }
+
+    /**
+     * Writes a report of all profiles to the given file.
+     * @param reportFile
+     *     File to be written. Files ending with {@code .html} or {@code .htm} get an HTML report, all others a JSON
+     *     report.
+     * @throws IOException
+     *     If the report can't be written.
+     */
+    public void writeReport(@Nonnull final Path reportFile) throws IOException {
+        final String fileName = reportFile.getFileName().toString().toLowerCase(Locale.ROOT);
+        final String report = fileName.endsWith(".html") || fileName.endsWith(".htm") ? this.toHtml() : this.toJson();
+        final Path directory = reportFile.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores the given profile and logs it if the compilation has been slow.
+     */
+    void record(@Nonnull final SassCompileProfile profile) {
+        this.profiles.put(profile.getInput(), profile);
+        final long threshold = this.slowCompileThresholdMillis;
+        if (threshold <= 0 || TimeUnit.NANOSECONDS.toMillis(profile.getTotalNanos()) < threshold) {
+            return;
+        }
+        SassCompileProfile.ImportRead slowest = null;
+        for (final SassCompileProfile.ImportRead read : profile.getImportReads()) {
+            if (slowest == null || read.getNanos() > slowest.getNanos()) {
+                slowest = read;
+            }
+        }
+        LOGGER.log(Level.WARNING, "Slow compilation of \"{0}\": {1} ms (parse: {2} ms, execute: {3} ms, {4} imports, slowest: {5}).",
+                   new Object[]{ profile.getInput(), millis(profile.getTotalNanos()), millis(profile.getParseNanos()),
+                                 millis(profile.getExecuteNanos()), profile.getImportCount(),
+                                 slowest == null ? "n/a" : slowest.getUrl() + " (" + millis(slowest.getNanos()) + " ms)" });
+    }
+
+    /**
+     * Aggregates the import reads of all given profiles by imported file.
+     */
+    @Nonnull
+    private static List<ImportSummary> summarizeImports(@Nonnull final List<SassCompileProfile> profiles) {
+        final Map<String, ImportSummary> summaries = new LinkedHashMap<>();
+        for (final SassCompileProfile profile : profiles) {
+            for (final SassCompileProfile.ImportRead read : profile.getImportReads()) {
+                final String name = read.getPath() == null ? read.getUrl() : read.getPath();
+                summaries.computeIfAbsent(name, ImportSummary::new).add(read.getNanos());
+            }
+        }
+        final List<ImportSummary> result = new ArrayList<>(summaries.values());
+        result.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return result;
+    }
+
+    @Nonnull
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    @Nonnull
+    private static String escapeHtml(@Nonnull final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Records the compilations of a single instrumented context.
+     * <p>Observes the phases of each compilation as compile listener, the size of the output as post-processor
+     * (without modifying it) and the imports through the importers it has wrapped. All of these are invoked on
+     * the compiling thread.</p>
+     */
+    private final class Recording implements SassCompileListener, SassPostProcessor {
+
+        private final SassContext context;
+        private final List<SassCompileProfile.ImportRead> importReads = new ArrayList<>();
+        private long parseNanos;
+        private long outputSize;
+
+        private Recording(@Nonnull final SassContext context) {
+            this.context = context;
+        }
+
+        @Nonnull
+        private SassCompileProfiler getProfiler() {
+            return SassCompileProfiler.this;
+        }
+
+        @Nonnull
+        private SassImporter instrument(@Nonnull final SassImporter importer) {
+            return (url, previous) -> {
+                final long start = System.nanoTime();
+                final List<SassImport> imports = importer.resolve(url, previous);
+                if (imports != null && !imports.isEmpty()) {
+                    final long nanos = (System.nanoTime() - start) / imports.size();
+                    for (final SassImport imp : imports) {
+                        final Path absolutePath = imp.getAbsolutePath();
+                        this.importReads.add(new SassCompileProfile.ImportRead(
+                                imp.getPath(), absolutePath == null ? null : absolutePath.toString(), nanos));
+                    }
+                }
+                return imports;
+            };
+        }
+
+        @Override
+        public void compileStarted(@Nonnull final SassContext context) {
+            this.importReads.clear();
+            this.parseNanos = 0L;
+            this.outputSize = 0L;
+        }
+
+        @Override
+        public void parseCompleted(@Nonnull final SassContext context, final long durationNanos) {
+            this.parseNanos = durationNanos;
+        }
+
+        @Override
+        public void process(@Nonnull final CharSequence css, @Nonnull final SassCssEdits edits) {
+            this.outputSize = css.length();
+        }
+
+        @Override
+        public void executeCompleted(@Nonnull final SassContext context, final long durationNanos) {
+            final int includedFiles = this.context.getIncludedFiles().size();
+            final int importCount = Math.max(0, this.context instanceof SassFileContext ? includedFiles - 1 : includedFiles);
+            record(new SassCompileProfile(this.context.getInputDescription(), this.parseNanos, durationNanos,
+                                          this.outputSize, importCount, this.importReads));
+        }
+
+    }
+
+    /**
+     * Read statistics of a single imported file.
+     */
+    private static final class ImportSummary {
+
+        private final String name;
+        private int reads;
+        private long totalNanos;
+        private long maxNanos;
+
+        private ImportSummary(@Nonnull final String name) {
+            this.name = name;
+        }
+
+        private void add(final long nanos) {
+            this.reads++;
+            this.totalNanos += nanos;
+            this.maxNanos = Math.max(this.maxNanos, nanos);
+        }
+
+    }
+
+}
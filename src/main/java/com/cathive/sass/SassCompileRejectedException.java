@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.text.MessageFormat;
+
+/**
+ * Exception to be used when a compilation is not admitted, because the queue of its priority lane is full or
+ * because too many runaway compilations are still occupying compile threads.
+ * <p>The compilation has not been started, so it is safe to retry it later.</p>
+ * @see SassService#setMaxQueueDepth(int)
+ */
+public class SassCompileRejectedException extends RuntimeException {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** Description of the input that has been rejected. */
+    private final String input;
+
+    /** Priority lane of the rejected compilation. */
+    private final SassCompilePriority priority;
+
+    /** Number of queued compilations in the lane at the time of the rejection. */
+    private final int queueDepth;
+
+    /**
+     * Creates a new Sass compile rejected exception.
+     * @param input
+     *     Description of the input that has been rejected.
+     * @param priority
+     *     Priority lane of the rejected compilation.
+     * @param queueDepth
+     *     Number of queued compilations in the lane.
+     */
+    public SassCompileRejectedException(@Nonnull final String input, @Nonnull final SassCompilePriority priority, final int queueDepth) {
+        super(MessageFormat.format("Compilation of \"{0}\" has been rejected, because {1,number,#} {2} compilations are already queued.",
+                                   input, queueDepth, priority.name().toLowerCase()));
+        this.input = input;
+        this.priority = priority;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Creates a new Sass compile rejected exception for a compilation that has been rejected for another reason
+     * than a full queue.
+     * @param message
+     *     The reason of the rejection.
+     * @param input
+     *     Description of the input that has been rejected.
+     * @param priority
+     *     Priority lane of the rejected compilation.
+     */
+    public SassCompileRejectedException(@Nonnull final String message, @Nonnull final String input, @Nonnull final SassCompilePriority priority) {
+        super(message);
+        this.input = input;
+        this.priority = priority;
+        this.queueDepth = 0;
+    }
+
+    public String getInput() {
+        return this.input;
+    }
+
+    public SassCompilePriority getPriority() {
+        return this.priority;
+    }
+
+    public int getQueueDepth() {
+        return this.queueDepth;
+    }
+
+}
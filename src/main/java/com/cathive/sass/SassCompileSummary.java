@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * A compact summary of a bulk compilation, e.g. of a whole directory tree.
+ * <p>Only counts, sizes and durations are kept (plus the messages of the first failures), so that a summary
+ * can cheaply be transferred, e.g. as result of a JMX operation.</p>
+ * @see SassService#compileDirectory(java.nio.file.Path, java.nio.file.Path, SassOptionsSnapshot, int)
+ */
+public final class SassCompileSummary implements Serializable {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of failure messages that will be kept. */
+    public static final int MAX_FAILURES = 100;
+
+    private final int fileCount;
+    private final int compiledCount;
+    private final int failedCount;
+    private final long outputBytes;
+    private final long durationMillis;
+    private final long totalCompileMillis;
+    private final long maxCompileMillis;
+    private final String[] failures;
+
+    @ConstructorProperties({ "fileCount", "compiledCount", "failedCount", "outputBytes",
+                             "durationMillis", "totalCompileMillis", "maxCompileMillis", "failures" })
+    public SassCompileSummary(final int fileCount,
+                              final int compiledCount,
+                              final int failedCount,
+                              final long outputBytes,
+                              final long durationMillis,
+                              final long totalCompileMillis,
+                              final long maxCompileMillis,
+                              @Nonnull final String[] failures) {
+        super();
+        this.fileCount = fileCount;
+        this.compiledCount = compiledCount;
+        this.failedCount = failedCount;
+        this.outputBytes = outputBytes;
+        this.durationMillis = durationMillis;
+        this.totalCompileMillis = totalCompileMillis;
+        this.maxCompileMillis = maxCompileMillis;
+        this.failures = failures.clone();
+    }
+
+    /**
+     * Returns the number of input files that have been found.
+     * @return
+     *     Number of input files (partials excluded).
+     */
+    public int getFileCount() {
+        return this.fileCount;
+    }
+
+    public int getCompiledCount() {
+        return this.compiledCount;
+    }
+
+    public int getFailedCount() {
+        return this.failedCount;
+    }
+
+    /**
+     * Returns the number of bytes that have been written.
+     * @return
+     *     Total size of all output files.
+     */
+    public long getOutputBytes() {
+        return this.outputBytes;
+    }
+
+    /**
+     * Returns the wall-clock duration of the whole operation.
+     * @return
+     *     Duration in milliseconds.
+     */
+    public long getDurationMillis() {
+        return this.durationMillis;
+    }
+
+    /**
+     * Returns the sum of the durations of all compilations.
+     * @return
+     *     Duration in milliseconds.
+     */
+    public long getTotalCompileMillis() {
+        return this.totalCompileMillis;
+    }
+
+    /**
+     * Returns the duration of the slowest compilation.
+     * @return
+     *     Duration in milliseconds.
+     */
+    public long getMaxCompileMillis() {
+        return this.maxCompileMillis;
+    }
+
+    /**
+     * Returns the messages of the first failures.
+     * @return
+     *     At most {@value #MAX_FAILURES} messages of the form {@code "<input file>: <message>"}.
+     */
+    @Nonnull
+    public String[] getFailures() {
+        return this.failures.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "SassCompileSummary{fileCount=" + this.fileCount
+                + ", compiledCount=" + this.compiledCount
+                + ", failedCount=" + this.failedCount
+                + ", outputBytes=" + this.outputBytes
+                + ", durationMillis=" + this.durationMillis
+                + ", totalCompileMillis=" + this.totalCompileMillis
+                + ", maxCompileMillis=" + this.maxCompileMillis + "}";
+    }
+
+}
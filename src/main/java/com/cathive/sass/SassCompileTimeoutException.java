@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.text.MessageFormat;
+
+/**
+ * Exception to be used when the compilation of Sass contents exceeds its deadline.
+ * <p>An in-process compilation keeps running after its deadline has passed, so the context that timed out must
+ * not be compiled or modified again until the runaway compilation has finished. Create a new context instead.</p>
+ */
+public class SassCompileTimeoutException extends RuntimeException {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** Description of the input that could not be compiled in time. */
+    private final String input;
+
+    /** The deadline (in milliseconds) that has been exceeded. */
+    private final long timeoutMillis;
+
+    /**
+     * Creates a new Sass compile timeout exception.
+     * @param input
+     *     Description of the input that could not be compiled in time.
+     * @param timeoutMillis
+     *     The deadline (in milliseconds) that has been exceeded.
+     */
+    public SassCompileTimeoutException(@Nonnull final String input, final long timeoutMillis) {
+        super(MessageFormat.format("Compilation of \"{0}\" did not finish within {1,number,#} ms.", input, timeoutMillis));
+        this.input = input;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getInput() {
+        return this.input;
+    }
+
+    public long getTimeoutMillis() {
+        return this.timeoutMillis;
+    }
+
+}
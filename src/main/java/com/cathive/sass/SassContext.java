@@ -18,11 +18,19 @@ package com.cathive.sass;
 
 import com.cathive.sass.jna.SassLibrary;
 import com.cathive.sass.jna.SassLibrary.Sass_Context;
+import com.google.common.base.Utf8;
+import com.sun.jna.Pointer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.WillNotClose;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -43,6 +51,27 @@ public abstract class SassContext {
     /** Underlying native Sass options associated with the data or file context. */
     protected SassOptions options;
 
+    /** Size (in UTF-8 bytes) of the output string that is currently held by the native context. */
+    long retainedOutputSize;
+
+    /** Listeners that will be notified about compilations of this context only. */
+    private volatile SassCompileListener[] listeners = SassCompileListeners.NONE;
+
+    /** Source map of the last compilation after it has been adjusted by post-processors. */
+    private volatile String postProcessedSourceMap;
+
+    /** Whether the output of the last compilation has been modified by post-processors. */
+    private volatile boolean postProcessed;
+
+    /** Files that a result taken from a compile cache has been compiled from. ({@code null} = compiled natively) */
+    private volatile List<Path> cachedIncludedFiles;
+
+    /** Source map of a result taken from a compile cache. (Only valid if {@link #cachedIncludedFiles} is set.) */
+    private volatile String cachedSourceMap;
+
+    /** Priority lane of this context if it is compiled by a {@link SassService}. */
+    private volatile SassCompilePriority priority = SassCompilePriority.INTERACTIVE;
+
     /**
      * Creates a new Sass context wrapper instance.
      * @param $context
@@ -81,20 +110,182 @@ public abstract class SassContext {
      */
     public String compile() throws SassCompilationException {
 
+        this.cachedIncludedFiles = null;
+        this.cachedSourceMap = null;
+        final SassCompileListener[] listeners = SassCompileListeners.get(this.listeners);
+        final boolean notify = listeners.length != 0;
+        long timestamp = 0L;
+        if (notify) {
+            SassCompileListeners.fireCompileStarted(listeners, this);
+            timestamp = System.nanoTime();
+        }
+
+        final SassCompileEvents events = SassCompileEvents.begin(this);
         final SassLibrary.Sass_Compiler $compiler = this.createCompiler();
+        SassNativeMemory.compilerCreated();
         final int parseStatus = SassLibrary.INSTANCE.sass_compiler_parse($compiler);
+        events.parsed(parseStatus);
+        if (notify && parseStatus == 0) {
+            final long now = System.nanoTime();
+            SassCompileListeners.fireParseCompleted(listeners, this, now - timestamp);
+            timestamp = now;
+        }
         final int compileStatus = SassLibrary.INSTANCE.sass_compiler_execute($compiler);
+        events.executed(compileStatus);
         final String output = SassLibrary.INSTANCE.sass_context_get_output_string(this.$context);
+        events.marshalled(output);
+        if (output != null) {
+            final long outputSize = Utf8.encodedLength(output);
+            SassNativeMemory.outputRetained(outputSize - this.retainedOutputSize);
+            this.retainedOutputSize = outputSize;
+        }
 
         // Deletes the underlying native compiler object and releases allocated memory.
         SassLibrary.INSTANCE.sass_delete_compiler($compiler);
+        SassNativeMemory.compilerFreed();
 
         // Error handling.
-        if (parseStatus != 0) { this.throwCompilationException(parseStatus); }
-        if (compileStatus != 0) { this.throwCompilationException(compileStatus); }
+        final int status = parseStatus != 0 ? parseStatus : compileStatus;
+        if (status != 0) {
+            try {
+                this.throwCompilationException(status);
+            } catch (final SassCompilationException e) {
+                if (notify) {
+                    SassCompileListeners.fireCompileFailed(listeners, this, e);
+                }
+                throw e;
+            }
+        }
+        final long executeNanos = notify ? System.nanoTime() - timestamp : 0L;
+        final String result;
+        try {
+            result = this.postProcess(output);
+        } catch (final RuntimeException e) {
+            if (notify) {
+                SassCompileListeners.firePostProcessFailed(listeners, this, e);
+            }
+            throw e;
+        }
+        if (notify) {
+            SassCompileListeners.fireExecuteCompleted(listeners, this, executeNanos);
+        }
 
         // Writes the result to the output stream.
-        return output;
+        return result;
+    }
+
+    /**
+     * Applies all post-processors of the options of this context to the given output.
+     * <p>All replacements are applied in a single pass over the output, and the source map is adjusted
+     * accordingly.</p>
+     */
+    @Nullable
+    private String postProcess(@Nullable final String output) {
+        this.postProcessed = false;
+        final List<SassPostProcessor> postProcessors = this.options.getPostProcessors();
+        if (output == null || postProcessors.isEmpty()) {
+            return output;
+        }
+        final SassCssEdits edits = new SassCssEdits(output);
+        for (final SassPostProcessor postProcessor : postProcessors) {
+            postProcessor.process(output, edits);
+        }
+        if (edits.isEmpty()) {
+            return output;
+        }
+        final String result = edits.apply();
+        this.postProcessedSourceMap = edits.remapSourceMap(SassLibrary.INSTANCE.sass_context_get_source_map_string(this.$context));
+        this.postProcessed = true;
+        return result;
+    }
+
+    /**
+     * Returns the source map that has been generated by the last compilation of this context.
+     * <p>If a {@link SassService} has taken the result from its {@link SassCompileCache compile cache}, the source
+     * map recorded in the cache is returned.</p>
+     * @return
+     *     The source map or {@code null} if no source map has been generated.
+     */
+    @Nullable
+    public String getSourceMap() {
+        if (this.cachedIncludedFiles != null) {
+            return this.cachedSourceMap;
+        }
+        if (this.postProcessed) {
+            return this.postProcessedSourceMap;
+        }
+        return SassLibrary.INSTANCE.sass_context_get_source_map_string(this.$context);
+    }
+
+    /**
+     * Returns all files that have been read during the last compilation of this context.
+     * <p>If a {@link SassService} has taken the result from its {@link SassCompileCache compile cache}, the files
+     * recorded in the cache are returned. The list is empty if the context has not been compiled in this process,
+     * e.g. because a worker process compiled it or because it shared the result of a coalesced compilation.</p>
+     * @return
+     *     The input file (if any) and all files that have been imported.
+     */
+    @Nonnull
+    public List<Path> getIncludedFiles() {
+        final List<Path> cachedIncludedFiles = this.cachedIncludedFiles;
+        if (cachedIncludedFiles != null) {
+            return new ArrayList<>(cachedIncludedFiles);
+        }
+        final Pointer $context = this.$context.getPointer();
+        final int size = SassImporterLibrary.INSTANCE.sass_context_get_included_files_size($context).intValue();
+        final List<Path> includedFiles = new ArrayList<>(size);
+        final Pointer $included_files = SassImporterLibrary.INSTANCE.sass_context_get_included_files($context);
+        if ($included_files != null) {
+            for (final String includedFile : $included_files.getStringArray(0, size)) {
+                includedFiles.add(Paths.get(includedFile));
+            }
+        }
+        return includedFiles;
+    }
+
+    /**
+     * Records a result that has been taken from a compile cache instead of being compiled.
+     * @param includedFiles
+     *     The input file and all files it imports.
+     * @param sourceMap
+     *     The source map of the cached result or {@code null}.
+     */
+    void setCachedResult(@Nonnull final List<Path> includedFiles, @Nullable final String sourceMap) {
+        // The source map is published by the (volatile) write of the included files.
+        this.cachedSourceMap = sourceMap;
+        this.cachedIncludedFiles = includedFiles;
+    }
+
+    /**
+     * Registers a listener that will be notified about all compilations of this context.
+     * @param listener
+     *     Listener to be registered.
+     * @see SassCompileListeners#register(SassCompileListener)
+     */
+    public synchronized void addCompileListener(@Nonnull final SassCompileListener listener) {
+        Objects.requireNonNull(listener, "Listener must not be null!");
+        final SassCompileListener[] current = this.listeners;
+        final SassCompileListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        this.listeners = updated;
+    }
+
+    /**
+     * Unregisters a listener from this context.
+     * @param listener
+     *     Listener to be unregistered.
+     */
+    public synchronized void removeCompileListener(@Nonnull final SassCompileListener listener) {
+        final SassCompileListener[] current = this.listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].equals(listener)) {
+                final SassCompileListener[] updated = new SassCompileListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                this.listeners = updated.length == 0 ? SassCompileListeners.NONE : updated;
+                return;
+            }
+        }
     }
 
     /**
@@ -107,6 +298,27 @@ public abstract class SassContext {
     @Nonnull
     protected abstract SassLibrary.Sass_Compiler createCompiler();
 
+    /**
+     * Returns a short description of the input of this Sass context (e.g. the path of the input file)
+     * to be used in log messages and diagnostic events.
+     * @return
+     *     Description of the input.
+     */
+    @Nonnull
+    protected String getInputDescription() {
+        return "data";
+    }
+
+    /**
+     * Returns the size of the input of this Sass context.
+     * <p>Imported files are not taken into account.</p>
+     * @return
+     *     Size of the input in bytes or {@code -1} if it is unknown.
+     */
+    protected long getInputSize() {
+        return -1L;
+    }
+
     /**
      * Returns the options associated with this Sass context.
      * @return
@@ -121,6 +333,21 @@ public abstract class SassContext {
         this.options = Objects.requireNonNull(options, "Options must not be null!");
     }
 
+    @Nonnull
+    public SassCompilePriority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Sets the priority lane that this context will be queued in if a {@link SassService} limits the number of
+     * concurrent compilations. Has no effect if the context is compiled directly.
+     * @param priority
+     *     Priority of the compilation. (Defaults to {@link SassCompilePriority#INTERACTIVE}.)
+     */
+    public void setPriority(@Nonnull final SassCompilePriority priority) {
+        this.priority = Objects.requireNonNull(priority, "Priority must not be null!");
+    }
+
     /**
      * Throws an exception if the compilation of SCSS data or an SCSS file has failed.
      * @param compileStatus
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replacements that {@link SassPostProcessor post-processors} want to apply to the compiled CSS.
+ * <p>Replacements must not overlap and must stay within a single line, i.e. neither the replaced range nor the
+ * replacement may contain a line break. That way only generated columns of the source map change, which can be
+ * adjusted without re-parsing the CSS.</p>
+ */
+public final class SassCssEdits {
+
+    /** Base64 alphabet of the VLQ encoding of source map mappings. */
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    /** The mappings of a source map. (They never contain quotes or backslashes.) */
+    private static final Pattern MAPPINGS = Pattern.compile("(\"mappings\"\\s*:\\s*\")([^\"]*)(\")");
+
+    /** The CSS that all offsets refer to. */
+    private final CharSequence css;
+
+    /** All replacements, in the order they have been recorded. */
+    private final List<Edit> edits = new ArrayList<>();
+
+    /**
+     * Creates an empty set of replacements.
+     * @param css
+     *     The CSS that all offsets refer to.
+     */
+    SassCssEdits(@Nonnull final CharSequence css) {
+        super();
+        this.css = Objects.requireNonNull(css, "CSS must not be null!");
+    }
+
+    /**
+     * Records a replacement.
+     * @param start
+     *     Offset of the first character to be replaced.
+     * @param end
+     *     Offset after the last character to be replaced.
+     * @param replacement
+     *     Replacement text.
+     * @throws IllegalArgumentException
+     *     If the range is invalid or if the range or replacement contains a line break.
+     */
+    public void replace(final int start, final int end, @Nonnull final String replacement) {
+        if (start < 0 || end < start || end > this.css.length()) {
+            throw new IllegalArgumentException("Invalid range: [" + start + ", " + end + ")");
+        }
+        for (int i = start; i < end; i++) {
+            if (this.css.charAt(i) == '\n') {
+                throw new IllegalArgumentException("Replacements must not span multiple lines.");
+            }
+        }
+        if (replacement.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Replacements must not contain line breaks.");
+        }
+        this.edits.add(new Edit(start, end, replacement));
+    }
+
+    /**
+     * Checks whether any replacement has been recorded.
+     * @return
+     *     {@code true} if there is nothing to do.
+     */
+    public boolean isEmpty() {
+        return this.edits.isEmpty();
+    }
+
+    /**
+     * Applies all replacements.
+     * @return
+     *     The modified CSS.
+     * @throws IllegalStateException
+     *     If two replacements overlap.
+     */
+    @Nonnull
+    String apply() {
+        final List<Edit> edits = this.sorted();
+        final StringBuilder result = new StringBuilder(this.css.length() + 16 * edits.size());
+        int position = 0;
+        for (final Edit edit : edits) {
+            result.append(this.css, position, edit.start).append(edit.replacement);
+            position = edit.end;
+        }
+        return result.append(this.css, position, this.css.length()).toString();
+    }
+
+    /**
+     * Shifts the generated columns of the given source map by the length differences of all replacements.
+     * @param sourceMap
+     *     Source map (JSON) of the CSS or {@code null}.
+     * @return
+     *     The adjusted source map or {@code null} if none has been given.
+     */
+    @Nullable
+    String remapSourceMap(@Nullable final String sourceMap) {
+        if (sourceMap == null || this.edits.isEmpty()) {
+            return sourceMap;
+        }
+        final Matcher matcher = MAPPINGS.matcher(sourceMap);
+        if (!matcher.find()) {
+            return sourceMap;
+        }
+        final List<Edit> edits = this.sorted();
+        final int[] lineStarts = this.lineStarts();
+        final String[] lines = matcher.group(2).split(";", -1);
+        final StringBuilder mappings = new StringBuilder(matcher.group(2).length() + 16);
+        int next = 0;
+        for (int line = 0; line < lines.length; line++) {
+            if (line > 0) {
+                mappings.append(';');
+            }
+            final int lineStart = line < lineStarts.length ? lineStarts[line] : Integer.MAX_VALUE;
+            final int lineEnd = line + 1 < lineStarts.length ? lineStarts[line + 1] : Integer.MAX_VALUE;
+            while (next < edits.size() && edits.get(next).start < lineStart) {
+                next++;
+            }
+            int last = next;
+            while (last < edits.size() && edits.get(last).start < lineEnd) {
+                last++;
+            }
+            if (next == last || lines[line].isEmpty()) {
+                mappings.append(lines[line]);
+                continue;
+            }
+            final List<Edit> lineEdits = edits.subList(next, last);
+            int previousColumn = 0;
+            int previousShiftedColumn = 0;
+            final String[] segments = lines[line].split(",", -1);
+            for (int i = 0; i < segments.length; i++) {
+                if (i > 0) {
+                    mappings.append(',');
+                }
+                final int[] position = { 0 };
+                final int column = previousColumn + decode(segments[i], position);
+                final int shiftedColumn = shift(lineEdits, lineStart, column);
+                encode(shiftedColumn - previousShiftedColumn, mappings);
+                mappings.append(segments[i], position[0], segments[i].length());
+                previousColumn = column;
+                previousShiftedColumn = shiftedColumn;
+            }
+        }
+        return sourceMap.substring(0, matcher.start(2)) + mappings + sourceMap.substring(matcher.end(2));
+    }
+
+    /**
+     * Determines the column of a generated position after all replacements of its line have been applied.
+     */
+    private static int shift(@Nonnull final List<Edit> lineEdits, final int lineStart, final int column) {
+        final int offset = lineStart + column;
+        int shifted = column;
+        for (final Edit edit : lineEdits) {
+            if (offset >= edit.end) {
+                shifted += edit.replacement.length() - (edit.end - edit.start);
+            } else if (offset > edit.start) {
+                // Inside of a replaced range: map to the start of the replacement.
+                shifted -= offset - edit.start;
+            }
+        }
+        return shifted;
+    }
+
+    @Nonnull
+    private List<Edit> sorted() {
+        final List<Edit> sorted = new ArrayList<>(this.edits);
+        Collections.sort(sorted, Comparator.comparingInt((Edit edit) -> edit.start).thenComparingInt(edit -> edit.end));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).start < sorted.get(i - 1).end) {
+                throw new IllegalStateException("Overlapping replacements at offset " + sorted.get(i).start + ".");
+            }
+        }
+        return sorted;
+    }
+
+    @Nonnull
+    private int[] lineStarts() {
+        int count = 1;
+        for (int i = 0; i < this.css.length(); i++) {
+            if (this.css.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        final int[] lineStarts = new int[count];
+        int line = 1;
+        for (int i = 0; i < this.css.length(); i++) {
+            if (this.css.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+        return lineStarts;
+    }
+
+    /**
+     * Decodes the first VLQ value of the given segment.
+     * @param position
+     *     Position to start at; will be set to the position after the value.
+     */
+    private static int decode(@Nonnull final String segment, @Nonnull final int[] position) {
+        int value = 0;
+        int shift = 0;
+        int digit;
+        do {
+            digit = BASE64.indexOf(segment.charAt(position[0]++));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid source map segment: " + segment);
+            }
+            value += (digit & 31) << shift;
+            shift += 5;
+        } while ((digit & 32) != 0);
+        return (value & 1) == 1 ? -(value >>> 1) : value >>> 1;
+    }
+
+    private static void encode(final int value, @Nonnull final StringBuilder out) {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+        do {
+            int digit = vlq & 31;
+            vlq >>>= 5;
+            if (vlq > 0) {
+                digit |= 32;
+            }
+            out.append(BASE64.charAt(digit));
+        } while (vlq > 0);
+    }
+
+    private static final class Edit {
+
+        private final int start;
+        private final int end;
+        private final String replacement;
+
+        private Edit(final int start, final int end, final String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+
+    }
+
+}
@@ -38,10 +38,20 @@ public class SassDataContext extends SassContext {
 
     protected Sass_Data_Context $data_context;
 
+    /** Size of the source data in bytes. */
+    private final long sourceSize;
+
+    /** Description of the source data (e.g. the URI it has been read from) or {@code null} if unknown. */
+    String inputDescription;
 
     protected SassDataContext(@Nonnull final Sass_Data_Context $data_context) {
+        this($data_context, -1L);
+    }
+
+    protected SassDataContext(@Nonnull final Sass_Data_Context $data_context, final long sourceSize) {
         super(SassLibrary.INSTANCE.sass_data_context_get_context($data_context), false);
         this.$data_context = $data_context;
+        this.sourceSize = sourceSize;
     }
 
     /**
@@ -52,7 +62,10 @@ public class SassDataContext extends SassContext {
      *     A new Sass data context.
      */
     public static SassDataContext create(@Nonnull final ByteBuffer sourceBuffer) {
-        return new SassDataContext(SassLibrary.INSTANCE.sass_make_data_context(sourceBuffer));
+        final long sourceSize = sourceBuffer.remaining();
+        final Sass_Data_Context $data_context = SassLibrary.INSTANCE.sass_make_data_context(sourceBuffer);
+        SassNativeMemory.contextCreated();
+        return new SassDataContext($data_context, sourceSize);
     }
 
     /**
@@ -85,6 +98,17 @@ public class SassDataContext extends SassContext {
         SassLibrary.INSTANCE.sass_data_context_set_options(this.$data_context, this.options.$options);
     }
 
+    @Override
+    @Nonnull
+    protected String getInputDescription() {
+        return this.inputDescription != null ? this.inputDescription : super.getInputDescription();
+    }
+
+    @Override
+    protected long getInputSize() {
+        return this.sourceSize;
+    }
+
     @Override
     @Nonnull
     protected Sass_Compiler createCompiler() {
@@ -95,6 +119,7 @@ public class SassDataContext extends SassContext {
     protected void finalize() throws Throwable {
         if (this.$data_context != null) {
             SassLibrary.INSTANCE.sass_delete_data_context(this.$data_context);
+            SassNativeMemory.contextFreed(this.retainedOutputSize);
         }
         super.finalize();
     }
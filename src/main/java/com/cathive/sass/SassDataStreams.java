@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes length-prefixed UTF-8 strings of the binary formats of this package.
+ */
+final class SassDataStreams {
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassDataStreams() {
+        super();
+    }
+
+    /**
+     * Writes a string, preceded by its length in bytes ({@code -1} for {@code null}).
+     * @param out
+     *     Data output to be written to.
+     * @param value
+     *     The string to be written or {@code null}.
+     * @throws IOException
+     *     If writing fails.
+     */
+    static void writeString(@Nonnull final DataOutput out, @Nullable final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string that has been written by {@link #writeString(DataOutput, String)}.
+     * @param in
+     *     Data input to be read from.
+     * @return
+     *     The string or {@code null}.
+     * @throws IOException
+     *     If reading fails.
+     */
+    @Nullable
+    static String readString(@Nonnull final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
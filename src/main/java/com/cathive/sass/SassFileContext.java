@@ -20,6 +20,9 @@ import com.cathive.sass.jna.SassLibrary;
 import com.cathive.sass.jna.SassLibrary.Sass_File_Context;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -30,22 +33,66 @@ public class SassFileContext extends SassContext {
     /** Underlying native Sass file context. */
     protected Sass_File_Context $file_context;
 
+    /** The (absolute) path of the input file. */
+    private final Path inputFile;
+
     /**
      * Creates a new Sass file context.
      * @param $file_context
      *     Underlying native Sass_File_Context structure.
+     * @param inputFile
+     *     The (absolute) path of the input file.
      */
-    protected SassFileContext(@Nonnull Sass_File_Context $file_context) {
+    protected SassFileContext(@Nonnull Sass_File_Context $file_context, @Nonnull final Path inputFile) {
         super(SassLibrary.INSTANCE.sass_file_context_get_context($file_context), false);
         this.$file_context = $file_context;
+        this.inputFile = inputFile;
     }
 
+    /**
+     * Creates a new Sass file context.
+     * @param inputFile
+     *     Path of the input file. Must reside in the default file system, because libsass reads it itself.
+     * @return
+     *     A new Sass file context.
+     * @see SassPathImporter#createContext(Path)
+     */
     public static SassFileContext create(@Nonnull final Path inputFile) {
-        final Sass_File_Context $file_context = SassLibrary.INSTANCE.sass_make_file_context(inputFile.toFile().getAbsolutePath());
-        return new SassFileContext($file_context);
+        if (inputFile.getFileSystem() != FileSystems.getDefault()) {
+            throw new IllegalArgumentException("Input file \"" + inputFile.toUri() + "\" does not reside in the default file system. Use a SassPathImporter to compile it.");
+        }
+        final Path absoluteInputFile = inputFile.toAbsolutePath();
+        final Sass_File_Context $file_context = SassLibrary.INSTANCE.sass_make_file_context(absoluteInputFile.toFile().getAbsolutePath());
+        SassNativeMemory.contextCreated();
+        return new SassFileContext($file_context, absoluteInputFile);
+    }
+
+    /**
+     * Returns the input file of this Sass file context.
+     * @return
+     *     The (absolute) path of the input file.
+     */
+    @Nonnull
+    public Path getInputFile() {
+        return this.inputFile;
     }
 
 
+    @Override
+    @Nonnull
+    protected String getInputDescription() {
+        return this.inputFile.toString();
+    }
+
+    @Override
+    protected long getInputSize() {
+        try {
+            return Files.size(this.inputFile);
+        } catch (final IOException e) {
+            return -1L;
+        }
+    }
+
     @Override
     @Nonnull
     protected SassLibrary.Sass_Compiler createCompiler() {
@@ -62,6 +109,7 @@ public class SassFileContext extends SassContext {
     protected void finalize() throws Throwable {
         if (this.$file_context != null) {
             SassLibrary.INSTANCE.sass_delete_file_context(this.$file_context);
+            SassNativeMemory.contextFreed(this.retainedOutputSize);
         }
         super.finalize();
     }
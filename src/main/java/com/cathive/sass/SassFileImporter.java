@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An importer that resolves imports of SCSS files the same way libsass does (relative to the importing
+ * stylesheet first, then along the include path) but reads their contents through a {@link SassImportCache}.
+ * <p>Plain CSS imports, URLs and indented syntax files are left to libsass.</p>
+ */
+public class SassFileImporter implements SassImporter {
+
+    /** File extension of SCSS files. */
+    private static final String SCSS_EXTENSION = ".scss";
+
+    /** Directories to be searched if an import can't be resolved relative to the importing stylesheet. */
+    private final List<Path> includePath;
+
+    /** Cache of file contents, possibly shared with other importers. */
+    private final SassImportCache cache;
+
+    /**
+     * Creates a new file importer.
+     * @param includePath
+     *     Directories to be searched for imports.
+     * @param cache
+     *     Cache to be used to read imported files.
+     */
+    public SassFileImporter(@Nonnull final Collection<Path> includePath, @Nonnull final SassImportCache cache) {
+        super();
+        this.includePath = Collections.unmodifiableList(new ArrayList<>(includePath));
+        this.cache = Objects.requireNonNull(cache, "Cache must not be null!");
+    }
+
+    @Nullable
+    @Override
+    public List<SassImport> resolve(@Nonnull final String url, @Nullable final Path previous) throws IOException {
+        if (url.contains("://") || url.startsWith("//") || url.endsWith(".css") || url.endsWith(".sass")) {
+            return null;
+        }
+        Path file = null;
+        if (previous != null && previous.getParent() != null) {
+            file = find(previous.getParent(), url);
+        }
+        for (int i = 0; file == null && i < this.includePath.size(); i++) {
+            file = find(this.includePath.get(i), url);
+        }
+        if (file == null) {
+            return null;
+        }
+        return Collections.singletonList(new SassImport(url, file, this.cache.read(file)));
+    }
+
+    /**
+     * Looks for the given import in the given directory.
+     * @return
+     *     The absolute path of the import or {@code null} if it can't be found.
+     */
+    @Nullable
+    private static Path find(@Nonnull final Path directory, @Nonnull final String url) {
+        final Path base = directory.resolve(url);
+        final Path parent = base.getParent();
+        final Path fileName = base.getFileName();
+        if (parent == null || fileName == null) {
+            return null;
+        }
+        final String name = fileName.toString();
+        final String[] candidates = name.endsWith(SCSS_EXTENSION)
+                ? new String[] { "_" + name, name }
+                : new String[] { "_" + name + SCSS_EXTENSION, name + SCSS_EXTENSION };
+        for (final String candidate : candidates) {
+            final Path file = parent.resolve(candidate);
+            if (Files.isRegularFile(file)) {
+                return file.toAbsolutePath().normalize();
+            }
+        }
+        return null;
+    }
+
+}
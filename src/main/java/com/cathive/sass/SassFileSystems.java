@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens archives (e.g. webjars) as read-only file systems, so that stylesheets can be compiled straight out of
+ * them without being extracted to disk.
+ * <p>Archives are opened once and kept open. An archive is re-opened if its modification time or size has
+ * changed. The file system that has been opened before is retired: it stays open for another
+ * {@value #RETIREMENT_DELAY_MILLIS} ms, so that compilations that are still reading from it are not affected,
+ * and is closed afterwards.</p>
+ * <p>Archives that are nested in other archives (e.g. {@code jar:file:/app.jar!/BOOT-INF/lib/theme.jar!/...}) are
+ * opened within the file system of their enclosing archive. Java 8 can't do that, so nested archives are copied
+ * to temporary files there.</p>
+ * @see SassPathImporter
+ */
+public final class SassFileSystems {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassFileSystems.class.getName());
+
+    /** Time (in milliseconds) after which a file system that has been replaced by a newer one is closed. */
+    static final long RETIREMENT_DELAY_MILLIS = 60000L;
+
+    /** File systems of all opened archives by absolute path of the archive. */
+    private static final ConcurrentMap<Path, Archive> ARCHIVES = new ConcurrentHashMap<>();
+
+    /** File systems that have been replaced, in the order of their retirement. (Guarded by {@link #ARCHIVES}.) */
+    private static final Deque<Archive> RETIRED = new ArrayDeque<>();
+
+    /** Time at which the next retired file system is due to be closed. */
+    private static volatile long nextRetirement = Long.MAX_VALUE;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassFileSystems() {
+        super();
+    }
+
+    /**
+     * Returns a file system with the contents of the given zip or jar archive.
+     * @param archive
+     *     Path of the archive. May reside in the file system of another archive.
+     * @return
+     *     A (cached) file system with the contents of the archive.
+     * @throws IOException
+     *     If the archive can't be opened.
+     */
+    @Nonnull
+    public static FileSystem getArchive(@Nonnull final Path archive) throws IOException {
+        final Path key = archive.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        if (System.currentTimeMillis() >= nextRetirement) {
+            closeRetired(System.currentTimeMillis());
+        }
+        final Archive cached = ARCHIVES.get(key);
+        if (cached != null && cached.isValid(attributes)) {
+            return cached.fileSystem;
+        }
+        synchronized (ARCHIVES) {
+            final Archive current = ARCHIVES.get(key);
+            if (current != null && current.isValid(attributes)) {
+                return current.fileSystem;
+            }
+            ARCHIVES.put(key, open(key, attributes));
+            if (current != null) {
+                retire(current, System.currentTimeMillis() + RETIREMENT_DELAY_MILLIS);
+            }
+            return ARCHIVES.get(key).fileSystem;
+        }
+    }
+
+    /**
+     * Converts the given URI to a path. Entries of {@code jar:} URIs (as returned by
+     * {@link ClassLoader#getResource(String)} for resources in webjars) are resolved in a cached archive
+     * file system. Each {@code !/} separator of the URI denotes an archive that is nested in the previous one.
+     * @param uri
+     *     URI to be converted.
+     * @return
+     *     The path that is denoted by the given URI.
+     * @throws IOException
+     *     If the archive can't be opened.
+     * @throws IllegalArgumentException
+     *     If the URI doesn't denote an entry of an archive in the default file system (e.g. the {@code nested:}
+     *     URIs of Spring Boot 3.2 and later).
+     */
+    @Nonnull
+    public static Path getPath(@Nonnull final URI uri) throws IOException {
+        if (!"jar".equalsIgnoreCase(uri.getScheme())) {
+            return Paths.get(uri);
+        }
+        final String[] parts = uri.getRawSchemeSpecificPart().split("!/", -1);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Not an archive entry: " + uri);
+        }
+        final URI archive = URI.create(parts[0]);
+        if (!"file".equalsIgnoreCase(archive.getScheme())) {
+            throw new IllegalArgumentException("Unsupported archive URI (only file archives are supported): " + uri);
+        }
+        Path path = Paths.get(archive);
+        for (int i = 1; i < parts.length; i++) {
+            path = getArchive(path).getPath(URI.create("/" + parts[i]).getPath());
+        }
+        return path;
+    }
+
+    /**
+     * Closes the file systems of all archives that have been opened, including retired ones.
+     */
+    public static void closeAll() {
+        synchronized (ARCHIVES) {
+            for (final Path key : ARCHIVES.keySet()) {
+                ARCHIVES.remove(key).close();
+            }
+            closeRetired(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Closes all retired file systems that are due.
+     * @param now
+     *     Current time in milliseconds.
+     */
+    static void closeRetired(final long now) {
+        synchronized (ARCHIVES) {
+            while (!RETIRED.isEmpty() && RETIRED.peekFirst().retirement <= now) {
+                RETIRED.pollFirst().close();
+            }
+            nextRetirement = RETIRED.isEmpty() ? Long.MAX_VALUE : RETIRED.peekFirst().retirement;
+        }
+    }
+
+    /**
+     * Opens the file system of an archive.
+     */
+    @Nonnull
+    private static Archive open(@Nonnull final Path key, @Nonnull final BasicFileAttributes attributes) throws IOException {
+        try {
+            // Not registered with the provider, so that other users of the archive are not affected.
+            return new Archive(key, FileSystems.newFileSystem(key, (ClassLoader) null), null, attributes);
+        } catch (final ProviderNotFoundException e) {
+            if (key.getFileSystem() == FileSystems.getDefault()) {
+                throw e;
+            }
+            // The zip file system provider of Java 8 only opens archives that reside in the default file system.
+            final Path copy = Files.createTempFile("sass-java", ".jar");
+            try {
+                Files.copy(key, copy, StandardCopyOption.REPLACE_EXISTING);
+                return new Archive(key, FileSystems.newFileSystem(copy, (ClassLoader) null), copy, attributes);
+            } catch (final IOException | RuntimeException ex) {
+                Files.deleteIfExists(copy);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Retires the given archive and all archives that are nested in it. (The caller must hold the lock.)
+     */
+    private static void retire(@Nonnull final Archive archive, final long retirement) {
+        final List<Archive> nested = new ArrayList<>();
+        for (final Archive candidate : ARCHIVES.values()) {
+            if (candidate.key.getFileSystem() == archive.fileSystem) {
+                nested.add(candidate);
+            }
+        }
+        for (final Archive candidate : nested) {
+            ARCHIVES.remove(candidate.key, candidate);
+            // Nested archives are closed before their enclosing archive.
+            retire(candidate, retirement);
+        }
+        archive.retirement = retirement;
+        RETIRED.addLast(archive);
+        nextRetirement = RETIRED.peekFirst().retirement;
+    }
+
+    private static final class Archive {
+
+        private final Path key;
+        private final FileSystem fileSystem;
+        private final Path copy;
+        private final FileTime lastModified;
+        private final long size;
+        private long retirement;
+
+        private Archive(@Nonnull final Path key,
+                        @Nonnull final FileSystem fileSystem,
+                        @Nullable final Path copy,
+                        @Nonnull final BasicFileAttributes attributes) {
+            this.key = key;
+            this.fileSystem = fileSystem;
+            this.copy = copy;
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+        }
+
+        private boolean isValid(@Nonnull final BasicFileAttributes attributes) {
+            return this.fileSystem.isOpen() && this.size == attributes.size() && this.lastModified.equals(attributes.lastModifiedTime());
+        }
+
+        private void close() {
+            try {
+                this.fileSystem.close();
+                if (this.copy != null) {
+                    Files.deleteIfExists(this.copy);
+                }
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Could not close file system of \"{0}\": {1}", new Object[]{ this.key, e.getMessage() });
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Writes compiled stylesheets to the file system.
+ */
+public final class SassFiles {
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassFiles() {
+        super();
+    }
+
+    /**
+     * Writes the given content to an output file.
+     * <p>If the output file already exists and its content is identical, it is left untouched, so that its
+     * modification time is preserved. Otherwise the content is written to a temporary file in the same directory,
+     * which then atomically replaces the output file. Readers therefore never see a partially written file.</p>
+     * @param outputFile
+     *     The file to be written. Missing parent directories are created.
+     * @param content
+     *     The content to be written.
+     * @return
+     *     {@code true} if the output file has been written, {@code false} if it was up to date.
+     * @throws IOException
+     *     If writing fails.
+     */
+    public static boolean write(@Nonnull final Path outputFile, @Nonnull final byte[] content) throws IOException {
+        final Path outputDir = outputFile.toAbsolutePath().getParent();
+        Files.createDirectories(outputDir);
+        if (Files.isRegularFile(outputFile) && Files.size(outputFile) == content.length
+                && MessageDigest.isEqual(digest(outputFile), digest(content))) {
+            return false;
+        }
+        final Path temp = Files.createTempFile(outputDir, "." + outputFile.getFileName() + ".", ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temp, outputFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the given content.
+     */
+    @Nonnull
+    private static byte[] digest(@Nonnull final byte[] content) {
+        final MessageDigest digest = sha256();
+        digest.update(content);
+        return digest.digest();
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the given file without reading it into memory at once.
+     */
+    @Nonnull
+    private static byte[] digest(@Nonnull final Path file) throws IOException {
+        final MessageDigest digest = sha256();
+        final byte[] buffer = new byte[8192];
+        try (final InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    @Nonnull
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A stylesheet that has been resolved by a {@link SassImporter}.
+ */
+public final class SassImport {
+
+    /** Path of the import, as it will be reported by libsass. */
+    private final String path;
+
+    /** Absolute path of the import, used to resolve nested imports. */
+    private final Path absolutePath;
+
+    /** SCSS source of the import. */
+    private final String source;
+
+    /**
+     * Creates a new import.
+     * @param path
+     *     Path of the import, as it will be reported by libsass (e.g. in error messages).
+     * @param absolutePath
+     *     Absolute path of the import or {@code null} if the import doesn't reside in a file system.
+     * @param source
+     *     SCSS source of the import.
+     */
+    public SassImport(@Nonnull final String path, @Nullable final Path absolutePath, @Nonnull final String source) {
+        super();
+        this.path = Objects.requireNonNull(path, "Path must not be null!");
+        this.absolutePath = absolutePath;
+        this.source = Objects.requireNonNull(source, "Source must not be null!");
+    }
+
+    @Nonnull
+    public String getPath() {
+        return this.path;
+    }
+
+    @Nullable
+    public Path getAbsolutePath() {
+        return this.absolutePath;
+    }
+
+    @Nonnull
+    public String getSource() {
+        return this.source;
+    }
+
+    @Override
+    public String toString() {
+        return "SassImport{path=" + this.path + ", absolutePath=" + this.absolutePath + "}";
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the contents of imported stylesheets in memory, so that they can be shared between compilations.
+ * <p>Cached contents are validated against the modification time and size of their file on every access.</p>
+ * @see SassFileImporter
+ */
+public class SassImportCache {
+
+    /** Cached file contents by absolute path. */
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Returns the content of the given file.
+     * @param file
+     *     File to be read.
+     * @return
+     *     Content of the file.
+     * @throws IOException
+     *     If the file can't be read.
+     */
+    @Nonnull
+    public String read(@Nonnull final Path file) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        final Entry cached = this.entries.get(key);
+        if (cached != null && cached.size == attributes.size() && cached.lastModified.equals(attributes.lastModifiedTime())) {
+            this.hitCount.incrementAndGet();
+            return cached.content;
+        }
+        this.missCount.incrementAndGet();
+        final String content = new String(Files.readAllBytes(key), StandardCharsets.UTF_8);
+        this.entries.put(key, new Entry(attributes.lastModifiedTime(), attributes.size(), content));
+        return content;
+    }
+
+    /**
+     * Removes all cached contents.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    private static final class Entry {
+
+        private final FileTime lastModified;
+        private final long size;
+        private final String content;
+
+        private Entry(final FileTime lastModified, final long size, final String content) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.content = content;
+        }
+
+    }
+
+}
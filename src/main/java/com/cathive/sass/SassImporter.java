@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Resolves imports on behalf of libsass.
+ * <p>Importers can be used to serve stylesheets from memory or from a cache, and as <em>headers</em> that
+ * will be prepended to the input of a compilation (see {@link SassOptions#setHeaders(SassImporter...)}).</p>
+ * <p>Importers are invoked on the compiling thread and must be thread-safe if they are shared between
+ * contexts.</p>
+ * @see SassOptions#setImporters(SassImporter...)
+ */
+@FunctionalInterface
+public interface SassImporter {
+
+    /**
+     * Resolves the given import.
+     * @param url
+     *     The URL as written in the {@code @import} rule. When used as a header, this is the path of the input.
+     * @param previous
+     *     Absolute path of the stylesheet that contains the import or {@code null} if unknown.
+     * @return
+     *     The stylesheets to be imported, or {@code null} to let the next importer (or libsass itself)
+     *     resolve the import.
+     * @throws IOException
+     *     If the import can't be read. The compilation will fail with the message of the exception.
+     */
+    @Nullable
+    List<SassImport> resolve(@Nonnull String url, @Nullable Path previous) throws IOException;
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import com.ochafik.lang.jnaerator.runtime.NativeSize;
+import com.sun.jna.Pointer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adapts a {@link SassImporter} to the native importer callback of libsass.
+ * <p>Instances must be kept reachable for as long as the native options they have been
+ * registered with are in use, because JNA releases the native callback stub as soon as the
+ * callback object has been garbage collected.</p>
+ */
+final class SassImporterCallback implements SassImporterLibrary.Sass_Importer_Fn {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassImporterCallback.class.getName());
+
+    /** The importer that does the actual work. */
+    private final SassImporter importer;
+
+    SassImporterCallback(@Nonnull final SassImporter importer) {
+        super();
+        this.importer = Objects.requireNonNull(importer, "Importer must not be null!");
+    }
+
+    @Nonnull
+    SassImporter getImporter() {
+        return this.importer;
+    }
+
+    @Override
+    public Pointer apply(final String url, final Pointer cb, final Pointer compiler) {
+        final SassImporterLibrary lib = SassImporterLibrary.INSTANCE;
+        try {
+            final List<SassImport> imports = this.importer.resolve(url, previous(compiler));
+            if (imports == null) {
+                return null;
+            }
+            final Pointer list = lib.sass_make_import_list(new NativeSize(imports.size()));
+            for (int i = 0; i < imports.size(); i++) {
+                final SassImport imp = imports.get(i);
+                final Path absolutePath = imp.getAbsolutePath();
+                final Pointer entry = lib.sass_make_import(
+                        imp.getPath(),
+                        absolutePath == null ? null : absolutePath.toString(),
+                        copy(imp.getSource()),
+                        null);
+                lib.sass_import_set_list_entry(list, new NativeSize(i), entry);
+            }
+            return list;
+        } catch (final Exception e) {
+            // Exceptions must never propagate into native code.
+            LOGGER.log(Level.FINE, "Importer failed to resolve \"" + url + "\".", e);
+            final Pointer list = lib.sass_make_import_list(new NativeSize(1));
+            final Pointer entry = lib.sass_make_import(url, null, null, null);
+            lib.sass_import_set_error(entry, String.valueOf(e.getMessage()), new NativeSize(0), new NativeSize(0));
+            lib.sass_import_set_list_entry(list, new NativeSize(0), entry);
+            return list;
+        }
+    }
+
+    /**
+     * Registers the given importers with the given native options.
+     * @param $options
+     *     Native options to be modified.
+     * @param callbacks
+     *     Callbacks to be registered, in descending order of their priority.
+     * @param headers
+     *     {@code true} to register the callbacks as headers, {@code false} to register them as importers.
+     */
+    static void register(@Nonnull final Pointer $options, @Nonnull final List<SassImporterCallback> callbacks, final boolean headers) {
+        final SassImporterLibrary lib = SassImporterLibrary.INSTANCE;
+        Pointer list = null;
+        if (!callbacks.isEmpty()) {
+            list = lib.sass_make_importer_list(new NativeSize(callbacks.size()));
+            for (int i = 0; i < callbacks.size(); i++) {
+                final Pointer entry = lib.sass_make_importer(callbacks.get(i), callbacks.size() - i, null);
+                lib.sass_importer_set_list_entry(list, new NativeSize(i), entry);
+            }
+        }
+        if (headers) {
+            lib.sass_option_set_c_headers($options, list);
+        } else {
+            lib.sass_option_set_c_importers($options, list);
+        }
+    }
+
+    /**
+     * Determines the stylesheet that is currently being imported.
+     */
+    @Nullable
+    private static Path previous(@Nullable final Pointer compiler) {
+        if (compiler == null) {
+            return null;
+        }
+        final Pointer last = SassImporterLibrary.INSTANCE.sass_compiler_get_last_import(compiler);
+        if (last == null) {
+            return null;
+        }
+        final String absolutePath = SassImporterLibrary.INSTANCE.sass_import_get_abs_path(last);
+        return absolutePath == null ? null : Paths.get(absolutePath);
+    }
+
+    /**
+     * Copies the given string to memory that is owned (and will be released) by libsass.
+     */
+    @Nonnull
+    private static Pointer copy(@Nonnull final String source) {
+        final byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        final Pointer $source = SassImporterLibrary.INSTANCE.sass_alloc_memory(new NativeSize(bytes.length + 1));
+        $source.write(0, bytes, 0, bytes.length);
+        $source.setByte(bytes.length, (byte) 0);
+        return $source;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import com.ochafik.lang.jnaerator.runtime.NativeSize;
+import com.sun.jna.Callback;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+/**
+ * Native bindings of the libsass importer API (see {@code sass/functions.h}).
+ * <p>The opaque structures that are involved (importer lists, import lists and entries) are never
+ * exposed outside of this package and are therefore mapped as plain pointers. Structures that are part
+ * of the generated {@link com.cathive.sass.jna.SassLibrary} are passed via
+ * {@link com.sun.jna.PointerType#getPointer()}.</p>
+ */
+interface SassImporterLibrary extends Library {
+
+    SassImporterLibrary INSTANCE = (SassImporterLibrary) Native.loadLibrary("sass", SassImporterLibrary.class);
+
+    /**
+     * {@code Sass_Import_List (*Sass_Importer_Fn)(const char* url, Sass_Importer_Entry cb, struct Sass_Compiler* compiler)}
+     */
+    interface Sass_Importer_Fn extends Callback {
+        Pointer apply(String url, Pointer cb, Pointer compiler);
+    }
+
+    Pointer sass_make_importer(Sass_Importer_Fn importer, double priority, Pointer cookie);
+
+    Pointer sass_make_importer_list(NativeSize length);
+
+    void sass_importer_set_list_entry(Pointer list, NativeSize idx, Pointer entry);
+
+    void sass_option_set_c_headers(Pointer options, Pointer c_headers);
+
+    void sass_option_set_c_importers(Pointer options, Pointer c_importers);
+
+    Pointer sass_make_import_list(NativeSize length);
+
+    Pointer sass_make_import(String imp_path, String abs_path, Pointer source, Pointer srcmap);
+
+    Pointer sass_import_set_error(Pointer entry, String message, NativeSize line, NativeSize col);
+
+    void sass_import_set_list_entry(Pointer list, NativeSize idx, Pointer entry);
+
+    Pointer sass_compiler_get_last_import(Pointer compiler);
+
+    String sass_import_get_abs_path(Pointer entry);
+
+    Pointer sass_context_get_included_files(Pointer context);
+
+    NativeSize sass_context_get_included_files_size(Pointer context);
+
+    Pointer sass_alloc_memory(NativeSize size);
+
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory index of all stylesheets below a set of include directories, which resolves imports with a
+ * single map lookup instead of probing every candidate file name in every include directory.
+ * <p>Imports are resolved the same way libsass does: relative to the importing stylesheet first, then along the
+ * include path. Within a directory, partials ({@code _x.scss}, {@code _x.sass}, {@code _x.css}) and plain files
+ * ({@code x.scss}, {@code x.sass}, {@code x.css}) are candidates, index files ({@code x/_index.scss}) only if there
+ * are none of them. Like libsass, the index refuses to pick one of several candidates of the same directory: such
+ * an import fails with an error that lists the candidates. Resolved SCSS files are read through a
+ * {@link SassImportCache}; everything else (plain CSS, indented syntax and imports that are not in the index) is
+ * left to libsass.</p>
+ * <p>The index is built on creation. It can be rebuilt via {@link #refresh()} or kept up to date by a
+ * {@link WatchService} (see {@link #startWatching()}). Note that file systems that don't support change
+ * notifications (e.g. some network file systems) are polled by the JDK, so changes may show up with a delay.</p>
+ * @see SassOptions#setIncludePath(SassIncludePathIndex)
+ */
+public class SassIncludePathIndex implements SassImporter, Closeable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassIncludePathIndex.class.getName());
+
+    /** Candidate file name patterns in the order libsass probes them ({@code %s} = name). */
+    private static final String[] CANDIDATES = {
+            "_%s.scss", "_%s.sass", "_%s.css", "%s.scss", "%s.sass", "%s.css",
+            "%s/_index.scss", "%s/_index.sass", "%s/index.scss", "%s/index.sass"
+    };
+
+    /** Position of the first index file in {@link #CANDIDATES}. */
+    private static final int FIRST_INDEX_CANDIDATE = 6;
+
+    /** Time to wait for further changes before the index is rebuilt. */
+    private static final long REFRESH_DELAY_MILLIS = 100L;
+
+    /** Include directories, in the order they are searched. */
+    private final List<Path> includePath;
+
+    /** Contents of the resolved files. */
+    private final SassImportCache cache;
+
+    /** Current state of the index. Replaced as a whole on each refresh. */
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    /** Watches all directories of the include path. ({@code null} if not watching) */
+    private volatile WatchService watchService;
+
+    /**
+     * Creates and builds a new index.
+     * @param includePath
+     *     Include directories, in the order they shall be searched.
+     * @param cache
+     *     Cache to be used to read the resolved files.
+     * @throws IOException
+     *     If one of the include directories can't be read.
+     */
+    public SassIncludePathIndex(@Nonnull final Collection<Path> includePath, @Nonnull final SassImportCache cache) throws IOException {
+        super();
+        final List<Path> directories = new ArrayList<>(includePath.size());
+        for (final Path directory : includePath) {
+            directories.add(directory.toAbsolutePath().normalize());
+        }
+        this.includePath = Collections.unmodifiableList(directories);
+        this.cache = cache;
+        this.snapshot = Snapshot.build(this.includePath);
+    }
+
+    /**
+     * Returns the include directories of this index.
+     * @return
+     *     Absolute paths of all include directories, in the order they are searched.
+     */
+    @Nonnull
+    public List<Path> getIncludePath() {
+        return this.includePath;
+    }
+
+    @Nullable
+    @Override
+    public List<SassImport> resolve(@Nonnull final String url, @Nullable final Path previous) throws IOException {
+        if (url.contains("://") || url.startsWith("//") || url.endsWith(".css")) {
+            return null;
+        }
+        final Snapshot snapshot = this.snapshot;
+        List<Path> files = null;
+        if (previous != null && previous.isAbsolute() && previous.getParent() != null) {
+            final Path base = previous.getParent().resolve(url).normalize();
+            files = select(url, snapshot.isIndexed(base) ? snapshot.resolveRelative(base) : probe(base));
+        }
+        if (files == null) {
+            files = select(url, snapshot.files.get(key(url)));
+        }
+        if (files == null) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+        this.hitCount.incrementAndGet();
+        if (files.size() > 1) {
+            final StringBuilder message = new StringBuilder("It's not clear which file to import for '@import \"")
+                    .append(url).append("\"'.\nCandidates:\n");
+            for (final Path candidate : files) {
+                message.append("  ").append(candidate).append('\n');
+            }
+            throw new IOException(message.append("Please delete or rename all but one of these files.").toString());
+        }
+        final Path file = files.get(0);
+        if (!file.getFileName().toString().endsWith(".scss")) {
+            // libsass has to parse indented syntax and plain CSS itself.
+            return null;
+        }
+        return Collections.singletonList(new SassImport(url, file, this.cache.read(file)));
+    }
+
+    /**
+     * Rebuilds the index from the current contents of the include directories.
+     * <p>Refreshes are serialized (with each other and with {@link #startWatching()} and {@link #close()}), so that
+     * an older snapshot never replaces a newer one. Lookups keep using the previous snapshot in the meantime.</p>
+     * @throws IOException
+     *     If one of the include directories can't be read.
+     */
+    public synchronized void refresh() throws IOException {
+        this.snapshot = Snapshot.build(this.includePath);
+        this.refreshCount.incrementAndGet();
+        final WatchService watchService = this.watchService;
+        if (watchService != null) {
+            this.register(watchService);
+        }
+    }
+
+    /**
+     * Starts a daemon thread that rebuilds the index whenever a file is created or deleted in one of the
+     * include directories (or their sub-directories).
+     * @throws IOException
+     *     If the directories can't be watched.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (this.watchService != null) {
+            return;
+        }
+        if (this.includePath.isEmpty()) {
+            return;
+        }
+        final WatchService watchService = this.includePath.get(0).getFileSystem().newWatchService();
+        this.watchService = watchService;
+        this.register(watchService);
+        final Thread thread = new Thread(() -> this.watch(watchService), "sass-include-path-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the include directories.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.watchService != null) {
+            this.watchService.close();
+            this.watchService = null;
+        }
+    }
+
+    /**
+     * Returns the number of imports that have been resolved by a lookup in this index.
+     * @return
+     *     Number of hits.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the number of imports that are not in this index and have therefore been left to libsass.
+     * @return
+     *     Number of misses.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    public long getRefreshCount() {
+        return this.refreshCount.get();
+    }
+
+    /**
+     * Returns the number of stylesheets in this index.
+     * @return
+     *     Number of distinct import names.
+     */
+    public int size() {
+        return this.snapshot.files.size();
+    }
+
+    private void watch(@Nonnull final WatchService watchService) {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                key.pollEvents();
+                key.reset();
+                // Changes tend to come in bursts (e.g. a checkout), so wait until things have settled.
+                WatchKey next;
+                while ((next = watchService.poll(REFRESH_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    next.pollEvents();
+                    next.reset();
+                }
+                try {
+                    this.refresh();
+                } catch (final IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not refresh include path index: {0}", e.getMessage());
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    private void register(@Nonnull final WatchService watchService) throws IOException {
+        for (final Path directory : this.includePath) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    /**
+     * Looks for an import outside of the indexed directories the same way libsass does, i.e. by probing all
+     * candidate file names.
+     * @param base
+     *     Absolute, normalized path of the import.
+     */
+    @Nullable
+    private static List<Path> probe(@Nonnull final Path base) {
+        final Path parent = base.getParent();
+        final Path fileName = base.getFileName();
+        if (parent == null || fileName == null) {
+            return null;
+        }
+        final String name = key(fileName.toString());
+        final List<Path> files = new ArrayList<>();
+        for (int rank = 0; rank < CANDIDATES.length; rank++) {
+            if (rank == FIRST_INDEX_CANDIDATE && !files.isEmpty()) {
+                break;
+            }
+            final Path file = parent.resolve(String.format(CANDIDATES[rank], name));
+            if (Files.isRegularFile(file)) {
+                files.add(file);
+            }
+        }
+        return files.isEmpty() ? null : files;
+    }
+
+    /**
+     * Narrows the candidates of an import down to the file name of the import, if the import has an extension.
+     * @param url
+     *     The import.
+     * @param files
+     *     All candidates of the import or {@code null}.
+     * @return
+     *     The remaining candidates or {@code null} if there are none.
+     */
+    @Nullable
+    private static List<Path> select(@Nonnull final String url, @Nullable final List<Path> files) {
+        if (files == null || !(url.endsWith(".scss") || url.endsWith(".sass"))) {
+            return files;
+        }
+        final String fileName = url.substring(url.replace('\\', '/').lastIndexOf('/') + 1);
+        final List<Path> selected = new ArrayList<>(files.size());
+        for (final Path file : files) {
+            final String candidate = file.getFileName().toString();
+            if (candidate.equals(fileName) || candidate.equals("_" + fileName)) {
+                selected.add(file);
+            }
+        }
+        return selected.isEmpty() ? null : selected;
+    }
+
+    /**
+     * Converts an import URL (or a path relative to an include directory) to the key of the index: forward
+     * slashes, no extension and no leading underscore of the file name.
+     */
+    @Nonnull
+    static String key(@Nonnull final String url) {
+        String key = url.replace('\\', '/');
+        while (key.startsWith("./")) {
+            key = key.substring(2);
+        }
+        for (final String extension : new String[]{ ".scss", ".sass", ".css" }) {
+            if (key.endsWith(extension)) {
+                key = key.substring(0, key.length() - extension.length());
+                break;
+            }
+        }
+        final int separator = key.lastIndexOf('/');
+        if (key.startsWith("_", separator + 1)) {
+            key = key.substring(0, separator + 1) + key.substring(separator + 2);
+        }
+        return key;
+    }
+
+    /**
+     * An immutable state of the index.
+     */
+    private static final class Snapshot {
+
+        /** Include directories and the candidates of each key, in the order libsass probes them. */
+        private final List<Map.Entry<Path, Map<String, List<Path>>>> directories;
+
+        /** Candidates by key, resolved along the include path. */
+        private final Map<String, List<Path>> files;
+
+        private Snapshot(@Nonnull final List<Map.Entry<Path, Map<String, List<Path>>>> directories, @Nonnull final Map<String, List<Path>> files) {
+            this.directories = directories;
+            this.files = files;
+        }
+
+        @Nonnull
+        private static Snapshot build(@Nonnull final List<Path> includePath) throws IOException {
+            final List<Map.Entry<Path, Map<String, List<Path>>>> directories = new ArrayList<>(includePath.size());
+            final Map<String, List<Path>> files = new HashMap<>();
+            for (final Path directory : includePath) {
+                final Map<String, List<Path>> index = index(directory);
+                directories.add(new AbstractMap.SimpleImmutableEntry<>(directory, index));
+                for (final Map.Entry<String, List<Path>> file : index.entrySet()) {
+                    files.putIfAbsent(file.getKey(), file.getValue());
+                }
+            }
+            return new Snapshot(directories, files);
+        }
+
+        /**
+         * Indexes all stylesheets below the given directory.
+         */
+        @Nonnull
+        private static Map<String, List<Path>> index(@Nonnull final Path directory) throws IOException {
+            final Map<String, List<Path>> files = new HashMap<>();
+            if (!Files.isDirectory(directory)) {
+                return files;
+            }
+            final Map<String, Path[]> candidates = new HashMap<>();
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    final String relativePath = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                    final int separator = relativePath.lastIndexOf('/');
+                    final String parent = relativePath.substring(0, Math.max(0, separator));
+                    final String fileName = relativePath.substring(separator + 1);
+                    for (int rank = 0; rank < CANDIDATES.length; rank++) {
+                        final String candidate = CANDIDATES[rank];
+                        final String name;
+                        if (candidate.startsWith("%s/")) {
+                            if (parent.isEmpty() || !fileName.equals(candidate.substring(3))) {
+                                continue;
+                            }
+                            name = parent;
+                        } else {
+                            final int placeholder = candidate.indexOf("%s");
+                            final String prefix = candidate.substring(0, placeholder);
+                            final String suffix = candidate.substring(placeholder + 2);
+                            if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)
+                                    || fileName.length() <= prefix.length() + suffix.length()) {
+                                continue;
+                            }
+                            final String baseName = fileName.substring(prefix.length(), fileName.length() - suffix.length());
+                            if (prefix.isEmpty() && baseName.startsWith("_")) {
+                                // A partial, which is matched by its own candidate.
+                                continue;
+                            }
+                            name = parent.isEmpty() ? baseName : parent + "/" + baseName;
+                        }
+                        candidates.computeIfAbsent(name, key -> new Path[CANDIDATES.length])[rank] = file.toAbsolutePath().normalize();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (final Map.Entry<String, Path[]> name : candidates.entrySet()) {
+                final List<Path> matches = new ArrayList<>(1);
+                for (int rank = 0; rank < CANDIDATES.length; rank++) {
+                    if (rank == FIRST_INDEX_CANDIDATE && !matches.isEmpty()) {
+                        // Index files are only considered if there is no other candidate.
+                        break;
+                    }
+                    if (name.getValue()[rank] != null) {
+                        matches.add(name.getValue()[rank]);
+                    }
+                }
+                files.put(name.getKey(), Collections.unmodifiableList(matches));
+            }
+            return files;
+        }
+
+        /**
+         * Checks whether the given path resides in one of the indexed directories.
+         */
+        private boolean isIndexed(@Nonnull final Path path) {
+            for (final Map.Entry<Path, Map<String, List<Path>>> directory : this.directories) {
+                if (path.startsWith(directory.getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Resolves an import relative to the importing stylesheet.
+         * @param base
+         *     Absolute, normalized path of the import (without candidate extensions).
+         */
+        @Nullable
+        private List<Path> resolveRelative(@Nonnull final Path base) {
+            for (final Map.Entry<Path, Map<String, List<Path>>> directory : this.directories) {
+                if (base.startsWith(directory.getKey())) {
+                    final String relativePath = directory.getKey().relativize(base).toString();
+                    return directory.getValue().get(key(relativePath));
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
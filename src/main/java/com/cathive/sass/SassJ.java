@@ -1,8 +1,19 @@
 package com.cathive.sass;
 
+import com.cathive.sass.cli.SassArguments;
+import com.cathive.sass.cli.SassBatch;
+import com.cathive.sass.cli.SassDaemon;
+import com.cathive.sass.cli.SassDaemonClient;
+
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Command line entry point.
+ * <p>Compiles any number of input files and directories in one JVM; run with {@code --help} to list all
+ * supported options. With {@code --client} the compilation is delegated to a {@link SassDaemon}.</p>
+ * @see SassArguments
  * @author Benjamin P. Jung
  */
 public class SassJ {
@@ -15,8 +26,39 @@ public class SassJ {
      *   If compilation fails.
      */
     public static void main(final String... args) throws Exception {
-        final SassContext context = SassFileContext.create(Paths.get(".").toAbsolutePath().resolve(Paths.get(args[0])));
-        context.compile(System.out);
+        final SassArguments arguments;
+        try {
+            arguments = SassArguments.parse(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(SassArguments.usage());
+            System.exit(SassBatch.EXIT_USAGE);
+            return;
+        }
+        final Path workingDirectory = Paths.get("").toAbsolutePath();
+        final int status;
+        if (arguments.isDaemon()) {
+            final long idleTimeout = arguments.getIdleTimeout() == null
+                    ? SassDaemon.DEFAULT_IDLE_TIMEOUT
+                    : TimeUnit.SECONDS.toMillis(arguments.getIdleTimeout());
+            try (final SassDaemon daemon = new SassDaemon(new SassService(), SassDaemon.defaultDirectory(), idleTimeout)) {
+                daemon.start();
+                daemon.awaitTermination();
+            }
+            return;
+        } else if (arguments.isStopDaemon()) {
+            if (!new SassDaemonClient(SassDaemon.defaultDirectory()).stop()) {
+                System.err.println("No daemon is running.");
+            }
+            return;
+        } else if (arguments.isClient()) {
+            status = new SassDaemonClient(SassDaemon.defaultDirectory()).compile(args, workingDirectory, System.in, System.out, System.err);
+        } else {
+            status = new SassBatch(new SassService()).run(arguments, workingDirectory, System.in, System.out, System.err);
+        }
+        if (status != SassBatch.EXIT_OK) {
+            System.exit(status);
+        }
     }
 
 }
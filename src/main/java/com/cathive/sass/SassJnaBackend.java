@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import com.cathive.sass.jna.SassLibrary;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Native backend that is based on the generated JNA binding.
+ */
+final class SassJnaBackend implements SassNativeBackend {
+
+    /** Name of this backend. */
+    static final String NAME = "jna";
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Nonnull
+    @Override
+    public String getLibsassVersion() {
+        return SassLibrary.INSTANCE.libsass_version();
+    }
+
+    @Nonnull
+    @Override
+    public SassNativeOutput compileFile(@Nonnull final Path inputFile, @Nullable final SassOptionsSnapshot options) throws SassCompilationException {
+        final SassContext context = SassFileContext.create(inputFile);
+        if (options != null) {
+            options.applyTo(context.getOptions());
+        }
+        return SassNativeOutput.wrap(context.compile().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled CSS whose top-level {@code @media} blocks have been moved to separate stylesheets, one per media query,
+ * so that clients only need to load the rules that apply to them ({@code <link rel="stylesheet" media="...">}).
+ * <p>The output is split in a single pass. All blocks with the same media query are merged into one stylesheet, which
+ * wraps them in an {@code @media} rule again, so that it is still correct if loaded without a {@code media}
+ * attribute. Nested {@code @media} rules (e.g. inside of {@code @supports}) are left alone.</p>
+ * <p>Note that the rules of split blocks are applied after all rules of the main stylesheet. This only makes a
+ * difference if a later rule of the main stylesheet overrides a rule of a media block with the same specificity.
+ * Source maps refer to the unsplit output.</p>
+ * <p>A leading {@code @charset} rule (or the byte order mark that replaces it in compressed output) is copied to
+ * every media specific stylesheet, so that they are decoded the same way as the main stylesheet.</p>
+ * @see SassService#compileSplitByMedia(SassContext, int)
+ */
+public final class SassMediaSplit {
+
+    /** The {@code href}s of the stylesheets listed by a manifest. */
+    private static final Pattern MANIFEST_HREF = Pattern.compile("\"href\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    /** The CSS without the split media blocks. */
+    private final String css;
+
+    /** Stylesheets by media query, in the order of their first appearance. */
+    private final Map<String, String> mediaCss;
+
+    /** File name suffixes by media query. */
+    private final Map<String, String> slugs;
+
+    private SassMediaSplit(@Nonnull final String css, @Nonnull final Map<String, String> mediaCss, @Nonnull final Map<String, String> slugs) {
+        super();
+        this.css = css;
+        this.mediaCss = Collections.unmodifiableMap(mediaCss);
+        this.slugs = slugs;
+    }
+
+    /**
+     * Splits the given CSS.
+     * @param css
+     *     Compiled CSS.
+     * @param minimumSize
+     *     Minimum size (in characters) of the rules of a media query to be moved to a stylesheet of its own.
+     *     Smaller media blocks stay in the main stylesheet.
+     * @return
+     *     The split CSS.
+     */
+    @Nonnull
+    public static SassMediaSplit split(@Nonnull final CharSequence css, final int minimumSize) {
+        final List<Block> blocks = new ArrayList<>();
+        final Map<String, Integer> sizes = new LinkedHashMap<>();
+        final int length = css.length();
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                final int end = SassStrings.indexOf(css, "*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '"' || c == '\'') {
+                i = SassStrings.endOfString(css, i);
+            } else if (c == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+                i++;
+            } else if (c == '@' && depth == 0 && isMediaRule(css, i)) {
+                final Block block = readBlock(css, i);
+                if (block == null) {
+                    break;
+                }
+                blocks.add(block);
+                sizes.merge(block.query, block.contentEnd - block.contentStart, Integer::sum);
+                i = block.end;
+            } else {
+                i++;
+            }
+        }
+
+        final String charset = charsetOf(css);
+        final StringBuilder main = new StringBuilder(length);
+        final Map<String, StringBuilder> media = new LinkedHashMap<>();
+        int position = 0;
+        for (final Block block : blocks) {
+            if (sizes.get(block.query) < minimumSize) {
+                continue;
+            }
+            main.append(css, position, block.start);
+            position = block.end < length && css.charAt(block.end) == '\n' ? block.end + 1 : block.end;
+            StringBuilder rules = media.get(block.query);
+            if (rules == null) {
+                rules = new StringBuilder(charset).append("@media ").append(block.query).append(" {\n");
+                media.put(block.query, rules);
+            }
+            rules.append(css, block.contentStart, block.contentEnd);
+            if (rules.charAt(rules.length() - 1) != '\n') {
+                rules.append('\n');
+            }
+        }
+        main.append(css, position, length);
+
+        final Map<String, String> mediaCss = new LinkedHashMap<>();
+        final Map<String, String> slugs = new LinkedHashMap<>();
+        final Set<String> usedSlugs = new HashSet<>();
+        for (final Map.Entry<String, StringBuilder> entry : media.entrySet()) {
+            mediaCss.put(entry.getKey(), entry.getValue().append("}\n").toString());
+            final String slug = slugOf(entry.getKey());
+            String unique = slug;
+            for (int n = 2; !usedSlugs.add(unique); n++) {
+                unique = slug + "-" + n;
+            }
+            slugs.put(entry.getKey(), unique);
+        }
+        return new SassMediaSplit(main.toString(), mediaCss, slugs);
+    }
+
+    /**
+     * Returns the main stylesheet, i.e. everything that has not been moved to a media specific stylesheet.
+     * @return
+     *     The CSS to be loaded by all clients.
+     */
+    @Nonnull
+    public String getCss() {
+        return this.css;
+    }
+
+    /**
+     * Returns the media specific stylesheets.
+     * @return
+     *     Stylesheets by (normalized) media query, in the order of their first appearance.
+     */
+    @Nonnull
+    public Map<String, String> getMediaCss() {
+        return this.mediaCss;
+    }
+
+    /**
+     * Determines the file names of all stylesheets.
+     * @param baseName
+     *     File name of the main stylesheet without extension, e.g. {@code app}.
+     * @return
+     *     File names by media query, e.g. {@code print} → {@code app-print.css}.
+     */
+    @Nonnull
+    public Map<String, String> getFileNames(@Nonnull final String baseName) {
+        final Map<String, String> fileNames = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> slug : this.slugs.entrySet()) {
+            fileNames.put(slug.getKey(), baseName + "-" + slug.getValue() + ".css");
+        }
+        return fileNames;
+    }
+
+    /**
+     * Creates a manifest that tells templates which stylesheets to link, e.g.
+     * <pre>{"css": "app.css", "media": [{"media": "print", "href": "app-print.css"}]}</pre>
+     * @param baseName
+     *     File name of the main stylesheet without extension.
+     * @return
+     *     The manifest as JSON.
+     */
+    @Nonnull
+    public String toManifest(@Nonnull final String baseName) {
+        final StringBuilder json = new StringBuilder("{\n  \"css\": ");
+        SassStrings.appendJsonString(json, baseName + ".css");
+        json.append(",\n  \"media\": [");
+        boolean first = true;
+        for (final Map.Entry<String, String> fileName : this.getFileNames(baseName).entrySet()) {
+            json.append(first ? "\n    " : ",\n    ").append("{\"media\": ");
+            SassStrings.appendJsonString(json, fileName.getKey());
+            json.append(", \"href\": ");
+            SassStrings.appendJsonString(json, fileName.getValue());
+            json.append('}');
+            first = false;
+        }
+        return json.append(first ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Reads the file names of the media specific stylesheets from a manifest that has been created by
+     * {@link #toManifest(String)}.
+     * @param manifest
+     *     The manifest as JSON.
+     * @return
+     *     File names of all media specific stylesheets, in the order of the manifest.
+     */
+    @Nonnull
+    static List<String> readFileNames(@Nonnull final String manifest) {
+        final List<String> fileNames = new ArrayList<>();
+        final Matcher matcher = MANIFEST_HREF.matcher(manifest);
+        while (matcher.find()) {
+            final String href = matcher.group(1);
+            final StringBuilder fileName = new StringBuilder(href.length());
+            for (int i = 0; i < href.length(); i++) {
+                final char c = href.charAt(i);
+                if (c != '\\' || i + 1 >= href.length()) {
+                    fileName.append(c);
+                } else if (href.charAt(i + 1) == 'u' && i + 5 < href.length()) {
+                    fileName.append((char) Integer.parseInt(href.substring(i + 2, i + 6), 16));
+                    i += 5;
+                } else {
+                    fileName.append(href.charAt(++i));
+                }
+            }
+            fileNames.add(fileName.toString());
+        }
+        return fileNames;
+    }
+
+    /**
+     * Determines the leading {@code @charset} rule of the given CSS.
+     * @return
+     *     The rule (followed by a line break), a byte order mark or an empty string.
+     */
+    @Nonnull
+    private static String charsetOf(@Nonnull final CharSequence css) {
+        if (css.length() > 0 && css.charAt(0) == '\uFEFF') {
+            return "\uFEFF";
+        }
+        if (css.length() < "@charset".length() || !"@charset".contentEquals(css.subSequence(0, "@charset".length()))) {
+            return "";
+        }
+        final int end = SassStrings.indexOf(css, ";", "@charset".length());
+        return end < 0 ? "" : css.subSequence(0, end + 1) + "\n";
+    }
+
+    /**
+     * Reads the {@code @media} rule that starts at the given offset.
+     * @return
+     *     The block or {@code null} if the rule is incomplete.
+     */
+    @Nullable
+    private static Block readBlock(@Nonnull final CharSequence css, final int start) {
+        final int length = css.length();
+        int i = start + "@media".length();
+        int open = -1;
+        while (i < length && open < 0) {
+            final char c = css.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = SassStrings.endOfString(css, i);
+            } else if (c == '{') {
+                open = i++;
+            } else if (c == ';') {
+                // Not a block.
+                return null;
+            } else {
+                i++;
+            }
+        }
+        if (open < 0) {
+            return null;
+        }
+        int depth = 1;
+        while (i < length && depth > 0) {
+            final char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                final int end = SassStrings.indexOf(css, "*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '"' || c == '\'') {
+                i = SassStrings.endOfString(css, i);
+            } else {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                }
+                i++;
+            }
+        }
+        if (depth > 0) {
+            return null;
+        }
+        final String query = css.subSequence(start + "@media".length(), open).toString().trim().replaceAll("\\s+", " ");
+        return new Block(start, i, open + 1, i - 1, query);
+    }
+
+    private static boolean isMediaRule(@Nonnull final CharSequence css, final int i) {
+        final int end = i + "@media".length();
+        if (end >= css.length() || !"@media".equalsIgnoreCase(css.subSequence(i, end).toString())) {
+            return false;
+        }
+        final char next = css.charAt(end);
+        return Character.isWhitespace(next) || next == '(';
+    }
+
+    @Nonnull
+    static String slugOf(@Nonnull final String query) {
+        final StringBuilder slug = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            final char c = Character.toLowerCase(query.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                slug.append(c);
+            } else if (slug.length() > 0 && slug.charAt(slug.length() - 1) != '-') {
+                slug.append('-');
+            }
+        }
+        while (slug.length() > 0 && slug.charAt(slug.length() - 1) == '-') {
+            slug.setLength(slug.length() - 1);
+        }
+        return slug.length() == 0 ? "media" : slug.toString();
+    }
+
+    /**
+     * A top-level {@code @media} rule.
+     */
+    private static final class Block {
+
+        private final int start;
+        private final int end;
+        private final int contentStart;
+        private final int contentEnd;
+        private final String query;
+
+        private Block(final int start, final int end, final int contentStart, final int contentEnd, final String query) {
+            this.start = start;
+            this.end = end;
+            this.contentStart = contentStart;
+            this.contentEnd = contentEnd;
+            this.query = query;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+
+/**
+ * A binding of the native libsass library that performs complete compilations in a single call.
+ * <p>Two backends are built in:</p>
+ * <ul>
+ *     <li>{@code jna}: based on the generated JNA binding, available on all Java versions.</li>
+ *     <li>{@code ffm}: based on the Foreign Function &amp; Memory API, available on Java 22 and later.
+ *     The compiled CSS is exposed as a view of the native output buffer and is not copied.</li>
+ * </ul>
+ * <p>Further backends can be registered via {@code META-INF/services/com.cathive.sass.SassNativeBackend}.</p>
+ * @see SassNativeBackends
+ */
+public interface SassNativeBackend {
+
+    /**
+     * Returns the name of this backend.
+     * @return
+     *     Name that can be used to select this backend via {@link SassNativeBackends#get(String)}.
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Returns the version of the underlying native libsass implementation.
+     * @return
+     *     The version of libsass.
+     */
+    @Nonnull
+    String getLibsassVersion();
+
+    /**
+     * Compiles the given input file.
+     * @param inputFile
+     *     SCSS input file to be compiled.
+     * @param options
+     *     Options to be applied or {@code null} to use the default options.
+     * @return
+     *     The compiled CSS. Must be closed to release the native memory.
+     * @throws SassCompilationException
+     *     If compilation fails.
+     */
+    @Nonnull
+    SassNativeOutput compileFile(@Nonnull Path inputFile, @Nullable SassOptionsSnapshot options) throws SassCompilationException;
+
+}
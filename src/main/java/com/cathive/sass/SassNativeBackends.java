@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provides access to the available {@link SassNativeBackend native backends}.
+ * <p>The default backend can be chosen via the system property {@value #BACKEND_PROPERTY}. If the property
+ * is not set, the {@code ffm} backend is used on Java 22 and later and the {@code jna} backend otherwise.</p>
+ */
+public final class SassNativeBackends {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassNativeBackends.class.getName());
+
+    /** Name of the system property that selects the default backend. */
+    public static final String BACKEND_PROPERTY = "com.cathive.sass.backend";
+
+    /** The default backend. (Initialized lazily.) */
+    private static volatile SassNativeBackend defaultBackend;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassNativeBackends() {
+        super();
+    }
+
+    /**
+     * Returns the default backend.
+     * @return
+     *     The backend that has been selected via {@value #BACKEND_PROPERTY} or the fastest built-in backend
+     *     that is available on this Java version.
+     */
+    @Nonnull
+    public static SassNativeBackend getDefault() {
+        SassNativeBackend backend = defaultBackend;
+        if (backend == null) {
+            synchronized (SassNativeBackends.class) {
+                backend = defaultBackend;
+                if (backend == null) {
+                    backend = selectDefault();
+                    LOGGER.log(Level.FINE, "Using the \"{0}\" native backend.", backend.getName());
+                    defaultBackend = backend;
+                }
+            }
+        }
+        return backend;
+    }
+
+    /**
+     * Returns the backend with the given name.
+     * @param name
+     *     Name of the backend, e.g. {@code jna} or {@code ffm}.
+     * @return
+     *     The backend.
+     * @throws IllegalArgumentException
+     *     If no backend with the given name exists.
+     * @throws UnsupportedOperationException
+     *     If the backend is not supported on this Java version.
+     */
+    @Nonnull
+    public static SassNativeBackend get(@Nonnull final String name) {
+        if (SassJnaBackend.NAME.equals(name)) {
+            return new SassJnaBackend();
+        }
+        if (SassFfmSupport.NAME.equals(name)) {
+            return SassFfmSupport.create();
+        }
+        try {
+            for (final SassNativeBackend backend : ServiceLoader.load(SassNativeBackend.class, SassNativeBackend.class.getClassLoader())) {
+                if (name.equals(backend.getName())) {
+                    return backend;
+                }
+            }
+        } catch (final ServiceConfigurationError e) {
+            LOGGER.log(Level.WARNING, "Could not load native backends.", e);
+        }
+        throw new IllegalArgumentException("Unknown native backend: " + name);
+    }
+
+    @Nonnull
+    private static SassNativeBackend selectDefault() {
+        final String name = System.getProperty(BACKEND_PROPERTY);
+        if (name != null && !name.trim().isEmpty()) {
+            try {
+                return get(name.trim());
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Native backend \"{0}\" is not available, falling back to \"{1}\": {2}",
+                           new Object[]{ name, SassJnaBackend.NAME, e.getMessage() });
+                return new SassJnaBackend();
+            }
+        }
+        if (SassFfmSupport.isAvailable()) {
+            try {
+                return SassFfmSupport.create();
+            } catch (final RuntimeException | LinkageError e) {
+                LOGGER.log(Level.WARNING, "Could not initialize the \"" + SassFfmSupport.NAME + "\" native backend.", e);
+            }
+        }
+        return new SassJnaBackend();
+    }
+
+}
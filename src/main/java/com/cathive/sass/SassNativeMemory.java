@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accounts for the native objects that are allocated by libsass on behalf of this library.
+ * <p>Native contexts are released by the finalizers of {@link SassFileContext} and {@link SassDataContext}, i.e.
+ * only after the garbage collector has found them unreachable. The counters maintained by this class make the
+ * number of native objects that are still alive (or awaiting finalization) visible, e.g. via the
+ * {@link com.cathive.sass.management.SassCompilerMXBean}.</p>
+ */
+public final class SassNativeMemory {
+
+    /** Status file of the current process (Linux only). */
+    private static final Path PROC_SELF_STATUS = Paths.get("/proc/self/status");
+
+    private static final LongAdder CONTEXTS_CREATED = new LongAdder();
+    private static final LongAdder CONTEXTS_FREED = new LongAdder();
+    private static final LongAdder OPTIONS_CREATED = new LongAdder();
+    private static final LongAdder COMPILERS_CREATED = new LongAdder();
+    private static final LongAdder COMPILERS_FREED = new LongAdder();
+    private static final LongAdder OUTPUT_BYTES = new LongAdder();
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassNativeMemory() {
+        super();
+    }
+
+    static void contextCreated() {
+        CONTEXTS_CREATED.increment();
+    }
+
+    /**
+     * @param outputSize
+     *     Size of the output string that was held by the context.
+     */
+    static void contextFreed(final long outputSize) {
+        CONTEXTS_FREED.increment();
+        OUTPUT_BYTES.add(-outputSize);
+    }
+
+    static void optionsCreated() {
+        OPTIONS_CREATED.increment();
+    }
+
+    static void compilerCreated() {
+        COMPILERS_CREATED.increment();
+    }
+
+    static void compilerFreed() {
+        COMPILERS_FREED.increment();
+    }
+
+    static void outputRetained(final long outputSize) {
+        OUTPUT_BYTES.add(outputSize);
+    }
+
+    /**
+     * Takes a snapshot of all counters.
+     * @return
+     *     The current native memory usage.
+     */
+    @Nonnull
+    public static SassNativeMemoryUsage getUsage() {
+        final long contextsFreed = CONTEXTS_FREED.sum();
+        final long compilersFreed = COMPILERS_FREED.sum();
+        return new SassNativeMemoryUsage(
+                CONTEXTS_CREATED.sum(), contextsFreed,
+                OPTIONS_CREATED.sum(),
+                COMPILERS_CREATED.sum(), compilersFreed,
+                OUTPUT_BYTES.sum(),
+                residentSetSize());
+    }
+
+    /**
+     * Determines the resident set size of this process, which includes all memory that has been
+     * allocated by the native library.
+     * @return
+     *     The resident set size in bytes or {@code -1} if it can't be determined on this platform.
+     */
+    public static long residentSetSize() {
+        if (!Files.isReadable(PROC_SELF_STATUS)) {
+            return -1L;
+        }
+        try {
+            final List<String> lines = Files.readAllLines(PROC_SELF_STATUS, StandardCharsets.US_ASCII);
+            for (final String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    final String[] parts = line.substring("VmRSS:".length()).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024L;
+                }
+            }
+        } catch (final IOException | NumberFormatException e) {
+            // Fall through...
+        }
+        return -1L;
+    }
+
+}
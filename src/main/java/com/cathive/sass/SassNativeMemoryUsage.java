@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * A snapshot of the native objects that are held by this library.
+ * @see SassNativeMemory#getUsage()
+ */
+public final class SassNativeMemoryUsage implements Serializable {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    private final long contextsCreated;
+    private final long contextsFreed;
+    private final long optionsCreated;
+    private final long compilersCreated;
+    private final long compilersFreed;
+    private final long retainedOutputBytes;
+    private final long residentSetSize;
+
+    @ConstructorProperties({ "contextsCreated", "contextsFreed", "optionsCreated", "compilersCreated",
+                             "compilersFreed", "retainedOutputBytes", "residentSetSize" })
+    public SassNativeMemoryUsage(final long contextsCreated,
+                                 final long contextsFreed,
+                                 final long optionsCreated,
+                                 final long compilersCreated,
+                                 final long compilersFreed,
+                                 final long retainedOutputBytes,
+                                 final long residentSetSize) {
+        super();
+        this.contextsCreated = contextsCreated;
+        this.contextsFreed = contextsFreed;
+        this.optionsCreated = optionsCreated;
+        this.compilersCreated = compilersCreated;
+        this.compilersFreed = compilersFreed;
+        this.retainedOutputBytes = retainedOutputBytes;
+        this.residentSetSize = residentSetSize;
+    }
+
+    /**
+     * Returns the number of native file and data contexts that have been created.
+     * @return
+     *     Number of created contexts.
+     */
+    public long getContextsCreated() {
+        return this.contextsCreated;
+    }
+
+    /**
+     * Returns the number of native contexts that have been released by the finalizer of their Java object.
+     * @return
+     *     Number of released contexts.
+     */
+    public long getContextsFreed() {
+        return this.contextsFreed;
+    }
+
+    /**
+     * Returns the number of stand-alone native options.
+     * <p>Options that belong to a context are released together with the context. Stand-alone options are
+     * never released, because their contents may be shared with the contexts they have been applied to.</p>
+     * @return
+     *     Number of created stand-alone options.
+     */
+    public long getOptionsCreated() {
+        return this.optionsCreated;
+    }
+
+    public long getCompilersCreated() {
+        return this.compilersCreated;
+    }
+
+    public long getCompilersFreed() {
+        return this.compilersFreed;
+    }
+
+    /**
+     * Returns the approximate size of all compiled outputs that are still held by native contexts.
+     * @return
+     *     Number of bytes (UTF-8 encoded size of the compiled CSS).
+     */
+    public long getRetainedOutputBytes() {
+        return this.retainedOutputBytes;
+    }
+
+    /**
+     * Returns the resident set size of this process at the time of the snapshot.
+     * @return
+     *     The resident set size in bytes or {@code -1} if it can't be determined on this platform.
+     */
+    public long getResidentSetSize() {
+        return this.residentSetSize;
+    }
+
+    /**
+     * Returns the number of native contexts that are alive, including those whose Java object is unreachable
+     * but has not been finalized yet.
+     * @return
+     *     Number of live contexts.
+     */
+    public long getLiveContexts() {
+        return this.contextsCreated - this.contextsFreed;
+    }
+
+    /**
+     * Returns the number of native compilers that are alive. Compilers only exist during a compilation.
+     * @return
+     *     Number of live compilers.
+     */
+    public long getLiveCompilers() {
+        return this.compilersCreated - this.compilersFreed;
+    }
+
+    @Override
+    public String toString() {
+        return "SassNativeMemoryUsage{liveContexts=" + this.getLiveContexts()
+                + ", liveCompilers=" + this.getLiveCompilers()
+                + ", optionsCreated=" + this.optionsCreated
+                + ", retainedOutputBytes=" + this.retainedOutputBytes
+                + ", residentSetSize=" + this.residentSetSize + "}";
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The output of a compilation that has been performed by a {@link SassNativeBackend}.
+ * <p>Depending on the backend, the output may still reside in native memory, which will be released
+ * as soon as this object is closed. Buffers that have been obtained via {@link #getBytes()} must not
+ * be accessed afterwards.</p>
+ */
+public abstract class SassNativeOutput implements Closeable {
+
+    /**
+     * Returns the compiled CSS.
+     * @return
+     *     A read-only buffer that contains the UTF-8 encoded CSS, positioned at its start.
+     */
+    @Nonnull
+    public abstract ByteBuffer getBytes();
+
+    /**
+     * Returns the compiled CSS as string.
+     * @return
+     *     The compiled CSS.
+     */
+    @Nonnull
+    public String getString() {
+        return StandardCharsets.UTF_8.decode(this.getBytes()).toString();
+    }
+
+    /**
+     * Writes the compiled CSS to the given channel.
+     * @param channel
+     *     Channel to be written to.
+     * @throws IOException
+     *     If writing fails.
+     */
+    public void writeTo(@Nonnull final WritableByteChannel channel) throws IOException {
+        final ByteBuffer bytes = this.getBytes();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Releases the native memory that holds the output (if any).
+     */
+    @Override
+    public abstract void close();
+
+    /**
+     * Wraps output that resides on the Java heap.
+     * @param bytes
+     *     The UTF-8 encoded CSS.
+     * @return
+     *     Output that doesn't need to be closed.
+     */
+    @Nonnull
+    static SassNativeOutput wrap(@Nonnull final byte[] bytes) {
+        return new SassNativeOutput() {
+            @Nonnull
+            @Override
+            public ByteBuffer getBytes() {
+                return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            }
+            @Override
+            public void close() {
+                // Nothing to be released.
+            }
+        };
+    }
+
+}
@@ -30,6 +30,8 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,6 +49,15 @@ public class SassOptions {
     /** Underlying native options structure. */
     protected Sass_Options $options;
 
+    /** Native callbacks of all registered headers. (Must be kept reachable while the options are in use.) */
+    private List<SassImporterCallback> headers = Collections.emptyList();
+
+    /** Native callbacks of all registered importers. (Must be kept reachable while the options are in use.) */
+    private List<SassImporterCallback> importers = Collections.emptyList();
+
+    /** Post-processors that will be applied to the output of each compilation. */
+    private List<SassPostProcessor> postProcessors = Collections.emptyList();
+
     /**
      * Default constructor.
      * <p>Creates a new set of default Sass options.</p>
@@ -54,6 +65,7 @@ public class SassOptions {
     protected SassOptions() {
         super();
         this.$options = SassLibrary.INSTANCE.sass_make_options();
+        SassNativeMemory.optionsCreated();
     }
 
     /**
@@ -141,8 +153,10 @@ public class SassOptions {
         SassLibrary.INSTANCE.sass_option_set_input_path(this.$options, inputPath);
     }
 
+    @Nullable
     public Path getInputPath() {
-        return Paths.get(SassLibrary.INSTANCE.sass_option_get_input_path(this.$options));
+        final String $input_path = SassLibrary.INSTANCE.sass_option_get_input_path(this.$options);
+        return $input_path == null ? null : Paths.get($input_path);
     }
 
     public void setOutputPath(@Nonnull final Path outputPath) {
@@ -153,8 +167,10 @@ public class SassOptions {
         SassLibrary.INSTANCE.sass_option_set_output_path(this.$options, outputPath);
     }
 
+    @Nullable
     public Path getOutputPath() {
-        return Paths.get(SassLibrary.INSTANCE.sass_option_get_output_path(this.$options));
+        final String $output_path = SassLibrary.INSTANCE.sass_option_get_output_path(this.$options);
+        return $output_path == null ? null : Paths.get($output_path);
     }
 
     public void setIncludePath(@Nonnull final Path... includePath) {
@@ -182,6 +198,19 @@ public class SassOptions {
         this.setIncludePath(includePath.toArray(new Path[includePath.size()]));
     }
 
+    /**
+     * Sets the include path to the directories of the given index and registers the index as (the only)
+     * importer, so that imports are resolved by a lookup in the index instead of probing the file system.
+     * <p>Imports that are not in the index are still resolved by libsass along the include path.</p>
+     * @param index
+     *     Index of the include directories.
+     * @see #setImporters(SassImporter...)
+     */
+    public void setIncludePath(@Nonnull final SassIncludePathIndex index) {
+        this.setIncludePath(index.getIncludePath());
+        this.setImporters(index);
+    }
+
     public void clearIncludePath() {
         SassLibrary.INSTANCE.sass_option_set_include_path(this.$options, (String) null);
     }
@@ -224,8 +253,10 @@ public class SassOptions {
         SassLibrary.INSTANCE.sass_option_set_source_map_file(this.$options, sourceMapFile);
     }
 
+    @Nullable
     public Path getSourceMapFile() {
-        return Paths.get(SassLibrary.INSTANCE.sass_option_get_source_map_file(this.$options));
+        final String $source_map_file = SassLibrary.INSTANCE.sass_option_get_source_map_file(this.$options);
+        return $source_map_file == null ? null : Paths.get($source_map_file);
     }
 
     public void setSourceMapRoot(@Nonnull final Path sourceMapRoot) {
@@ -236,8 +267,80 @@ public class SassOptions {
         SassLibrary.INSTANCE.sass_option_set_source_map_root(this.$options, sourceMapRoot);
     }
 
+    @Nullable
     public Path getSourceMapRoot() {
-        return Paths.get(SassLibrary.INSTANCE.sass_option_get_source_map_root(this.$options));
+        final String $source_map_root = SassLibrary.INSTANCE.sass_option_get_source_map_root(this.$options);
+        return $source_map_root == null ? null : Paths.get($source_map_root);
+    }
+
+    /**
+     * Sets the headers, whose imports will be prepended to the input (e.g. to inject variables).
+     * <p>Replaces all previously registered headers.</p>
+     * @param headers
+     *     Headers to be registered, in descending order of their priority.
+     */
+    public void setHeaders(@Nonnull final SassImporter... headers) {
+        this.headers = toCallbacks(headers);
+        SassImporterCallback.register(this.$options.getPointer(), this.headers, true);
+    }
+
+    /**
+     * Sets the custom importers that will be asked to resolve each import before libsass looks
+     * for the import on its include path.
+     * <p>Replaces all previously registered importers.</p>
+     * @param importers
+     *     Importers to be registered, in descending order of their priority.
+     */
+    public void setImporters(@Nonnull final SassImporter... importers) {
+        this.importers = toCallbacks(importers);
+        SassImporterCallback.register(this.$options.getPointer(), this.importers, false);
+    }
+
+    /**
+     * Returns the custom importers that have been registered via {@link #setImporters(SassImporter...)}.
+     */
+    @Nonnull
+    List<SassImporter> getImporters() {
+        final List<SassImporter> importers = new ArrayList<>(this.importers.size());
+        for (final SassImporterCallback callback : this.importers) {
+            importers.add(callback.getImporter());
+        }
+        return importers;
+    }
+
+    /**
+     * Sets the post-processors that will be applied to the CSS output (and source map) of each compilation.
+     * <p>Replaces all previously registered post-processors. Source maps that are embedded into the CSS
+     * ({@link #setSourceMapEmbed(boolean)}) are not adjusted.</p>
+     * @param postProcessors
+     *     Post-processors to be registered. Their replacements must not overlap.
+     */
+    public void setPostProcessors(@Nonnull final SassPostProcessor... postProcessors) {
+        this.postProcessors = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(postProcessors)));
+    }
+
+    @Nonnull
+    public List<SassPostProcessor> getPostProcessors() {
+        return this.postProcessors;
+    }
+
+    /**
+     * Checks whether headers, importers or post-processors have been registered.
+     * <p>Options with Java callbacks can't be transferred to another process.</p>
+     * @return
+     *     {@code true} if headers, importers or post-processors have been registered.
+     */
+    public boolean hasCallbacks() {
+        return !this.headers.isEmpty() || !this.importers.isEmpty() || !this.postProcessors.isEmpty();
+    }
+
+    @Nonnull
+    private static List<SassImporterCallback> toCallbacks(@Nonnull final SassImporter... importers) {
+        final List<SassImporterCallback> callbacks = new ArrayList<>(importers.length);
+        for (final SassImporter importer : importers) {
+            callbacks.add(new SassImporterCallback(importer));
+        }
+        return Collections.unmodifiableList(callbacks);
     }
 
 }
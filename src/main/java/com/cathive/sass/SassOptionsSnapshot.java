@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable copy of the values of a set of {@link SassOptions}.
+ * <p>Sass options are backed by a native structure and can therefore neither be shared between
+ * processes nor be used as keys. A snapshot can be transferred (e.g. to a compiler worker process),
+ * compared and applied to the options of another Sass context.</p>
+ */
+public final class SassOptionsSnapshot implements Serializable {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    private static final int FLAG_SOURCE_COMMENTS = 1;
+    private static final int FLAG_SOURCE_MAP_EMBED = 1 << 1;
+    private static final int FLAG_SOURCE_MAP_CONTENTS = 1 << 2;
+    private static final int FLAG_OMIT_SOURCE_MAP_URL = 1 << 3;
+    private static final int FLAG_IS_INDENTED_SYNTAX_SRC = 1 << 4;
+
+    /** Snapshot of the default options. (Initialized lazily.) */
+    private static volatile SassOptionsSnapshot defaults;
+
+    private final int precision;
+    private final SassOutputStyle outputStyle;
+    private final int flags;
+    private final String outputPath;
+    private final List<String> includePath;
+    private final String sourceMapFile;
+    private final String sourceMapRoot;
+
+    private SassOptionsSnapshot(final int precision,
+                                @Nonnull final SassOutputStyle outputStyle,
+                                final int flags,
+                                @Nullable final String outputPath,
+                                @Nonnull final List<String> includePath,
+                                @Nullable final String sourceMapFile,
+                                @Nullable final String sourceMapRoot) {
+        super();
+        this.precision = precision;
+        this.outputStyle = Objects.requireNonNull(outputStyle, "Output style must not be null!");
+        this.flags = flags;
+        this.outputPath = outputPath;
+        this.includePath = Collections.unmodifiableList(new ArrayList<>(includePath));
+        this.sourceMapFile = sourceMapFile;
+        this.sourceMapRoot = sourceMapRoot;
+    }
+
+    /**
+     * Takes a snapshot of the given Sass options.
+     * @param options
+     *     Sass options to be copied.
+     * @return
+     *     An immutable copy of the current values of the given options.
+     */
+    @Nonnull
+    public static SassOptionsSnapshot of(@Nonnull final SassOptions options) {
+        int flags = 0;
+        if (options.getSourceComments()) { flags |= FLAG_SOURCE_COMMENTS; }
+        if (options.getSourceMapEmbed()) { flags |= FLAG_SOURCE_MAP_EMBED; }
+        if (options.getSourceMapContents()) { flags |= FLAG_SOURCE_MAP_CONTENTS; }
+        if (options.getOmitSourceMapUrl()) { flags |= FLAG_OMIT_SOURCE_MAP_URL; }
+        if (options.getIsIndentedSyntaxSrc()) { flags |= FLAG_IS_INDENTED_SYNTAX_SRC; }
+        final List<String> includePath = new ArrayList<>();
+        for (final Path path : options.getIncludePath()) {
+            includePath.add(path.toString());
+        }
+        return new SassOptionsSnapshot(
+                options.getPrecision(),
+                options.getOutputStyle(),
+                flags,
+                toString(options.getOutputPath()),
+                includePath,
+                toString(options.getSourceMapFile()),
+                toString(options.getSourceMapRoot()));
+    }
+
+    /**
+     * Returns a snapshot of the default options of libsass.
+     * <p>The defaults are read from a single native context when this method is called for the first time.</p>
+     * @return
+     *     The default options.
+     */
+    @Nonnull
+    public static SassOptionsSnapshot defaults() {
+        SassOptionsSnapshot snapshot = defaults;
+        if (snapshot == null) {
+            snapshot = of(SassDataContext.create(ByteBuffer.wrap(new byte[0])).getOptions());
+            defaults = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a copy of this snapshot with a different include path.
+     * @param includePath
+     *     Directories that will be searched for imports.
+     * @return
+     *     A snapshot that differs from this one in its include path only.
+     */
+    @Nonnull
+    public SassOptionsSnapshot withIncludePath(@Nonnull final List<String> includePath) {
+        return new SassOptionsSnapshot(this.precision, this.outputStyle, this.flags, this.outputPath, includePath,
+                                       this.sourceMapFile, this.sourceMapRoot);
+    }
+
+    /**
+     * Applies all values of this snapshot to the given Sass options.
+     * @param options
+     *     Sass options to be modified.
+     */
+    public void applyTo(@Nonnull final SassOptions options) {
+        options.setPrecision(this.precision);
+        options.setOutputStyle(this.outputStyle);
+        options.setSourceComments(this.getSourceComments());
+        options.setSourceMapEmbed(this.getSourceMapEmbed());
+        options.setSourceMapContents(this.getSourceMapContents());
+        options.setOmitSourceMapUrl(this.getOmitSourceMapUrl());
+        options.setIsIndentedSyntaxSrc(this.getIsIndentedSyntaxSrc());
+        if (this.outputPath != null) {
+            options.setOutputPath(this.outputPath);
+        }
+        if (this.includePath.isEmpty()) {
+            options.clearIncludePath();
+        } else {
+            options.setIncludePath(this.includePath.toArray(new String[this.includePath.size()]));
+        }
+        if (this.sourceMapFile != null) {
+            options.setSourceMapFile(this.sourceMapFile);
+        }
+        if (this.sourceMapRoot != null) {
+            options.setSourceMapRoot(this.sourceMapRoot);
+        }
+    }
+
+    /**
+     * Writes this snapshot in a compact binary form.
+     * @param out
+     *     Data output to be written to.
+     * @throws IOException
+     *     If writing fails.
+     * @see #readFrom(java.io.DataInput)
+     */
+    public void writeTo(@Nonnull final DataOutput out) throws IOException {
+        out.writeInt(this.precision);
+        out.writeByte(this.outputStyle.getIntValue());
+        out.writeByte(this.flags);
+        SassDataStreams.writeString(out, this.outputPath);
+        out.writeShort(this.includePath.size());
+        for (final String path : this.includePath) {
+            SassDataStreams.writeString(out, path);
+        }
+        SassDataStreams.writeString(out, this.sourceMapFile);
+        SassDataStreams.writeString(out, this.sourceMapRoot);
+    }
+
+    /**
+     * Reads a snapshot that has been written by {@link #writeTo(java.io.DataOutput)}.
+     * @param in
+     *     Data input to be read from.
+     * @return
+     *     The snapshot that has been read.
+     * @throws IOException
+     *     If reading fails.
+     */
+    @Nonnull
+    public static SassOptionsSnapshot readFrom(@Nonnull final DataInput in) throws IOException {
+        final int precision = in.readInt();
+        final int outputStyle = in.readByte();
+        final int flags = in.readByte();
+        final String outputPath = SassDataStreams.readString(in);
+        final int includePathSize = in.readUnsignedShort();
+        final List<String> includePath = new ArrayList<>(includePathSize);
+        for (int i = 0; i < includePathSize; i++) {
+            includePath.add(SassDataStreams.readString(in));
+        }
+        final String sourceMapFile = SassDataStreams.readString(in);
+        final String sourceMapRoot = SassDataStreams.readString(in);
+        return new SassOptionsSnapshot(precision, SassOutputStyle.fromIntValue(outputStyle), flags,
+                                       outputPath, includePath, sourceMapFile, sourceMapRoot);
+    }
+
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    @Nonnull
+    public SassOutputStyle getOutputStyle() {
+        return this.outputStyle;
+    }
+
+    public boolean getSourceComments() {
+        return (this.flags & FLAG_SOURCE_COMMENTS) != 0;
+    }
+
+    public boolean getSourceMapEmbed() {
+        return (this.flags & FLAG_SOURCE_MAP_EMBED) != 0;
+    }
+
+    public boolean getSourceMapContents() {
+        return (this.flags & FLAG_SOURCE_MAP_CONTENTS) != 0;
+    }
+
+    public boolean getOmitSourceMapUrl() {
+        return (this.flags & FLAG_OMIT_SOURCE_MAP_URL) != 0;
+    }
+
+    public boolean getIsIndentedSyntaxSrc() {
+        return (this.flags & FLAG_IS_INDENTED_SYNTAX_SRC) != 0;
+    }
+
+    @Nullable
+    public String getOutputPath() {
+        return this.outputPath;
+    }
+
+    @Nonnull
+    public List<String> getIncludePath() {
+        return this.includePath;
+    }
+
+    @Nullable
+    public String getSourceMapFile() {
+        return this.sourceMapFile;
+    }
+
+    @Nullable
+    public String getSourceMapRoot() {
+        return this.sourceMapRoot;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) { return true; }
+        if (!(o instanceof SassOptionsSnapshot)) { return false; }
+        final SassOptionsSnapshot other = (SassOptionsSnapshot) o;
+        return this.precision == other.precision
+                && this.outputStyle == other.outputStyle
+                && this.flags == other.flags
+                && Objects.equals(this.outputPath, other.outputPath)
+                && this.includePath.equals(other.includePath)
+                && Objects.equals(this.sourceMapFile, other.sourceMapFile)
+                && Objects.equals(this.sourceMapRoot, other.sourceMapRoot);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.precision, this.outputStyle, this.flags, this.outputPath,
+                            this.includePath, this.sourceMapFile, this.sourceMapRoot);
+    }
+
+    @Override
+    public String toString() {
+        return "SassOptionsSnapshot{precision=" + this.precision
+                + ", outputStyle=" + this.outputStyle
+                + ", flags=" + this.flags
+                + ", outputPath=" + this.outputPath
+                + ", includePath=" + this.includePath
+                + ", sourceMapFile=" + this.sourceMapFile
+                + ", sourceMapRoot=" + this.sourceMapRoot + "}";
+    }
+
+    @Nullable
+    private static String toString(@Nullable final Path path) {
+        return path == null ? null : path.toString();
+    }
+
+}
@@ -18,6 +18,8 @@ package com.cathive.sass;
 
 import com.cathive.sass.jna.SassLibrary;
 
+import java.text.MessageFormat;
+
 /**
  * Definition of the Sass output style to be used.
  * <p>See <a href="http://sass-lang.com/documentation/file.SASS_REFERENCE.html#output_style">http://sass-lang.com/documentation/file.SASS_REFERENCE.html#output_style</a>
@@ -71,4 +73,22 @@ public enum SassOutputStyle {
         return this.intValue;
     }
 
+    /**
+     * Returns the output style for the given numeric representation.
+     * @param intValue
+     *     Numeric representation of the output style as seen in native code.
+     * @return
+     *     The matching output style.
+     * @throws IllegalArgumentException
+     *     If no output style matches the given value.
+     */
+    static SassOutputStyle fromIntValue(final int intValue) {
+        for (final SassOutputStyle outputStyle : values()) {
+            if (outputStyle.intValue == intValue) {
+                return outputStyle;
+            }
+        }
+        throw new IllegalArgumentException(MessageFormat.format("Unknown Sass output style: {0}", intValue));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An importer that reads stylesheets through {@link Files}, so that they can reside in any {@link java.nio.file.FileSystem}
+ * (e.g. in a zip or jar archive opened via {@link SassFileSystems} or in an in-memory file system).
+ * <p>libsass only knows about the default file system. Therefore all imports below the entry stylesheet, relative as well
+ * as along the include path of this importer, must be resolved by this importer: SCSS partials, SCSS files and index
+ * files are supported. Plain CSS imports are left to libsass and will be emitted as CSS {@code @import} rules; indented
+ * syntax ({@code .sass}) can't be imported from non-default file systems.</p>
+ * <p>libsass reports the importing stylesheet by the string representation of its path only, which is mapped back to the
+ * path that has been served by this importer. Different file systems with stylesheets at identical paths should
+ * therefore not be mixed in a single importer.</p>
+ * @see #createContext(Path)
+ */
+public class SassPathImporter implements SassImporter {
+
+    /** Candidate file name patterns in descending order of their priority ({@code %s} = name). */
+    private static final String[] CANDIDATES = { "_%s.scss", "%s.scss", "%s/_index.scss", "%s/index.scss" };
+
+    /** Directories to be searched if an import can't be resolved relative to the importing stylesheet. */
+    private final List<Path> includePath;
+
+    /** Cache of file contents, possibly shared with other importers. */
+    private final SassImportCache cache;
+
+    /** All stylesheets that have been served by this importer, by the path that will be reported by libsass. */
+    private final ConcurrentMap<String, Path> served = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new path importer.
+     * @param includePath
+     *     Directories to be searched for imports. May reside in any file system.
+     * @param cache
+     *     Cache to be used to read imported files.
+     */
+    public SassPathImporter(@Nonnull final Collection<Path> includePath, @Nonnull final SassImportCache cache) {
+        super();
+        final List<Path> directories = new ArrayList<>(includePath.size());
+        for (final Path directory : includePath) {
+            directories.add(directory.toAbsolutePath().normalize());
+        }
+        this.includePath = Collections.unmodifiableList(directories);
+        this.cache = Objects.requireNonNull(cache, "Cache must not be null!");
+    }
+
+    /**
+     * Creates a Sass context that compiles the given stylesheet and resolves all of its imports through this importer.
+     * @param inputFile
+     *     Entry stylesheet. May reside in any file system.
+     * @return
+     *     A Sass data context with this importer registered.
+     * @throws IOException
+     *     If the stylesheet can't be read.
+     */
+    @Nonnull
+    public SassDataContext createContext(@Nonnull final Path inputFile) throws IOException {
+        final Path file = inputFile.toAbsolutePath().normalize();
+        final String source = this.cache.read(file);
+        final SassDataContext context = SassDataContext.create(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        context.inputDescription = file.toUri().toString();
+        context.getOptions().setInputPath(this.serve(file));
+        context.getOptions().setIsIndentedSyntaxSrc(file.getFileName().toString().endsWith(".sass"));
+        context.getOptions().setImporters(this);
+        return context;
+    }
+
+    @Nonnull
+    public List<Path> getIncludePath() {
+        return this.includePath;
+    }
+
+    @Nullable
+    @Override
+    public List<SassImport> resolve(@Nonnull final String url, @Nullable final Path previous) throws IOException {
+        if (url.contains("://") || url.startsWith("//") || url.endsWith(".css")) {
+            return null;
+        }
+        final Path importing = previous == null ? null : this.served.get(toKey(previous.toString()));
+        Path file = null;
+        if (importing != null && importing.getParent() != null) {
+            file = find(importing.getParent(), url);
+        }
+        for (int i = 0; file == null && i < this.includePath.size(); i++) {
+            file = find(this.includePath.get(i), url);
+        }
+        if (file == null) {
+            return null;
+        }
+        this.serve(file);
+        return Collections.singletonList(new SassImport(url, file, this.cache.read(file)));
+    }
+
+    /**
+     * Remembers the given file, so that it can be found again if libsass reports it as the importing stylesheet.
+     * @return
+     *     The path of the file as it will be reported by libsass.
+     */
+    @Nonnull
+    private String serve(@Nonnull final Path file) {
+        final String absolutePath = file.toString();
+        this.served.put(toKey(absolutePath), file);
+        return absolutePath;
+    }
+
+    @Nonnull
+    private static String toKey(@Nonnull final String path) {
+        return path.replace('\\', '/');
+    }
+
+    /**
+     * Looks for the given import in the given directory.
+     * @return
+     *     The absolute path of the import or {@code null} if it can't be found.
+     */
+    @Nullable
+    private static Path find(@Nonnull final Path directory, @Nonnull final String url) {
+        String name = url;
+        if (name.endsWith(".scss")) {
+            name = name.substring(0, name.length() - ".scss".length());
+        }
+        final int separator = name.lastIndexOf('/');
+        final String parent = name.substring(0, separator + 1);
+        final String fileName = name.substring(separator + 1);
+        for (final String candidate : CANDIDATES) {
+            final Path file = directory.resolve(parent + String.format(candidate, fileName)).normalize();
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A stage that post-processes the CSS output of a compilation before it is returned by {@link SassContext#compile()}.
+ * <p>Post-processors don't modify the CSS themselves: each of them scans the compiled output (which is held in memory)
+ * and records its replacements in a shared {@link SassCssEdits}. All replacements of all post-processors are applied
+ * in a single pass afterwards, and the generated source map is updated accordingly.</p>
+ * <p>Post-processors are invoked on the compiling thread and must be thread-safe if they are shared between
+ * contexts.</p>
+ * @see SassOptions#setPostProcessors(SassPostProcessor...)
+ * @see SassUrlRewriter
+ */
+@FunctionalInterface
+public interface SassPostProcessor {
+
+    /**
+     * Records the replacements of this post-processor.
+     * @param css
+     *     The compiled CSS, as returned by libsass.
+     * @param edits
+     *     Replacements of all post-processors. Offsets always refer to the given CSS.
+     */
+    void process(@Nonnull CharSequence css, @Nonnull SassCssEdits edits);
+
+}
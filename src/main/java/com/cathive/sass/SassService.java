@@ -18,17 +18,52 @@ package com.cathive.sass;
 
 import com.cathive.sass.constraints.ScssFile;
 import com.cathive.sass.jna.SassLibrary;
+import com.cathive.sass.worker.SassWorkerPool;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A service that can be used to compile Sass files.
@@ -41,6 +76,9 @@ public class SassService {
     /** Logger for this class. */
     private static final Logger LOGGER = Logger.getLogger(SassService.class.getName());
 
+    /** File extension of SCSS files. */
+    private static final String SCSS_EXTENSION = ".scss";
+
     /**
      * This constant string will be reported by {@code libsass_version} if the version information
      * has not been baked into the native shared library.
@@ -54,6 +92,66 @@ public class SassService {
      */
     private Properties properties;
 
+    /** Number of out-of-process compiler workers. ({@code 0} = compile in-process) */
+    private int workerCount = 0;
+
+    /** Maximum number of compilations per worker process before it is restarted. ({@code 0} = unlimited) */
+    private int maxCompilesPerWorker = 0;
+
+    /** Maximum resident set size (in bytes) of a worker process before it is restarted. ({@code 0} = unlimited) */
+    private long maxWorkerResidentSetSize = 0L;
+
+    /** Default deadline (in milliseconds) of each compilation. ({@code 0} = no deadline) */
+    private long compileTimeout = 0L;
+
+    /** Pool of compiler worker processes. ({@code null} if compiling in-process) */
+    private SassWorkerPool workerPool;
+
+    /** Runs all compilations and enforces their deadlines. */
+    private final SassCompileExecutor executor = new SassCompileExecutor();
+
+    /** Whether concurrent identical compilations shall share one compilation. */
+    private boolean coalesceCompiles = true;
+
+    /** Shares compilations between concurrent identical requests. */
+    private final SassCompileCoalescer coalescer = new SassCompileCoalescer();
+
+    /** Limits the number and input size of concurrent compilations. */
+    private final SassCompileAdmission admission = new SassCompileAdmission();
+
+    /** Persistent cache that is consulted before each compilation. ({@code null} = no cache) */
+    private volatile SassCompileCache compileCache;
+
+    /** Profiler that records the timings of each compilation. ({@code null} = profiling disabled) */
+    private volatile SassCompileProfiler profiler;
+
+    /** Listeners that will be attached to all contexts created by this service. */
+    private final List<SassCompileListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Contents of imported files, shared by all variant compilations. */
+    private final SassImportCache importCache = new SassImportCache();
+
+    /** Maximum number of variants that are compiled concurrently. */
+    private int variantParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Maximum number of compiled variants to be kept in memory. */
+    private long variantCacheSize = 10000L;
+
+    /** Compiled variants by entry, options and variables. */
+    private volatile Cache<VariantKey, CompiledVariant> variantCache = CacheBuilder.newBuilder().maximumSize(this.variantCacheSize).build();
+
+    private final AtomicLong variantCacheHitCount = new AtomicLong();
+    private final AtomicLong variantCacheMissCount = new AtomicLong();
+
+    /** Maximum number of warm-up iterations to be run during initialization. ({@code 0} = no warm-up) */
+    private int warmUpIterations = 0;
+
+    /** Stylesheets to be compiled during warm-up. (Empty = built-in synthetic stylesheet) */
+    private List<Path> warmUpEntries = Collections.emptyList();
+
+    /** Warm-up that has been started during initialization. ({@code null} if disabled) */
+    private volatile SassWarmUp warmUp;
+
     /**
      * Default constructor.
      * <p>Creates a new Sass service instance.</p>
@@ -73,13 +171,29 @@ public class SassService {
 
     /**
      * Creates a Sass file context for the given input file.
+     * <p>Input files that don't reside in the default file system (e.g. in an archive opened via
+     * {@link SassFileSystems}) are compiled from a data context whose imports are resolved by a
+     * {@link SassPathImporter}.</p>
      * @param inputFile
      *     SCSS input file to be used when creating the Sass context.
      * @return
      *     A Sass context that can be used to compile the given input file.
      */
     public SassContext createContext(@NotNull @ScssFile final Path inputFile) {
-        return SassFileContext.create(inputFile);
+        final SassContext context;
+        if (inputFile.getFileSystem() == FileSystems.getDefault()) {
+            context = SassFileContext.create(inputFile);
+        } else {
+            try {
+                context = new SassPathImporter(Collections.<Path>emptyList(), this.importCache).createContext(inputFile);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        for (final SassCompileListener listener : this.listeners) {
+            context.addCompileListener(listener);
+        }
+        return context;
     }
 
     /**
@@ -93,6 +207,790 @@ public class SassService {
         return this.createContext(Paths.get(inputFile));
     }
 
+    /**
+     * Compiles the given Sass context.
+     * <p>If this service has been configured to use out-of-process workers, file contexts will be compiled by
+     * one of the worker processes. All other contexts will be compiled in-process.</p>
+     * <p>Unless {@link #setCoalesceCompiles(boolean) disabled}, a file context without callbacks is not compiled
+     * at all if an identical compilation (same entry file and options) is already in flight. It will share the
+     * result or failure of that compilation instead.</p>
+     * <p>If a {@link #setCompileCache(SassCompileCache) compile cache} has been configured, it is consulted
+     * before a file context is compiled.</p>
+     * <p>If {@link #setMaxConcurrentCompiles(int) admission control} is enabled, the compilation may have to wait
+     * in the queue of its {@link SassContext#setPriority(SassCompilePriority) priority lane} first.</p>
+     * @param context
+     *     Sass context to be compiled.
+     * @return
+     *     The result of the compilation.
+     * @throws SassCompilationException
+     *     If compilation of the SCSS source file / data fails.
+     * @throws SassCompileTimeoutException
+     *     If the compilation did not finish within the configured compile timeout.
+     * @throws SassCompileRejectedException
+     *     If the queue of the priority lane of the context is full.
+     * @throws IOException
+     *     If a worker process fails to compile the given context.
+     */
+    public String compile(@Nonnull final SassContext context) throws SassCompilationException, IOException {
+        this.instrument(context);
+        final SassCompileCache cache = this.compileCache;
+        return cache == null ? this.compileUncached(context) : cache.compile(context, this::compileUncached);
+    }
+
+    /**
+     * Compiles the given Sass context without consulting the compile cache.
+     * @param context
+     *     Sass context to be compiled.
+     * @return
+     *     The result of the compilation.
+     * @throws SassCompilationException
+     *     If compilation of the SCSS source file / data fails.
+     * @throws IOException
+     *     If a worker process fails to compile the given context.
+     * @see #compile(SassContext)
+     */
+    String compileUncached(@Nonnull final SassContext context) throws SassCompilationException, IOException {
+        if (this.workerPool == null && this.compileTimeout <= 0 && !this.admission.isEnabled()) {
+            // Nothing to enforce, so there is no need to hand over to another thread.
+            final Object key = this.coalesceCompiles ? SassCompileCoalescer.keyOf(context) : null;
+            if (key == null) {
+                return context.compile();
+            }
+            return await(this.coalescer.submit(key, () -> CompletableFuture.completedFuture(context.compile())));
+        }
+        return await(this.compileAsyncUncached(context, this.compileTimeout, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Compiles the given Sass context asynchronously using the configured compile timeout.
+     * @param context
+     *     Sass context to be compiled.
+     * @return
+     *     A future that will be completed with the result of the compilation.
+     * @see #compileAsync(SassContext, long, java.util.concurrent.TimeUnit)
+     */
+    @Nonnull
+    public CompletableFuture<String> compileAsync(@Nonnull final SassContext context) {
+        return this.compileAsync(context, this.compileTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compiles the given Sass context asynchronously.
+     * <p>If the compilation does not finish within the given timeout, the returned future is completed
+     * exceptionally with a {@link SassCompileTimeoutException}. Worker processes that exceed the deadline
+     * are killed if {@link #setHardKillOnTimeout(boolean) hard kills} are enabled, in-process
+     * compilations keep running in the background and are reported as runaway compilations. A context whose
+     * compilation timed out must not be reused until its runaway has finished. Once
+     * {@link #setMaxRunawayCompiles(int) too many runaways} are running, in-process compilations are rejected.</p>
+     * <p>Identical compilations are coalesced as described in {@link #compile(SassContext)}. Callers that join a
+     * compilation that is already in flight share its deadline; cancelling the returned future does not affect
+     * the shared compilation.</p>
+     * <p>If a {@link #setCompileCache(SassCompileCache) compile cache} has been configured, it is looked up on the
+     * calling thread before a file context is compiled.</p>
+     * <p>The deadline starts as soon as the compilation has been admitted, the time spent in the queue of an
+     * {@link #setMaxConcurrentCompiles(int) admission control} does not count. If the queue is full, the returned
+     * future is completed exceptionally with a {@link SassCompileRejectedException}.</p>
+     * @param context
+     *     Sass context to be compiled.
+     * @param timeout
+     *     Deadline of the compilation. ({@code 0} = no deadline)
+     * @param unit
+     *     Time unit of the timeout.
+     * @return
+     *     A future that will be completed with the result of the compilation.
+     */
+    @Nonnull
+    public CompletableFuture<String> compileAsync(@Nonnull final SassContext context, final long timeout, @Nonnull final TimeUnit unit) {
+        this.instrument(context);
+        final SassCompileCache cache = this.compileCache;
+        if (cache == null) {
+            return this.compileAsyncUncached(context, timeout, unit);
+        }
+        return cache.compileAsync(context, uncached -> this.compileAsyncUncached(uncached, timeout, unit));
+    }
+
+    /**
+     * Compiles the given Sass context asynchronously without consulting the compile cache.
+     */
+    @Nonnull
+    private CompletableFuture<String> compileAsyncUncached(@Nonnull final SassContext context, final long timeout, @Nonnull final TimeUnit unit) {
+        final Object key = this.coalesceCompiles ? SassCompileCoalescer.keyOf(context) : null;
+        if (key == null) {
+            return this.submit(context, timeout, unit);
+        }
+        return this.coalescer.submit(key, () -> this.submit(context, timeout, unit));
+    }
+
+    /**
+     * Prepares the given context to be profiled, if profiling is enabled.
+     */
+    private void instrument(@Nonnull final SassContext context) {
+        final SassCompileProfiler profiler = this.profiler;
+        if (profiler != null) {
+            profiler.instrument(context);
+        }
+    }
+
+    /**
+     * Hands the given context over to the executor as soon as it has been admitted.
+     */
+    @Nonnull
+    private CompletableFuture<String> submit(@Nonnull final SassContext context, final long timeout, @Nonnull final TimeUnit unit) {
+        if (!this.admission.isEnabled()) {
+            return this.executor.submit(context, timeout, unit);
+        }
+        return this.admission.submit(context.getPriority(), context.getInputSize(), context.getInputDescription(),
+                                     finished -> this.executor.submit(context, timeout, unit, finished));
+    }
+
+    /**
+     * Compiles the given Sass context and moves its top-level {@code @media} blocks to separate stylesheets, so that
+     * clients only need to load the rules of the media queries that apply to them.
+     * @param context
+     *     Sass context to be compiled.
+     * @param minimumSize
+     *     Minimum size (in characters) of the rules of a media query to be split off. ({@code 0} = split all)
+     * @return
+     *     The split result of the compilation.
+     * @throws SassCompilationException
+     *     If compilation of the SCSS source file / data fails.
+     * @throws IOException
+     *     If a worker process fails to compile the given context.
+     * @see #compile(SassContext)
+     */
+    @Nonnull
+    public SassMediaSplit compileSplitByMedia(@Nonnull final SassContext context, final int minimumSize) throws SassCompilationException, IOException {
+        return SassMediaSplit.split(this.compile(context), minimumSize);
+    }
+
+    /**
+     * Compiles the given input file using the default options.
+     * @param inputFile
+     *     SCSS input file to be compiled.
+     * @return
+     *     The result of the compilation.
+     * @throws SassCompilationException
+     *     If compilation of the SCSS source file fails.
+     * @throws IOException
+     *     If a worker process fails to compile the given file.
+     */
+    public String compile(@NotNull @ScssFile final Path inputFile) throws SassCompilationException, IOException {
+        return this.compile(this.createContext(inputFile));
+    }
+
+    /**
+     * Compiles all SCSS files of the given directory tree in parallel and writes the results straight to disk.
+     * <p>Partials (files whose name starts with an underscore) are skipped. Each output file is written to the
+     * same relative location below the output directory, with the extension {@code .css}. Failures of single
+     * files don't abort the operation but are reported in the returned summary.</p>
+     * @param inputDirectory
+     *     Directory that contains the SCSS files.
+     * @param outputDirectory
+     *     Directory that the CSS files shall be written to.
+     * @param options
+     *     Options to be applied to each compilation or {@code null} to use the default options.
+     * @param threads
+     *     Maximum number of parallel compilations. ({@code 0} = number of available processors)
+     * @return
+     *     A summary of the operation.
+     * @throws IOException
+     *     If the input directory can't be read or if the operation has been interrupted.
+     */
+    @Nonnull
+    public SassCompileSummary compileDirectory(@Nonnull final Path inputDirectory,
+                                               @Nonnull final Path outputDirectory,
+                                               @Nullable final SassOptionsSnapshot options,
+                                               final int threads) throws IOException {
+
+        final long start = System.nanoTime();
+        final Path inputRoot = inputDirectory.toAbsolutePath().normalize();
+        final Path outputRoot = outputDirectory.toAbsolutePath().normalize();
+        final List<Path> inputFiles;
+        try (final Stream<Path> files = Files.walk(inputRoot)) {
+            inputFiles = files.filter(file -> Files.isRegularFile(file) && isEntryFile(file)).sorted().collect(Collectors.toList());
+        }
+
+        final AtomicInteger compiledCount = new AtomicInteger();
+        final AtomicInteger failedCount = new AtomicInteger();
+        final AtomicLong outputBytes = new AtomicLong();
+        final AtomicLong totalCompileNanos = new AtomicLong();
+        final AtomicLong maxCompileNanos = new AtomicLong();
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+        final int parallelism = Math.max(1, Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), inputFiles.size()));
+        final ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "sass-compile-directory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<?>> futures = new ArrayList<>(inputFiles.size());
+            for (final Path inputFile : inputFiles) {
+                futures.add(pool.submit(() -> {
+                    final long compileStart = System.nanoTime();
+                    final Path relativePath = inputRoot.relativize(inputFile);
+                    final Path outputFile = outputRoot.resolve(toCssFileName(relativePath.toString()));
+                    try {
+                        final SassContext context = this.createContext(inputFile);
+                        context.setPriority(SassCompilePriority.BATCH);
+                        if (options != null) {
+                            options.applyTo(context.getOptions());
+                        }
+                        context.getOptions().setOutputPath(outputFile);
+                        final byte[] output = this.compile(context).getBytes(StandardCharsets.UTF_8);
+                        SassFiles.write(outputFile, output);
+                        outputBytes.addAndGet(output.length);
+                        compiledCount.incrementAndGet();
+                    } catch (final RuntimeException | IOException e) {
+                        LOGGER.log(Level.WARNING, "{0} could not be compiled: {1}", new Object[]{ inputFile, e.getMessage() });
+                        if (failedCount.incrementAndGet() <= SassCompileSummary.MAX_FAILURES) {
+                            failures.add(relativePath + ": " + e.getMessage());
+                        }
+                    } finally {
+                        final long nanos = System.nanoTime() - compileStart;
+                        totalCompileNanos.addAndGet(nanos);
+                        maxCompileNanos.accumulateAndGet(nanos, Math::max);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compiling " + inputRoot + ".");
+        } catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new SassCompileSummary(inputFiles.size(), compiledCount.get(), failedCount.get(), outputBytes.get(),
+                                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                                      TimeUnit.NANOSECONDS.toMillis(totalCompileNanos.get()),
+                                      TimeUnit.NANOSECONDS.toMillis(maxCompileNanos.get()),
+                                      failures.toArray(new String[failures.size()]));
+
+    }
+
+    /**
+     * Compiles one variant of the given entry file per tenant using the default options.
+     * @see #compileVariants(java.nio.file.Path, SassOptionsSnapshot, java.util.Map)
+     */
+    @Nonnull
+    public Map<String, String> compileVariants(@NotNull @ScssFile final Path entry,
+                                               @Nonnull final Map<String, ? extends Map<String, String>> variables) throws SassCompilationException, IOException {
+        return this.compileVariants(entry, null, variables);
+    }
+
+    /**
+     * Compiles one variant of the given entry file per tenant, e.g. to render a theme with tenant specific colors.
+     * <p>The variables of each tenant are injected as a header that is prepended to the entry file (so that they
+     * take precedence over {@code !default} declarations). All imported SCSS files are read once and shared by
+     * all variants via an in-memory {@link SassImportCache}. Variants are compiled in parallel (see
+     * {@link #setVariantParallelism(int)}), always in-process.</p>
+     * <p>Compiled variants are cached by entry file, options and a hash of their variables. A variant will only be
+     * recompiled if its variables have changed or if one of the files it has been compiled from has been modified.</p>
+     * @param entry
+     *     SCSS entry file to be compiled.
+     * @param options
+     *     Options to be applied to each variant or {@code null} to use the default options.
+     * @param variables
+     *     Variables by tenant. Variable names may be given with or without a leading {@code $}, values must be
+     *     valid SCSS expressions.
+     * @return
+     *     The compiled CSS by tenant, in the iteration order of the given map.
+     * @throws SassCompilationException
+     *     If at least one variant could not be compiled. All other variants will have been compiled (and cached).
+     * @throws IOException
+     *     If waiting for a compilation fails.
+     */
+    @Nonnull
+    public Map<String, String> compileVariants(@NotNull @ScssFile final Path entry,
+                                               @Nullable final SassOptionsSnapshot options,
+                                               @Nonnull final Map<String, ? extends Map<String, String>> variables) throws SassCompilationException, IOException {
+
+        final Path entryFile = entry.toAbsolutePath().normalize();
+        final Cache<VariantKey, CompiledVariant> cache = this.variantCache;
+        final List<Path> includePath = new ArrayList<>();
+        if (options != null) {
+            for (final String path : options.getIncludePath()) {
+                includePath.add(Paths.get(path));
+            }
+        }
+        final SassImporter importer = new SassFileImporter(includePath, this.importCache);
+        final Semaphore permits = new Semaphore(Math.max(1, this.variantParallelism));
+
+        final Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (final Map.Entry<String, ? extends Map<String, String>> tenant : variables.entrySet()) {
+            final String header = toScss(tenant.getValue());
+            final VariantKey key = new VariantKey(entryFile, options, Hashing.sha256().hashString(header, StandardCharsets.UTF_8).toString());
+            final CompiledVariant cached = cache.getIfPresent(key);
+            if (cached != null && cached.isUpToDate()) {
+                this.variantCacheHitCount.incrementAndGet();
+                futures.put(tenant.getKey(), CompletableFuture.completedFuture(cached.output));
+                continue;
+            }
+            this.variantCacheMissCount.incrementAndGet();
+            try {
+                permits.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compiling variants of " + entryFile + ".");
+            }
+            final SassContext context;
+            final CompletableFuture<String> future;
+            try {
+                context = this.createContext(entryFile);
+                context.setPriority(SassCompilePriority.BATCH);
+                if (options != null) {
+                    options.applyTo(context.getOptions());
+                }
+                context.getOptions().setHeaders((url, previous) -> Collections.singletonList(new SassImport("variables", null, header)));
+                context.getOptions().setImporters(importer);
+                future = this.compileAsync(context);
+            } catch (final RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            future.whenComplete((output, failure) -> {
+                permits.release();
+                if (failure == null) {
+                    cache.put(key, new CompiledVariant(output, context.getIncludedFiles()));
+                }
+            });
+            futures.put(tenant.getKey(), future);
+        }
+
+        final Map<String, String> outputs = new LinkedHashMap<>();
+        Exception failure = null;
+        for (final Map.Entry<String, CompletableFuture<String>> future : futures.entrySet()) {
+            try {
+                outputs.put(future.getKey(), await(future.getValue()));
+            } catch (final RuntimeException | IOException e) {
+                LOGGER.log(Level.WARNING, "Variant \"{0}\" of {1} could not be compiled: {2}",
+                           new Object[]{ future.getKey(), entryFile, e.getMessage() });
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw (IOException) failure;
+        }
+        return outputs;
+
+    }
+
+    /**
+     * Clears all cached variants and imported file contents.
+     */
+    public void clearVariantCache() {
+        this.variantCache.invalidateAll();
+        this.importCache.clear();
+    }
+
+    public int getVariantParallelism() {
+        return this.variantParallelism;
+    }
+
+    /**
+     * Sets the maximum number of variants that will be compiled concurrently by
+     * {@link #compileVariants(java.nio.file.Path, SassOptionsSnapshot, java.util.Map)}.
+     * @param variantParallelism
+     *     Maximum number of concurrent compilations. (Defaults to the number of available processors.)
+     */
+    public void setVariantParallelism(final int variantParallelism) {
+        this.variantParallelism = variantParallelism;
+    }
+
+    public long getVariantCacheSize() {
+        return this.variantCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of compiled variants to be kept in memory. Clears the variant cache.
+     * @param variantCacheSize
+     *     Maximum number of cached variants.
+     */
+    public void setVariantCacheSize(final long variantCacheSize) {
+        this.variantCacheSize = variantCacheSize;
+        this.variantCache = CacheBuilder.newBuilder().maximumSize(variantCacheSize).build();
+    }
+
+    public long getVariantCacheHitCount() {
+        return this.variantCacheHitCount.get();
+    }
+
+    public long getVariantCacheMissCount() {
+        return this.variantCacheMissCount.get();
+    }
+
+    public int getWarmUpIterations() {
+        return this.warmUpIterations;
+    }
+
+    /**
+     * Enables warm-up of the native compile path during initialization.
+     * <p>The warm-up runs on a background thread, so initialization does not block. Use {@link #isReady()} or
+     * {@link #getReadiness()} to find out whether the first compilations will run at steady-state speed.</p>
+     * @param warmUpIterations
+     *     Maximum number of warm-up iterations or {@code 0} to disable warm-up.
+     * @see SassWarmUp
+     */
+    public void setWarmUpIterations(final int warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    @Nonnull
+    public List<Path> getWarmUpEntries() {
+        return this.warmUpEntries;
+    }
+
+    /**
+     * Sets the stylesheets that will be compiled during warm-up.
+     * @param warmUpEntries
+     *     Real entry files of the application or an empty list to use a built-in synthetic stylesheet.
+     */
+    public void setWarmUpEntries(@Nonnull final List<Path> warmUpEntries) {
+        this.warmUpEntries = Collections.unmodifiableList(new ArrayList<>(warmUpEntries));
+    }
+
+    /**
+     * Checks whether this service has finished its warm-up.
+     * @return
+     *     {@code true} if warm-up is disabled or has finished.
+     */
+    public boolean isReady() {
+        final SassWarmUp warmUp = this.warmUp;
+        return warmUp == null || warmUp.isFinished();
+    }
+
+    /**
+     * Returns a future that will be completed as soon as this service has finished its warm-up.
+     * @return
+     *     A future that will be completed with {@code true} if the compile latency has settled.
+     */
+    @Nonnull
+    public CompletableFuture<Boolean> getReadiness() {
+        final SassWarmUp warmUp = this.warmUp;
+        return warmUp == null ? CompletableFuture.completedFuture(Boolean.TRUE) : warmUp.getReadiness();
+    }
+
+    /**
+     * Returns the latency curve of the warm-up.
+     * @return
+     *     The duration of each warm-up iteration in microseconds. (Empty if warm-up is disabled.)
+     */
+    @Nonnull
+    public long[] getWarmUpLatencies() {
+        final SassWarmUp warmUp = this.warmUp;
+        return warmUp == null ? new long[0] : warmUp.getLatencies();
+    }
+
+    /**
+     * Registers a listener that will be notified about compilations of all contexts that are
+     * subsequently created by this service.
+     * <p>Compilations that are performed by out-of-process workers can only be observed by listeners
+     * that are registered via {@code META-INF/services} within the worker processes.</p>
+     * @param listener
+     *     Listener to be registered.
+     * @see SassCompileListeners#register(SassCompileListener)
+     */
+    public void addCompileListener(@Nonnull final SassCompileListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener, "Listener must not be null!"));
+    }
+
+    /**
+     * Unregisters a listener from this service. Contexts that have already been created are not affected.
+     * @param listener
+     *     Listener to be unregistered.
+     */
+    public void removeCompileListener(@Nonnull final SassCompileListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public long getCompileTimeout() {
+        return this.compileTimeout;
+    }
+
+    /**
+     * Sets the default deadline of each compilation.
+     * @param compileTimeout
+     *     Deadline in milliseconds or {@code 0} for no deadline.
+     */
+    public void setCompileTimeout(final long compileTimeout) {
+        this.compileTimeout = compileTimeout;
+    }
+
+    public boolean isHardKillOnTimeout() {
+        return this.executor.isHardKill();
+    }
+
+    /**
+     * Determines whether a worker process shall be killed (and restarted) if it exceeds the deadline of
+     * its compilation. Has no effect when compiling in-process.
+     * @param hardKillOnTimeout
+     *     {@code true} to kill the worker, {@code false} to let the compilation finish in the background.
+     */
+    public void setHardKillOnTimeout(final boolean hardKillOnTimeout) {
+        this.executor.setHardKill(hardKillOnTimeout);
+    }
+
+    /**
+     * Returns the number of compilations that exceeded their deadline.
+     * @return
+     *     Number of compilations that timed out.
+     */
+    public long getTimedOutCompileCount() {
+        return this.executor.getTimedOutCount();
+    }
+
+    /**
+     * Returns the number of in-process compilations that exceeded their deadline and are still running.
+     * @return
+     *     Number of runaway compilations.
+     */
+    public long getRunawayCompileCount() {
+        return this.executor.getRunawayCount();
+    }
+
+    public int getMaxRunawayCompiles() {
+        return this.executor.getMaxRunawayCompiles();
+    }
+
+    /**
+     * Limits the number of compile threads that can be pinned by in-process compilations that exceeded their
+     * deadline. Further in-process compilations are rejected with a {@link SassCompileRejectedException} until
+     * some of the runaways have finished.
+     * @param maxRunawayCompiles
+     *     Maximum number of runaway compilations. ({@code 0} = unlimited, default: 8)
+     */
+    public void setMaxRunawayCompiles(final int maxRunawayCompiles) {
+        this.executor.setMaxRunawayCompiles(maxRunawayCompiles);
+    }
+
+    @Nullable
+    public SassCompileCache getCompileCache() {
+        return this.compileCache;
+    }
+
+    /**
+     * Sets the persistent cache that is consulted by {@link #compile(SassContext)} and
+     * {@link #compileAsync(SassContext)} before a file context is compiled. The {@link SassWarmUp warm-up} bypasses
+     * the cache.
+     * @param compileCache
+     *     The cache or {@code null} to always compile.
+     */
+    public void setCompileCache(@Nullable final SassCompileCache compileCache) {
+        this.compileCache = compileCache;
+    }
+
+    @Nullable
+    public SassCompileProfiler getProfiler() {
+        return this.profiler;
+    }
+
+    /**
+     * Enables profiling of all compilations of this service.
+     * <p>Profiled contexts are always compiled in-process and neither coalesced nor cached, so profiling should
+     * only be enabled to find slow stylesheets, not permanently.</p>
+     * @param profiler
+     *     The profiler that records the compilations or {@code null} to disable profiling.
+     */
+    public void setProfiler(@Nullable final SassCompileProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public boolean isCoalesceCompiles() {
+        return this.coalesceCompiles;
+    }
+
+    /**
+     * Determines whether concurrent identical compilations shall share one compilation.
+     * <p>Listeners of a context that joined another compilation won't be notified, as the context itself is
+     * never compiled.</p>
+     * @param coalesceCompiles
+     *     {@code true} to coalesce identical compilations (default), {@code false} to compile every context.
+     */
+    public void setCoalesceCompiles(final boolean coalesceCompiles) {
+        this.coalesceCompiles = coalesceCompiles;
+    }
+
+    /**
+     * Returns the number of compilations that have been saved by coalescing.
+     * @return
+     *     Number of requests that shared a compilation that was already in flight.
+     */
+    public long getCoalescedCompileCount() {
+        return this.coalescer.getCoalescedCount();
+    }
+
+    /**
+     * Returns the number of distinct coalescable compilations that are currently in flight.
+     * @return
+     *     Number of in-flight compilations.
+     */
+    public int getInFlightCompileCount() {
+        return this.coalescer.getInFlightCount();
+    }
+
+    public int getMaxConcurrentCompiles() {
+        return this.admission.getMaxConcurrentCompiles();
+    }
+
+    /**
+     * Limits the number of compilations that run concurrently. Further compilations are queued in the lane of
+     * their {@link SassContext#setPriority(SassCompilePriority) priority}; interactive compilations are always
+     * admitted before batch compilations. Runaway compilations that exceeded their deadline still count until
+     * they have finished.
+     * @param maxConcurrentCompiles
+     *     Maximum number of concurrent compilations or {@code 0} for no limit.
+     */
+    public void setMaxConcurrentCompiles(final int maxConcurrentCompiles) {
+        this.admission.setMaxConcurrentCompiles(maxConcurrentCompiles);
+    }
+
+    public long getMaxInFlightBytes() {
+        return this.admission.getMaxInFlightBytes();
+    }
+
+    /**
+     * Limits the total input size of all compilations that run concurrently. Only the entry file (or data) of a
+     * compilation is taken into account, not its imports.
+     * @param maxInFlightBytes
+     *     Budget in bytes or {@code 0} for no limit.
+     */
+    public void setMaxInFlightBytes(final long maxInFlightBytes) {
+        this.admission.setMaxInFlightBytes(maxInFlightBytes);
+    }
+
+    public int getMaxQueueDepth() {
+        return this.admission.getMaxQueueDepth();
+    }
+
+    /**
+     * Limits the number of compilations that may wait in each priority lane. Compilations that don't fit into
+     * their queue are rejected immediately with a {@link SassCompileRejectedException}.
+     * @param maxQueueDepth
+     *     Maximum number of queued compilations per lane or {@code 0} for no limit.
+     */
+    public void setMaxQueueDepth(final int maxQueueDepth) {
+        this.admission.setMaxQueueDepth(maxQueueDepth);
+    }
+
+    public int getReservedInteractiveCompiles() {
+        return this.admission.getReservedInteractiveCompiles();
+    }
+
+    /**
+     * Reserves some of the {@link #setMaxConcurrentCompiles(int) concurrent compilations} for interactive
+     * compilations, so that a bulk job can't occupy all of them. At most all but one of them are reserved, so that
+     * batch compilations always get at least one.
+     * @param reservedInteractiveCompiles
+     *     Number of permits that can't be used by batch compilations.
+     */
+    public void setReservedInteractiveCompiles(final int reservedInteractiveCompiles) {
+        this.admission.setReservedInteractiveCompiles(reservedInteractiveCompiles);
+    }
+
+    /**
+     * Returns the current state of the admission control (active compilations, queue depths and wait times).
+     * @return
+     *     A snapshot of the admission control.
+     */
+    @Nonnull
+    public SassAdmissionStatistics getAdmissionStatistics() {
+        return this.admission.getStatistics();
+    }
+
+    public int getWorkerCount() {
+        return this.workerCount;
+    }
+
+    /**
+     * Sets the number of out-of-process compiler workers.
+     * <p>Running libsass in child JVMs isolates this JVM from crashes and leaks of the native library.
+     * Must be set before this service is initialized.</p>
+     * @param workerCount
+     *     Number of worker processes or {@code 0} to compile in-process.
+     */
+    public void setWorkerCount(final int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public int getMaxCompilesPerWorker() {
+        return this.maxCompilesPerWorker;
+    }
+
+    public void setMaxCompilesPerWorker(final int maxCompilesPerWorker) {
+        this.maxCompilesPerWorker = maxCompilesPerWorker;
+    }
+
+    public long getMaxWorkerResidentSetSize() {
+        return this.maxWorkerResidentSetSize;
+    }
+
+    public void setMaxWorkerResidentSetSize(final long maxWorkerResidentSetSize) {
+        this.maxWorkerResidentSetSize = maxWorkerResidentSetSize;
+    }
+
+    /**
+     * Waits for the result of a compilation and unwraps any exception that occurred.
+     */
+    private static String await(final Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Sass compilation.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Checks whether the given file is a non-partial SCSS file.
+     */
+    private static boolean isEntryFile(@Nonnull final Path file) {
+        final String fileName = file.getFileName().toString();
+        return fileName.endsWith(SCSS_EXTENSION) && !fileName.startsWith("_");
+    }
+
+    /**
+     * Replaces the {@code .scss} extension of the given file name by {@code .css}.
+     */
+    @Nonnull
+    static String toCssFileName(@Nonnull final String fileName) {
+        return fileName.substring(0, fileName.length() - SCSS_EXTENSION.length()) + ".css";
+    }
+
+    /**
+     * Renders the given variables as SCSS variable declarations, sorted by name.
+     */
+    @Nonnull
+    static String toScss(@Nonnull final Map<String, String> variables) {
+        final StringBuilder scss = new StringBuilder();
+        for (final Map.Entry<String, String> variable : new TreeMap<>(variables).entrySet()) {
+            final String name = variable.getKey();
+            scss.append(name.startsWith("$") ? "" : "$").append(name).append(": ").append(variable.getValue()).append(";\n");
+        }
+        return scss.toString();
+    }
+
     @PostConstruct
     protected void initialize() throws Exception {
 
@@ -108,13 +1006,103 @@ public class SassService {
             LOGGER.log(Level.WARNING, "libsass version mismatch. Expected: {0}, found: {1}", new Object[]{libsassVersion, expectedLibsassVersion });
         }
 
+        if (this.workerCount > 0) {
+            this.workerPool = new SassWorkerPool(this.workerCount);
+            this.workerPool.setMaxCompilesPerWorker(this.maxCompilesPerWorker);
+            this.workerPool.setMaxResidentSetSize(this.maxWorkerResidentSetSize);
+            this.workerPool.start();
+            this.executor.setWorkerPool(this.workerPool);
+        }
+
+        if (this.warmUpIterations > 0) {
+            this.warmUp = new SassWarmUp(this, this.warmUpEntries, this.warmUpIterations);
+            final Thread thread = new Thread(this.warmUp, "sass-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
         LOGGER.log(Level.INFO, "libsass wrapper successfully initialized.");
 
     }
 
     @PreDestroy
     protected void dispose() {
-        /* Nothing to be done ... for now! */
+        this.executor.setWorkerPool(null);
+        this.executor.close();
+        if (this.workerPool != null) {
+            this.workerPool.close();
+            this.workerPool = null;
+        }
+    }
+
+    /**
+     * Identifies a compiled variant.
+     */
+    private static final class VariantKey {
+
+        private final Path entry;
+        private final SassOptionsSnapshot options;
+        private final String variablesHash;
+
+        private VariantKey(final Path entry, final SassOptionsSnapshot options, final String variablesHash) {
+            this.entry = entry;
+            this.options = options;
+            this.variablesHash = variablesHash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof VariantKey)) { return false; }
+            final VariantKey other = (VariantKey) o;
+            return this.entry.equals(other.entry)
+                    && Objects.equals(this.options, other.options)
+                    && this.variablesHash.equals(other.variablesHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.entry, this.options, this.variablesHash);
+        }
+
+    }
+
+    /**
+     * A compiled variant together with the modification times of all files it has been compiled from.
+     */
+    private static final class CompiledVariant {
+
+        private final String output;
+        private final Map<Path, FileTime> dependencies = new HashMap<>();
+
+        private CompiledVariant(final String output, final List<Path> includedFiles) {
+            this.output = output;
+            for (final Path includedFile : includedFiles) {
+                if (!includedFile.isAbsolute()) {
+                    // Not a file (e.g. the variables header).
+                    continue;
+                }
+                try {
+                    this.dependencies.put(includedFile, Files.getLastModifiedTime(includedFile));
+                } catch (final IOException e) {
+                    LOGGER.log(Level.FINE, "Could not determine modification time of {0}.", includedFile);
+                }
+            }
+        }
+
+        private boolean isUpToDate() {
+            for (final Map.Entry<Path, FileTime> dependency : this.dependencies.entrySet()) {
+                try {
+                    if (!Files.getLastModifiedTime(dependency.getKey()).equals(dependency.getValue())) {
+                        return false;
+                    }
+                } catch (final IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
     }
 
 }
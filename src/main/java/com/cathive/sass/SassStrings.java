@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Scans and quotes strings of compiled CSS and of the JSON reports that are written alongside of it.
+ */
+final class SassStrings {
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassStrings() {
+        super();
+    }
+
+    /**
+     * Determines the offset after the closing quote of the CSS string that starts at the given offset.
+     * @param css
+     *     The CSS to be scanned.
+     * @param start
+     *     Offset of the opening quote.
+     * @return
+     *     Offset after the closing quote (or after an unescaped line break, which terminates an invalid string).
+     */
+    static int endOfString(@Nonnull final CharSequence css, final int start) {
+        final char quote = css.charAt(start);
+        int i = start + 1;
+        while (i < css.length()) {
+            final char c = css.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote || c == '\n') {
+                return i;
+            }
+        }
+        return css.length();
+    }
+
+    /**
+     * Finds the given string in a char sequence without copying it.
+     * @param css
+     *     The CSS to be searched.
+     * @param needle
+     *     The string to be found.
+     * @param from
+     *     Offset to start the search at.
+     * @return
+     *     Offset of the first occurrence or {@code -1}.
+     */
+    static int indexOf(@Nonnull final CharSequence css, @Nonnull final String needle, final int from) {
+        for (int i = from; i + needle.length() <= css.length(); i++) {
+            boolean match = true;
+            for (int j = 0; j < needle.length() && match; j++) {
+                match = css.charAt(i + j) == needle.charAt(j);
+            }
+            if (match) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends the given value as quoted JSON string.
+     * @param json
+     *     The JSON document that is being written.
+     * @param value
+     *     The value to be quoted.
+     */
+    static void appendJsonString(@Nonnull final StringBuilder json, @Nonnull final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+}
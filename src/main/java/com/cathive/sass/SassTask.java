@@ -16,14 +16,27 @@
 package com.cathive.sass;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Mapper;
+import org.apache.tools.ant.util.FileNameMapper;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static java.text.MessageFormat.format;
 
@@ -33,6 +46,10 @@ import static java.text.MessageFormat.format;
 public class SassTask extends Task {
 
     private static final String OUTPUT_EXTENSION = ".css";
+
+    /** Partials (files whose names start with an underscore) are only meant to be imported. */
+    private static final String PARTIAL_PREFIX = "_";
+
     private Integer precision = null;
     private SassOutputStyle outputStyle = null;
     private Boolean sourceComments = null;
@@ -44,7 +61,17 @@ public class SassTask extends Task {
     private String sourceMapRoot = null;
     private File outputPath = null;
     private File in = null;
+    private File cacheDir = null;
+    private File assetManifest = null;
+    private String assetBase = "";
+    private boolean splitMedia = false;
+    private int splitMediaMinSize = 0;
+    private File profileReport = null;
+    private long slowCompileThreshold = 0L;
     private final Collection<org.apache.tools.ant.types.Path> paths = new ArrayList<>();
+    private final Collection<FileSet> fileSets = new ArrayList<>();
+    private Mapper mapper = null;
+    private boolean recursive = false;
     private String extension = ".scss";
 
     /**
@@ -69,6 +96,84 @@ public class SassTask extends Task {
         }
     }
 
+    /**
+     * Set the directory of a persistent compile cache that is consulted before each compilation.
+     * <p>The directory may be shared by several builds, even if they run concurrently.</p>
+     *
+     * @param cacheDir Root directory of the compile cache.
+     * @see SassCompileCache
+     */
+    public void setCachedir(final String cacheDir) {
+        if (cacheDir != null && !cacheDir.trim().isEmpty()) {
+            this.cacheDir = new File(cacheDir);
+        }
+    }
+
+    /**
+     * Set the asset manifest that {@code url(...)} references of the compiled CSS shall be rewritten with.
+     *
+     * @param assetManifest JSON file that maps logical asset paths to fingerprinted paths.
+     * @see SassUrlRewriter
+     */
+    public void setAssetmanifest(final String assetManifest) {
+        if (assetManifest != null && !assetManifest.trim().isEmpty()) {
+            this.assetManifest = new File(assetManifest);
+        }
+    }
+
+    /**
+     * Set the directory that the compiled CSS files will be served from, relative to the asset root.
+     *
+     * @param assetBase Directory of the stylesheets relative to the asset root. (Defaults to the asset root.)
+     */
+    public void setAssetbase(final String assetBase) {
+        this.assetBase = assetBase == null ? "" : assetBase;
+    }
+
+    /**
+     * Whether top-level {@code @media} blocks of the compiled CSS shall be moved to separate files.
+     * <p>Each media query gets a file of its own next to the output file (e.g. {@code app-print.css}) and a
+     * manifest ({@code app.media.json}) lists the {@code <link media="...">} tags that templates have to render.</p>
+     *
+     * @param splitMedia {@code true} to split the output by media query.
+     * @see SassMediaSplit
+     */
+    public void setSplitmedia(final boolean splitMedia) {
+        this.splitMedia = splitMedia;
+    }
+
+    /**
+     * Set the minimum size of the rules of a media query to be moved to a separate file.
+     *
+     * @param splitMediaMinSize Minimum size in characters. Smaller media blocks stay in the output file.
+     */
+    public void setSplitmediaminsize(final int splitMediaMinSize) {
+        this.splitMediaMinSize = splitMediaMinSize;
+    }
+
+    /**
+     * Set the file that a profile of all compilations shall be written to.
+     * <p>The report lists parse and execute time, output size and imports of each stylesheet and the time
+     * spent reading each import.</p>
+     *
+     * @param profileReport Report file. Files ending with {@code .html} get an HTML report, all others JSON.
+     * @see SassCompileProfiler
+     */
+    public void setProfilereport(final String profileReport) {
+        if (profileReport != null && !profileReport.trim().isEmpty()) {
+            this.profileReport = new File(profileReport);
+        }
+    }
+
+    /**
+     * Set the duration above which a compilation is logged as slow. Enables profiling.
+     *
+     * @param slowCompileThreshold Threshold in milliseconds. ({@code 0} = don't log)
+     */
+    public void setSlowcompilethreshold(final long slowCompileThreshold) {
+        this.slowCompileThreshold = slowCompileThreshold;
+    }
+
     public void setPrecision(final int precision) {
         this.precision = precision;
     }
@@ -130,6 +235,41 @@ public class SassTask extends Task {
         }
     }
 
+    /**
+     * Whether the directory given via {@code in} shall be scanned recursively.
+     * <p>The directory structure below {@code in} will be mirrored inside of {@code outdir}.</p>
+     *
+     * @param recursive {@code true} to scan all sub-directories as well.
+     */
+    public void setRecursive(final boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    /**
+     * Add a set of sass files to compile.
+     * <p>The directory structure relative to the base directory of the file set will be mirrored inside
+     * of {@code outdir}. Partials will be skipped.</p>
+     *
+     * @param fileSet The file set to add.
+     */
+    public void addFileset(final FileSet fileSet) {
+        fileSets.add(fileSet);
+    }
+
+    /**
+     * Define a mapper that will be used to map the relative path of each input file to the relative
+     * path of its output file inside of {@code outdir}.
+     *
+     * @return A mapper to be configured by Ant.
+     */
+    public Mapper createMapper() {
+        if (mapper != null) {
+            throw new BuildException("Cannot define more than one mapper.", getLocation());
+        }
+        mapper = new Mapper(getProject());
+        return mapper;
+    }
+
     /**
      * Add a path which references one or more sass include directories.
      *
@@ -140,40 +280,124 @@ public class SassTask extends Task {
     }
 
     /**
-     * For the given sass input file create an OutputStream to which we will write the result of the
-     * Sass compilation.
+     * Writes the result of the Sass compilation of the given input file.
      *
-     * @param inputFile A sass input file to compile.
-     * @return An output stream for the compiler to write to.
+     * @param input A sass input file that has been compiled.
+     * @param content The compiled css.
+     * @return {@code true} if the output file has been written, {@code false} if it was up to date.
+     * @see #writeOutput(File, byte[])
      */
-    private OutputStream getOutput(final File inputFile) {
-        OutputStream result = null;
-        if (outputPath != null) {
-            try {
-                if (!outputPath.exists()) {
-                    if (!outputPath.mkdirs()) {
-                        throw new BuildException(format("Could not create output path: {0}", outputPath.getCanonicalPath()));
-                    }
-                }
-                String filename = inputFile.getName();
-                if (filename.indexOf(".") > 0) {
-                    filename = filename.substring(0, filename.lastIndexOf("."));
-                }
-                filename += OUTPUT_EXTENSION;
-                final Path output = outputPath.toPath().resolve(filename);
-                final File outputFile = output.toFile();
-                if (!outputFile.exists()) {
-                    result = new FileOutputStream(outputFile);
-                } else {
-                    this.log(format("File already exists: {0} ", outputFile.getCanonicalPath()));
+    private boolean writeOutput(final Input input, final byte[] content) {
+        return writeOutput(getOutputFile(input), content);
+    }
+
+    /**
+     * Writes the given content to an output file.
+     * <p>If the output file already exists and its content is identical, it is left untouched, so that its
+     * modification time is preserved. Otherwise it is replaced atomically.</p>
+     *
+     * @param outputFile The file to be written.
+     * @param content The compiled css.
+     * @return {@code true} if the output file has been written, {@code false} if it was up to date.
+     */
+    private boolean writeOutput(final File outputFile, final byte[] content) {
+        if (outputPath == null) {
+            throw new BuildException("outdir must be set");
+        }
+        try {
+            return SassFiles.write(outputFile.toPath(), content);
+        } catch (final IOException ex) {
+            throw new BuildException(ex);
+        }
+    }
+
+    /**
+     * Logs the latest compilation of the given context to the build log if it exceeded the slow compile threshold.
+     *
+     * @param profiler The profiler that the context has been instrumented with.
+     * @param context The context that has been compiled.
+     */
+    private void logSlowCompile(final SassCompileProfiler profiler, final SassContext context) {
+        final SassCompileProfile profile = profiler.getProfile(context);
+        if (profile != null && slowCompileThreshold > 0 && profile.getTotalNanos() >= slowCompileThreshold * 1000000L) {
+            this.log(format("Slow compilation of \"{0}\": {1} ms (parse: {2} ms, execute: {3} ms, {4} imports)",
+                            profile.getInput(), profile.getTotalNanos() / 1000000L, profile.getParseNanos() / 1000000L,
+                            profile.getExecuteNanos() / 1000000L, profile.getImportCount()), Project.MSG_WARN);
+        }
+    }
+
+    /**
+     * Writes the main stylesheet, one stylesheet per media query and the manifest that lists them.
+     * Media specific stylesheets that are listed by the previous manifest but are no longer part of the split
+     * output are deleted.
+     *
+     * @param input A sass input file that has been compiled.
+     * @param split The compiled css, split by media query.
+     * @throws IOException If an output file can't be written or a stale one can't be deleted.
+     */
+    private void writeSplitOutput(final Input input, final SassMediaSplit split) throws IOException {
+        final File outputFile = getOutputFile(input);
+        final String fileName = outputFile.getName();
+        final String baseName = fileName.lastIndexOf('.') > 0 ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        final Map<File, String> files = new LinkedHashMap<>();
+        files.put(outputFile, split.getCss());
+        for (final Map.Entry<String, String> media : split.getFileNames(baseName).entrySet()) {
+            files.put(new File(outputFile.getParentFile(), media.getValue()), split.getMediaCss().get(media.getKey()));
+        }
+        final File manifestFile = new File(outputFile.getParentFile(), baseName + ".media.json");
+        files.put(manifestFile, split.toManifest(baseName));
+
+        // Stylesheets of media queries that are gone have been listed by the previous manifest.
+        final List<File> staleFiles = new ArrayList<>();
+        if (manifestFile.isFile()) {
+            final String previousManifest = new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8);
+            for (final String staleName : SassMediaSplit.readFileNames(previousManifest)) {
+                final File staleFile = new File(outputFile.getParentFile(), staleName);
+                // Only files that this task may have written are deleted.
+                if (staleName.startsWith(baseName + "-") && staleName.endsWith(OUTPUT_EXTENSION)
+                        && staleName.indexOf('/') < 0 && staleName.indexOf(File.separatorChar) < 0 && !files.containsKey(staleFile)) {
+                    staleFiles.add(staleFile);
                 }
-            } catch (final IOException ex) {
-                throw new BuildException(ex);
             }
+        }
+
+        for (final Map.Entry<File, String> file : files.entrySet()) {
+            if (!writeOutput(file.getKey(), file.getValue().getBytes(StandardCharsets.UTF_8))) {
+                this.log(format("Output is up to date: {0}", file.getKey().getCanonicalPath()), Project.MSG_VERBOSE);
+            }
+        }
+        for (final File staleFile : staleFiles) {
+            if (Files.deleteIfExists(staleFile.toPath())) {
+                this.log(format("Deleted stale output: {0}", staleFile.getCanonicalPath()), Project.MSG_VERBOSE);
+            }
+        }
+    }
+
+    /**
+     * Determines the location of the output file for the given input.
+     * <p>If a mapper has been defined it will be used, otherwise the relative path of the input is
+     * mirrored inside of the output directory and its extension is replaced.</p>
+     *
+     * @param input A sass input file to compile.
+     * @return The file that the compiled css will be written to.
+     */
+    private File getOutputFile(final Input input) {
+        String filename = input.relativePath;
+        if (mapper != null) {
+            final FileNameMapper fileNameMapper = mapper.getImplementation();
+            final String[] mapped = fileNameMapper.mapFileName(filename);
+            if (mapped == null || mapped.length == 0) {
+                throw new BuildException(format("Mapper did not produce an output name for \"{0}\".", filename));
+            }
+            filename = mapped[0];
         } else {
-            throw new BuildException("outdir must be set");
+            final int separatorIndex = filename.lastIndexOf(File.separatorChar);
+            if (filename.lastIndexOf(".") > separatorIndex + 1) {
+                filename = filename.substring(0, filename.lastIndexOf("."));
+            }
+            filename += OUTPUT_EXTENSION;
         }
-        return result;
+        return new File(outputPath, filename);
     }
 
     /**
@@ -195,31 +419,49 @@ public class SassTask extends Task {
     /**
      * Get the sass files to compile.
      *
-     * @return An array of files to compile.
+     * @return A list of files to compile.
      */
-    private File[] getInputFiles() {
-        File[] files = null;
+    private List<Input> getInputFiles() {
+        final List<Input> files = new ArrayList<>();
+        if (in == null && fileSets.isEmpty()) {
+            throw new BuildException("\"in\" must be set");
+        }
         if (in != null) {
             if (in.exists()) {
                 if (in.isDirectory()) {
-                    files = in.listFiles(new FilenameFilter() {
-                        @Override
-                        public boolean accept(final File dir, final String name) {
-                            return name.endsWith(extension);
-                        }
-                    });
+                    final List<String> relativePaths = ForkJoinPool.commonPool().invoke(new DirectoryWalker(in, "", recursive, extension));
+                    Collections.sort(relativePaths);
+                    for (final String relativePath : relativePaths) {
+                        files.add(new Input(in, relativePath));
+                    }
                 } else {
-                    files = new File[]{ in };
+                    files.add(new Input(in.getParentFile(), in.getName()));
                 }
             } else {
                 throw new BuildException(format("Cannot find \"{0}\".", in.getAbsolutePath()));
             }
-        } else {
-            throw new BuildException("\"in\" must be set");
+        }
+        for (final FileSet fileSet : fileSets) {
+            final DirectoryScanner scanner = fileSet.getDirectoryScanner(getProject());
+            for (final String relativePath : scanner.getIncludedFiles()) {
+                if (!isPartial(relativePath)) {
+                    files.add(new Input(scanner.getBasedir(), relativePath));
+                }
+            }
         }
         return files;
     }
 
+    /**
+     * Checks whether the given path points to a partial.
+     *
+     * @param path A (relative) path to check.
+     * @return {@code true} if the file name starts with an underscore.
+     */
+    private static boolean isPartial(final String path) {
+        return new File(path).getName().startsWith(PARTIAL_PREFIX);
+    }
+
     /**
      * Takes the options passed in from Ant and sets them on the SassOptions instance.
      *
@@ -258,22 +500,34 @@ public class SassTask extends Task {
         if (isIndentedSyntaxSrc != null) {
             options.setIsIndentedSyntaxSrc(isIndentedSyntaxSrc);
         }
+        if (assetManifest != null) {
+            options.setPostProcessors(new SassUrlRewriter(assetManifest.toPath(), assetBase));
+        }
     }
 
     @Override
     public void execute() throws BuildException {
-        final File[] inputFiles = getInputFiles();
-        for (final File inputFile : inputFiles) {
+        final SassCompileCache cache = cacheDir == null ? null : new SassCompileCache(cacheDir.toPath());
+        final SassCompileProfiler profiler = profileReport == null && slowCompileThreshold <= 0 ? null : new SassCompileProfiler();
+        for (final Input input : getInputFiles()) {
+            final File inputFile = input.getFile();
             if (inputFile.exists()) {
                 if (inputFile.canRead()) {
                     final SassContext context = SassFileContext.create(inputFile.toPath());
                     this.setOptions(context.getOptions());
+                    if (profiler != null) {
+                        profiler.instrument(context);
+                    }
                     try {
-                        try (final OutputStream outputStream = getOutput(inputFile)) {
-                            if (outputStream != null) {
-                                this.log(format("Compiling \"{0}\"...", inputFile.getCanonicalPath()));
-                                context.compile(outputStream);
-                            }
+                        this.log(format("Compiling \"{0}\"...", inputFile.getCanonicalPath()));
+                        final String css = cache == null ? context.compile() : cache.compile(context, SassContext::compile);
+                        if (profiler != null) {
+                            logSlowCompile(profiler, context);
+                        }
+                        if (splitMedia) {
+                            writeSplitOutput(input, SassMediaSplit.split(css, splitMediaMinSize));
+                        } else if (!writeOutput(input, css.getBytes(StandardCharsets.UTF_8))) {
+                            this.log(format("Output is up to date: {0}", getOutputFile(input).getCanonicalPath()), Project.MSG_VERBOSE);
                         }
                     } catch (final SassCompilationException | IOException ex) {
                         throw new BuildException(ex);
@@ -285,6 +539,83 @@ public class SassTask extends Task {
                 throw new BuildException(format("Could not find \"{0}\".", inputFile.getAbsolutePath()));
             }
         }
+        if (profiler != null && profileReport != null) {
+            try {
+                profiler.writeReport(profileReport.toPath());
+                this.log(format("Wrote compile profile to {0}", profileReport.getCanonicalPath()));
+            } catch (final IOException ex) {
+                throw new BuildException(ex);
+            }
+        }
+    }
+
+    /**
+     * A sass file to compile, relative to the directory it has been discovered in.
+     */
+    private static final class Input {
+
+        private final File baseDir;
+        private final String relativePath;
+
+        private Input(final File baseDir, final String relativePath) {
+            this.baseDir = baseDir;
+            this.relativePath = relativePath;
+        }
+
+        private File getFile() {
+            return new File(baseDir, relativePath);
+        }
+
+    }
+
+    /**
+     * Collects all non-partial sass files inside of a directory.
+     * <p>Sub-directories are walked in parallel by forking a new task for each of them. Symbolic links to
+     * directories are not followed, so that a link cycle can't make the walk recurse without bound.</p>
+     */
+    private static final class DirectoryWalker extends RecursiveTask<List<String>> {
+
+        /** @see java.io.Serializable */
+        private static final long serialVersionUID = 1L;
+
+        private final File dir;
+        private final String prefix;
+        private final boolean recursive;
+        private final String extension;
+
+        private DirectoryWalker(final File dir, final String prefix, final boolean recursive, final String extension) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.recursive = recursive;
+            this.extension = extension;
+        }
+
+        @Override
+        protected List<String> compute() {
+            final List<String> result = new ArrayList<>();
+            final File[] children = dir.listFiles();
+            if (children == null) {
+                return result;
+            }
+            final List<DirectoryWalker> subTasks = new ArrayList<>();
+            for (final File child : children) {
+                final String name = child.getName();
+                if (child.isDirectory()) {
+                    if (recursive && !Files.isSymbolicLink(child.toPath())) {
+                        final DirectoryWalker subTask = new DirectoryWalker(child, prefix + name + File.separator, true, extension);
+                        subTask.fork();
+                        subTasks.add(subTask);
+                    }
+                } else if (name.endsWith(extension) && !name.startsWith(PARTIAL_PREFIX)) {
+                    result.add(prefix + name);
+                }
+            }
+            for (final DirectoryWalker subTask : subTasks) {
+                result.addAll(subTask.join());
+            }
+            return result;
+        }
+
     }
 
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link SassPostProcessor} that rewrites {@code url(...)} references to the fingerprinted paths of an
+ * {@link SassAssetManifest}.
+ * <p>References in comments, data URIs, fragments and URLs with a scheme or host are left alone, as are references
+ * to assets that are not in the manifest. Query strings and fragments are preserved. Relative references are
+ * resolved against the directory of the stylesheet (relative to the asset root) and stay relative; absolute
+ * references ({@code /img/logo.png}) are looked up relative to the asset root and stay absolute.</p>
+ */
+public class SassUrlRewriter implements SassPostProcessor {
+
+    /** The manifest to be used. ({@code null} if it is read from {@link #manifestFile} on every compilation) */
+    private final SassAssetManifest manifest;
+
+    /** Manifest file. ({@code null} if the manifest has been given directly) */
+    private final Path manifestFile;
+
+    /** Directory of the stylesheet relative to the asset root, as list of path segments. */
+    private final List<String> stylesheetDirectory;
+
+    /**
+     * Creates a new URL rewriter that uses the given manifest.
+     * @param manifest
+     *     Manifest of all fingerprinted assets.
+     * @param stylesheetDirectory
+     *     Directory that the compiled stylesheet will be served from, relative to the asset root (e.g. {@code css}).
+     *     An empty string denotes the asset root.
+     */
+    public SassUrlRewriter(@Nonnull final SassAssetManifest manifest, @Nonnull final String stylesheetDirectory) {
+        super();
+        this.manifest = Objects.requireNonNull(manifest, "Manifest must not be null!");
+        this.manifestFile = null;
+        this.stylesheetDirectory = segments(stylesheetDirectory);
+    }
+
+    /**
+     * Creates a new URL rewriter that reads the given manifest file. The file is parsed again only if it has been
+     * modified since the last compilation.
+     * @param manifestFile
+     *     Manifest file of all fingerprinted assets. (See {@link SassAssetManifest#load(Path)})
+     * @param stylesheetDirectory
+     *     Directory that the compiled stylesheet will be served from, relative to the asset root (e.g. {@code css}).
+     *     An empty string denotes the asset root.
+     */
+    public SassUrlRewriter(@Nonnull final Path manifestFile, @Nonnull final String stylesheetDirectory) {
+        super();
+        this.manifest = null;
+        this.manifestFile = Objects.requireNonNull(manifestFile, "Manifest file must not be null!");
+        this.stylesheetDirectory = segments(stylesheetDirectory);
+    }
+
+    @Override
+    public void process(@Nonnull final CharSequence css, @Nonnull final SassCssEdits edits) {
+        final SassAssetManifest manifest;
+        try {
+            manifest = this.manifest != null ? this.manifest : SassAssetManifest.load(this.manifestFile);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final int length = css.length();
+        int i = 0;
+        while (i < length) {
+            final char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                i = SassStrings.indexOf(css, "*/", i + 2);
+                i = i < 0 ? length : i + 2;
+            } else if (c == '"' || c == '\'') {
+                i = SassStrings.endOfString(css, i);
+            } else if ((c == 'u' || c == 'U') && isUrlFunction(css, i)) {
+                i = this.rewrite(css, i + 4, manifest, edits);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the argument of a {@code url(} function.
+     * @param start
+     *     Offset after the opening parenthesis.
+     * @return
+     *     The offset to continue scanning at.
+     */
+    private int rewrite(@Nonnull final CharSequence css, final int start, @Nonnull final SassAssetManifest manifest, @Nonnull final SassCssEdits edits) {
+        int i = start;
+        while (i < css.length() && Character.isWhitespace(css.charAt(i))) {
+            i++;
+        }
+        if (i >= css.length()) {
+            return i;
+        }
+        final int valueStart;
+        final int valueEnd;
+        final int next;
+        final boolean quoted = css.charAt(i) == '"' || css.charAt(i) == '\'';
+        if (quoted) {
+            next = SassStrings.endOfString(css, i);
+            valueStart = i + 1;
+            valueEnd = next - 1;
+        } else {
+            final int close = SassStrings.indexOf(css, ")", i);
+            if (close < 0) {
+                return css.length();
+            }
+            int end = close;
+            while (end > i && Character.isWhitespace(css.charAt(end - 1))) {
+                end--;
+            }
+            valueStart = i;
+            valueEnd = end;
+            next = close + 1;
+        }
+        if (valueEnd <= valueStart) {
+            return next;
+        }
+        final String value = css.subSequence(valueStart, valueEnd).toString();
+        if (value.indexOf('\\') >= 0 || value.indexOf('\n') >= 0) {
+            // Escaped URLs are rare enough not to bother.
+            return next;
+        }
+        final String rewritten = this.rewrite(value, manifest);
+        if (rewritten != null) {
+            final boolean needsQuotes = !quoted && (rewritten.indexOf(' ') >= 0 || rewritten.indexOf('(') >= 0 || rewritten.indexOf(')') >= 0
+                    || rewritten.indexOf('"') >= 0 || rewritten.indexOf('\'') >= 0);
+            edits.replace(valueStart, valueEnd, needsQuotes ? '"' + rewritten.replace("\"", "\\\"") + '"' : rewritten);
+        }
+        return next;
+    }
+
+    /**
+     * Rewrites the given URL.
+     * @return
+     *     The fingerprinted URL or {@code null} if the URL shall not be changed.
+     */
+    @Nullable
+    String rewrite(@Nonnull final String url, @Nonnull final SassAssetManifest manifest) {
+        if (url.startsWith("data:") || url.startsWith("#") || url.startsWith("//") || url.contains(":")) {
+            return null;
+        }
+        int suffixStart = url.length();
+        for (final char separator : new char[]{ '?', '#' }) {
+            final int index = url.indexOf(separator);
+            if (index >= 0 && index < suffixStart) {
+                suffixStart = index;
+            }
+        }
+        final String path = url.substring(0, suffixStart);
+        final boolean absolute = path.startsWith("/");
+        final List<String> resolved = new ArrayList<>();
+        if (!absolute) {
+            resolved.addAll(this.stylesheetDirectory);
+        }
+        for (final String segment : path.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                if (resolved.isEmpty()) {
+                    // Outside of the asset root.
+                    return null;
+                }
+                resolved.remove(resolved.size() - 1);
+            } else {
+                resolved.add(segment);
+            }
+        }
+        final String fingerprinted = manifest.get(String.join("/", resolved));
+        if (fingerprinted == null) {
+            return null;
+        }
+        final String target = absolute ? "/" + fingerprinted : relativize(this.stylesheetDirectory, segments(fingerprinted));
+        return target + url.substring(suffixStart);
+    }
+
+    @Nonnull
+    private static String relativize(@Nonnull final List<String> base, @Nonnull final List<String> target) {
+        int common = 0;
+        while (common < base.size() && common < target.size() - 1 && base.get(common).equals(target.get(common))) {
+            common++;
+        }
+        final StringBuilder relative = new StringBuilder();
+        for (int i = common; i < base.size(); i++) {
+            relative.append("../");
+        }
+        return relative.append(String.join("/", target.subList(common, target.size()))).toString();
+    }
+
+    @Nonnull
+    private static List<String> segments(@Nonnull final String path) {
+        final List<String> segments = new ArrayList<>(Arrays.asList(path.replace('\\', '/').split("/")));
+        segments.removeIf(segment -> segment.isEmpty() || ".".equals(segment));
+        return segments;
+    }
+
+    private static boolean isUrlFunction(@Nonnull final CharSequence css, final int i) {
+        if (i + 4 > css.length() || !"url(".equalsIgnoreCase(css.subSequence(i, i + 4).toString())) {
+            return false;
+        }
+        if (i == 0) {
+            return true;
+        }
+        final char previous = css.charAt(i - 1);
+        return !(Character.isLetterOrDigit(previous) || previous == '-' || previous == '_');
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms up the native compile path (JNA linkage, class loading and JIT compilation) by repeatedly
+ * compiling a set of stylesheets.
+ * <p>Warm-up ends as soon as the compile latency has <em>settled</em>, i.e. the median latency of the
+ * last {@link #setWindow(int) window} of iterations differs by no more than the configured
+ * {@link #setTolerance(double) tolerance} from the median of the window before, and the JIT compiler
+ * spent less than 5% of the last window compiling (if the JVM supports compilation time monitoring).
+ * Otherwise it ends after the maximum number of iterations.</p>
+ * @see SassService#setWarmUpIterations(int)
+ */
+public class SassWarmUp implements Runnable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassWarmUp.class.getName());
+
+    /** Maximum share of wall-clock time the JIT may spend compiling during a settled window. */
+    private static final double MAX_JIT_SHARE = 0.05;
+
+    /** Service that performs the compilations. */
+    private final SassService service;
+
+    /** Stylesheets to be compiled. (Empty = built-in synthetic stylesheet) */
+    private final List<Path> entries;
+
+    /** Maximum number of iterations. */
+    private final int maxIterations;
+
+    /** Number of iterations that are compared to each other. */
+    private int window = 10;
+
+    /** Maximum relative difference of the median latencies of two consecutive windows. */
+    private double tolerance = 0.1;
+
+    /** Latency of each iteration in microseconds. */
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+
+    /** Completed as soon as the warm-up has finished. */
+    private final CompletableFuture<Boolean> readiness = new CompletableFuture<>();
+
+    /**
+     * Creates a new warm-up.
+     * @param service
+     *     Service to be warmed up.
+     * @param entries
+     *     Stylesheets to be compiled in each iteration or an empty list to use a built-in synthetic stylesheet.
+     * @param maxIterations
+     *     Maximum number of iterations.
+     */
+    public SassWarmUp(@Nonnull final SassService service, @Nonnull final List<Path> entries, final int maxIterations) {
+        super();
+        this.service = Objects.requireNonNull(service, "Service must not be null!");
+        this.entries = new ArrayList<>(entries);
+        this.maxIterations = maxIterations;
+    }
+
+    public int getWindow() {
+        return this.window;
+    }
+
+    public void setWindow(final int window) {
+        this.window = window;
+    }
+
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    public void setTolerance(final double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public void run() {
+        Path synthetic = null;
+        boolean settled = false;
+        try {
+            final List<Path> entries = new ArrayList<>(this.entries);
+            if (entries.isEmpty()) {
+                synthetic = Files.createTempFile("sass-warm-up", ".scss");
+                Files.write(synthetic, syntheticStylesheet().getBytes(StandardCharsets.UTF_8));
+                entries.add(synthetic);
+            }
+            final CompilationMXBean jit = this.getCompilationMXBean();
+            final boolean jitMonitored = jit != null && jit.isCompilationTimeMonitoringSupported();
+            final long[] jitTimes = new long[this.maxIterations];
+            final long[] wallTimes = new long[this.maxIterations];
+            for (int i = 0; i < this.maxIterations && !settled && !Thread.currentThread().isInterrupted(); i++) {
+                this.latencies.add(this.iterate(entries));
+                wallTimes[i] = System.nanoTime();
+                jitTimes[i] = jitMonitored ? jit.getTotalCompilationTime() : 0L;
+                settled = this.isSettled(i, jitMonitored, wallTimes, jitTimes);
+            }
+            LOGGER.log(Level.INFO, "Sass warm-up finished after {0} iteration(s) ({1}). Latencies in microseconds: {2}",
+                       new Object[]{ this.latencies.size(), settled ? "settled" : "not settled", this.latencies });
+        } catch (final Exception e) {
+            LOGGER.log(Level.WARNING, "Sass warm-up failed.", e);
+        } finally {
+            if (synthetic != null) {
+                try {
+                    Files.deleteIfExists(synthetic);
+                } catch (final Exception e) {
+                    LOGGER.log(Level.FINE, "Could not delete {0}.", synthetic);
+                }
+            }
+            this.readiness.complete(settled);
+        }
+    }
+
+    /**
+     * Returns a future that will be completed as soon as the warm-up has finished.
+     * @return
+     *     A future that will be completed with {@code true} if the latency has settled or with {@code false} if
+     *     the warm-up has been aborted or reached its maximum number of iterations.
+     */
+    @Nonnull
+    public CompletableFuture<Boolean> getReadiness() {
+        return this.readiness;
+    }
+
+    public boolean isFinished() {
+        return this.readiness.isDone();
+    }
+
+    /**
+     * Returns the latency curve of the warm-up.
+     * @return
+     *     The duration of each iteration in microseconds.
+     */
+    @Nonnull
+    public long[] getLatencies() {
+        synchronized (this.latencies) {
+            final long[] latencies = new long[this.latencies.size()];
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = this.latencies.get(i);
+            }
+            return latencies;
+        }
+    }
+
+    /**
+     * Performs a single iteration of the warm-up.
+     * <p>The compile cache of the service is bypassed, as a cache hit would neither warm up the native code path
+     * nor yield a meaningful latency.</p>
+     * @param entries
+     *     Stylesheets to be compiled.
+     * @return
+     *     Latency of the iteration in microseconds.
+     * @throws Exception
+     *     If a stylesheet can't be compiled.
+     */
+    long iterate(@Nonnull final List<Path> entries) throws Exception {
+        final long start = System.nanoTime();
+        for (final Path entry : entries) {
+            final SassContext context = SassFileContext.create(entry);
+            context.setPriority(SassCompilePriority.BATCH);
+            this.service.compileUncached(context);
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the management interface of the JIT compiler.
+     * @return
+     *     The JIT compiler or {@code null} if the JVM doesn't have one.
+     */
+    CompilationMXBean getCompilationMXBean() {
+        return ManagementFactory.getCompilationMXBean();
+    }
+
+    private boolean isSettled(final int iteration, final boolean jitMonitored, final long[] wallTimes, final long[] jitTimes) {
+        final int count = iteration + 1;
+        if (count < 2 * this.window) {
+            return false;
+        }
+        final long[] latencies = this.getLatencies();
+        final long previous = median(Arrays.copyOfRange(latencies, count - 2 * this.window, count - this.window));
+        final long current = median(Arrays.copyOfRange(latencies, count - this.window, count));
+        if (Math.abs(current - previous) > this.tolerance * Math.max(1L, previous)) {
+            return false;
+        }
+        if (jitMonitored) {
+            final int first = count - this.window;
+            final long jitMillis = jitTimes[iteration] - jitTimes[first];
+            final long wallMillis = TimeUnit.NANOSECONDS.toMillis(wallTimes[iteration] - wallTimes[first]);
+            return jitMillis <= MAX_JIT_SHARE * Math.max(1L, wallMillis);
+        }
+        return true;
+    }
+
+    private static long median(@Nonnull final long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Generates a stylesheet that exercises variables, functions, mixins, nesting, control directives
+     * and extends.
+     */
+    @Nonnull
+    static String syntheticStylesheet() {
+        final StringBuilder scss = new StringBuilder();
+        scss.append("$base-color: #336699;\n")
+            .append("$spacing: 4px;\n")
+            .append("@function space($n) { @return $n * $spacing; }\n")
+            .append("@mixin box($color, $n) {\n")
+            .append("  color: $color;\n")
+            .append("  padding: space($n) space($n * 2);\n")
+            .append("  border: 1px solid darken($color, 10%);\n")
+            .append("}\n")
+            .append("%placeholder { margin: 0; }\n");
+        for (int i = 1; i <= 20; i++) {
+            scss.append(".component-").append(i).append(" {\n")
+                .append("  @extend %placeholder;\n")
+                .append("  @include box(lighten($base-color, ").append(i).append("%), ").append(i % 5).append(");\n")
+                .append("  .child { width: percentage(").append(i).append(" / 20); }\n")
+                .append("  &:hover { background: mix($base-color, #fff, ").append(i * 5).append("%); }\n")
+                .append("}\n");
+        }
+        scss.append("@for $i from 1 through 30 { .col-#{$i} { width: (100% / 30) * $i; } }\n")
+            .append("@each $name, $glyph in (add: '+', remove: '-', edit: '*') { .icon-#{$name}:before { content: $glyph; } }\n");
+        return scss.toString();
+    }
+
+}
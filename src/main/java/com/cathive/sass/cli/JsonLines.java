@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes progress events as JSON lines, i.e. one JSON object per line.
+ */
+final class JsonLines {
+
+    private final OutputStream out;
+
+    JsonLines(@Nonnull final OutputStream out) {
+        super();
+        this.out = out;
+    }
+
+    /**
+     * Starts a new event.
+     * @param event
+     *     Name of the event (will be written as property {@code "event"}).
+     * @return
+     *     A map that the properties of the event can be added to.
+     */
+    @Nonnull
+    static Map<String, Object> event(@Nonnull final String event) {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("event", event);
+        return properties;
+    }
+
+    /**
+     * Writes the given event and flushes the underlying stream.
+     * @param properties
+     *     Properties of the event. Values may be strings, numbers, booleans or {@code null}.
+     * @throws IOException
+     *     If writing fails.
+     */
+    synchronized void write(@Nonnull final Map<String, Object> properties) throws IOException {
+        final StringBuilder json = new StringBuilder("{");
+        for (final Map.Entry<String, Object> property : properties.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendString(json, property.getKey());
+            json.append(':');
+            appendValue(json, property.getValue());
+        }
+        json.append("}\n");
+        this.out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        this.out.flush();
+    }
+
+    private static void appendValue(@Nonnull final StringBuilder json, @Nullable final Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendString(json, value.toString());
+        }
+    }
+
+    static void appendString(@Nonnull final StringBuilder json, @Nonnull final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+}
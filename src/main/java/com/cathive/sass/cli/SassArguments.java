@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassOptions;
+import com.cathive.sass.SassOutputStyle;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Parsed command line arguments of {@link com.cathive.sass.SassJ}.
+ * <p>All paths are kept as given and will be resolved against the working directory of the caller, so that
+ * arguments can be parsed in one process and be evaluated in another one.</p>
+ */
+public final class SassArguments {
+
+    /** Input that denotes the standard input. */
+    public static final String STDIN = "-";
+
+    /** All options that require a value. */
+    private static final Set<String> OPTIONS_WITH_VALUE = new HashSet<>(Arrays.asList(
+            "-o", "--output", "-I", "--include-path", "-t", "--style", "-p", "--precision", "-j", "--threads",
+            "--source-map-file", "--source-map-root", "--idle-timeout", "--cache-dir"));
+
+    private final List<String> inputs = new ArrayList<>();
+    private final List<String> includePath = new ArrayList<>();
+    private String outputDirectory;
+    private Integer precision;
+    private SassOutputStyle outputStyle;
+    private boolean sourceComments;
+    private boolean sourceMapEmbed;
+    private boolean sourceMapContents;
+    private boolean omitSourceMapUrl;
+    private boolean indentedSyntax;
+    private String sourceMapFile;
+    private String sourceMapRoot;
+    private int threads;
+    private boolean json;
+    private boolean help;
+    private boolean daemon;
+    private boolean client;
+    private boolean stopDaemon;
+    private Long idleTimeout;
+    private String cacheDirectory;
+
+    /**
+     * Private constructor to avoid instantiation.
+     * @see #parse(String...)
+     */
+    private SassArguments() {
+        super();
+    }
+
+    /**
+     * Parses the given command line arguments.
+     * @param args
+     *     Command line arguments.
+     * @return
+     *     The parsed arguments.
+     * @throws IllegalArgumentException
+     *     If the arguments are invalid.
+     */
+    @Nonnull
+    public static SassArguments parse(@Nonnull final String... args) {
+        final SassArguments arguments = new SassArguments();
+        boolean options = true;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!options || arg.equals(STDIN) || !arg.startsWith("-")) {
+                arguments.inputs.add(arg);
+                continue;
+            }
+            if (arg.equals("--")) {
+                options = false;
+                continue;
+            }
+            String value = null;
+            final int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 0) {
+                value = arg.substring(separator + 1);
+                arg = arg.substring(0, separator);
+            }
+            if (value == null && OPTIONS_WITH_VALUE.contains(arg)) {
+                if (++i >= args.length) {
+                    throw new IllegalArgumentException("Missing value of option " + arg);
+                }
+                value = args[i];
+            }
+            switch (arg) {
+                case "-h":
+                case "--help":
+                    arguments.help = true;
+                    break;
+                case "-o":
+                case "--output":
+                    arguments.outputDirectory = value;
+                    break;
+                case "-I":
+                case "--include-path":
+                    for (final String path : value.split(File.pathSeparator)) {
+                        if (!path.isEmpty()) {
+                            arguments.includePath.add(path);
+                        }
+                    }
+                    break;
+                case "-t":
+                case "--style":
+                    try {
+                        arguments.outputStyle = SassOutputStyle.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (final IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown output style: " + value);
+                    }
+                    break;
+                case "-p":
+                case "--precision":
+                    arguments.precision = intValue(arg, value);
+                    break;
+                case "-j":
+                case "--threads":
+                    arguments.threads = intValue(arg, value);
+                    break;
+                case "--source-comments":
+                    arguments.sourceComments = true;
+                    break;
+                case "--source-map-embed":
+                    arguments.sourceMapEmbed = true;
+                    break;
+                case "--source-map-contents":
+                    arguments.sourceMapContents = true;
+                    break;
+                case "--omit-source-map-url":
+                    arguments.omitSourceMapUrl = true;
+                    break;
+                case "--indented":
+                    arguments.indentedSyntax = true;
+                    break;
+                case "--source-map-file":
+                    arguments.sourceMapFile = value;
+                    break;
+                case "--source-map-root":
+                    arguments.sourceMapRoot = value;
+                    break;
+                case "--cache-dir":
+                    arguments.cacheDirectory = value;
+                    break;
+                case "--json":
+                    arguments.json = true;
+                    break;
+                case "--daemon":
+                    arguments.daemon = true;
+                    break;
+                case "--client":
+                    arguments.client = true;
+                    break;
+                case "--stop-daemon":
+                    arguments.stopDaemon = true;
+                    break;
+                case "--idle-timeout":
+                    arguments.idleTimeout = (long) intValue(arg, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Returns a description of all supported arguments.
+     * @return
+     *     The usage message.
+     */
+    @Nonnull
+    public static String usage() {
+        return "Usage: sassj [options] [input...]\n"
+                + "\n"
+                + "Compiles SCSS files. Inputs may be files or directories (all non-partial .scss files are\n"
+                + "compiled) or \"-\" for the standard input. Without inputs the standard input is read.\n"
+                + "\n"
+                + "  -o, --output <dir>          Output directory. Required for more than one input file.\n"
+                + "                              Without it the CSS is written to the standard output.\n"
+                + "  -I, --include-path <path>   Include path. May be repeated or contain several paths.\n"
+                + "  -t, --style <style>         nested, expanded, compact or compressed.\n"
+                + "  -p, --precision <digits>    Precision of numbers.\n"
+                + "      --source-comments       Emit comments with the line numbers of the sources.\n"
+                + "      --source-map-file <file>\n"
+                + "      --source-map-root <url>\n"
+                + "      --source-map-embed      Embed the source map into the CSS.\n"
+                + "      --source-map-contents   Include the sources into the source map.\n"
+                + "      --omit-source-map-url   Don't emit the source map URL comment.\n"
+                + "      --indented              Treat the input as indented (.sass) syntax.\n"
+                + "  -j, --threads <n>           Number of parallel compilations. (Default: number of CPUs)\n"
+                + "      --cache-dir <dir>       Persistent compile cache, may be shared by several builds.\n"
+                + "      --json                  Report progress as JSON lines on the standard output.\n"
+                + "  -h, --help                  Show this message.\n"
+                + "\n"
+                + "      --client                Compile in a background daemon that keeps the JVM warm between\n"
+                + "                              invocations. The daemon is started if it isn't running.\n"
+                + "      --daemon                Run the daemon in the foreground.\n"
+                + "      --idle-timeout <s>      Seconds after which an idle daemon stops. (Default: 10800)\n"
+                + "      --stop-daemon           Stop the running daemon.\n";
+    }
+
+    /**
+     * Applies all Sass related arguments to the given options.
+     * @param options
+     *     Sass options to be modified.
+     * @param workingDirectory
+     *     Directory that relative paths shall be resolved against.
+     */
+    public void applyTo(@Nonnull final SassOptions options, @Nonnull final Path workingDirectory) {
+        if (this.precision != null) {
+            options.setPrecision(this.precision);
+        }
+        if (this.outputStyle != null) {
+            options.setOutputStyle(this.outputStyle);
+        }
+        if (this.sourceComments) {
+            options.setSourceComments(true);
+        }
+        if (this.sourceMapEmbed) {
+            options.setSourceMapEmbed(true);
+        }
+        if (this.sourceMapContents) {
+            options.setSourceMapContents(true);
+        }
+        if (this.omitSourceMapUrl) {
+            options.setOmitSourceMapUrl(true);
+        }
+        if (this.indentedSyntax) {
+            options.setIsIndentedSyntaxSrc(true);
+        }
+        if (this.sourceMapFile != null) {
+            options.setSourceMapFile(workingDirectory.resolve(this.sourceMapFile));
+        }
+        if (this.sourceMapRoot != null) {
+            options.setSourceMapRoot(this.sourceMapRoot);
+        }
+        if (!this.includePath.isEmpty()) {
+            final List<Path> paths = new ArrayList<>(this.includePath.size());
+            for (final String path : this.includePath) {
+                paths.add(workingDirectory.resolve(path));
+            }
+            options.setIncludePath(paths);
+        }
+    }
+
+    /**
+     * Returns all inputs.
+     * @return
+     *     Paths of input files or directories; {@link #STDIN} denotes the standard input.
+     */
+    @Nonnull
+    public List<String> getInputs() {
+        return Collections.unmodifiableList(this.inputs);
+    }
+
+    @Nonnull
+    public List<String> getIncludePath() {
+        return Collections.unmodifiableList(this.includePath);
+    }
+
+    @Nullable
+    public String getOutputDirectory() {
+        return this.outputDirectory;
+    }
+
+    @Nullable
+    public Integer getPrecision() {
+        return this.precision;
+    }
+
+    @Nullable
+    public SassOutputStyle getOutputStyle() {
+        return this.outputStyle;
+    }
+
+    /**
+     * Returns the number of parallel compilations.
+     * @return
+     *     Number of threads or {@code 0} to use one thread per available processor.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns the directory of the persistent compile cache.
+     * @return
+     *     The (possibly relative) cache directory or {@code null} to compile without a cache.
+     */
+    @Nullable
+    public String getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    public boolean isJson() {
+        return this.json;
+    }
+
+    public boolean isHelp() {
+        return this.help;
+    }
+
+    public boolean isDaemon() {
+        return this.daemon;
+    }
+
+    public boolean isClient() {
+        return this.client;
+    }
+
+    public boolean isStopDaemon() {
+        return this.stopDaemon;
+    }
+
+    /**
+     * Returns the idle time after which a daemon shuts itself down.
+     * @return
+     *     Idle timeout in seconds ({@code 0} = never) or {@code null} to use the default.
+     */
+    @Nullable
+    public Long getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
+    private static int intValue(@Nonnull final String option, @Nonnull final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of option " + option + ": " + value);
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassCompileCache;
+import com.cathive.sass.SassContext;
+import com.cathive.sass.SassDataContext;
+import com.cathive.sass.SassService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles all inputs of a command line in parallel.
+ * <p>A batch is independent of the process it runs in: the working directory and all streams are passed in,
+ * so that one (warm) JVM can run many batches, e.g. for several clients of a daemon.</p>
+ */
+public final class SassBatch {
+
+    /** Exit status: all inputs have been compiled. */
+    public static final int EXIT_OK = 0;
+
+    /** Exit status: at least one input could not be compiled. */
+    public static final int EXIT_FAILED = 1;
+
+    /** Exit status: invalid command line arguments. */
+    public static final int EXIT_USAGE = 2;
+
+    private static final String SCSS_EXTENSION = ".scss";
+    private static final String SASS_EXTENSION = ".sass";
+    private static final String CSS_EXTENSION = ".css";
+
+    /** The service that performs all compilations. */
+    private final SassService service;
+
+    /**
+     * Creates a new batch runner.
+     * @param service
+     *     The service that performs all compilations.
+     */
+    public SassBatch(@Nonnull final SassService service) {
+        super();
+        this.service = Objects.requireNonNull(service, "Service must not be null!");
+    }
+
+    /**
+     * Compiles all inputs of the given arguments.
+     * @param arguments
+     *     Parsed command line arguments.
+     * @param workingDirectory
+     *     Directory that relative paths shall be resolved against.
+     * @param in
+     *     Standard input. (Will only be read if it is one of the inputs.)
+     * @param out
+     *     Standard output, receives the CSS if no output directory has been given and the JSON progress events.
+     * @param err
+     *     Standard error output, receives all error messages.
+     * @return
+     *     The exit status, i.e. {@link #EXIT_OK}, {@link #EXIT_FAILED} or {@link #EXIT_USAGE}.
+     * @throws IOException
+     *     If writing to the given streams fails or if the batch has been interrupted.
+     */
+    public int run(@Nonnull final SassArguments arguments,
+                   @Nonnull final Path workingDirectory,
+                   @Nonnull final InputStream in,
+                   @Nonnull final OutputStream out,
+                   @Nonnull final PrintStream err) throws IOException {
+
+        if (arguments.isHelp()) {
+            err.print(SassArguments.usage());
+            return EXIT_OK;
+        }
+
+        final long start = System.nanoTime();
+        final Path outputDirectory = arguments.getOutputDirectory() == null ? null : workingDirectory.resolve(arguments.getOutputDirectory());
+        final List<Job> jobs = new ArrayList<>();
+        final List<String> inputs = arguments.getInputs().isEmpty() ? Collections.singletonList(SassArguments.STDIN) : arguments.getInputs();
+        for (final String input : inputs) {
+            if (SassArguments.STDIN.equals(input)) {
+                jobs.add(new Job(null, null));
+                continue;
+            }
+            final Path path = workingDirectory.resolve(input).normalize();
+            if (Files.isDirectory(path)) {
+                if (outputDirectory == null) {
+                    err.println("An output directory (-o) is required to compile directory " + input + ".");
+                    return EXIT_USAGE;
+                }
+                try (final Stream<Path> files = Files.walk(path)) {
+                    for (final Path file : files.filter(SassBatch::isEntryFile).sorted().collect(Collectors.toList())) {
+                        jobs.add(new Job(file, outputDirectory.resolve(toCssFileName(path.relativize(file).toString()))));
+                    }
+                }
+            } else if (Files.isRegularFile(path)) {
+                jobs.add(new Job(path, outputDirectory == null ? null : outputDirectory.resolve(toCssFileName(path.getFileName().toString()))));
+            } else {
+                err.println("No such file or directory: " + input);
+                return EXIT_USAGE;
+            }
+        }
+        int stdoutJobs = 0;
+        for (final Job job : jobs) {
+            if (job.outputFile == null) {
+                stdoutJobs++;
+            }
+        }
+        if (stdoutJobs > 1) {
+            err.println("An output directory (-o) is required to compile more than one input.");
+            return EXIT_USAGE;
+        }
+
+        final JsonLines progress = arguments.isJson() ? new JsonLines(out) : null;
+        if (progress != null) {
+            final Map<String, Object> event = JsonLines.event("start");
+            event.put("files", jobs.size());
+            progress.write(event);
+        }
+
+        final SassCompileCache cache = arguments.getCacheDirectory() == null ? null : new SassCompileCache(workingDirectory.resolve(arguments.getCacheDirectory()));
+        final AtomicInteger failedCount = new AtomicInteger();
+        final int threads = Math.max(1, Math.min(arguments.getThreads() > 0 ? arguments.getThreads() : Runtime.getRuntime().availableProcessors(), jobs.size()));
+        if (threads == 1) {
+            for (final Job job : jobs) {
+                this.compile(job, arguments, workingDirectory, cache, in, out, err, progress, failedCount);
+            }
+        } else {
+            final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "sassj-compile");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                final List<Future<Void>> futures = new ArrayList<>(jobs.size());
+                for (final Job job : jobs) {
+                    futures.add(pool.submit(() -> {
+                        this.compile(job, arguments, workingDirectory, cache, in, out, err, progress, failedCount);
+                        return null;
+                    }));
+                }
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compiling.");
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        if (progress != null) {
+            final Map<String, Object> event = JsonLines.event("done");
+            event.put("compiled", jobs.size() - failedCount.get());
+            event.put("failed", failedCount.get());
+            event.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            progress.write(event);
+        }
+        out.flush();
+        return failedCount.get() == 0 ? EXIT_OK : EXIT_FAILED;
+
+    }
+
+    /**
+     * Compiles a single input. Compilation failures are reported, but not thrown.
+     * @throws IOException
+     *     If writing to the standard output or error stream fails.
+     */
+    private void compile(@Nonnull final Job job,
+                         @Nonnull final SassArguments arguments,
+                         @Nonnull final Path workingDirectory,
+                         @Nullable final SassCompileCache cache,
+                         @Nonnull final InputStream in,
+                         @Nonnull final OutputStream out,
+                         @Nonnull final PrintStream err,
+                         @Nullable final JsonLines progress,
+                         @Nonnull final AtomicInteger failedCount) throws IOException {
+        final long start = System.nanoTime();
+        final String input = job.inputFile == null ? SassArguments.STDIN : workingDirectory.relativize(job.inputFile).toString();
+        final byte[] css;
+        try {
+            final SassContext context = job.inputFile == null ? SassDataContext.create(in) : this.service.createContext(job.inputFile);
+            arguments.applyTo(context.getOptions(), workingDirectory);
+            if (job.outputFile != null) {
+                context.getOptions().setOutputPath(job.outputFile);
+            }
+            css = (cache == null ? this.service.compile(context) : cache.compile(context, this.service::compile)).getBytes(StandardCharsets.UTF_8);
+            if (job.outputFile != null) {
+                Files.createDirectories(job.outputFile.getParent());
+                Files.write(job.outputFile, css);
+            }
+        } catch (final SassCompilationException e) {
+            failedCount.incrementAndGet();
+            if (progress != null) {
+                final Map<String, Object> event = JsonLines.event("failed");
+                event.put("input", input);
+                event.put("message", e.getErrorMessage());
+                event.put("file", e.getFileName());
+                event.put("line", e.getLine());
+                event.put("column", e.getColumn());
+                progress.write(event);
+            } else {
+                err.println(e.getMessage());
+            }
+            return;
+        } catch (final IOException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            if (progress != null) {
+                final Map<String, Object> event = JsonLines.event("failed");
+                event.put("input", input);
+                event.put("message", String.valueOf(e.getMessage()));
+                progress.write(event);
+            } else {
+                err.println(input + ": " + e);
+            }
+            return;
+        }
+        if (progress != null) {
+            final Map<String, Object> event = JsonLines.event("compiled");
+            event.put("input", input);
+            if (job.outputFile != null) {
+                event.put("output", workingDirectory.relativize(job.outputFile).toString());
+            } else {
+                event.put("css", new String(css, StandardCharsets.UTF_8));
+            }
+            event.put("bytes", css.length);
+            event.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            progress.write(event);
+        } else if (job.outputFile == null) {
+            out.write(css);
+        }
+    }
+
+    /**
+     * Checks whether the given file is a non-partial Sass file.
+     */
+    private static boolean isEntryFile(@Nonnull final Path file) {
+        final String fileName = file.getFileName().toString();
+        return Files.isRegularFile(file) && !fileName.startsWith("_")
+                && (fileName.endsWith(SCSS_EXTENSION) || fileName.endsWith(SASS_EXTENSION));
+    }
+
+    /**
+     * Replaces the extension of the given file name by {@code .css}.
+     */
+    @Nonnull
+    static String toCssFileName(@Nonnull final String fileName) {
+        final int dot = fileName.lastIndexOf('.');
+        final int separator = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        return (dot > separator ? fileName.substring(0, dot) : fileName) + CSS_EXTENSION;
+    }
+
+    /**
+     * A single input.
+     */
+    private static final class Job {
+
+        /** Input file or {@code null} for the standard input. */
+        private final Path inputFile;
+
+        /** Output file or {@code null} for the standard output. */
+        private final Path outputFile;
+
+        private Job(@Nullable final Path inputFile, @Nullable final Path outputFile) {
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+        }
+
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassService;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.cathive.sass.cli.SassDaemonProtocol.*;
+
+/**
+ * A long-running compile server that keeps the JVM, the JIT state and all caches warm between invocations
+ * of the command line client.
+ * <p>The daemon listens on a Unix-domain socket (Java 16+) or on a loopback TCP port and publishes its endpoint
+ * together with a random token in its directory (by default {@code ~/.sassj}). Each request is executed as a
+ * {@link SassBatch} with the working directory, arguments and standard input of the client; the standard output
+ * and error streams are streamed back. The daemon shuts itself down after it has been idle for a while.</p>
+ * @see SassDaemonClient
+ */
+public final class SassDaemon implements Closeable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassDaemon.class.getName());
+
+    /** Name of the system property that overrides the default directory. */
+    public static final String DIRECTORY_PROPERTY = "com.cathive.sass.daemon.dir";
+
+    /** Default idle time after which a daemon shuts itself down. */
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.HOURS.toMillis(3);
+
+    private final SassBatch batch;
+    private final Path directory;
+    private final long idleTimeout;
+    private final String token;
+
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "sassj-daemon-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "sassj-daemon-idle");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private volatile long lastActivity = System.nanoTime();
+
+    private ServerSocketChannel server;
+    private String transport;
+
+    /**
+     * Creates a new daemon.
+     * @param service
+     *     The service that performs all compilations.
+     * @param directory
+     *     Directory that the endpoint (and socket) will be published in.
+     * @param idleTimeout
+     *     Idle time in milliseconds after which the daemon shuts itself down. ({@code 0} = never)
+     */
+    public SassDaemon(@Nonnull final SassService service, @Nonnull final Path directory, final long idleTimeout) {
+        super();
+        this.batch = new SassBatch(service);
+        this.directory = directory;
+        this.idleTimeout = idleTimeout;
+        final byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        final StringBuilder token = new StringBuilder();
+        for (final byte b : secret) {
+            token.append(String.format("%02x", b));
+        }
+        this.token = token.toString();
+    }
+
+    /**
+     * Returns the directory that daemons use by default.
+     * @return
+     *     The value of the system property {@value #DIRECTORY_PROPERTY} or {@code ~/.sassj}.
+     */
+    @Nonnull
+    public static Path defaultDirectory() {
+        final String directory = System.getProperty(DIRECTORY_PROPERTY);
+        return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".sassj");
+    }
+
+    /**
+     * Binds the socket, publishes the endpoint and starts accepting connections.
+     * @throws IOException
+     *     If the socket can't be bound or the endpoint can't be published.
+     * @throws IllegalStateException
+     *     If another daemon is already listening in the same directory.
+     */
+    public synchronized void start() throws IOException {
+        Files.createDirectories(this.directory);
+        final Properties existing = readEndpoint(this.directory);
+        if (existing != null) {
+            try (final SocketChannel ignored = connect(existing)) {
+                throw new IllegalStateException("A daemon is already running in " + this.directory + ".");
+            } catch (final IOException e) {
+                // Stale endpoint, the daemon has gone away.
+            }
+        }
+        this.transport = isUnixDomainSocketSupported() ? TRANSPORT_UNIX : TRANSPORT_TCP;
+        final Path socketFile = this.directory.resolve(SOCKET_FILE);
+        this.server = openServer(this.transport, socketFile);
+        final String address = TRANSPORT_UNIX.equals(this.transport)
+                ? socketFile.toAbsolutePath().toString()
+                : String.valueOf(this.server.socket().getLocalPort());
+        writeEndpoint(this.directory, this.transport, address, this.token, ManagementFactory.getRuntimeMXBean().getName());
+
+        final Thread acceptor = new Thread(this::accept, "sassj-daemon");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        if (this.idleTimeout > 0) {
+            final long period = Math.max(1L, Math.min(this.idleTimeout / 4, TimeUnit.MINUTES.toMillis(1)));
+            this.timer.scheduleWithFixedDelay(this::checkIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+        LOGGER.log(Level.INFO, "Sass daemon listening on {0} ({1}).", new Object[]{ address, this.transport });
+    }
+
+    /**
+     * Waits until this daemon has been stopped, either by a client, by idling or by {@link #close()}.
+     * @throws InterruptedException
+     *     If the current thread has been interrupted while waiting.
+     */
+    public void awaitTermination() throws InterruptedException {
+        this.terminated.await();
+    }
+
+    /**
+     * Returns the transport that this daemon listens on.
+     * @return
+     *     {@code unix} or {@code tcp}, {@code null} if the daemon has not been started.
+     */
+    public synchronized String getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Stops accepting connections and removes the published endpoint.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.terminated.getCount() == 0) {
+            return;
+        }
+        try {
+            if (this.server != null) {
+                this.server.close();
+            }
+            final Properties endpoint = readEndpoint(this.directory);
+            if (endpoint != null && this.token.equals(getToken(endpoint))) {
+                Files.deleteIfExists(this.directory.resolve(ENDPOINT_FILE));
+                if (TRANSPORT_UNIX.equals(this.transport)) {
+                    Files.deleteIfExists(this.directory.resolve(SOCKET_FILE));
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, "Could not remove the daemon endpoint.", e);
+        } finally {
+            this.timer.shutdownNow();
+            this.connections.shutdown();
+            this.terminated.countDown();
+        }
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                final SocketChannel channel = this.server.accept();
+                this.activeCount.incrementAndGet();
+                this.connections.execute(() -> {
+                    try {
+                        this.handle(channel);
+                    } catch (final IOException e) {
+                        LOGGER.log(Level.FINE, "Request failed.", e);
+                    } finally {
+                        this.lastActivity = System.nanoTime();
+                        this.activeCount.decrementAndGet();
+                        try {
+                            channel.close();
+                        } catch (final IOException e) {
+                            // Ignore...
+                        }
+                    }
+                });
+            }
+        } catch (final ClosedChannelException e) {
+            // The daemon has been stopped.
+        } catch (final IOException e) {
+            LOGGER.log(Level.SEVERE, "Sass daemon stopped accepting connections.", e);
+            this.close();
+        }
+    }
+
+    private void handle(@Nonnull final SocketChannel channel) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported protocol.");
+        }
+        final String clientToken = readString(in, MAX_TOKEN_LENGTH);
+        if (clientToken == null || !MessageDigest.isEqual(clientToken.getBytes(StandardCharsets.UTF_8), this.token.getBytes(StandardCharsets.UTF_8))) {
+            throw new IOException("Invalid token.");
+        }
+        final byte request = in.readByte();
+        switch (request) {
+            case REQUEST_STOP:
+                out.writeByte(FRAME_EXIT);
+                out.writeInt(SassBatch.EXIT_OK);
+                out.flush();
+                LOGGER.log(Level.INFO, "Sass daemon stopped by client.");
+                this.close();
+                break;
+            case REQUEST_COMPILE:
+                this.compile(in, out);
+                break;
+            default:
+                throw new IOException("Unknown request: " + request);
+        }
+    }
+
+    private void compile(@Nonnull final DataInputStream in, @Nonnull final DataOutputStream out) throws IOException {
+        final String workingDirectory = readString(in, MAX_ARGUMENT_LENGTH);
+        if (workingDirectory == null) {
+            throw new IOException("Missing working directory.");
+        }
+        final int argumentCount = in.readInt();
+        if (argumentCount < 0 || argumentCount > MAX_ARGUMENT_COUNT) {
+            throw new IOException("Invalid number of arguments: " + argumentCount);
+        }
+        final String[] args = new String[argumentCount];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in, MAX_ARGUMENT_LENGTH);
+        }
+        final byte[] stdin = readBytes(in, MAX_STDIN_LENGTH);
+
+        final BufferedOutputStream stdout = new BufferedOutputStream(new FrameOutputStream(out, FRAME_OUT), 8192);
+        final PrintStream stderr = new PrintStream(new FrameOutputStream(out, FRAME_ERR), true, "UTF-8");
+        int status;
+        try {
+            status = this.batch.run(SassArguments.parse(args), Paths.get(workingDirectory),
+                                    new ByteArrayInputStream(stdin == null ? new byte[0] : stdin), stdout, stderr);
+        } catch (final IllegalArgumentException e) {
+            stderr.println(e.getMessage());
+            stderr.print(SassArguments.usage());
+            status = SassBatch.EXIT_USAGE;
+        } catch (final RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Request failed.", e);
+            stderr.println(e);
+            status = SassBatch.EXIT_FAILED;
+        }
+        stdout.flush();
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    private void checkIdle() {
+        if (this.activeCount.get() == 0
+                && System.nanoTime() - this.lastActivity > TimeUnit.MILLISECONDS.toNanos(this.idleTimeout)) {
+            LOGGER.log(Level.INFO, "Sass daemon has been idle for {0} ms, shutting down.", this.idleTimeout);
+            this.close();
+        }
+    }
+
+}
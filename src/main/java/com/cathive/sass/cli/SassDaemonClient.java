@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassJ;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static com.cathive.sass.cli.SassDaemonProtocol.*;
+
+/**
+ * A thin client that forwards a command line to a {@link SassDaemon} and streams back its output.
+ * <p>If no daemon is running, one is started in the background with the class path of the client.</p>
+ */
+public final class SassDaemonClient {
+
+    /** Maximum time to wait for a newly started daemon. */
+    private static final long STARTUP_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /** Name of the log file of daemons that have been started by a client. */
+    private static final String LOG_FILE = "daemon.log";
+
+    private final Path directory;
+
+    /**
+     * Creates a new client.
+     * @param directory
+     *     Directory that the daemon publishes its endpoint in.
+     */
+    public SassDaemonClient(@Nonnull final Path directory) {
+        super();
+        this.directory = directory;
+    }
+
+    /**
+     * Runs the given command line in the daemon, starting the daemon if necessary.
+     * @param args
+     *     Command line arguments.
+     * @param workingDirectory
+     *     Directory that relative paths shall be resolved against.
+     * @param in
+     *     Standard input. (Will only be read if it is one of the inputs.)
+     * @param out
+     *     Receives the standard output of the batch.
+     * @param err
+     *     Receives the standard error output of the batch.
+     * @return
+     *     The exit status of the batch.
+     * @throws IOException
+     *     If communication with the daemon fails.
+     */
+    public int compile(@Nonnull final String[] args,
+                       @Nonnull final Path workingDirectory,
+                       @Nonnull final InputStream in,
+                       @Nonnull final OutputStream out,
+                       @Nonnull final PrintStream err) throws IOException {
+        final SassArguments arguments = SassArguments.parse(args);
+        final List<String> forwarded = new ArrayList<>();
+        for (final String arg : args) {
+            if (!arg.equals("--client")) {
+                forwarded.add(arg);
+            }
+        }
+        final byte[] stdin = !arguments.isHelp() && (arguments.getInputs().isEmpty() || arguments.getInputs().contains(SassArguments.STDIN))
+                ? ByteStreams.toByteArray(in)
+                : null;
+        final Properties endpoint = this.ensureDaemon(arguments.getIdleTimeout());
+        try (final SocketChannel channel = connect(endpoint)) {
+            final DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            writeHeader(request, endpoint, REQUEST_COMPILE);
+            writeString(request, workingDirectory.toAbsolutePath().toString());
+            request.writeInt(forwarded.size());
+            for (final String arg : forwarded) {
+                writeString(request, arg);
+            }
+            writeBytes(request, stdin);
+            request.flush();
+            return readResponse(channel, out, err);
+        }
+    }
+
+    /**
+     * Stops the daemon (if it is running).
+     * @return
+     *     {@code true} if a daemon has been stopped.
+     * @throws IOException
+     *     If communication with the daemon fails.
+     */
+    public boolean stop() throws IOException {
+        final Properties endpoint = readEndpoint(this.directory);
+        if (endpoint == null) {
+            return false;
+        }
+        final SocketChannel channel;
+        try {
+            channel = connect(endpoint);
+        } catch (final IOException e) {
+            return false;
+        }
+        try {
+            final DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            writeHeader(request, endpoint, REQUEST_STOP);
+            request.flush();
+            readResponse(channel, ByteStreams.nullOutputStream(), System.err);
+            return true;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the endpoint of a running daemon, starting a new daemon if necessary.
+     */
+    @Nonnull
+    private Properties ensureDaemon(@Nullable final Long idleTimeout) throws IOException {
+        final Properties endpoint = this.tryEndpoint();
+        if (endpoint != null) {
+            return endpoint;
+        }
+        Files.createDirectories(this.directory);
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-D" + SassDaemon.DIRECTORY_PROPERTY + "=" + this.directory.toAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SassJ.class.getName());
+        command.add("--daemon");
+        if (idleTimeout != null) {
+            command.add("--idle-timeout=" + idleTimeout);
+        }
+        final File log = this.directory.resolve(LOG_FILE).toFile();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        process.getOutputStream().close();
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STARTUP_TIMEOUT);
+        while (System.nanoTime() < deadline) {
+            final Properties started = this.tryEndpoint();
+            if (started != null) {
+                return started;
+            }
+            if (!process.isAlive()) {
+                throw new IOException("The daemon could not be started, see " + log + ".");
+            }
+            try {
+                Thread.sleep(50L);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the daemon.");
+            }
+        }
+        throw new IOException("The daemon did not start within " + STARTUP_TIMEOUT + " ms, see " + log + ".");
+    }
+
+    /**
+     * Returns the endpoint of the daemon if it accepts connections.
+     */
+    @Nullable
+    private Properties tryEndpoint() throws IOException {
+        final Properties endpoint = readEndpoint(this.directory);
+        if (endpoint == null) {
+            return null;
+        }
+        try (final SocketChannel ignored = connect(endpoint)) {
+            return endpoint;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeHeader(@Nonnull final DataOutputStream request, @Nonnull final Properties endpoint, final byte type) throws IOException {
+        request.writeInt(MAGIC);
+        request.writeInt(VERSION);
+        writeString(request, getToken(endpoint));
+        request.writeByte(type);
+    }
+
+    private static int readResponse(@Nonnull final SocketChannel channel, @Nonnull final OutputStream out, @Nonnull final PrintStream err) throws IOException {
+        final DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        while (true) {
+            final byte frame;
+            try {
+                frame = response.readByte();
+            } catch (final EOFException e) {
+                throw new IOException("The daemon closed the connection unexpectedly.");
+            }
+            switch (frame) {
+                case FRAME_OUT:
+                    out.write(readBytes(response));
+                    break;
+                case FRAME_ERR:
+                    err.write(readBytes(response));
+                    break;
+                case FRAME_EXIT:
+                    out.flush();
+                    err.flush();
+                    return response.readInt();
+                default:
+                    throw new IOException("Unknown frame: " + frame);
+            }
+        }
+    }
+
+}
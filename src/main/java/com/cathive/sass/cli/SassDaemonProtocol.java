@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+
+/**
+ * Constants and helpers of the binary protocol that is spoken between a {@link SassDaemonClient} and a
+ * {@link SassDaemon}.
+ * <p>Every connection carries exactly one request: magic number, protocol version (ints), token (string)
+ * and request type (byte), followed by a type specific payload:</p>
+ * <ul>
+ *     <li>{@code COMPILE}: working directory (string), arguments (int count, strings), standard input (bytes)</li>
+ *     <li>{@code STOP}: no payload</li>
+ * </ul>
+ * <p>The daemon rejects requests whose token, arguments or standard input exceed the {@code MAX_*} limits before
+ * allocating buffers for them.</p>
+ * <p>The daemon answers with a sequence of frames: {@code OUT} and {@code ERR} frames (bytes) carry the
+ * standard output and error streams, a final {@code EXIT} frame carries the exit status (int).</p>
+ * <p>The daemon publishes its endpoint in the file {@value #ENDPOINT_FILE} of its directory. On Java 16 and later
+ * a Unix-domain socket is used, on older versions a TCP socket that is bound to the loopback address.</p>
+ */
+final class SassDaemonProtocol {
+
+    /** Written by a client at the start of each request. */
+    static final int MAGIC = 0x53415344;
+
+    static final int VERSION = 1;
+
+    static final byte REQUEST_COMPILE = 1;
+    static final byte REQUEST_STOP = 2;
+
+    /** Maximum length (in bytes) of the token, which is read before the client has been authenticated. */
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    /** Maximum length (in bytes) of the working directory and of each argument. */
+    static final int MAX_ARGUMENT_LENGTH = 64 * 1024;
+
+    /** Maximum number of arguments of a compile request. */
+    static final int MAX_ARGUMENT_COUNT = 4096;
+
+    /** Maximum length (in bytes) of the standard input of a compile request. */
+    static final int MAX_STDIN_LENGTH = 64 * 1024 * 1024;
+
+    static final byte FRAME_OUT = 1;
+    static final byte FRAME_ERR = 2;
+    static final byte FRAME_EXIT = 3;
+
+    /** Name of the file that describes the endpoint of a running daemon. */
+    static final String ENDPOINT_FILE = "daemon.properties";
+
+    /** Name of the Unix-domain socket file. */
+    static final String SOCKET_FILE = "daemon.sock";
+
+    static final String TRANSPORT_UNIX = "unix";
+    static final String TRANSPORT_TCP = "tcp";
+
+    private static final String PROPERTY_TRANSPORT = "transport";
+    private static final String PROPERTY_ADDRESS = "address";
+    private static final String PROPERTY_TOKEN = "token";
+    private static final String PROPERTY_PROCESS = "process";
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassDaemonProtocol() {
+        super();
+    }
+
+    /**
+     * Checks whether Unix-domain sockets are supported by this Java runtime.
+     * @return
+     *     {@code true} on Java 16 and later.
+     */
+    static boolean isUnixDomainSocketSupported() {
+        try {
+            Class.forName("java.net.UnixDomainSocketAddress");
+            return unixProtocolFamily() != null;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a server socket that accepts connections on the given endpoint.
+     * @param transport
+     *     {@link #TRANSPORT_UNIX} or {@link #TRANSPORT_TCP}.
+     * @param socketFile
+     *     Path of the socket file. (Unix-domain sockets only)
+     * @return
+     *     A bound server socket channel.
+     * @throws IOException
+     *     If the socket can't be opened.
+     */
+    @Nonnull
+    static ServerSocketChannel openServer(@Nonnull final String transport, @Nonnull final Path socketFile) throws IOException {
+        if (TRANSPORT_UNIX.equals(transport)) {
+            Files.deleteIfExists(socketFile);
+            final ServerSocketChannel server = (ServerSocketChannel) open(ServerSocketChannel.class, unixProtocolFamily());
+            server.bind(unixAddress(socketFile));
+            return server;
+        }
+        return ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Connects to the given endpoint.
+     * @param endpoint
+     *     Endpoint of a daemon as read by {@link #readEndpoint(Path)}.
+     * @return
+     *     A connected socket channel.
+     * @throws IOException
+     *     If no daemon is listening at the given endpoint.
+     */
+    @Nonnull
+    static SocketChannel connect(@Nonnull final Properties endpoint) throws IOException {
+        final String address = endpoint.getProperty(PROPERTY_ADDRESS);
+        if (TRANSPORT_UNIX.equals(endpoint.getProperty(PROPERTY_TRANSPORT))) {
+            if (!isUnixDomainSocketSupported()) {
+                throw new IOException("Unix-domain sockets are not supported by this Java runtime.");
+            }
+            final SocketChannel channel = (SocketChannel) open(SocketChannel.class, unixProtocolFamily());
+            try {
+                channel.connect(unixAddress(Paths.get(address)));
+            } catch (final IOException e) {
+                channel.close();
+                throw e;
+            }
+            return channel;
+        }
+        return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+    }
+
+    /**
+     * Publishes the endpoint of a daemon. The file will only be readable by its owner (if supported).
+     * @param directory
+     *     Directory of the daemon.
+     * @param transport
+     *     {@link #TRANSPORT_UNIX} or {@link #TRANSPORT_TCP}.
+     * @param address
+     *     Path of the socket file or TCP port.
+     * @param token
+     *     Secret that has to be sent by all clients.
+     * @param process
+     *     Description of the daemon process.
+     * @throws IOException
+     *     If the file can't be written.
+     */
+    static void writeEndpoint(@Nonnull final Path directory,
+                              @Nonnull final String transport,
+                              @Nonnull final String address,
+                              @Nonnull final String token,
+                              @Nonnull final String process) throws IOException {
+        final Properties endpoint = new Properties();
+        endpoint.setProperty(PROPERTY_TRANSPORT, transport);
+        endpoint.setProperty(PROPERTY_ADDRESS, address);
+        endpoint.setProperty(PROPERTY_TOKEN, token);
+        endpoint.setProperty(PROPERTY_PROCESS, process);
+        final Path temp = Files.createTempFile(directory, ENDPOINT_FILE, ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (final UnsupportedOperationException e) {
+                // Not a POSIX file system.
+            }
+            try (final OutputStream out = Files.newOutputStream(temp)) {
+                endpoint.store(out, "libsass for Java daemon");
+            }
+            try {
+                Files.move(temp, directory.resolve(ENDPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(ENDPOINT_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads the endpoint of a daemon.
+     * @param directory
+     *     Directory of the daemon.
+     * @return
+     *     The endpoint or {@code null} if no daemon has published one.
+     * @throws IOException
+     *     If the file can't be read.
+     */
+    @Nullable
+    static Properties readEndpoint(@Nonnull final Path directory) throws IOException {
+        final Path file = directory.resolve(ENDPOINT_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        final Properties endpoint = new Properties();
+        try (final InputStream in = Files.newInputStream(file)) {
+            endpoint.load(in);
+        }
+        return endpoint.getProperty(PROPERTY_ADDRESS) == null ? null : endpoint;
+    }
+
+    @Nonnull
+    static String getToken(@Nonnull final Properties endpoint) {
+        return endpoint.getProperty(PROPERTY_TOKEN, "");
+    }
+
+    static void writeBytes(@Nonnull final DataOutput out, @Nullable final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    static byte[] readBytes(@Nonnull final DataInput in) throws IOException {
+        return readBytes(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a byte array that must not exceed the given length.
+     * @param in
+     *     Data input to be read from.
+     * @param maxLength
+     *     Maximum length of the byte array.
+     * @return
+     *     The byte array or {@code null}.
+     * @throws IOException
+     *     If reading fails or if the byte array is too long. Nothing has been allocated in the latter case.
+     */
+    @Nullable
+    static byte[] readBytes(@Nonnull final DataInput in, final int maxLength) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > maxLength) {
+            throw new IOException("Frame of " + length + " bytes exceeds the limit of " + maxLength + " bytes.");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(@Nonnull final DataOutput out, @Nullable final String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    static String readString(@Nonnull final DataInput in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    @Nullable
+    static String readString(@Nonnull final DataInput in, final int maxLength) throws IOException {
+        final byte[] bytes = readBytes(in, maxLength);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private static ProtocolFamily unixProtocolFamily() {
+        for (final StandardProtocolFamily family : StandardProtocolFamily.values()) {
+            if (family.name().equals("UNIX")) {
+                return family;
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    private static SocketAddress unixAddress(@Nonnull final Path socketFile) throws IOException {
+        try {
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class)
+                    .invoke(null, socketFile);
+        } catch (final ReflectiveOperationException e) {
+            throw new IOException("Unix-domain sockets are not supported by this Java runtime.", e);
+        }
+    }
+
+    /**
+     * Invokes the static {@code open(ProtocolFamily)} method (Java 15+) of the given channel class.
+     */
+    @Nonnull
+    private static Object open(@Nonnull final Class<?> channelClass, @Nullable final ProtocolFamily family) throws IOException {
+        try {
+            return channelClass.getMethod("open", ProtocolFamily.class).invoke(null, family);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (final ReflectiveOperationException e) {
+            throw new IOException("Unix-domain sockets are not supported by this Java runtime.", e);
+        }
+    }
+
+    /**
+     * Writes everything that is written to it as frames of a single type.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(@Nonnull final DataOutputStream out, final byte type) {
+            super();
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.write(new byte[]{ (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (this.out) {
+                this.out.writeByte(this.type);
+                this.out.writeInt(len);
+                this.out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (this.out) {
+                this.out.flush();
+            }
+        }
+
+    }
+
+}
@@ -16,9 +16,16 @@
 
 package com.cathive.sass.management;
 
+import com.cathive.sass.SassAdmissionStatistics;
+import com.cathive.sass.SassCompileSummary;
 import com.cathive.sass.SassContext;
 import com.cathive.sass.SassFileContext;
+import com.cathive.sass.SassFiles;
+import com.cathive.sass.SassNativeMemory;
+import com.cathive.sass.SassNativeMemoryUsage;
 import com.cathive.sass.SassOptions;
+import com.cathive.sass.SassOptionsSnapshot;
+import com.cathive.sass.SassService;
 import com.cathive.sass.jna.SassLibrary;
 
 import javax.annotation.Nonnull;
@@ -26,7 +33,10 @@ import javax.annotation.Nullable;
 import javax.management.*;
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * @author Benjamin P. Jung
@@ -37,11 +47,17 @@ public class SassCompiler implements SassCompilerMXBean,
     /** Desired MBean object name. */
     public static final String OBJECT_NAME  = "com.cathive.sass:type=SassCompiler";
 
+    /** The service that performs all compilations. */
+    private final SassService service;
+
     /**
      * Private constructor to avoid instantiation.
+     * @param service
+     *     The service that performs all compilations.
      */
-    private SassCompiler() {
+    private SassCompiler(@Nonnull final SassService service) {
         super();
+        this.service = Objects.requireNonNull(service, "Service must not be null!");
     }
 
     @Override
@@ -84,12 +100,78 @@ public class SassCompiler implements SassCompilerMXBean,
             options.setIncludePath(includePath);
         }
 
-        final ByteArrayOutputStream stringOutput = new ByteArrayOutputStream(1024);
-        context.compile(outputPath == null ? stringOutput
-                                           : new TeeOutputStream(new FileOutputStream(outputPath), stringOutput));
+        final String output = this.service.compile(context);
+        if (outputPath != null) {
+            SassFiles.write(Paths.get(outputPath), output.getBytes(StandardCharsets.UTF_8));
+        }
+        return output;
+
+    }
+
+    @Override
+    public SassCompileSummary compileDirectory(@Nonnull final String inputPath, @Nonnull final String outputPath, @Nullable final String[] includePath, final int threads) throws IOException {
+        final SassOptionsSnapshot options = includePath == null ? null : SassOptionsSnapshot.defaults().withIncludePath(Arrays.asList(includePath));
+        return this.service.compileDirectory(Paths.get(inputPath), Paths.get(outputPath), options, threads);
+    }
+
+    @Override
+    public long getCompileTimeout() {
+        return this.service.getCompileTimeout();
+    }
+
+    @Override
+    public void setCompileTimeout(final long compileTimeout) {
+        this.service.setCompileTimeout(compileTimeout);
+    }
+
+    @Override
+    public long getTimedOutCompileCount() {
+        return this.service.getTimedOutCompileCount();
+    }
+
+    @Override
+    public long getRunawayCompileCount() {
+        return this.service.getRunawayCompileCount();
+    }
+
+    @Override
+    public long getCoalescedCompileCount() {
+        return this.service.getCoalescedCompileCount();
+    }
+
+    @Override
+    public int getInFlightCompileCount() {
+        return this.service.getInFlightCompileCount();
+    }
+
+    @Override
+    public int getMaxConcurrentCompiles() {
+        return this.service.getMaxConcurrentCompiles();
+    }
+
+    @Override
+    public void setMaxConcurrentCompiles(final int maxConcurrentCompiles) {
+        this.service.setMaxConcurrentCompiles(maxConcurrentCompiles);
+    }
+
+    @Override
+    public SassAdmissionStatistics getAdmissionStatistics() {
+        return this.service.getAdmissionStatistics();
+    }
 
-        return stringOutput.toString("UTF-8");
+    @Override
+    public boolean isReady() {
+        return this.service.isReady();
+    }
 
+    @Override
+    public long[] getWarmUpLatencies() {
+        return this.service.getWarmUpLatencies();
+    }
+
+    @Override
+    public SassNativeMemoryUsage getNativeMemoryUsage() {
+        return SassNativeMemory.getUsage();
     }
 
     /**
@@ -100,9 +182,22 @@ public class SassCompiler implements SassCompilerMXBean,
      *     If anything goes wrong during registration.
      */
     public static ObjectInstance registerMBean() throws Exception {
+        return registerMBean(new SassService());
+    }
+
+    /**
+     * Registers a SassCompiler MBean that delegates to the given service with the platform MBean server.
+     * @param service
+     *     The service that shall perform all compilations.
+     * @return
+     *     The registered object instance.
+     * @throws Exception
+     *     If anything goes wrong during registration.
+     */
+    public static ObjectInstance registerMBean(@Nonnull final SassService service) throws Exception {
         final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
         final ObjectName mbeanName = new ObjectName(OBJECT_NAME);
-        return server.registerMBean(new SassCompiler(), mbeanName);
+        return server.registerMBean(new SassCompiler(service), mbeanName);
     }
 
     /**
@@ -115,43 +210,4 @@ public class SassCompiler implements SassCompilerMXBean,
         server.unregisterMBean(ObjectName.getInstance(OBJECT_NAME));
     }
 
-
-    /**
-     * Helper class that allows us to write to two streams at once.
-     */
-    private static class TeeOutputStream extends OutputStream {
-        private final OutputStream out;
-        private final OutputStream tee;
-        private TeeOutputStream(final OutputStream out, final OutputStream tee) {
-            super();
-            this.out = out;
-            this.tee = tee;
-        }
-        @Override
-        public void write(final int b) throws IOException {
-            out.write(b);
-            tee.write(b);
-        }
-        @Override
-        public void write(@Nonnull final byte[] b) throws IOException {
-            out.write(b);
-            tee.write(b);
-        }
-        @Override
-        public void write(@Nonnull final byte[] b, final int off, final int len) throws IOException {
-            out.write(b, off, len);
-            tee.write(b, off, len);
-        }
-        @Override
-        public void flush() throws IOException {
-            out.flush();
-            tee.flush();
-        }
-        @Override
-        public void close() throws IOException {
-            out.close();
-            tee.close();
-        }
-    }
-
 }
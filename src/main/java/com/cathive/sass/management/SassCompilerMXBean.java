@@ -16,6 +16,10 @@
 
 package com.cathive.sass.management;
 
+import com.cathive.sass.SassAdmissionStatistics;
+import com.cathive.sass.SassCompileSummary;
+import com.cathive.sass.SassNativeMemoryUsage;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.management.MXBean;
@@ -48,10 +52,118 @@ public interface SassCompilerMXBean {
      *     The compiler output.
      * @throws com.cathive.sass.SassCompilationException
      *     If compilation fails.
+     * @throws com.cathive.sass.SassCompileTimeoutException
+     *     If compilation does not finish within the configured compile timeout.
      * @throws java.io.IOException
      *     If reading of the input file(s) or writing of the output file
      *     fails.
      */
     String compile(@Nonnull String inputPath, @Nullable String outputPath, @Nullable String[] includePath) throws IOException;
 
+    /**
+     * Compiles all SCSS files (partials excluded) of a directory tree in parallel and writes the results
+     * straight to the output directory.
+     * @param inputPath
+     *     Path to the input directory.
+     * @param outputPath
+     *     Path to the output directory.
+     * @param includePath
+     *     All include paths that shall be searched when using {@code @import} statements
+     *     inside your SCSS files.
+     * @param threads
+     *     Maximum number of parallel compilations. ({@code 0} = number of available processors)
+     * @return
+     *     A compact summary (counts, bytes, durations and the first failures).
+     * @throws java.io.IOException
+     *     If the input directory can't be read.
+     */
+    SassCompileSummary compileDirectory(@Nonnull String inputPath, @Nonnull String outputPath, @Nullable String[] includePath, int threads) throws IOException;
+
+    /**
+     * Returns the deadline of each compilation.
+     * @return
+     *     Deadline in milliseconds or {@code 0} if compilations may run forever.
+     */
+    long getCompileTimeout();
+
+    /**
+     * Sets the deadline of each compilation.
+     * @param compileTimeout
+     *     Deadline in milliseconds or {@code 0} for no deadline.
+     */
+    void setCompileTimeout(long compileTimeout);
+
+    /**
+     * Returns the number of compilations that exceeded their deadline.
+     * @return
+     *     Number of compilations that timed out.
+     */
+    long getTimedOutCompileCount();
+
+    /**
+     * Returns the number of compilations that exceeded their deadline but are still running.
+     * @return
+     *     Number of runaway compilations.
+     */
+    long getRunawayCompileCount();
+
+    /**
+     * Returns the number of compilations that have been saved because an identical compilation
+     * was already in flight.
+     * @return
+     *     Number of coalesced compilations.
+     */
+    long getCoalescedCompileCount();
+
+    /**
+     * Returns the number of distinct coalescable compilations that are currently in flight.
+     * @return
+     *     Number of in-flight compilations.
+     */
+    int getInFlightCompileCount();
+
+    /**
+     * Returns the maximum number of concurrent compilations.
+     * @return
+     *     Maximum number of concurrent compilations or {@code 0} if there is no limit.
+     */
+    int getMaxConcurrentCompiles();
+
+    /**
+     * Limits the number of concurrent compilations. Further compilations are queued by priority.
+     * @param maxConcurrentCompiles
+     *     Maximum number of concurrent compilations or {@code 0} for no limit.
+     */
+    void setMaxConcurrentCompiles(int maxConcurrentCompiles);
+
+    /**
+     * Returns the state of the admission control: active compilations, in-flight bytes, the depth of the
+     * interactive and batch queues, and how long queued compilations had to wait.
+     * @return
+     *     A snapshot of the admission control.
+     */
+    SassAdmissionStatistics getAdmissionStatistics();
+
+    /**
+     * Checks whether the compiler has finished its warm-up.
+     * @return
+     *     {@code true} if warm-up is disabled or has finished.
+     */
+    boolean isReady();
+
+    /**
+     * Returns the latency curve of the warm-up.
+     * @return
+     *     The duration of each warm-up iteration in microseconds.
+     */
+    long[] getWarmUpLatencies();
+
+    /**
+     * Returns the live counters of native contexts, options and compilers that have been created
+     * and freed, together with the resident set size of this process.
+     * @return
+     *     A snapshot of the native memory usage.
+     */
+    SassNativeMemoryUsage getNativeMemoryUsage();
+
 }
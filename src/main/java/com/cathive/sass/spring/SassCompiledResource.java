@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.spring;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * A CSS resource that has been compiled from an SCSS resource.
+ */
+public class SassCompiledResource extends ByteArrayResource {
+
+    /** File extension of SCSS files. */
+    static final String SCSS_EXTENSION = ".scss";
+
+    /** File extension of CSS files. */
+    static final String CSS_EXTENSION = ".css";
+
+    /** The SCSS resource that has been compiled. */
+    private final Resource source;
+
+    /** Modification time of the newest file the CSS has been compiled from. */
+    private final long lastModified;
+
+    /**
+     * Creates a new compiled resource.
+     * @param source
+     *     The SCSS resource that has been compiled.
+     * @param css
+     *     The compiled CSS.
+     * @param lastModified
+     *     Modification time of the newest file the CSS has been compiled from.
+     */
+    public SassCompiledResource(@Nonnull final Resource source, @Nonnull final byte[] css, final long lastModified) {
+        super(css, "CSS compiled from " + source.getDescription());
+        this.source = source;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the SCSS resource that has been compiled.
+     * @return
+     *     The SCSS resource.
+     */
+    @Nonnull
+    public Resource getSource() {
+        return this.source;
+    }
+
+    /**
+     * Returns the file name of the SCSS resource with a {@code .css} extension, so that the
+     * resource will be served with the correct content type.
+     */
+    @Override
+    public String getFilename() {
+        final String filename = this.source.getFilename();
+        if (filename != null && filename.endsWith(SCSS_EXTENSION)) {
+            return filename.substring(0, filename.length() - SCSS_EXTENSION.length()) + CSS_EXTENSION;
+        }
+        return filename;
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return this.lastModified;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.spring;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassContext;
+import com.cathive.sass.SassFileSystems;
+import com.cathive.sass.SassOptionsSnapshot;
+import com.cathive.sass.SassService;
+import org.springframework.core.io.Resource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compiles SCSS resources on behalf of {@link SassResourceResolver} and {@link SassResourceTransformer}
+ * and caches the results.
+ * <p>A cached stylesheet is recompiled as soon as the SCSS file or any of the files it imports has been
+ * modified. Stylesheets whose imported files are unknown (because the service compiled them in a worker process or
+ * shared the result of a coalesced compilation) are not cached. Only resources that reside in the file system can
+ * be compiled.</p>
+ */
+public class SassResourceCompiler {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassResourceCompiler.class.getName());
+
+    /** The service that performs all compilations. */
+    private final SassService service;
+
+    /** Options to be applied to each compilation. ({@code null} = default options) */
+    private volatile SassOptionsSnapshot options;
+
+    /** Compiled stylesheets by the absolute path of their SCSS file. */
+    private final ConcurrentMap<Path, CompiledStylesheet> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Creates a new resource compiler.
+     * @param service
+     *     The service that performs all compilations.
+     */
+    public SassResourceCompiler(@Nonnull final SassService service) {
+        super();
+        this.service = Objects.requireNonNull(service, "Service must not be null!");
+    }
+
+    @Nullable
+    public SassOptionsSnapshot getOptions() {
+        return this.options;
+    }
+
+    /**
+     * Sets the options (e.g. output style and include path) to be applied to each compilation. Clears the cache.
+     * @param options
+     *     Options to be applied or {@code null} to use the default options.
+     */
+    public void setOptions(@Nullable final SassOptionsSnapshot options) {
+        this.options = options;
+        this.cache.clear();
+    }
+
+    /**
+     * Compiles the given SCSS resource.
+     * <p>Resources inside of jar files (e.g. webjars) are compiled straight out of the archive, which is opened
+     * via {@link SassFileSystems}.</p>
+     * @param resource
+     *     SCSS resource to be compiled.
+     * @return
+     *     A resource that holds the compiled CSS.
+     * @throws SassCompilationException
+     *     If compilation fails.
+     * @throws IOException
+     *     If the given resource can't be resolved to a path or can't be read.
+     */
+    @Nonnull
+    public Resource compile(@Nonnull final Resource resource) throws IOException {
+        final Path file = SassFileSystems.getPath(resource.getURI()).toAbsolutePath().normalize();
+        final CompiledStylesheet cached = this.cache.get(file);
+        if (cached != null && cached.isUpToDate()) {
+            this.hitCount.incrementAndGet();
+            return new SassCompiledResource(resource, cached.css, cached.lastModified);
+        }
+        this.missCount.incrementAndGet();
+        final SassContext context = this.service.createContext(file);
+        final SassOptionsSnapshot options = this.options;
+        if (options != null) {
+            options.applyTo(context.getOptions());
+        }
+        LOGGER.log(Level.FINE, "Compiling {0}...", file);
+        final byte[] css = this.service.compile(context).getBytes(StandardCharsets.UTF_8);
+        final List<Path> includedFiles = context.getIncludedFiles();
+        if (includedFiles.isEmpty()) {
+            // Without dependencies the stylesheet would never be recompiled.
+            LOGGER.log(Level.FINE, "Not caching {0}, its imported files are unknown.", file);
+            this.cache.remove(file);
+            return new SassCompiledResource(resource, css, System.currentTimeMillis());
+        }
+        final CompiledStylesheet compiled = new CompiledStylesheet(css, includedFiles);
+        this.cache.put(file, compiled);
+        return new SassCompiledResource(resource, compiled.css, compiled.lastModified);
+    }
+
+    /**
+     * Removes all compiled stylesheets from the cache.
+     */
+    public void clearCache() {
+        this.cache.clear();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Compiled CSS together with the modification times of all files it has been compiled from.
+     */
+    private static final class CompiledStylesheet {
+
+        private final byte[] css;
+        private final Map<Path, Long> dependencies = new HashMap<>();
+        private final long lastModified;
+
+        private CompiledStylesheet(final byte[] css, final List<Path> includedFiles) {
+            this.css = css;
+            long lastModified = 0L;
+            for (final Path includedFile : includedFiles) {
+                final long modified = lastModified(includedFile);
+                this.dependencies.put(includedFile, modified);
+                lastModified = Math.max(lastModified, modified);
+            }
+            this.lastModified = lastModified;
+        }
+
+        private boolean isUpToDate() {
+            for (final Map.Entry<Path, Long> dependency : this.dependencies.entrySet()) {
+                if (lastModified(dependency.getKey()) != dependency.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long lastModified(final Path file) {
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (final IOException e) {
+                return -1L;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.spring;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+
+import static com.cathive.sass.spring.SassCompiledResource.CSS_EXTENSION;
+import static com.cathive.sass.spring.SassCompiledResource.SCSS_EXTENSION;
+
+/**
+ * Resolves requests for {@code .css} files that don't exist to SCSS files of the same name and compiles
+ * them on demand.
+ * <p>Place this resolver <em>after</em> a {@link org.springframework.web.servlet.resource.VersionResourceResolver}
+ * and before the {@link org.springframework.web.servlet.resource.PathResourceResolver} of the resource chain.
+ * The version resolver then computes content hashes from the compiled CSS, so that changes to imported
+ * files result in new URLs as well:</p>
+ * <pre>
+ * registry.addResourceHandler("/css/**")
+ *         .addResourceLocations("classpath:/static/css/")
+ *         .setCachePeriod(31556926)
+ *         .resourceChain(true)
+ *         .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
+ *         .addResolver(new SassResourceResolver(compiler))
+ *         .addTransformer(new SassResourceTransformer(compiler));
+ * </pre>
+ * @see SassResourceTransformer
+ */
+public class SassResourceResolver extends AbstractResourceResolver {
+
+    /** Compiles and caches SCSS resources. */
+    private final SassResourceCompiler compiler;
+
+    /**
+     * Creates a new resolver.
+     * @param compiler
+     *     Compiles and caches SCSS resources. (May be shared with a {@link SassResourceTransformer}.)
+     */
+    public SassResourceResolver(@Nonnull final SassResourceCompiler compiler) {
+        super();
+        this.compiler = Objects.requireNonNull(compiler, "Compiler must not be null!");
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(final HttpServletRequest request,
+                                               final String requestPath,
+                                               final List<? extends Resource> locations,
+                                               final ResourceResolverChain chain) {
+        final Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource != null || !requestPath.endsWith(CSS_EXTENSION)) {
+            return resource;
+        }
+        final Resource scss = chain.resolveResource(request, toScssPath(requestPath), locations);
+        if (scss == null) {
+            return null;
+        }
+        try {
+            return this.compiler.compile(scss);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(final String resourceUrlPath,
+                                            final List<? extends Resource> locations,
+                                            final ResourceResolverChain chain) {
+        final String urlPath = chain.resolveUrlPath(resourceUrlPath, locations);
+        if (urlPath != null || !resourceUrlPath.endsWith(CSS_EXTENSION)) {
+            return urlPath;
+        }
+        return chain.resolveUrlPath(toScssPath(resourceUrlPath), locations) != null ? resourceUrlPath : null;
+    }
+
+    @Nonnull
+    static String toScssPath(@Nonnull final String cssPath) {
+        return cssPath.substring(0, cssPath.length() - CSS_EXTENSION.length()) + SCSS_EXTENSION;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.spring;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Objects;
+
+import static com.cathive.sass.spring.SassCompiledResource.SCSS_EXTENSION;
+
+/**
+ * Compiles SCSS resources that are about to be served (e.g. because they have been requested by their
+ * {@code .scss} name) to CSS.
+ * <p>The compiled CSS is handed on to the remaining transformers of the chain, so that e.g. a
+ * {@link org.springframework.web.servlet.resource.CssLinkResourceTransformer} can rewrite its links.</p>
+ * @see SassResourceResolver
+ */
+public class SassResourceTransformer implements ResourceTransformer {
+
+    /** Compiles and caches SCSS resources. */
+    private final SassResourceCompiler compiler;
+
+    /**
+     * Creates a new transformer.
+     * @param compiler
+     *     Compiles and caches SCSS resources. (May be shared with a {@link SassResourceResolver}.)
+     */
+    public SassResourceTransformer(@Nonnull final SassResourceCompiler compiler) {
+        super();
+        this.compiler = Objects.requireNonNull(compiler, "Compiler must not be null!");
+    }
+
+    @Override
+    public Resource transform(final HttpServletRequest request,
+                              final Resource resource,
+                              final ResourceTransformerChain transformerChain) throws IOException {
+        final String filename = resource.getFilename();
+        if (resource instanceof SassCompiledResource || filename == null || !filename.endsWith(SCSS_EXTENSION)) {
+            return transformerChain.transform(request, resource);
+        }
+        return transformerChain.transform(request, this.compiler.compile(resource));
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.worker;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassNativeBackends;
+import com.cathive.sass.SassNativeMemory;
+import com.cathive.sass.SassNativeOutput;
+import com.cathive.sass.SassOptionsSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.file.Paths;
+
+import static com.cathive.sass.worker.SassWorkerProtocol.*;
+
+/**
+ * Entry point of a compiler worker process.
+ * <p>Reads compile requests from the standard input and writes the results to the standard output.
+ * Anything else that would have been printed to the standard output is redirected to the standard
+ * error output to keep the protocol stream clean.</p>
+ * <p>Compilations are performed by the {@link SassNativeBackends#getDefault() default native backend}.</p>
+ * @see SassWorkerPool
+ */
+public final class SassWorker {
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassWorker() {
+        super();
+    }
+
+    /**
+     * Main loop.
+     * @param args
+     *   Command line arguments. (Not used)
+     * @throws Exception
+     *   If communication with the parent process fails.
+     */
+    public static void main(final String... args) throws Exception {
+
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+
+        out.writeInt(HELLO);
+        out.flush();
+
+        while (true) {
+            final byte request;
+            try {
+                request = in.readByte();
+            } catch (final EOFException e) {
+                // Our parent has gone away.
+                return;
+            }
+            switch (request) {
+                case REQUEST_COMPILE:
+                    compile(in, out);
+                    out.flush();
+                    break;
+                case REQUEST_SHUTDOWN:
+                    return;
+                default:
+                    throw new IOException("Unknown request: " + request);
+            }
+        }
+
+    }
+
+    private static void compile(final DataInputStream in, final DataOutputStream out) throws IOException {
+        final String inputPath = readString(in);
+        final SassOptionsSnapshot options = SassOptionsSnapshot.readFrom(in);
+        // The CSS is written straight from the output buffer of the native backend.
+        try (final SassNativeOutput output = SassNativeBackends.getDefault().compileFile(Paths.get(inputPath), options)) {
+            out.writeByte(RESPONSE_OK);
+            out.writeLong(residentSetSize());
+            out.writeInt(output.getBytes().remaining());
+            output.writeTo(Channels.newChannel(out));
+        } catch (final SassCompilationException e) {
+            out.writeByte(RESPONSE_COMPILATION_FAILED);
+            out.writeLong(residentSetSize());
+            out.writeInt(e.getStatus());
+            writeString(out, e.getErrorMessage());
+            writeString(out, e.getFileName());
+            out.writeInt(e.getLine());
+            out.writeInt(e.getColumn());
+            writeString(out, e.getJson());
+        } catch (final RuntimeException e) {
+            out.writeByte(RESPONSE_FAILED);
+            out.writeLong(residentSetSize());
+            writeString(out, String.valueOf(e));
+        }
+    }
+
+    private static long residentSetSize() {
+        return SassNativeMemory.residentSetSize();
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.worker;
+
+import java.io.IOException;
+
+/**
+ * Exception to be used when a compiler worker process fails (e.g. because it crashed) before it
+ * could report the result of a compilation.
+ */
+public class SassWorkerException extends IOException {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    public SassWorkerException(final String message) {
+        super(message);
+    }
+
+    public SassWorkerException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.worker;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassOptionsSnapshot;
+import com.google.common.base.Joiner;
+import com.ochafik.lang.jnaerator.runtime.NativeSize;
+import com.sun.jna.Native;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.cathive.sass.worker.SassWorkerProtocol.*;
+
+/**
+ * A pool of child JVMs that compile Sass files out-of-process.
+ * <p>Running libsass in separate processes isolates the calling JVM from crashes and leaks of the native
+ * library. Each worker owns a queue of pending compilations; idle workers steal work from the tail of the
+ * queues of busy workers. A worker process is restarted automatically if it crashes, after it has
+ * performed a configurable number of compilations or if its resident set size exceeds a configurable
+ * limit.</p>
+ * <p>Cancelling the future of a compilation that is currently running kills the worker process that
+ * performs it. The worker will be restarted immediately.</p>
+ * <p>Data contexts can't be compiled by a worker pool, only files can.</p>
+ * @see SassWorker
+ */
+public class SassWorkerPool implements Closeable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(SassWorkerPool.class.getName());
+
+    /** Time (in seconds) that a worker process gets to exit gracefully before it is killed. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5L;
+
+    /** Number of worker processes. */
+    private final int size;
+
+    /** The workers of this pool. */
+    private final Worker[] workers;
+
+    /** One permit for every compilation that has been submitted but not yet picked up by a worker. */
+    private final Semaphore pending = new Semaphore(0);
+
+    /** Used to distribute submitted compilations among the worker queues. */
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /** Number of compilations that have been performed by all workers. */
+    private final AtomicLong compileCount = new AtomicLong();
+
+    /** Number of worker processes that had to be restarted. */
+    private final AtomicLong restartCount = new AtomicLong();
+
+    /** Maximum number of compilations per worker process before it is recycled. ({@code 0} = unlimited) */
+    private int maxCompilesPerWorker = 0;
+
+    /** Maximum resident set size of a worker process (in bytes) before it is recycled. ({@code 0} = unlimited) */
+    private long maxResidentSetSize = 0L;
+
+    /** Additional arguments for the JVM of the worker processes. */
+    private List<String> jvmArguments = Collections.emptyList();
+
+    /** Class path for the worker processes. */
+    private String classPath = defaultClassPath();
+
+    private volatile boolean started = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new (not yet started) worker pool.
+     * @param size
+     *     Number of worker processes.
+     */
+    public SassWorkerPool(final int size) {
+        super();
+        if (size < 1) {
+            throw new IllegalArgumentException("Worker pool size must be at least 1.");
+        }
+        this.size = size;
+        this.workers = new Worker[size];
+        for (int i = 0; i < size; i++) {
+            this.workers[i] = new Worker(i);
+        }
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getMaxCompilesPerWorker() {
+        return this.maxCompilesPerWorker;
+    }
+
+    public void setMaxCompilesPerWorker(final int maxCompilesPerWorker) {
+        this.maxCompilesPerWorker = maxCompilesPerWorker;
+    }
+
+    public long getMaxResidentSetSize() {
+        return this.maxResidentSetSize;
+    }
+
+    /**
+     * Limits the native memory consumption of each worker process.
+     * <p>Workers report their resident set size after each compilation. A worker that exceeds the given
+     * limit is restarted before it accepts any further requests. (Only supported on Linux)</p>
+     * @param maxResidentSetSize
+     *     Maximum resident set size in bytes or {@code 0} for no limit.
+     */
+    public void setMaxResidentSetSize(final long maxResidentSetSize) {
+        this.maxResidentSetSize = maxResidentSetSize;
+    }
+
+    @Nonnull
+    public List<String> getJvmArguments() {
+        return this.jvmArguments;
+    }
+
+    public void setJvmArguments(@Nonnull final List<String> jvmArguments) {
+        this.jvmArguments = Collections.unmodifiableList(new ArrayList<>(jvmArguments));
+    }
+
+    @Nonnull
+    public String getClassPath() {
+        return this.classPath;
+    }
+
+    public void setClassPath(@Nonnull final String classPath) {
+        this.classPath = Objects.requireNonNull(classPath, "Class path must not be null!");
+    }
+
+    /**
+     * Returns the number of compilations that have been performed by the workers of this pool.
+     * @return
+     *     Number of compilations.
+     */
+    public long getCompileCount() {
+        return this.compileCount.get();
+    }
+
+    /**
+     * Returns the number of worker processes that have been restarted because they crashed or
+     * exceeded one of their limits.
+     * @return
+     *     Number of restarts.
+     */
+    public long getRestartCount() {
+        return this.restartCount.get();
+    }
+
+    /**
+     * Starts all worker processes.
+     * @throws IOException
+     *     If a worker process could not be started.
+     */
+    public synchronized void start() throws IOException {
+        if (this.started) {
+            throw new IllegalStateException("Worker pool has already been started.");
+        }
+        for (final Worker worker : this.workers) {
+            worker.spawn();
+        }
+        for (final Worker worker : this.workers) {
+            worker.thread.start();
+        }
+        this.started = true;
+        LOGGER.log(Level.INFO, "Started {0} Sass worker processes.", this.size);
+    }
+
+    /**
+     * Submits the given input file for compilation.
+     * @param inputFile
+     *     SCSS input file to be compiled.
+     * @param options
+     *     Options to be used for the compilation.
+     * @return
+     *     A future that will be completed with the compiled CSS, or exceptionally with either a
+     *     {@link SassCompilationException} or a {@link SassWorkerException}.
+     */
+    @Nonnull
+    public CompletableFuture<String> submit(@Nonnull final Path inputFile, @Nonnull final SassOptionsSnapshot options) {
+        if (!this.started || this.closed) {
+            throw new IllegalStateException("Worker pool is not running.");
+        }
+        final Job job = new Job(inputFile.toAbsolutePath().toString(), options);
+        job.future.whenComplete((output, failure) -> {
+            if (job.future.isCancelled()) {
+                final Worker owner = job.worker;
+                if (owner != null) {
+                    owner.kill(job);
+                }
+            }
+        });
+        final Worker worker = this.workers[Math.abs(this.nextWorker.getAndIncrement() % this.size)];
+        worker.queue.offerLast(job);
+        this.pending.release();
+        if (this.closed && worker.queue.remove(job)) {
+            // The pool has been closed while the job was being enqueued, nobody will pick it up.
+            job.future.completeExceptionally(new SassWorkerException("Sass worker pool has been closed."));
+        }
+        return job.future;
+    }
+
+    /**
+     * Stops all worker processes.
+     * <p>Compilations that have not been picked up by a worker yet will fail, compilations that are currently
+     * running fail as well and their worker processes are killed. Idle workers get
+     * {@value #SHUTDOWN_TIMEOUT_SECONDS} seconds to exit before they are killed.</p>
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        for (final Worker worker : this.workers) {
+            worker.abort();
+            if (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+            }
+        }
+        for (final Worker worker : this.workers) {
+            Job job;
+            while ((job = worker.queue.pollFirst()) != null) {
+                job.future.completeExceptionally(new SassWorkerException("Sass worker pool has been closed."));
+            }
+        }
+    }
+
+    /**
+     * Takes the next job for the given worker.
+     * <p>Jobs from the worker's own queue are preferred. If there are none, a job is stolen from the tail of
+     * the queue of another worker.</p>
+     * @throws InterruptedException
+     *     If the thread has been interrupted or the pool has been closed. (Closing the pool drains the queues, so
+     *     the job that belongs to a permit may be gone.)
+     */
+    private Job take(final Worker worker) throws InterruptedException {
+        this.pending.acquire();
+        while (true) {
+            if (this.closed || Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Job job = worker.queue.pollFirst();
+            if (job != null) {
+                return job;
+            }
+            for (int i = 1; i < this.size; i++) {
+                job = this.workers[(worker.index + i) % this.size].queue.pollLast();
+                if (job != null) {
+                    return job;
+                }
+            }
+            // Another worker has stolen the job belonging to our permit and ours has been enqueued after we looked.
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Determines a class path for the worker processes that contains sass-java and its runtime dependencies.
+     * @return
+     *     Class path for the worker processes.
+     */
+    @Nonnull
+    static String defaultClassPath() {
+        final Set<String> entries = new LinkedHashSet<>();
+        for (final Class<?> anchor : Arrays.asList(SassWorker.class, Native.class, NativeSize.class, Joiner.class)) {
+            final CodeSource codeSource = anchor.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return System.getProperty("java.class.path");
+            }
+            try {
+                entries.add(Paths.get(codeSource.getLocation().toURI()).toString());
+            } catch (final URISyntaxException | IllegalArgumentException e) {
+                return System.getProperty("java.class.path");
+            }
+        }
+        return Joiner.on(File.pathSeparatorChar).join(entries);
+    }
+
+    /**
+     * A pending compilation.
+     */
+    private static final class Job {
+
+        private final String inputPath;
+        private final SassOptionsSnapshot options;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        /** The worker that is currently performing this job, if any. */
+        private volatile Worker worker;
+
+        private Job(final String inputPath, final SassOptionsSnapshot options) {
+            this.inputPath = inputPath;
+            this.options = options;
+        }
+
+    }
+
+    /**
+     * A worker process and the thread that feeds it.
+     */
+    private final class Worker implements Runnable {
+
+        private final int index;
+        private final LinkedBlockingDeque<Job> queue = new LinkedBlockingDeque<>();
+        private final Thread thread;
+
+        private volatile Process process;
+        private Job current;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int compiles;
+
+        private Worker(final int index) {
+            this.index = index;
+            this.thread = new Thread(this, "sass-worker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    final Job job = take(this);
+                    if (!job.future.isDone()) {
+                        this.execute(job);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                // The pool has been closed.
+            } finally {
+                this.shutdown();
+            }
+        }
+
+        private void execute(final Job job) {
+            if (closed) {
+                job.future.completeExceptionally(new SassWorkerException("Sass worker pool has been closed."));
+                return;
+            }
+            if (this.process == null) {
+                try {
+                    this.spawn();
+                } catch (final IOException e) {
+                    job.future.completeExceptionally(e);
+                    return;
+                }
+            }
+            synchronized (this) {
+                if (job.future.isDone()) {
+                    return;
+                }
+                if (closed) {
+                    // close() has already aborted the running jobs, so this one would never be killed.
+                    job.future.completeExceptionally(new SassWorkerException("Sass worker pool has been closed."));
+                    return;
+                }
+                this.current = job;
+                job.worker = this;
+            }
+            try {
+                this.out.writeByte(REQUEST_COMPILE);
+                writeString(this.out, job.inputPath);
+                job.options.writeTo(this.out);
+                this.out.flush();
+                final byte status = this.in.readByte();
+                final long residentSetSize = this.in.readLong();
+                switch (status) {
+                    case RESPONSE_OK:
+                        job.future.complete(new String(readBytes(this.in), StandardCharsets.UTF_8));
+                        break;
+                    case RESPONSE_COMPILATION_FAILED:
+                        job.future.completeExceptionally(new SassCompilationException(
+                                this.in.readInt(), readString(this.in), readString(this.in),
+                                this.in.readInt(), this.in.readInt(), readString(this.in)));
+                        break;
+                    case RESPONSE_FAILED:
+                        job.future.completeExceptionally(new SassWorkerException(readString(this.in)));
+                        break;
+                    default:
+                        throw new IOException("Unknown response: " + status);
+                }
+                compileCount.incrementAndGet();
+                this.compiles++;
+                if (maxCompilesPerWorker > 0 && this.compiles >= maxCompilesPerWorker) {
+                    this.recycle("compile limit reached");
+                } else if (maxResidentSetSize > 0 && residentSetSize > maxResidentSetSize) {
+                    this.recycle(String.format("resident set size of %d bytes exceeds limit", residentSetSize));
+                }
+            } catch (final IOException e) {
+                job.future.completeExceptionally(new SassWorkerException(
+                        String.format("Sass worker #%d terminated unexpectedly while compiling \"%s\".", this.index, job.inputPath), e));
+                this.destroy();
+                this.respawn(job.future.isCancelled() ? "killed" : "crashed");
+            } finally {
+                synchronized (this) {
+                    this.current = null;
+                    job.worker = null;
+                }
+            }
+        }
+
+        /**
+         * Forcibly terminates the worker process if it is still performing the given job.
+         */
+        private synchronized void kill(final Job job) {
+            final Process process = this.process;
+            if (this.current == job && process != null) {
+                LOGGER.log(Level.WARNING, "Killing Sass worker #{0} while compiling \"{1}\".", new Object[]{ this.index, job.inputPath });
+                process.destroyForcibly();
+            }
+        }
+
+        /**
+         * Fails the job that is currently being performed (if any) and kills the worker process that performs it.
+         * <p>The feeder thread is blocked reading the response of the worker and can't be interrupted, killing the
+         * process makes that read fail.</p>
+         */
+        private synchronized void abort() {
+            final Job job = this.current;
+            if (job == null) {
+                return;
+            }
+            job.future.completeExceptionally(new SassWorkerException("Sass worker pool has been closed."));
+            final Process process = this.process;
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+
+        private void spawn() throws IOException {
+            final List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmArguments);
+            command.add("-cp");
+            command.add(classPath);
+            command.add(SassWorker.class.getName());
+            final Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            try {
+                if (in.readInt() != HELLO) {
+                    throw new IOException("Unexpected greeting from Sass worker process.");
+                }
+            } catch (final IOException e) {
+                process.destroy();
+                throw new SassWorkerException(String.format("Could not start Sass worker #%d.", this.index), e);
+            }
+            this.process = process;
+            this.in = in;
+            this.out = out;
+            this.compiles = 0;
+        }
+
+        private void recycle(final String reason) {
+            this.shutdown();
+            this.respawn(reason);
+        }
+
+        private void respawn(final String reason) {
+            if (closed) {
+                return;
+            }
+            restartCount.incrementAndGet();
+            LOGGER.log(Level.INFO, "Restarting Sass worker #{0} ({1}).", new Object[]{ this.index, reason });
+            try {
+                this.spawn();
+            } catch (final IOException e) {
+                // Will be retried as soon as the next job arrives.
+                LOGGER.log(Level.WARNING, "Could not restart Sass worker #" + this.index, e);
+            }
+        }
+
+        private void shutdown() {
+            if (this.process == null) {
+                return;
+            }
+            try {
+                this.out.writeByte(REQUEST_SHUTDOWN);
+                this.out.flush();
+                if (!this.process.waitFor(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.WARNING, "Sass worker #{0} did not exit within {1} seconds.", new Object[]{ this.index, SHUTDOWN_TIMEOUT_SECONDS });
+                }
+            } catch (final IOException e) {
+                // The process is already gone.
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.destroy();
+        }
+
+        private void destroy() {
+            if (this.process != null) {
+                this.process.destroyForcibly();
+                this.process = null;
+                this.in = null;
+                this.out = null;
+            }
+        }
+
+    }
+
+}
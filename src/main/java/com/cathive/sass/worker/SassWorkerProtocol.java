@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.worker;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and helpers of the binary protocol that is spoken between a {@link SassWorkerPool} and
+ * its {@link SassWorker} processes via the standard input and output streams of the worker.
+ * <p>Requests:</p>
+ * <ul>
+ *     <li>{@code COMPILE}: input path (string), options ({@link com.cathive.sass.SassOptionsSnapshot})</li>
+ *     <li>{@code SHUTDOWN}: no payload</li>
+ * </ul>
+ * <p>Every {@code COMPILE} request is answered with a status byte and the resident set size of the
+ * worker (long, {@code -1} if unknown) followed by a status specific payload:</p>
+ * <ul>
+ *     <li>{@code OK}: compiled CSS (bytes)</li>
+ *     <li>{@code COMPILATION_FAILED}: status (int), message, file (strings), line, column (ints), json (string)</li>
+ *     <li>{@code FAILED}: message (string)</li>
+ * </ul>
+ */
+final class SassWorkerProtocol {
+
+    /** Written by a worker as soon as it is ready to accept requests. */
+    static final int HELLO = 0x53415353;
+
+    static final byte REQUEST_COMPILE = 1;
+    static final byte REQUEST_SHUTDOWN = 2;
+
+    static final byte RESPONSE_OK = 0;
+    static final byte RESPONSE_COMPILATION_FAILED = 1;
+    static final byte RESPONSE_FAILED = 2;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassWorkerProtocol() {
+        super();
+    }
+
+    static void writeBytes(@Nonnull final DataOutput out, @Nullable final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    static byte[] readBytes(@Nonnull final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(@Nonnull final DataOutput out, @Nullable final String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    static String readString(@Nonnull final DataInput in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import com.google.common.base.Utf8;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Emits JDK Flight Recorder events for the phases of a single compilation.
+ * <p>This is the Java 11 implementation. If none of the events is enabled in the running recording,
+ * a shared no-op instance is returned and no events are allocated at all.</p>
+ * @see SassContext#compile()
+ */
+final class SassCompileEvents {
+
+    /** Shared instance that is used whenever no Sass events are being recorded. */
+    private static final SassCompileEvents NOOP = new SassCompileEvents(null, null, -1L, null);
+
+    /** Prototypes that are only used to check whether Sass events are being recorded at all. */
+    private static final Event[] PROBES = { new ParseEvent(), new ExecuteEvent(), new OutputEvent() };
+
+    private final String entryPath;
+    private final String outputStyle;
+    private final long inputBytes;
+
+    private ParseEvent parseEvent;
+    private ExecuteEvent executeEvent;
+    private OutputEvent outputEvent;
+
+    private SassCompileEvents(final String entryPath, final String outputStyle, final long inputBytes, final ParseEvent parseEvent) {
+        super();
+        this.entryPath = entryPath;
+        this.outputStyle = outputStyle;
+        this.inputBytes = inputBytes;
+        this.parseEvent = parseEvent;
+    }
+
+    @Nonnull
+    static SassCompileEvents begin(@Nonnull final SassContext context) {
+        if (!isEnabled()) {
+            return NOOP;
+        }
+        final ParseEvent parseEvent = new ParseEvent();
+        final SassCompileEvents events = new SassCompileEvents(
+                context.getInputDescription(),
+                context.getOptions().getOutputStyle().name(),
+                context.getInputSize(),
+                parseEvent);
+        parseEvent.begin();
+        return events;
+    }
+
+    private static boolean isEnabled() {
+        for (final Event probe : PROBES) {
+            if (probe.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void parsed(final int status) {
+        if (this.parseEvent == null) {
+            return;
+        }
+        this.parseEvent.end();
+        if (this.parseEvent.shouldCommit()) {
+            this.fill(this.parseEvent, status);
+            this.parseEvent.commit();
+        }
+        this.parseEvent = null;
+        this.executeEvent = new ExecuteEvent();
+        this.executeEvent.begin();
+    }
+
+    void executed(final int status) {
+        if (this.executeEvent == null) {
+            return;
+        }
+        this.executeEvent.end();
+        if (this.executeEvent.shouldCommit()) {
+            this.fill(this.executeEvent, status);
+            this.executeEvent.commit();
+        }
+        this.executeEvent = null;
+        this.outputEvent = new OutputEvent();
+        this.outputEvent.begin();
+    }
+
+    void marshalled(@Nullable final String output) {
+        if (this.outputEvent == null) {
+            return;
+        }
+        this.outputEvent.end();
+        if (this.outputEvent.shouldCommit()) {
+            this.fill(this.outputEvent, output == null ? 1 : 0);
+            this.outputEvent.outputBytes = output == null ? 0L : Utf8.encodedLength(output);
+            this.outputEvent.commit();
+        }
+        this.outputEvent = null;
+    }
+
+    private void fill(@Nonnull final PhaseEvent event, final int status) {
+        event.entryPath = this.entryPath;
+        event.outputStyle = this.outputStyle;
+        event.inputBytes = this.inputBytes;
+        event.status = status;
+    }
+
+    /**
+     * Common fields of all Sass compile phase events.
+     */
+    @Category({ "Sass", "Compiler" })
+    @StackTrace(false)
+    abstract static class PhaseEvent extends Event {
+
+        @Label("Entry Path")
+        @Description("Path of the compiled input file")
+        String entryPath;
+
+        @Label("Output Style")
+        String outputStyle;
+
+        @Label("Input Size")
+        @Description("Size of the entry file, imports are not included")
+        @DataAmount
+        long inputBytes;
+
+        @Label("Status")
+        @Description("Status code reported by libsass, 0 on success")
+        int status;
+
+    }
+
+    @Name("com.cathive.sass.Parse")
+    @Label("Sass Parse")
+    @Description("Parsing of a stylesheet and all of its imports")
+    static final class ParseEvent extends PhaseEvent {
+    }
+
+    @Name("com.cathive.sass.Execute")
+    @Label("Sass Execute")
+    @Description("Evaluation of a parsed stylesheet and rendering of its CSS")
+    static final class ExecuteEvent extends PhaseEvent {
+    }
+
+    @Name("com.cathive.sass.Output")
+    @Label("Sass Output")
+    @Description("Copying of the compiled CSS from native memory")
+    static final class OutputEvent extends PhaseEvent {
+
+        @Label("Output Size")
+        @DataAmount
+        long outputBytes;
+
+    }
+
+}
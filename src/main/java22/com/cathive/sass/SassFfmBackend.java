@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import com.sun.jna.NativeLibrary;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BOOLEAN;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Native backend that calls libsass via the Foreign Function &amp; Memory API.
+ * <p>The library is located the same way as by the JNA binding (i.e. {@code jna.library.path} is honored),
+ * but all calls are performed via downcall handles. The compiled CSS is exposed as a view of the output
+ * buffer of the native context. The view belongs to a shared arena whose closing deletes the native context, so
+ * buffers that are still referenced after the {@link SassNativeOutput} has been closed throw an
+ * {@link IllegalStateException} instead of reading freed memory.</p>
+ */
+final class SassFfmBackend implements SassNativeBackend {
+
+    private final MethodHandle libsassVersion;
+    private final MethodHandle makeFileContext;
+    private final MethodHandle fileContextGetContext;
+    private final MethodHandle fileContextGetOptions;
+    private final MethodHandle compileFileContext;
+    private final MethodHandle deleteFileContext;
+    private final MethodHandle contextGetOutputString;
+    private final MethodHandle contextGetErrorStatus;
+    private final MethodHandle contextGetErrorMessage;
+    private final MethodHandle contextGetErrorFile;
+    private final MethodHandle contextGetErrorJson;
+    private final MethodHandle contextGetErrorLine;
+    private final MethodHandle contextGetErrorColumn;
+    private final MethodHandle optionSetPrecision;
+    private final MethodHandle optionSetOutputStyle;
+    private final MethodHandle optionSetSourceComments;
+    private final MethodHandle optionSetSourceMapEmbed;
+    private final MethodHandle optionSetSourceMapContents;
+    private final MethodHandle optionSetOmitSourceMapUrl;
+    private final MethodHandle optionSetIsIndentedSyntaxSrc;
+    private final MethodHandle optionSetOutputPath;
+    private final MethodHandle optionSetIncludePath;
+    private final MethodHandle optionSetSourceMapFile;
+    private final MethodHandle optionSetSourceMapRoot;
+    private final MethodHandle strlen;
+
+    SassFfmBackend() {
+        super();
+        final Linker linker = Linker.nativeLinker();
+        final Path library = NativeLibrary.getInstance("sass").getFile().toPath();
+        final SymbolLookup sass = SymbolLookup.libraryLookup(library, Arena.global());
+        final FunctionDescriptor addressToAddress = FunctionDescriptor.of(ADDRESS, ADDRESS);
+        final FunctionDescriptor setInt = FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT);
+        final FunctionDescriptor setBoolean = FunctionDescriptor.ofVoid(ADDRESS, JAVA_BOOLEAN);
+        final FunctionDescriptor setString = FunctionDescriptor.ofVoid(ADDRESS, ADDRESS);
+        this.libsassVersion = downcall(linker, sass, "libsass_version", FunctionDescriptor.of(ADDRESS));
+        this.makeFileContext = downcall(linker, sass, "sass_make_file_context", addressToAddress);
+        this.fileContextGetContext = downcall(linker, sass, "sass_file_context_get_context", addressToAddress);
+        this.fileContextGetOptions = downcall(linker, sass, "sass_file_context_get_options", addressToAddress);
+        this.compileFileContext = downcall(linker, sass, "sass_compile_file_context", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+        this.deleteFileContext = downcall(linker, sass, "sass_delete_file_context", FunctionDescriptor.ofVoid(ADDRESS));
+        this.contextGetOutputString = downcall(linker, sass, "sass_context_get_output_string", addressToAddress);
+        this.contextGetErrorStatus = downcall(linker, sass, "sass_context_get_error_status", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+        this.contextGetErrorMessage = downcall(linker, sass, "sass_context_get_error_message", addressToAddress);
+        this.contextGetErrorFile = downcall(linker, sass, "sass_context_get_error_file", addressToAddress);
+        this.contextGetErrorJson = downcall(linker, sass, "sass_context_get_error_json", addressToAddress);
+        this.contextGetErrorLine = downcall(linker, sass, "sass_context_get_error_line", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+        this.contextGetErrorColumn = downcall(linker, sass, "sass_context_get_error_column", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+        this.optionSetPrecision = downcall(linker, sass, "sass_option_set_precision", setInt);
+        this.optionSetOutputStyle = downcall(linker, sass, "sass_option_set_output_style", setInt);
+        this.optionSetSourceComments = downcall(linker, sass, "sass_option_set_source_comments", setBoolean);
+        this.optionSetSourceMapEmbed = downcall(linker, sass, "sass_option_set_source_map_embed", setBoolean);
+        this.optionSetSourceMapContents = downcall(linker, sass, "sass_option_set_source_map_contents", setBoolean);
+        this.optionSetOmitSourceMapUrl = downcall(linker, sass, "sass_option_set_omit_source_map_url", setBoolean);
+        this.optionSetIsIndentedSyntaxSrc = downcall(linker, sass, "sass_option_set_is_indented_syntax_src", setBoolean);
+        this.optionSetOutputPath = downcall(linker, sass, "sass_option_set_output_path", setString);
+        this.optionSetIncludePath = downcall(linker, sass, "sass_option_set_include_path", setString);
+        this.optionSetSourceMapFile = downcall(linker, sass, "sass_option_set_source_map_file", setString);
+        this.optionSetSourceMapRoot = downcall(linker, sass, "sass_option_set_source_map_root", setString);
+        this.strlen = downcall(linker, linker.defaultLookup(), "strlen", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return SassFfmSupport.NAME;
+    }
+
+    @Nonnull
+    @Override
+    public String getLibsassVersion() {
+        try {
+            return this.toJavaString((MemorySegment) this.libsassVersion.invokeExact());
+        } catch (final Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public SassNativeOutput compileFile(@Nonnull final Path inputFile, @Nullable final SassOptionsSnapshot options) throws SassCompilationException {
+        final MemorySegment fileContext;
+        try (final Arena arena = Arena.ofConfined()) {
+            fileContext = (MemorySegment) this.makeFileContext.invokeExact(
+                    arena.allocateFrom(inputFile.toAbsolutePath().toString()));
+            SassNativeMemory.contextCreated();
+            if (options != null) {
+                // libsass copies all strings, so they can be released right after the calls.
+                this.applyOptions((MemorySegment) this.fileContextGetOptions.invokeExact(fileContext), options, arena);
+            }
+        } catch (final Throwable t) {
+            throw rethrow(t);
+        }
+        boolean succeeded = false;
+        try {
+            final MemorySegment context = (MemorySegment) this.fileContextGetContext.invokeExact(fileContext);
+            final int status = (int) this.compileFileContext.invokeExact(fileContext);
+            if (status != 0) {
+                throw new SassCompilationException(
+                        (int) this.contextGetErrorStatus.invokeExact(context),
+                        Objects.toString(this.toJavaString((MemorySegment) this.contextGetErrorMessage.invokeExact(context)), ""),
+                        Objects.toString(this.toJavaString((MemorySegment) this.contextGetErrorFile.invokeExact(context)), ""),
+                        (int) (long) this.contextGetErrorLine.invokeExact(context),
+                        (int) (long) this.contextGetErrorColumn.invokeExact(context),
+                        Objects.toString(this.toJavaString((MemorySegment) this.contextGetErrorJson.invokeExact(context)), ""));
+            }
+            final MemorySegment output = (MemorySegment) this.contextGetOutputString.invokeExact(context);
+            final long length = output.equals(MemorySegment.NULL) ? 0L : (long) this.strlen.invokeExact(output);
+            final Arena arena = Arena.ofShared();
+            final SassNativeOutput result = new FfmOutput(arena, output.reinterpret(length, arena, segment -> this.deleteFileContext(fileContext, length)));
+            succeeded = true;
+            return result;
+        } catch (final SassCompilationException | RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw rethrow(t);
+        } finally {
+            if (!succeeded) {
+                this.deleteFileContext(fileContext, 0L);
+            }
+        }
+    }
+
+    private void applyOptions(@Nonnull final MemorySegment $options, @Nonnull final SassOptionsSnapshot options, @Nonnull final Arena arena) throws Throwable {
+        this.optionSetPrecision.invokeExact($options, options.getPrecision());
+        this.optionSetOutputStyle.invokeExact($options, options.getOutputStyle().getIntValue());
+        this.optionSetSourceComments.invokeExact($options, options.getSourceComments());
+        this.optionSetSourceMapEmbed.invokeExact($options, options.getSourceMapEmbed());
+        this.optionSetSourceMapContents.invokeExact($options, options.getSourceMapContents());
+        this.optionSetOmitSourceMapUrl.invokeExact($options, options.getOmitSourceMapUrl());
+        this.optionSetIsIndentedSyntaxSrc.invokeExact($options, options.getIsIndentedSyntaxSrc());
+        if (options.getOutputPath() != null) {
+            this.optionSetOutputPath.invokeExact($options, arena.allocateFrom(options.getOutputPath()));
+        }
+        if (!options.getIncludePath().isEmpty()) {
+            final String includePath = String.join(File.pathSeparator, options.getIncludePath());
+            this.optionSetIncludePath.invokeExact($options, arena.allocateFrom(includePath));
+        }
+        if (options.getSourceMapFile() != null) {
+            this.optionSetSourceMapFile.invokeExact($options, arena.allocateFrom(options.getSourceMapFile()));
+        }
+        if (options.getSourceMapRoot() != null) {
+            this.optionSetSourceMapRoot.invokeExact($options, arena.allocateFrom(options.getSourceMapRoot()));
+        }
+    }
+
+    private void deleteFileContext(@Nonnull final MemorySegment fileContext, final long outputSize) {
+        try {
+            this.deleteFileContext.invokeExact(fileContext);
+            SassNativeMemory.contextFreed(outputSize);
+        } catch (final Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @Nullable
+    private String toJavaString(@Nonnull final MemorySegment string) {
+        if (string.equals(MemorySegment.NULL)) {
+            return null;
+        }
+        return string.reinterpret(Long.MAX_VALUE).getString(0L);
+    }
+
+    @Nonnull
+    private static MethodHandle downcall(@Nonnull final Linker linker,
+                                         @Nonnull final SymbolLookup lookup,
+                                         @Nonnull final String name,
+                                         @Nonnull final FunctionDescriptor descriptor) {
+        final MemorySegment symbol = lookup.find(name)
+                .orElseThrow(() -> new UnsatisfiedLinkError("Symbol not found: " + name));
+        return linker.downcallHandle(symbol, descriptor);
+    }
+
+    @Nonnull
+    private static RuntimeException rethrow(@Nonnull final Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException(t);
+    }
+
+    @Override
+    public String toString() {
+        return SassFfmSupport.NAME;
+    }
+
+    /**
+     * Output that still resides in the native Sass context.
+     */
+    private final class FfmOutput extends SassNativeOutput {
+
+        /** Arena of the output, closing it deletes the native file context. */
+        private final Arena arena;
+        private final ByteBuffer bytes;
+
+        private FfmOutput(@Nonnull final Arena arena, @Nonnull final MemorySegment output) {
+            super();
+            this.arena = arena;
+            this.bytes = output.asByteBuffer().asReadOnlyBuffer();
+            SassNativeMemory.outputRetained(this.bytes.capacity());
+        }
+
+        @Nonnull
+        @Override
+        public ByteBuffer getBytes() {
+            if (!this.arena.scope().isAlive()) {
+                throw new IllegalStateException("Output has already been closed.");
+            }
+            return this.bytes.duplicate();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (this.arena.scope().isAlive()) {
+                this.arena.close();
+            }
+        }
+
+    }
+
+}
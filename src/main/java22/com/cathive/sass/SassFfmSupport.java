@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Creates the native backend that is based on the Foreign Function &amp; Memory API.
+ * <p>This is the Java 22 implementation that is loaded from {@code META-INF/versions/22} of the
+ * (multi-release) JAR file.</p>
+ */
+final class SassFfmSupport {
+
+    /** Name of the backend. */
+    static final String NAME = "ffm";
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private SassFfmSupport() {
+        super();
+    }
+
+    static boolean isAvailable() {
+        return true;
+    }
+
+    @Nonnull
+    static SassNativeBackend create() {
+        return new SassFfmBackend();
+    }
+
+}
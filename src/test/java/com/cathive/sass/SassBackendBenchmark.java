@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link SassNativeBackend native backends}.
+ * <p>This is not a unit test. Run it on Java 22 or later (so that both backends are available) via
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.cathive.sass.SassBackendBenchmark -Dexec.classpathScope=test}.
+ * The results are written to {@code target/backend-benchmark.json}.</p>
+ * <ul>
+ *     <li>{@code compile}: compiles the synthetic stylesheet of {@link SassWarmUp} and consumes the output
+ *     without copying it to the Java heap where the backend allows it.</li>
+ *     <li>{@code compileToString}: same, but decodes the output to a string.</li>
+ *     <li>{@code version}: the overhead of a single native call.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SassBackendBenchmark {
+
+    @Param({ "jna", "ffm" })
+    public String backendName;
+
+    private SassNativeBackend backend;
+    private SassOptionsSnapshot options;
+    private Path input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.backend = SassNativeBackends.get(this.backendName);
+        this.input = Files.createTempFile("benchmark", ".scss");
+        Files.write(this.input, SassWarmUp.syntheticStylesheet().getBytes(StandardCharsets.UTF_8));
+        this.options = SassOptionsSnapshot.defaults();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.input);
+    }
+
+    @Benchmark
+    public long compile() throws SassCompilationException {
+        try (final SassNativeOutput output = this.backend.compileFile(this.input, this.options)) {
+            return output.getBytes().remaining();
+        }
+    }
+
+    @Benchmark
+    public String compileToString() throws SassCompilationException {
+        try (final SassNativeOutput output = this.backend.compileFile(this.input, this.options)) {
+            return output.getString();
+        }
+    }
+
+    @Benchmark
+    public String version() {
+        return this.backend.getLibsassVersion();
+    }
+
+    public static void main(final String... args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SassBackendBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/backend-benchmark.json")
+                .build()).run();
+    }
+
+}
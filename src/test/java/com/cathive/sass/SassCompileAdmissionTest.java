@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassCompileAdmission
+ */
+public class SassCompileAdmissionTest {
+
+    @Test
+    public void testInteractiveLaneIsServedFirst() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(1);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        final CompletableFuture<String> batch1 = submit(admission, SassCompilePriority.BATCH, "batch1", started, compilations);
+        final CompletableFuture<String> batch2 = submit(admission, SassCompilePriority.BATCH, "batch2", started, compilations);
+        final CompletableFuture<String> interactive = submit(admission, SassCompilePriority.INTERACTIVE, "interactive", started, compilations);
+        assertEquals(1, started.size());
+        assertEquals(1, admission.getStatistics().getInteractiveQueueDepth());
+        assertEquals(1, admission.getStatistics().getBatchQueueDepth());
+
+        compilations.get(0).complete("batch1");
+        assertEquals("batch1", batch1.get());
+        assertEquals("interactive", started.get(1));
+        compilations.get(1).complete("interactive");
+        assertEquals("interactive", interactive.get());
+        assertEquals("batch2", started.get(2));
+        compilations.get(2).complete("batch2");
+        assertEquals("batch2", batch2.get());
+
+        final SassAdmissionStatistics statistics = admission.getStatistics();
+        assertEquals(0, statistics.getActiveCompiles());
+        assertEquals(3L, statistics.getAdmittedCount());
+        assertEquals(2L, statistics.getQueuedCount());
+        assertEquals(0L, statistics.getRejectedCount());
+    }
+
+    @Test
+    public void testRejection() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(1);
+        admission.setMaxQueueDepth(1);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        submit(admission, SassCompilePriority.BATCH, "batch1", started, compilations);
+        submit(admission, SassCompilePriority.BATCH, "batch2", started, compilations);
+        final CompletableFuture<String> rejected = submit(admission, SassCompilePriority.BATCH, "batch3", started, compilations);
+        // The interactive lane has a queue of its own.
+        submit(admission, SassCompilePriority.INTERACTIVE, "interactive", started, compilations);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail("Compilation should have been rejected.");
+        } catch (final ExecutionException e) {
+            final SassCompileRejectedException rejection = (SassCompileRejectedException) e.getCause();
+            assertEquals("batch3", rejection.getInput());
+            assertEquals(SassCompilePriority.BATCH, rejection.getPriority());
+            assertEquals(1, rejection.getQueueDepth());
+        }
+        assertEquals(1, started.size());
+        assertEquals(1L, admission.getStatistics().getRejectedCount());
+    }
+
+    @Test
+    public void testReservedInteractiveCompiles() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(2);
+        admission.setReservedInteractiveCompiles(1);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        submit(admission, SassCompilePriority.BATCH, "batch1", started, compilations);
+        submit(admission, SassCompilePriority.BATCH, "batch2", started, compilations);
+        submit(admission, SassCompilePriority.INTERACTIVE, "interactive", started, compilations);
+        assertEquals(2, started.size());
+        assertEquals("interactive", started.get(1));
+    }
+
+    @Test
+    public void testReservationLeavesOnePermitForBatch() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(2);
+        admission.setReservedInteractiveCompiles(5);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        submit(admission, SassCompilePriority.BATCH, "batch1", started, compilations);
+        submit(admission, SassCompilePriority.BATCH, "batch2", started, compilations);
+        submit(admission, SassCompilePriority.INTERACTIVE, "interactive", started, compilations);
+        assertEquals(2, started.size());
+        assertEquals("interactive", started.get(1));
+    }
+
+    @Test
+    public void testCompilationThrowingError() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(1);
+        final CompletableFuture<String> failed = admission.submit(SassCompilePriority.INTERACTIVE, -1L, "a", finished -> {
+            throw new StackOverflowError();
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, admission.getStatistics().getActiveCompiles());
+    }
+
+    @Test
+    public void testInFlightBytes() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxInFlightBytes(100L);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        submit(admission, SassCompilePriority.INTERACTIVE, 60L, "a", started, compilations);
+        submit(admission, SassCompilePriority.INTERACTIVE, 60L, "b", started, compilations);
+        assertEquals(1, started.size());
+        assertEquals(60L, admission.getStatistics().getInFlightBytes());
+
+        compilations.get(0).complete("a");
+        assertEquals(2, started.size());
+
+        // Larger than the whole budget, so it has to wait until nothing else is running.
+        submit(admission, SassCompilePriority.INTERACTIVE, 500L, "c", started, compilations);
+        assertEquals(2, started.size());
+        compilations.get(1).complete("b");
+        assertEquals(3, started.size());
+        assertEquals(500L, admission.getStatistics().getInFlightBytes());
+    }
+
+    @Test
+    public void testCancelWhileQueued() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(1);
+        final List<String> started = new ArrayList<>();
+        final List<CompletableFuture<String>> compilations = new ArrayList<>();
+
+        submit(admission, SassCompilePriority.INTERACTIVE, "a", started, compilations);
+        final CompletableFuture<String> queued = submit(admission, SassCompilePriority.INTERACTIVE, "b", started, compilations);
+        assertEquals(1, admission.getStatistics().getInteractiveQueueDepth());
+        queued.cancel(true);
+        assertEquals(0, admission.getStatistics().getInteractiveQueueDepth());
+
+        compilations.get(0).complete("a");
+        assertEquals(1, started.size());
+        assertEquals(0, admission.getStatistics().getActiveCompiles());
+    }
+
+    @Test
+    public void testTimedOutCompileHoldsPermit() throws Exception {
+        final SassCompileAdmission admission = new SassCompileAdmission();
+        admission.setMaxConcurrentCompiles(1);
+        final List<String> started = new ArrayList<>();
+        final List<Runnable> finished = new ArrayList<>();
+
+        final CompletableFuture<String> timedOut = admission.submit(SassCompilePriority.INTERACTIVE, -1L, "a", done -> {
+            started.add("a");
+            finished.add(done);
+            // Deadline exceeded: the caller is released, the compilation keeps running.
+            final CompletableFuture<String> compilation = new CompletableFuture<>();
+            compilation.completeExceptionally(new SassCompileTimeoutException("a", 10L));
+            return compilation;
+        });
+        assertTrue(timedOut.isCompletedExceptionally());
+        final CompletableFuture<String> queued = submit(admission, SassCompilePriority.INTERACTIVE, "b", started, new ArrayList<>());
+        assertEquals(1, started.size());
+        assertEquals(1, admission.getStatistics().getActiveCompiles());
+        assertEquals(1, admission.getStatistics().getInteractiveQueueDepth());
+        assertFalse(queued.isDone());
+
+        // The runaway has returned.
+        finished.get(0).run();
+        assertEquals(2, started.size());
+        assertEquals("b", started.get(1));
+    }
+
+    private static CompletableFuture<String> submit(final SassCompileAdmission admission,
+                                                    final SassCompilePriority priority,
+                                                    final String input,
+                                                    final List<String> started,
+                                                    final List<CompletableFuture<String>> compilations) {
+        return submit(admission, priority, -1L, input, started, compilations);
+    }
+
+    private static CompletableFuture<String> submit(final SassCompileAdmission admission,
+                                                    final SassCompilePriority priority,
+                                                    final long inputSize,
+                                                    final String input,
+                                                    final List<String> started,
+                                                    final List<CompletableFuture<String>> compilations) {
+        return admission.submit(priority, inputSize, input, finished -> {
+            started.add(input);
+            final CompletableFuture<String> compilation = new CompletableFuture<>();
+            compilation.whenComplete((output, failure) -> finished.run());
+            compilations.add(compilation);
+            return compilation;
+        });
+    }
+
+}
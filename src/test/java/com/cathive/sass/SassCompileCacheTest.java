@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassCompileCache
+ */
+public class SassCompileCacheTest {
+
+    private Path workingDirectory;
+    private Path cacheDirectory;
+    private SassOptionsSnapshot options;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.cacheDirectory = this.workingDirectory.resolve("cache");
+        // Default options without a native context: precision 5, nested, no flags, no paths.
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(5);
+            out.writeByte(SassOutputStyle.NESTED.getIntValue());
+            out.writeByte(0);
+            out.writeInt(-1);
+            out.writeShort(0);
+            out.writeInt(-1);
+            out.writeInt(-1);
+        }
+        this.options = SassOptionsSnapshot.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        final Path checkout = this.createCheckout("checkout1");
+        final Path entry = checkout.resolve("main.scss");
+        final Path partial = checkout.resolve("_colors.scss");
+        final SassCompileCache cache = new SassCompileCache(this.cacheDirectory, "3.3.0");
+
+        assertNull(cache.lookup(entry, this.options));
+        cache.store(entry, this.options, "a{color:red}", null, Arrays.asList(entry, partial));
+
+        final SassCompileCache.Entry cached = cache.lookup(entry, this.options);
+        assertNotNull(cached);
+        assertEquals("a{color:red}", cached.getCss());
+        assertNull(cached.getSourceMap());
+        assertEquals(Arrays.asList(partial), cached.getDependencies());
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+
+        // Another JVM (or node) with the same libsass version shares the entry.
+        assertNotNull(new SassCompileCache(this.cacheDirectory, "3.3.0").lookup(entry, this.options));
+        assertNull(new SassCompileCache(this.cacheDirectory, "3.4.0").lookup(entry, this.options));
+    }
+
+    @Test
+    public void testChangedDependency() throws Exception {
+        final Path checkout = this.createCheckout("checkout1");
+        final Path entry = checkout.resolve("main.scss");
+        final Path partial = checkout.resolve("_colors.scss");
+        final SassCompileCache cache = new SassCompileCache(this.cacheDirectory, "3.3.0");
+        cache.store(entry, this.options, "a{color:red}", null, Arrays.asList(entry, partial));
+
+        Files.write(partial, "$color: blue;".getBytes(StandardCharsets.UTF_8));
+        assertNull(cache.lookup(entry, this.options));
+
+        Files.delete(partial);
+        assertNull(cache.lookup(entry, this.options));
+    }
+
+    @Test
+    public void testRelocatedCheckout() throws Exception {
+        final Path checkout1 = this.createCheckout("checkout1");
+        final Path checkout2 = this.createCheckout("checkout2");
+        final SassCompileCache cache = new SassCompileCache(this.cacheDirectory, "3.3.0");
+        cache.store(checkout1.resolve("main.scss"), this.options, "a{color:red}", "{}",
+                    Arrays.asList(checkout1.resolve("main.scss"), checkout1.resolve("_colors.scss")));
+
+        final SassCompileCache.Entry cached = cache.lookup(checkout2.resolve("main.scss"), this.options);
+        assertNotNull(cached);
+        assertEquals("{}", cached.getSourceMap());
+        assertEquals(Arrays.asList(checkout2.resolve("_colors.scss")), cached.getDependencies());
+    }
+
+    @Test
+    public void testInstancesShareDirectoryLocks() throws Exception {
+        final Path checkout = this.createCheckout("checkout1");
+        final Path entry = checkout.resolve("main.scss");
+        final List<Path> dependencies = Arrays.asList(entry, checkout.resolve("_colors.scss"));
+        // File locks are held per JVM, so instances on the same directory must not lock the same region concurrently.
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final SassCompileCache cache = new SassCompileCache(this.cacheDirectory, "3.3.0");
+                writes.add(threads.submit(() -> {
+                    cache.store(entry, this.options, "a{color:red}", null, dependencies);
+                    return null;
+                }));
+            }
+            for (final Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertNotNull(new SassCompileCache(this.cacheDirectory, "3.3.0").lookup(entry, this.options));
+    }
+
+    private Path createCheckout(final String name) throws IOException {
+        final Path checkout = Files.createDirectories(this.workingDirectory.resolve(name));
+        Files.write(checkout.resolve("main.scss"), "@import 'colors';\na { color: $color; }".getBytes(StandardCharsets.UTF_8));
+        Files.write(checkout.resolve("_colors.scss"), "$color: red;".getBytes(StandardCharsets.UTF_8));
+        return checkout;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassCompileCoalescer
+ */
+public class SassCompileCoalescerTest {
+
+    @Test
+    public void testIdenticalCompilationsAreShared() throws Exception {
+        final SassCompileCoalescer coalescer = new SassCompileCoalescer();
+        final AtomicInteger compilations = new AtomicInteger();
+        final CompletableFuture<String> compilation = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = coalescer.submit("a", () -> { compilations.incrementAndGet(); return compilation; });
+        final CompletableFuture<String> second = coalescer.submit("a", () -> { compilations.incrementAndGet(); return compilation; });
+        final CompletableFuture<String> other = coalescer.submit("b", () -> { compilations.incrementAndGet(); return CompletableFuture.completedFuture("b"); });
+
+        assertEquals(2, compilations.get());
+        assertEquals(1, coalescer.getInFlightCount());
+        assertEquals(1L, coalescer.getCoalescedCount());
+        assertEquals("b", other.get());
+
+        compilation.complete("a");
+        assertEquals("a", first.get());
+        assertEquals("a", second.get());
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // Nothing in flight anymore, so the next request compiles again.
+        coalescer.submit("a", () -> { compilations.incrementAndGet(); return CompletableFuture.completedFuture("a"); });
+        assertEquals(3, compilations.get());
+        assertEquals(3L, coalescer.getStartedCount());
+    }
+
+    @Test
+    public void testFailuresAreShared() throws Exception {
+        final SassCompileCoalescer coalescer = new SassCompileCoalescer();
+        final CompletableFuture<String> compilation = new CompletableFuture<>();
+        final CompletableFuture<String> first = coalescer.submit("a", () -> compilation);
+        final CompletableFuture<String> second = coalescer.submit("a", () -> compilation);
+        final SassCompilationException failure = new SassCompilationException(1, "failed", "a.scss", 1, 1, "{}");
+        compilation.completeExceptionally(failure);
+        for (final CompletableFuture<String> future : new CompletableFuture[]{ first, second }) {
+            try {
+                future.get();
+                fail("Compilation must fail.");
+            } catch (final ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void testSynchronousFailure() throws Exception {
+        final SassCompileCoalescer coalescer = new SassCompileCoalescer();
+        final CompletableFuture<String> future = coalescer.submit("a", () -> { throw new IllegalStateException("failed"); });
+        try {
+            future.get();
+            fail("Compilation must fail.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testCancellationIsNotShared() throws Exception {
+        final SassCompileCoalescer coalescer = new SassCompileCoalescer();
+        final CompletableFuture<String> compilation = new CompletableFuture<>();
+        final CompletableFuture<String> first = coalescer.submit("a", () -> compilation);
+        final CompletableFuture<String> second = coalescer.submit("a", () -> compilation);
+        first.cancel(true);
+        assertFalse(compilation.isCancelled());
+        compilation.complete("a");
+        assertEquals("a", second.get());
+    }
+
+}
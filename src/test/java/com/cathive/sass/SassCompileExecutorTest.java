@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @see com.cathive.sass.SassCompileExecutor
+ */
+public class SassCompileExecutorTest {
+
+    private Path workingDirectory;
+    private Path simpleScssPath;
+    private Path slowScssPath;
+    private SassCompileExecutor executor;
+
+    @Before
+    public void init() throws Exception {
+
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.simpleScssPath = this.workingDirectory.resolve("simple.scss");
+        this.slowScssPath = this.workingDirectory.resolve("slow.scss");
+
+        Files.copy(this.getClass().getClassLoader().getResourceAsStream("simple.scss"), this.simpleScssPath);
+        // Takes well over the deadlines below, but not so long that runaways hold up the next test.
+        Files.write(this.slowScssPath, ("@for $i from 1 through 300 {\n"
+                                        + "  @for $j from 1 through 300 {\n"
+                                        + "    .cell-#{$i}-#{$j} { width: $i * $j * 1px; }\n"
+                                        + "  }\n"
+                                        + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        this.executor = new SassCompileExecutor();
+
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (this.executor.getRunawayCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50L);
+        }
+        this.executor.close();
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCompileWithinDeadline() throws Exception {
+        final String output = this.executor.submit(SassFileContext.create(this.simpleScssPath), 10, TimeUnit.SECONDS).get();
+        assertFalse(output.isEmpty());
+        assertEquals(0, this.executor.getTimedOutCount());
+    }
+
+    @Test
+    public void testCompileExceedingDeadline() throws Exception {
+        try {
+            this.executor.submit(SassFileContext.create(this.slowScssPath), 10, TimeUnit.MILLISECONDS).get();
+            fail("Compilation should have timed out.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof SassCompileTimeoutException);
+        }
+        assertEquals(1, this.executor.getTimedOutCount());
+        assertEquals(1, this.executor.getRunawayCount());
+    }
+
+    @Test
+    public void testRunawayLimit() throws Exception {
+        this.executor.setMaxRunawayCompiles(1);
+        try {
+            this.executor.submit(SassFileContext.create(this.slowScssPath), 10, TimeUnit.MILLISECONDS).get();
+            fail("Compilation should have timed out.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof SassCompileTimeoutException);
+        }
+        try {
+            this.executor.submit(SassFileContext.create(this.simpleScssPath), 10, TimeUnit.SECONDS).get();
+            fail("Compilation should have been rejected while the runaway is still running.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof SassCompileRejectedException);
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @see com.cathive.sass.SassCompileListener
+ */
+public class SassCompileListenerTest {
+
+    private Path workingDirectory;
+    private Path simpleScssPath;
+    private Path brokenScssPath;
+    private Path unparsableScssPath;
+    private RecordingListener listener;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.simpleScssPath = this.workingDirectory.resolve("simple.scss");
+        this.brokenScssPath = this.workingDirectory.resolve("broken.scss");
+        Files.copy(this.getClass().getClassLoader().getResourceAsStream("simple.scss"), this.simpleScssPath);
+        Files.write(this.brokenScssPath, "div { color: $undefined; }\n".getBytes(StandardCharsets.UTF_8));
+        this.unparsableScssPath = this.workingDirectory.resolve("unparsable.scss");
+        Files.write(this.unparsableScssPath, "div { color: red;\n".getBytes(StandardCharsets.UTF_8));
+        this.listener = new RecordingListener();
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        SassCompileListeners.unregister(this.listener);
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testContextListener() throws Exception {
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        context.addCompileListener(this.listener);
+        context.compile();
+        assertEquals(Arrays.asList("started", "parsed", "executed"), this.listener.events);
+        context.removeCompileListener(this.listener);
+        context.compile();
+        assertEquals(3, this.listener.events.size());
+    }
+
+    @Test
+    public void testGlobalListener() throws Exception {
+        SassCompileListeners.register(this.listener);
+        SassFileContext.create(this.simpleScssPath).compile();
+        assertEquals(Arrays.asList("started", "parsed", "executed"), this.listener.events);
+    }
+
+    @Test
+    public void testServiceListener() throws Exception {
+        final SassService service = new SassService();
+        service.addCompileListener(this.listener);
+        service.compile(this.simpleScssPath);
+        assertEquals(Arrays.asList("started", "parsed", "executed"), this.listener.events);
+    }
+
+    @Test
+    public void testCompileFailed() throws Exception {
+        final SassContext context = SassFileContext.create(this.brokenScssPath);
+        context.addCompileListener(this.listener);
+        try {
+            context.compile();
+            fail("Compilation of broken input must fail.");
+        } catch (final SassCompilationException e) {
+            assertEquals(Arrays.asList("started", "parsed", "failed"), this.listener.events);
+        }
+    }
+
+    @Test
+    public void testParseFailed() throws Exception {
+        final SassContext context = SassFileContext.create(this.unparsableScssPath);
+        context.addCompileListener(this.listener);
+        try {
+            context.compile();
+            fail("Compilation of unparsable input must fail.");
+        } catch (final SassCompilationException e) {
+            assertEquals(Arrays.asList("started", "failed"), this.listener.events);
+        }
+    }
+
+    @Test
+    public void testPostProcessFailed() throws Exception {
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        context.getOptions().setPostProcessors((css, edits) -> {
+            throw new IllegalStateException("Faulty post-processor.");
+        });
+        context.addCompileListener(this.listener);
+        try {
+            context.compile();
+            fail("Compilation with a faulty post-processor must fail.");
+        } catch (final IllegalStateException e) {
+            assertEquals(Arrays.asList("started", "parsed", "postProcessFailed"), this.listener.events);
+        }
+    }
+
+    @Test
+    public void testFaultyListener() throws Exception {
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        context.addCompileListener(new SassCompileListener() {
+            @Override
+            public void compileStarted(final SassContext context) {
+                throw new IllegalStateException("Faulty listener.");
+            }
+        });
+        context.addCompileListener(this.listener);
+        assertTrue(!context.compile().isEmpty());
+        assertEquals(Arrays.asList("started", "parsed", "executed"), this.listener.events);
+    }
+
+    private static final class RecordingListener implements SassCompileListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void compileStarted(final SassContext context) {
+            this.events.add("started");
+        }
+
+        @Override
+        public void parseCompleted(final SassContext context, final long durationNanos) {
+            assertTrue(durationNanos >= 0);
+            this.events.add("parsed");
+        }
+
+        @Override
+        public void executeCompleted(final SassContext context, final long durationNanos) {
+            assertTrue(durationNanos >= 0);
+            this.events.add("executed");
+        }
+
+        @Override
+        public void compileFailed(final SassContext context, final SassCompilationException exception) {
+            this.events.add("failed");
+        }
+
+        @Override
+        public void postProcessFailed(final SassContext context, final RuntimeException exception) {
+            this.events.add("postProcessFailed");
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassCompileProfiler
+ */
+public class SassCompileProfilerTest {
+
+    private Path workingDirectory;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testProfile() throws Exception {
+        final Path partial = this.workingDirectory.resolve("_colors.scss");
+        final Path main = this.workingDirectory.resolve("main.scss");
+        Files.write(partial, "$primary: #336699;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(main, "@import \"colors\";\na { color: $primary; }\n".getBytes(StandardCharsets.UTF_8));
+
+        final SassCompileProfiler profiler = new SassCompileProfiler();
+        profiler.setMeasureFileImports(true);
+        final SassService service = new SassService();
+        service.setProfiler(profiler);
+        final SassContext context = service.createContext(main);
+        final String css = service.compile(context);
+        service.compile(context);
+
+        final List<SassCompileProfile> profiles = profiler.getProfiles();
+        assertEquals(1, profiles.size());
+        final SassCompileProfile profile = profiler.getProfile(context);
+        assertNotNull(profile);
+        assertEquals(css.length(), profile.getOutputSize());
+        assertEquals(1, profile.getImportCount());
+        assertEquals(1, profile.getImportReads().size());
+        assertEquals("colors", profile.getImportReads().get(0).getUrl());
+        assertEquals(partial.toString(), profile.getImportReads().get(0).getPath());
+        assertTrue(profile.getParseNanos() > 0);
+        assertTrue(profile.getExecuteNanos() > 0);
+        assertEquals(1, context.getOptions().getImporters().size());
+
+        // By default, file imports are left to libsass.
+        profiler.setMeasureFileImports(false);
+        final SassContext unmeasured = service.createContext(main);
+        service.compile(unmeasured);
+        assertEquals(1, profiler.getProfile(unmeasured).getImportCount());
+        assertTrue(profiler.getProfile(unmeasured).getImportReads().isEmpty());
+        assertTrue(unmeasured.getOptions().getImporters().isEmpty());
+    }
+
+    @Test
+    public void testBatchCompilesAreNotProfiled() throws Exception {
+        final SassCompileProfiler profiler = new SassCompileProfiler();
+        final SassContext context = SassDataContext.create(ByteBuffer.wrap(new byte[0]));
+        context.setPriority(SassCompilePriority.BATCH);
+        profiler.instrument(context);
+        assertTrue(context.getOptions().getPostProcessors().isEmpty());
+
+        profiler.setProfileBatchCompiles(true);
+        profiler.instrument(context);
+        assertEquals(1, context.getOptions().getPostProcessors().size());
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        final SassCompileProfiler profiler = new SassCompileProfiler();
+        profiler.record(new SassCompileProfile("fast.scss", 1000000L, 500000L, 100L, 0,
+                                               Collections.<SassCompileProfile.ImportRead>emptyList()));
+        profiler.record(new SassCompileProfile("slow.scss", 30000000L, 12000000L, 2048L, 2, Arrays.asList(
+                new SassCompileProfile.ImportRead("a", "/styles/_a.scss", 250000L),
+                new SassCompileProfile.ImportRead("<b>", null, 4000000L))));
+
+        final List<SassCompileProfile> profiles = profiler.getProfiles();
+        assertEquals("slow.scss", profiles.get(0).getInput());
+        assertEquals("fast.scss", profiles.get(1).getInput());
+
+        assertEquals("{\n  \"measureFileImports\": false,\n  \"profiles\": [\n"
+                     + "    {\"input\": \"slow.scss\", \"totalMillis\": 42.000, \"parseMillis\": 30.000, \"executeMillis\": 12.000, "
+                     + "\"outputSize\": 2048, \"importCount\": 2, \"importReads\": ["
+                     + "{\"url\": \"<b>\", \"path\": null, \"millis\": 4.000}, "
+                     + "{\"url\": \"a\", \"path\": \"/styles/_a.scss\", \"millis\": 0.250}]},\n"
+                     + "    {\"input\": \"fast.scss\", \"totalMillis\": 1.500, \"parseMillis\": 1.000, \"executeMillis\": 0.500, "
+                     + "\"outputSize\": 100, \"importCount\": 0, \"importReads\": []}\n"
+                     + "  ],\n  \"imports\": [\n"
+                     + "    {\"import\": \"<b>\", \"reads\": 1, \"totalMillis\": 4.000, \"maxMillis\": 4.000},\n"
+                     + "    {\"import\": \"/styles/_a.scss\", \"reads\": 1, \"totalMillis\": 0.250, \"maxMillis\": 0.250}\n"
+                     + "  ]\n}\n",
+                     profiler.toJson());
+
+        final Path htmlReport = this.workingDirectory.resolve("reports/profile.html");
+        profiler.writeReport(htmlReport);
+        final String html = new String(Files.readAllBytes(htmlReport), StandardCharsets.UTF_8);
+        assertTrue(html.startsWith("<!DOCTYPE html>"));
+        assertTrue(html.contains("resolved by libsass and are not timed"));
+        assertTrue(html.contains("<td>slow.scss</td><td>42.000</td>"));
+        assertTrue(html.contains("&lt;b&gt; (4.000 ms)"));
+        assertTrue(html.indexOf("slow.scss") < html.indexOf("fast.scss"));
+
+        final Path jsonReport = this.workingDirectory.resolve("profile.json");
+        profiler.writeReport(jsonReport);
+        assertEquals(profiler.toJson(), new String(Files.readAllBytes(jsonReport), StandardCharsets.UTF_8));
+
+        profiler.clear();
+        assertTrue(profiler.getProfiles().isEmpty());
+        assertEquals("{\n  \"measureFileImports\": false,\n  \"profiles\": [],\n  \"imports\": []\n}\n", profiler.toJson());
+        profiler.setMeasureFileImports(true);
+        assertTrue(profiler.toJson().startsWith("{\n  \"measureFileImports\": true,\n"));
+        assertTrue(profiler.toHtml().contains("resolved by SassFileImporter instead of libsass"));
+    }
+
+}
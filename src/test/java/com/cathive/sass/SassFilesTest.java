@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.SassFiles
+ */
+public class SassFilesTest {
+
+    private Path workingDirectory;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+
+        final Path outputFile = this.workingDirectory.resolve("css/main.css");
+        assertTrue(SassFiles.write(outputFile, bytes("a{color:red}")));
+        assertEquals("a{color:red}", new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8));
+
+        // Identical content leaves the file untouched.
+        final FileTime lastModified = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(outputFile, lastModified);
+        assertFalse(SassFiles.write(outputFile, bytes("a{color:red}")));
+        assertEquals(lastModified, Files.getLastModifiedTime(outputFile));
+
+        assertTrue(SassFiles.write(outputFile, bytes("a{color:blue}")));
+        assertEquals("a{color:blue}", new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8));
+
+        // No temporary files are left behind.
+        try (final Stream<Path> files = Files.list(outputFile.getParent())) {
+            assertEquals(1L, files.count());
+        }
+
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassIncludePathIndex
+ */
+public class SassIncludePathIndexTest {
+
+    private Path workingDirectory;
+    private Path includes1Path;
+    private Path includes2Path;
+    private Path sourcePath;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.includes1Path = Files.createDirectories(this.workingDirectory.resolve("includes1"));
+        this.includes2Path = Files.createDirectories(this.workingDirectory.resolve("includes2"));
+        this.sourcePath = Files.createDirectories(this.workingDirectory.resolve("src"));
+        write(this.includes1Path.resolve("_variables.scss"), "$a: 1;");
+        write(this.includes2Path.resolve("_variables.scss"), "$a: 3;");
+        write(this.includes2Path.resolve("_common.scss"), "$b: 1;");
+        write(this.includes2Path.resolve("grid/_index.scss"), "@import 'columns';");
+        write(this.includes2Path.resolve("grid/_columns.scss"), "$columns: 12;");
+        write(this.includes2Path.resolve("legacy.css"), "a { color: red; }");
+        write(this.sourcePath.resolve("_common.scss"), "$b: 2;");
+        write(this.sourcePath.resolve("main.scss"), "@import 'common';");
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        try (final SassIncludePathIndex index = this.createIndex()) {
+            // The include path is searched in order.
+            assertResolved(this.includes1Path.resolve("_variables.scss"), "$a: 1;", index.resolve("variables", null));
+            assertResolved(this.includes1Path.resolve("_variables.scss"), "$a: 1;", index.resolve("_variables.scss", null));
+            assertResolved(this.includes2Path.resolve("_common.scss"), "$b: 1;", index.resolve("common", null));
+            // Index files.
+            assertResolved(this.includes2Path.resolve("grid/_index.scss"), "@import 'columns';", index.resolve("grid", null));
+            // Relative to the importing stylesheet, inside and outside of the include path.
+            assertResolved(this.includes2Path.resolve("grid/_columns.scss"), "$columns: 12;",
+                           index.resolve("columns", this.includes2Path.resolve("grid/_index.scss")));
+            assertResolved(this.sourcePath.resolve("_common.scss"), "$b: 2;",
+                           index.resolve("common", this.sourcePath.resolve("main.scss")));
+            assertEquals(6L, index.getHitCount());
+            assertEquals(0L, index.getMissCount());
+
+            // Plain CSS is left to libsass.
+            assertNull(index.resolve("legacy", null));
+            assertEquals(7L, index.getHitCount());
+            assertNull(index.resolve("unknown", null));
+            assertEquals(1L, index.getMissCount());
+        }
+    }
+
+    @Test
+    public void testAmbiguous() throws Exception {
+        write(this.includes1Path.resolve("_theme.sass"), "$t: 1");
+        write(this.includes1Path.resolve("theme.scss"), "$t: 2;");
+        write(this.includes2Path.resolve("_theme.scss"), "$t: 3;");
+        write(this.sourcePath.resolve("_card.scss"), "$c: 1;");
+        write(this.sourcePath.resolve("card.css"), "a { color: red; }");
+        try (final SassIncludePathIndex index = this.createIndex()) {
+            assertAmbiguous(index, "theme", null);
+            assertAmbiguous(index, "card", this.sourcePath.resolve("main.scss"));
+            // An extension selects one of the candidates.
+            assertResolved(this.includes1Path.resolve("theme.scss"), "$t: 2;", index.resolve("theme.scss", null));
+            assertNull(index.resolve("theme.sass", null));
+            assertResolved(this.sourcePath.resolve("_card.scss"), "$c: 1;", index.resolve("card.scss", this.sourcePath.resolve("main.scss")));
+            assertEquals(0L, index.getMissCount());
+        }
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        try (final SassIncludePathIndex index = this.createIndex()) {
+            assertNull(index.resolve("buttons", null));
+            write(this.includes2Path.resolve("components/_buttons.scss"), "$c: 1;");
+            assertNull(index.resolve("components/buttons", null));
+            index.refresh();
+            assertResolved(this.includes2Path.resolve("components/_buttons.scss"), "$c: 1;", index.resolve("components/buttons", null));
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        try (final SassIncludePathIndex index = this.createIndex()) {
+            index.startWatching();
+            write(this.includes1Path.resolve("_mixins.scss"), "@mixin m {}");
+            final long deadline = System.currentTimeMillis() + 30000L;
+            while (index.resolve("mixins", null) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertResolved(this.includes1Path.resolve("_mixins.scss"), "@mixin m {}", index.resolve("mixins", null));
+            assertTrue(index.getRefreshCount() > 0L);
+        }
+    }
+
+    @Test
+    public void testKey() {
+        assertEquals("variables", SassIncludePathIndex.key("_variables.scss"));
+        assertEquals("variables", SassIncludePathIndex.key("./variables"));
+        assertEquals("grid/columns", SassIncludePathIndex.key("grid/_columns"));
+        assertEquals("grid/columns", SassIncludePathIndex.key("grid\\columns.sass"));
+    }
+
+    private SassIncludePathIndex createIndex() throws IOException {
+        return new SassIncludePathIndex(Arrays.asList(this.includes1Path, this.includes2Path), new SassImportCache());
+    }
+
+    private static void assertResolved(final Path expectedFile, final String expectedSource, final List<SassImport> imports) {
+        assertNotNull(imports);
+        assertEquals(1, imports.size());
+        assertEquals(expectedFile.toAbsolutePath().normalize(), imports.get(0).getAbsolutePath());
+        assertEquals(expectedSource, imports.get(0).getSource());
+    }
+
+    private static void assertAmbiguous(final SassIncludePathIndex index, final String url, final Path previous) {
+        try {
+            index.resolve(url, previous);
+            fail("Import of \"" + url + "\" must be ambiguous.");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("It's not clear which file to import"));
+        }
+    }
+
+    private static void write(final Path file, final String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
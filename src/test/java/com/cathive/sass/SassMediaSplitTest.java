@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassMediaSplit
+ */
+public class SassMediaSplitTest {
+
+    private static final String CSS = "a {\n  color: red; }\n"
+            + "@media print {\n  a {\n    color: black; } }\n"
+            + "/* @media screen { x { } } */\n"
+            + "b {\n  content: \"@media screen {\"; }\n"
+            + "@supports (display: grid) {\n  @media print {\n    c {\n      display: grid; } } }\n"
+            + "@media screen and  (min-width: 1024px) {\n  d {\n    width: 50%; } }\n"
+            + "@media PRINT {\n  e {\n    display: none; } }\n"
+            + "@media print {\n  f {\n    display: none; } }\n";
+
+    @Test
+    public void testSplit() {
+        final SassMediaSplit split = SassMediaSplit.split(CSS, 0);
+        assertEquals("a {\n  color: red; }\n"
+                     + "/* @media screen { x { } } */\n"
+                     + "b {\n  content: \"@media screen {\"; }\n"
+                     + "@supports (display: grid) {\n  @media print {\n    c {\n      display: grid; } } }\n",
+                     split.getCss());
+        final Map<String, String> media = split.getMediaCss();
+        assertArrayEquals(new String[]{ "print", "screen and (min-width: 1024px)", "PRINT" }, media.keySet().toArray());
+        assertEquals("@media print {\n\n  a {\n    color: black; } \n\n  f {\n    display: none; } \n}\n", media.get("print"));
+        assertEquals("@media screen and (min-width: 1024px) {\n\n  d {\n    width: 50%; } \n}\n", media.get("screen and (min-width: 1024px)"));
+    }
+
+    @Test
+    public void testCompressed() {
+        final SassMediaSplit split = SassMediaSplit.split("a{color:red}@media print{a{color:#000}}b{color:blue}", 0);
+        assertEquals("a{color:red}b{color:blue}", split.getCss());
+        assertEquals("@media print {\na{color:#000}\n}\n", split.getMediaCss().get("print"));
+    }
+
+    @Test
+    public void testMinimumSize() {
+        final SassMediaSplit split = SassMediaSplit.split(CSS, 40);
+        assertArrayEquals(new String[]{ "print" }, split.getMediaCss().keySet().toArray());
+        assertTrue(split.getCss().contains("@media screen and  (min-width: 1024px) {"));
+        assertEquals(CSS, SassMediaSplit.split(CSS, Integer.MAX_VALUE).getCss());
+    }
+
+    @Test
+    public void testFileNamesAndManifest() {
+        final SassMediaSplit split = SassMediaSplit.split(CSS, 0);
+        final Map<String, String> fileNames = split.getFileNames("app");
+        assertEquals("app-print.css", fileNames.get("print"));
+        assertEquals("app-screen-and-min-width-1024px.css", fileNames.get("screen and (min-width: 1024px)"));
+        assertEquals("app-print-2.css", fileNames.get("PRINT"));
+        assertEquals("{\n  \"css\": \"app.css\",\n  \"media\": [\n"
+                     + "    {\"media\": \"print\", \"href\": \"app-print.css\"},\n"
+                     + "    {\"media\": \"screen and (min-width: 1024px)\", \"href\": \"app-screen-and-min-width-1024px.css\"},\n"
+                     + "    {\"media\": \"PRINT\", \"href\": \"app-print-2.css\"}\n"
+                     + "  ]\n}\n",
+                     split.toManifest("app"));
+        assertEquals("{\n  \"css\": \"app.css\",\n  \"media\": []\n}\n", SassMediaSplit.split("a{}", 0).toManifest("app"));
+        assertEquals(Arrays.asList("app-print.css", "app-screen-and-min-width-1024px.css", "app-print-2.css"),
+                     SassMediaSplit.readFileNames(split.toManifest("app")));
+        assertEquals(Collections.singletonList("a\"b.css"), SassMediaSplit.readFileNames("{\"href\": \"a\\\"b.css\"}"));
+    }
+
+    @Test
+    public void testCharset() {
+        final SassMediaSplit split = SassMediaSplit.split("@charset \"UTF-8\";\na {\n  content: \"\u00e4\"; }\n@media print {\n  a {\n    content: \"\u00f6\"; } }\n", 0);
+        assertEquals("@charset \"UTF-8\";\na {\n  content: \"\u00e4\"; }\n", split.getCss());
+        assertEquals("@charset \"UTF-8\";\n@media print {\n\n  a {\n    content: \"\u00f6\"; } \n}\n", split.getMediaCss().get("print"));
+
+        // Compressed output starts with a byte order mark instead.
+        final SassMediaSplit compressed = SassMediaSplit.split("\uFEFFa{content:\"\u00e4\"}@media print{a{content:\"\u00f6\"}}", 0);
+        assertEquals("\uFEFF@media print {\na{content:\"\u00f6\"}\n}\n", compressed.getMediaCss().get("print"));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.SassNativeBackends
+ */
+public class SassNativeBackendsTest {
+
+    @Test
+    public void testDefaultBackend() {
+        final SassNativeBackend backend = SassNativeBackends.getDefault();
+        assertNotNull(backend);
+        assertEquals(SassFfmSupport.isAvailable() ? "ffm" : "jna", backend.getName());
+        assertFalse(backend.getLibsassVersion().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBackend() {
+        SassNativeBackends.get("unknown");
+    }
+
+    @Test
+    public void testCompileFile() throws Exception {
+        final Path input = Files.createTempFile("backend", ".scss");
+        try {
+            Files.write(input, "$color: #336699;\n.a { .b { color: $color; } }\n".getBytes(StandardCharsets.UTF_8));
+            final SassOptionsSnapshot options = SassOptionsSnapshot.defaults();
+            for (final String name : new String[] { "jna", "ffm" }) {
+                if ("ffm".equals(name) && !SassFfmSupport.isAvailable()) {
+                    continue;
+                }
+                try (final SassNativeOutput output = SassNativeBackends.get(name).compileFile(input, options)) {
+                    final String css = output.getString();
+                    assertTrue(name, css.contains(".a .b"));
+                    assertTrue(name, css.contains("#336699"));
+                    assertEquals(name, output.getBytes().remaining(), css.getBytes(StandardCharsets.UTF_8).length);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the native memory accounting and contains a soak test that checks that neither native objects
+ * nor the resident set size of the process keep growing over a large number of compilations.
+ * <p>The number of soak iterations defaults to a value that is suitable for regular builds and can be
+ * raised via {@code -Dsass.soak.iterations=100000}.</p>
+ * @see com.cathive.sass.SassNativeMemory
+ */
+public class SassNativeMemoryTest {
+
+    /** Total number of compilations performed by the soak test. */
+    private static final int SOAK_ITERATIONS = Integer.getInteger("sass.soak.iterations", 2_000);
+
+    /** Number of times the counters are sampled during the soak test. */
+    private static final int SOAK_CHECKPOINTS = 10;
+
+    /** Tolerated growth of the resident set size (in bytes) after the warm-up phase. */
+    private static final long RSS_TOLERANCE = Long.getLong("sass.soak.rssTolerance", 64L * 1024L * 1024L);
+
+    /** Tolerated number of native contexts that may still await finalization at a checkpoint. */
+    private static final long CONTEXT_TOLERANCE = Long.getLong("sass.soak.contextTolerance", 256L);
+
+    private Path workingDirectory;
+    private Path simpleScssPath;
+    private Path brokenScssPath;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.simpleScssPath = this.workingDirectory.resolve("simple.scss");
+        this.brokenScssPath = this.workingDirectory.resolve("broken.scss");
+        Files.copy(this.getClass().getClassLoader().getResourceAsStream("simple.scss"), this.simpleScssPath);
+        Files.write(this.brokenScssPath, "div { color: $undefined; ".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        final SassNativeMemoryUsage before = SassNativeMemory.getUsage();
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        final String output = context.compile();
+        final SassNativeMemoryUsage after = SassNativeMemory.getUsage();
+        assertTrue(after.getContextsCreated() > before.getContextsCreated());
+        assertTrue(after.getCompilersCreated() > before.getCompilersCreated());
+        assertEquals(0L, after.getLiveCompilers());
+        assertTrue(after.getRetainedOutputBytes() >= output.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void testSoak() throws Exception {
+
+        final int batchSize = Math.max(1, SOAK_ITERATIONS / SOAK_CHECKPOINTS);
+
+        // The first batch warms up the heap, the JIT and the native allocator.
+        this.compileBatch(batchSize);
+        final SassNativeMemoryUsage baseline = settle();
+
+        for (int checkpoint = 1; checkpoint <= SOAK_CHECKPOINTS; checkpoint++) {
+            this.compileBatch(batchSize);
+            final SassNativeMemoryUsage usage = settle();
+            assertEquals("Native compilers leaked", 0L, usage.getLiveCompilers());
+            assertTrue("Native contexts keep growing: " + usage,
+                       usage.getLiveContexts() - baseline.getLiveContexts() <= CONTEXT_TOLERANCE);
+            if (baseline.getResidentSetSize() >= 0L) {
+                assertTrue("Resident set size keeps growing: " + usage,
+                           usage.getResidentSetSize() - baseline.getResidentSetSize() <= RSS_TOLERANCE);
+            }
+        }
+
+    }
+
+    private void compileBatch(final int size) {
+        for (int i = 0; i < size; i++) {
+            if (i % 10 == 9) {
+                // Failed compilations must release their native objects as well.
+                try {
+                    SassFileContext.create(this.brokenScssPath).compile();
+                    fail("Compilation of a broken file must fail.");
+                } catch (final SassCompilationException e) {
+                    // Expected.
+                }
+            } else {
+                final SassContext context = SassFileContext.create(this.simpleScssPath);
+                context.getOptions().setOutputStyle(i % 2 == 0 ? SassOutputStyle.COMPRESSED : SassOutputStyle.NESTED);
+                context.compile();
+            }
+        }
+    }
+
+    /**
+     * Runs the garbage collector and all pending finalizers until the number of live native contexts
+     * doesn't decrease any further.
+     */
+    private static SassNativeMemoryUsage settle() throws InterruptedException {
+        SassNativeMemoryUsage usage = SassNativeMemory.getUsage();
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(20L);
+            final SassNativeMemoryUsage current = SassNativeMemory.getUsage();
+            if (current.getLiveContexts() >= usage.getLiveContexts() && i > 0) {
+                return current;
+            }
+            usage = current;
+        }
+        return usage;
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassPathImporter
+ * @see com.cathive.sass.SassFileSystems
+ */
+public class SassPathImporterTest {
+
+    private Path workingDirectory;
+    private Path archivePath;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.archivePath = this.workingDirectory.resolve("webjar.jar");
+        writeArchive(this.archivePath, "$a: 1;");
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        SassFileSystems.closeAll();
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        final FileSystem archive = SassFileSystems.getArchive(this.archivePath);
+        final Path root = archive.getPath("/META-INF/resources/webjars/theme");
+        final SassPathImporter importer = new SassPathImporter(Collections.singletonList(root.resolve("lib")), new SassImportCache());
+
+        // Along the include path, preferring partials.
+        final List<SassImport> variables = importer.resolve("variables", null);
+        assertImported(root.resolve("lib/_variables.scss"), "$a: 1;", variables);
+        // Index files.
+        assertImported(root.resolve("lib/grid/_index.scss"), "@import 'columns';", importer.resolve("grid", null));
+
+        // Relative to a stylesheet that has been served before, reported by libsass as a path of the default file system.
+        final List<SassImport> grid = importer.resolve("grid", null);
+        final Path previous = Paths.get(grid.get(0).getAbsolutePath().toString());
+        assertImported(root.resolve("lib/grid/_columns.scss"), "$columns: 12;", importer.resolve("columns", previous));
+
+        // Unknown stylesheets, plain CSS and URLs are left to libsass.
+        assertNull(importer.resolve("unknown", null));
+        assertNull(importer.resolve("legacy.css", null));
+        assertNull(importer.resolve("http://example.com/a.scss", null));
+    }
+
+    @Test
+    public void testArchiveCache() throws Exception {
+        final FileSystem archive = SassFileSystems.getArchive(this.archivePath);
+        assertSame(archive, SassFileSystems.getArchive(this.archivePath));
+
+        final URI uri = URI.create("jar:" + this.archivePath.toUri() + "!/META-INF/resources/webjars/theme/lib/_variables.scss");
+        final Path variables = SassFileSystems.getPath(uri);
+        assertSame(archive, variables.getFileSystem());
+        assertEquals("$a: 1;", new String(Files.readAllBytes(variables), StandardCharsets.UTF_8));
+
+        // A modified archive is opened again. It is replaced the way deployments usually do it, so readers of the
+        // previous file system still see the previous contents.
+        final Path replacement = this.workingDirectory.resolve("webjar.jar.tmp");
+        writeArchive(replacement, "$a: 2;");
+        Files.setLastModifiedTime(replacement, FileTime.fromMillis(Files.getLastModifiedTime(this.archivePath).toMillis() + 2000L));
+        Files.move(replacement, this.archivePath, StandardCopyOption.REPLACE_EXISTING);
+        final FileSystem reopened = SassFileSystems.getArchive(this.archivePath);
+        assertNotSame(archive, reopened);
+        assertEquals("$a: 2;", new String(Files.readAllBytes(SassFileSystems.getPath(uri)), StandardCharsets.UTF_8));
+
+        // The previous file system is retired rather than closed right away.
+        assertTrue(archive.isOpen());
+        assertEquals("$a: 1;", new String(Files.readAllBytes(variables), StandardCharsets.UTF_8));
+        SassFileSystems.closeRetired(System.currentTimeMillis());
+        assertTrue(archive.isOpen());
+        SassFileSystems.closeRetired(System.currentTimeMillis() + SassFileSystems.RETIREMENT_DELAY_MILLIS);
+        assertFalse(archive.isOpen());
+        assertTrue(reopened.isOpen());
+    }
+
+    @Test
+    public void testNestedArchive() throws Exception {
+        final Path application = this.workingDirectory.resolve("app.jar");
+        try (final OutputStream out = Files.newOutputStream(application); final ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("BOOT-INF/lib/webjar.jar"));
+            Files.copy(this.archivePath, zip);
+            zip.closeEntry();
+        }
+        final URI uri = URI.create("jar:" + application.toUri() + "!/BOOT-INF/lib/webjar.jar!/META-INF/resources/webjars/theme/lib/_variables.scss");
+        final Path variables = SassFileSystems.getPath(uri);
+        assertEquals("/META-INF/resources/webjars/theme/lib/_variables.scss", variables.toString());
+        assertEquals("$a: 1;", new String(Files.readAllBytes(variables), StandardCharsets.UTF_8));
+        assertSame(variables.getFileSystem(), SassFileSystems.getPath(uri).getFileSystem());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedArchiveUri() throws Exception {
+        SassFileSystems.getPath(URI.create("jar:nested:/app.jar/!BOOT-INF/lib/webjar.jar!/META-INF/resources/webjars/theme/main.scss"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileContextRequiresDefaultFileSystem() throws Exception {
+        SassFileContext.create(SassFileSystems.getArchive(this.archivePath).getPath("/META-INF/resources/webjars/theme/main.scss"));
+    }
+
+    private static void assertImported(final Path expectedFile, final String expectedSource, final List<SassImport> imports) {
+        assertNotNull(imports);
+        assertEquals(1, imports.size());
+        assertEquals(expectedFile, imports.get(0).getAbsolutePath());
+        assertEquals(expectedSource, imports.get(0).getSource());
+    }
+
+    private static void writeArchive(final Path archive, final String variables) throws IOException {
+        try (final OutputStream out = Files.newOutputStream(archive); final ZipOutputStream zip = new ZipOutputStream(out)) {
+            writeEntry(zip, "META-INF/resources/webjars/theme/main.scss", "@import 'variables';");
+            writeEntry(zip, "META-INF/resources/webjars/theme/lib/_variables.scss", variables);
+            writeEntry(zip, "META-INF/resources/webjars/theme/lib/grid/_index.scss", "@import 'columns';");
+            writeEntry(zip, "META-INF/resources/webjars/theme/lib/grid/_columns.scss", "$columns: 12;");
+            writeEntry(zip, "META-INF/resources/webjars/theme/lib/legacy.css", "a { color: red; }");
+        }
+    }
+
+    private static void writeEntry(final ZipOutputStream zip, final String name, final String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @see com.cathive.sass.SassService
+ */
+public class SassServiceTest {
+
+    private Path workingDirectory;
+    private Path mainScssPath;
+    private Path frameworkScssPath;
+    private SassService service;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.mainScssPath = this.workingDirectory.resolve("main.scss");
+        this.frameworkScssPath = this.workingDirectory.resolve("_framework.scss");
+        Files.write(this.frameworkScssPath, ("$primary: black !default;\n"
+                                             + ".button { color: $primary; }\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(this.mainScssPath, "@import \"framework\";\n".getBytes(StandardCharsets.UTF_8));
+        this.service = new SassService();
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        this.service.dispose();
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCompileVariants() throws Exception {
+
+        final Map<String, Map<String, String>> variables = new LinkedHashMap<>();
+        variables.put("red", Collections.singletonMap("primary", "red"));
+        variables.put("blue", Collections.singletonMap("$primary", "blue"));
+        variables.put("default", Collections.<String, String>emptyMap());
+
+        final Map<String, String> outputs = this.service.compileVariants(this.mainScssPath, variables);
+        assertEquals(3, outputs.size());
+        assertTrue(outputs.get("red").contains("color: red"));
+        assertTrue(outputs.get("blue").contains("color: blue"));
+        assertTrue(outputs.get("default").contains("color: black"));
+        assertEquals(0, this.service.getVariantCacheHitCount());
+        assertEquals(3, this.service.getVariantCacheMissCount());
+
+        // Only the tenant with changed variables is recompiled.
+        variables.put("blue", Collections.singletonMap("primary", "navy"));
+        final Map<String, String> updated = this.service.compileVariants(this.mainScssPath, variables);
+        assertTrue(updated.get("blue").contains("color: navy"));
+        assertEquals(outputs.get("red"), updated.get("red"));
+        assertEquals(2, this.service.getVariantCacheHitCount());
+        assertEquals(4, this.service.getVariantCacheMissCount());
+
+    }
+
+    @Test
+    public void testCompileVariantsAfterImportChanged() throws Exception {
+
+        final Map<String, Map<String, String>> variables = Collections.singletonMap("red", Collections.singletonMap("primary", "red"));
+        assertFalse(this.service.compileVariants(this.mainScssPath, variables).get("red").contains(".link"));
+
+        Files.write(this.frameworkScssPath, ("$primary: black !default;\n"
+                                             + ".button { color: $primary; }\n"
+                                             + ".link { color: $primary; }\n").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.frameworkScssPath, FileTime.fromMillis(System.currentTimeMillis() + 60000L));
+
+        assertTrue(this.service.compileVariants(this.mainScssPath, variables).get("red").contains(".link"));
+        assertEquals(0, this.service.getVariantCacheHitCount());
+
+    }
+
+    @Test
+    public void testTimedOutCompileHoldsSlot() throws Exception {
+        final Path slowScssPath = this.workingDirectory.resolve("slow.scss");
+        Files.write(slowScssPath, ("@for $i from 1 through 300 {\n"
+                                   + "  @for $j from 1 through 300 {\n"
+                                   + "    .cell-#{$i}-#{$j} { width: $i * $j * 1px; }\n"
+                                   + "  }\n"
+                                   + "}\n").getBytes(StandardCharsets.UTF_8));
+        this.service.setMaxConcurrentCompiles(1);
+        try {
+            this.service.compileAsync(this.service.createContext(slowScssPath), 10, TimeUnit.MILLISECONDS).get();
+            fail("Compilation should have timed out.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof SassCompileTimeoutException);
+        }
+        assertEquals(1, this.service.getAdmissionStatistics().getActiveCompiles());
+
+        // Queued until the runaway has finished.
+        final CompletableFuture<String> queued = this.service.compileAsync(this.service.createContext(this.mainScssPath));
+        assertEquals(1, this.service.getAdmissionStatistics().getInteractiveQueueDepth());
+        assertFalse(queued.get(1, TimeUnit.MINUTES).isEmpty());
+        assertEquals(0, this.service.getRunawayCompileCount());
+    }
+
+    @Test
+    public void testCompileCacheSourceMap() throws Exception {
+        final SassCompileCache cache = new SassCompileCache(this.workingDirectory.resolve("cache"));
+        this.service.setCompileCache(cache);
+        final SassContext compiled = this.service.createContext(this.mainScssPath);
+        compiled.getOptions().setSourceMapFile(this.workingDirectory.resolve("main.css.map"));
+        final String css = this.service.compile(compiled);
+        final String sourceMap = compiled.getSourceMap();
+        assertNotNull(sourceMap);
+
+        final SassContext cached = this.service.createContext(this.mainScssPath);
+        cached.getOptions().setSourceMapFile(this.workingDirectory.resolve("main.css.map"));
+        assertEquals(css, this.service.compile(cached));
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(sourceMap, cached.getSourceMap());
+    }
+
+    @Test
+    public void testCompileAsyncCache() throws Exception {
+        final SassCompileCache cache = new SassCompileCache(this.workingDirectory.resolve("cache"));
+        this.service.setCompileCache(cache);
+        final String css = this.service.compileAsync(this.service.createContext(this.mainScssPath)).get();
+        assertEquals(1L, cache.getMissCount());
+        assertEquals(1L, cache.getStoreCount());
+        assertEquals(css, this.service.compileAsync(this.service.createContext(this.mainScssPath)).get());
+        assertEquals(1L, cache.getHitCount());
+    }
+
+    @Test
+    public void testToScss() {
+        final Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("secondary", "#fff");
+        variables.put("$primary", "red");
+        assertEquals("$primary: red;\n$secondary: #fff;\n", SassService.toScss(variables));
+    }
+
+}
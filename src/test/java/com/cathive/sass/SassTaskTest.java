@@ -16,11 +16,14 @@
 package com.cathive.sass;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
 import java.util.Properties;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildFileRule;
@@ -30,6 +33,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -43,6 +47,7 @@ public class SassTaskTest {
     private Path complexScssPath;
     private Path includes1Path;
     private Path includes2Path;
+    private Path nestedPath;
     private Path buildFilePath;
 
     @Rule
@@ -55,6 +60,7 @@ public class SassTaskTest {
         this.complexScssPath = this.workingDirectory.resolve("complex.scss");
         this.includes1Path = this.workingDirectory.resolve("includes1");
         this.includes2Path = this.workingDirectory.resolve("includes2");
+        this.nestedPath = this.workingDirectory.resolve("themes").resolve("dark");
         this.buildFilePath = this.workingDirectory.resolve("build.xml");
 
         Properties props = System.getProperties();
@@ -70,6 +76,8 @@ public class SassTaskTest {
         Files.copy(this.getClass().getClassLoader().getResourceAsStream("includes1/_common.scss"), includes1Path.resolve("_common.scss"));
         Files.copy(this.getClass().getClassLoader().getResourceAsStream("includes2/_variables2.scss"), includes2Path.resolve("_variables2.scss"));
         Files.copy(this.getClass().getClassLoader().getResourceAsStream("includes2/_common.scss"), includes2Path.resolve("_common.scss"));
+        Files.createDirectories(nestedPath);
+        Files.copy(this.getClass().getClassLoader().getResourceAsStream("simple.scss"), nestedPath.resolve("theme.scss"));
         Files.copy(this.getClass().getClassLoader().getResourceAsStream("build.xml"), this.buildFilePath);
         buildRule.configureProject(this.buildFilePath.toString());
     }
@@ -130,6 +138,82 @@ public class SassTaskTest {
         testTask("testWithSourcemaproot");
     }
 
+    @Test
+    public void testUnchangedOutputIsNotRewritten() throws Exception {
+        testTask("test");
+        final Path simpleCss = this.workingDirectory.resolve("output").resolve("simple.css");
+        final FileTime lastModified = FileTime.fromMillis(System.currentTimeMillis() - 60000L);
+        Files.setLastModifiedTime(simpleCss, lastModified);
+        final byte[] content = Files.readAllBytes(simpleCss);
+
+        buildRule.executeTarget("testIncremental");
+        Assert.assertEquals(lastModified, Files.getLastModifiedTime(simpleCss));
+        Assert.assertArrayEquals(content, Files.readAllBytes(simpleCss));
+
+        buildRule.executeTarget("testIncrementalCompressed");
+        Assert.assertNotEquals(lastModified, Files.getLastModifiedTime(simpleCss));
+        assertFalse(Arrays.equals(content, Files.readAllBytes(simpleCss)));
+    }
+
+    @Test
+    public void testSplitMediaDeletesStaleOutput() throws Exception {
+        final Path outputPath = this.workingDirectory.resolve("output");
+        Files.createDirectories(outputPath);
+        // Left behind by a previous build whose stylesheet had a print media query.
+        Files.write(outputPath.resolve("simple-print.css"), "@media print {\n}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputPath.resolve("simple.media.json"),
+                    "{\n  \"css\": \"simple.css\",\n  \"media\": [\n    {\"media\": \"print\", \"href\": \"simple-print.css\"},\n    {\"media\": \"x\", \"href\": \"other.css\"}\n  ]\n}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(outputPath.resolve("other.css"), new byte[0]);
+
+        buildRule.executeTarget("testSplitMedia");
+        assertFalse(outputPath.resolve("simple-print.css").toFile().exists());
+        // Files that the task can't have written are never deleted.
+        assertTrue(outputPath.resolve("other.css").toFile().exists());
+        Assert.assertEquals("{\n  \"css\": \"simple.css\",\n  \"media\": []\n}\n",
+                            new String(Files.readAllBytes(outputPath.resolve("simple.media.json")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExecuteNotRecursive() {
+        testTask("test");
+        assertFalse(this.workingDirectory.resolve("output").resolve("themes").toFile().exists());
+    }
+
+    @Test
+    public void testRecursive() {
+        testTask("testRecursive");
+        final Path outputPath = this.workingDirectory.resolve("output");
+        assertTrue(outputPath.resolve("themes").resolve("dark").resolve("theme.css").toFile().exists());
+        // Partials must never be compiled on their own.
+        assertFalse(outputPath.resolve("includes1").toFile().exists());
+    }
+
+    @Test
+    public void testRecursiveSkipsSymbolicLinks() throws Exception {
+        // A link back to one of its parents would make the walk recurse without bound.
+        Files.createSymbolicLink(this.nestedPath.resolve("loop"), this.workingDirectory.resolve("themes"));
+        testTask("testRecursive");
+        final Path outputPath = this.workingDirectory.resolve("output");
+        assertTrue(outputPath.resolve("themes").resolve("dark").resolve("theme.css").toFile().exists());
+        assertFalse(outputPath.resolve("themes").resolve("dark").resolve("loop").toFile().exists());
+    }
+
+    @Test
+    public void testFileset() {
+        testTask("testFileset");
+        final Path outputPath = this.workingDirectory.resolve("output");
+        assertTrue(outputPath.resolve("themes").resolve("dark").resolve("theme.css").toFile().exists());
+        assertFalse(outputPath.resolve("includes2").toFile().exists());
+    }
+
+    @Test
+    public void testFilesetWithMapper() {
+        buildRule.executeTarget("testFilesetWithMapper");
+        final Path outputPath = this.workingDirectory.resolve("output");
+        assertTrue(outputPath.resolve("simple.min.css").toFile().exists());
+        assertTrue(outputPath.resolve("themes").resolve("dark").resolve("theme.min.css").toFile().exists());
+    }
+
     /**
      * A helper for basic testing of Ant targets that expect to succeed.
      * It is expected that the Ant target performs a `clean` before running.
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.SassUrlRewriter
+ * @see com.cathive.sass.SassAssetManifest
+ * @see com.cathive.sass.SassCssEdits
+ */
+public class SassUrlRewriterTest {
+
+    private Path workingDirectory;
+    private SassAssetManifest manifest;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("img/logo.png", "img/logo-0123abcd.png");
+        entries.put("fonts/icons.woff", "fonts/icons-89abcdef.woff");
+        this.manifest = SassAssetManifest.of(entries);
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testRewrite() {
+        final String css = "/* url(../img/logo.png) */\n"
+                + "a { background: url(../img/logo.png) no-repeat; }\n"
+                + "b { background: url( \"/img/logo.png?v=1#top\" ); }\n"
+                + "@font-face { src: URL('../fonts/icons.woff'); }\n"
+                + "c { background: url(data:image/png;base64,AAAA), url(http://example.com/a.png), url(../img/unknown.png); }\n"
+                + "d { content: \"url(../img/logo.png)\"; }\n";
+        final String expected = "/* url(../img/logo.png) */\n"
+                + "a { background: url(../img/logo-0123abcd.png) no-repeat; }\n"
+                + "b { background: url( \"/img/logo-0123abcd.png?v=1#top\" ); }\n"
+                + "@font-face { src: URL('../fonts/icons-89abcdef.woff'); }\n"
+                + "c { background: url(data:image/png;base64,AAAA), url(http://example.com/a.png), url(../img/unknown.png); }\n"
+                + "d { content: \"url(../img/logo.png)\"; }\n";
+        assertEquals(expected, postProcess(css, new SassUrlRewriter(this.manifest, "css")));
+    }
+
+    @Test
+    public void testRelativePaths() {
+        final SassUrlRewriter root = new SassUrlRewriter(this.manifest, "");
+        assertEquals("img/logo-0123abcd.png", root.rewrite("img/logo.png", this.manifest));
+        assertEquals("img/logo-0123abcd.png", root.rewrite("./img/logo.png", this.manifest));
+        assertNull(root.rewrite("../img/logo.png", this.manifest));
+        final SassUrlRewriter nested = new SassUrlRewriter(this.manifest, "img/icons");
+        assertEquals("../logo-0123abcd.png", nested.rewrite("../logo.png", this.manifest));
+        assertEquals("/img/logo-0123abcd.png", nested.rewrite("/img/logo.png", this.manifest));
+    }
+
+    @Test
+    public void testSourceMap() {
+        final String css = "a {\n  background: url(../img/logo.png) no-repeat; }\n";
+        final SassCssEdits edits = new SassCssEdits(css);
+        new SassUrlRewriter(this.manifest, "css").process(css, edits);
+        assertEquals("a {\n  background: url(../img/logo-0123abcd.png) no-repeat; }\n", edits.apply());
+        // Segments at columns 2, 14 and 35 of the second line; "no-repeat" moves by 9 columns.
+        final String sourceMap = "{\"version\":3,\"sources\":[\"a.scss\"],\"mappings\":\"AAAA;EACA,YAAA,qBAAA;\",\"names\":[]}";
+        assertEquals("{\"version\":3,\"sources\":[\"a.scss\"],\"mappings\":\"AAAA;EACA,YAAA,8BAAA;\",\"names\":[]}",
+                     edits.remapSourceMap(sourceMap));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOverlappingEdits() {
+        final SassCssEdits edits = new SassCssEdits("a { color: red; }");
+        edits.replace(4, 9, "background");
+        edits.replace(6, 10, "x");
+        edits.apply();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultiLineEdit() {
+        new SassCssEdits("a {\n}").replace(2, 5, "");
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+        final Path assets = Files.createDirectories(this.workingDirectory.resolve("assets/img"));
+        Files.write(assets.resolve("logo.png"), new byte[]{ 1, 2, 3 });
+        Files.write(assets.resolve("README"), new byte[]{ 4 });
+        final SassAssetManifest fingerprinted = SassAssetManifest.fingerprint(this.workingDirectory.resolve("assets"));
+        assertEquals(2, fingerprinted.size());
+        assertTrue(fingerprinted.get("img/logo.png").matches("img/logo-[0-9a-f]{8}\\.png"));
+        assertTrue(fingerprinted.get("img/README").matches("img/README-[0-9a-f]{8}"));
+
+        final Path manifestFile = this.workingDirectory.resolve("manifest.json");
+        fingerprinted.writeTo(manifestFile);
+        final SassAssetManifest loaded = SassAssetManifest.load(manifestFile);
+        assertEquals(fingerprinted.getEntries(), loaded.getEntries());
+        assertSame(loaded, SassAssetManifest.load(manifestFile));
+
+        assertEquals("a\"b", SassAssetManifest.parse("{ \"x\\u0079\" : \"a\\\"b\" }").get("xy"));
+        assertTrue(SassAssetManifest.parse(" {} ").isEmpty());
+        try {
+            SassAssetManifest.parse("{\"a\": 1}");
+            fail("Non-string values should be rejected.");
+        } catch (final IOException e) {
+            // Expected.
+        }
+
+        final String css = "a { background: url(img/logo.png); }";
+        assertEquals("a { background: url(" + fingerprinted.get("img/logo.png") + "); }",
+                     postProcess(css, new SassUrlRewriter(manifestFile, "")));
+    }
+
+    private static String postProcess(final String css, final SassPostProcessor postProcessor) {
+        final SassCssEdits edits = new SassCssEdits(css);
+        postProcessor.process(css, edits);
+        return edits.apply();
+    }
+
+}
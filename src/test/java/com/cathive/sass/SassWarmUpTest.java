@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass;
+
+import org.junit.Test;
+
+import java.lang.management.CompilationMXBean;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.SassWarmUp
+ */
+public class SassWarmUpTest {
+
+    @Test
+    public void testWarmUp() throws Exception {
+        final SassWarmUp warmUp = new SassWarmUp(new SassService(), Collections.emptyList(), 5);
+        warmUp.run();
+        assertTrue(warmUp.isFinished());
+        assertEquals(5, warmUp.getLatencies().length);
+        // Five iterations are not enough to fill two windows.
+        assertEquals(Boolean.FALSE, warmUp.getReadiness().get());
+    }
+
+    @Test
+    public void testSettled() throws Exception {
+        final SassWarmUp warmUp = new ScriptedWarmUp(200, 5000L, 3000L, 2000L, 1000L, 1000L, 1000L, 1000L, 1000L);
+        warmUp.setWindow(3);
+        warmUp.setTolerance(0.1);
+        warmUp.run();
+        // The median of the last window (1000) first matches the one of the window before after 8 iterations.
+        assertEquals(Boolean.TRUE, warmUp.getReadiness().get());
+        assertEquals(8, warmUp.getLatencies().length);
+    }
+
+    @Test
+    public void testNotSettled() throws Exception {
+        final long[] latencies = new long[50];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = (i + 1) * 1000L;
+        }
+        final SassWarmUp warmUp = new ScriptedWarmUp(50, latencies);
+        warmUp.setWindow(3);
+        warmUp.setTolerance(0.01);
+        warmUp.run();
+        assertEquals(Boolean.FALSE, warmUp.getReadiness().get());
+        assertEquals(50, warmUp.getLatencies().length);
+    }
+
+    @Test
+    public void testServiceReadiness() throws Exception {
+        final SassService service = new SassService();
+        service.setWarmUpIterations(3);
+        service.initialize();
+        try {
+            service.getReadiness().get(1, TimeUnit.MINUTES);
+            assertTrue(service.isReady());
+            assertEquals(3, service.getWarmUpLatencies().length);
+        } finally {
+            service.dispose();
+        }
+    }
+
+    /**
+     * A warm-up that reports predefined latencies instead of compiling, without a JIT compiler.
+     */
+    private static final class ScriptedWarmUp extends SassWarmUp {
+
+        private final long[] latencies;
+        private int iteration = 0;
+
+        private ScriptedWarmUp(final int maxIterations, final long... latencies) {
+            super(new SassService(), Collections.<Path>emptyList(), maxIterations);
+            this.latencies = latencies;
+        }
+
+        @Override
+        long iterate(final List<Path> entries) {
+            return this.latencies[Math.min(this.iteration++, this.latencies.length - 1)];
+        }
+
+        @Override
+        CompilationMXBean getCompilationMXBean() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassOutputStyle;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.cli.SassArguments
+ */
+public class SassArgumentsTest {
+
+    @Test
+    public void testParse() {
+        final SassArguments arguments = SassArguments.parse(
+                "-o", "out", "-I", "a" + File.pathSeparator + "b", "--include-path=c", "--style", "compressed",
+                "--precision=8", "-j", "4", "--json", "--source-comments", "--cache-dir", ".sass-cache", "main.scss", "themes", "-");
+        assertEquals("out", arguments.getOutputDirectory());
+        assertEquals(Arrays.asList("a", "b", "c"), arguments.getIncludePath());
+        assertEquals(SassOutputStyle.COMPRESSED, arguments.getOutputStyle());
+        assertEquals(Integer.valueOf(8), arguments.getPrecision());
+        assertEquals(4, arguments.getThreads());
+        assertEquals(".sass-cache", arguments.getCacheDirectory());
+        assertTrue(arguments.isJson());
+        assertFalse(arguments.isHelp());
+        assertEquals(Arrays.asList("main.scss", "themes", "-"), arguments.getInputs());
+    }
+
+    @Test
+    public void testDefaults() {
+        final SassArguments arguments = SassArguments.parse("main.scss");
+        assertNull(arguments.getOutputDirectory());
+        assertNull(arguments.getOutputStyle());
+        assertEquals(0, arguments.getThreads());
+        assertNull(arguments.getCacheDirectory());
+        assertEquals(Collections.singletonList("main.scss"), arguments.getInputs());
+    }
+
+    @Test
+    public void testEndOfOptions() {
+        assertEquals(Collections.singletonList("-weird.scss"), SassArguments.parse("--", "-weird.scss").getInputs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOption() {
+        SassArguments.parse("--unknown");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() {
+        SassArguments.parse("-o");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStyle() {
+        SassArguments.parse("--style=fancy");
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassService;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.cli.SassBatch
+ */
+public class SassBatchTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(final Path workingDirectory, final String stdin, final String... args) throws Exception {
+        return new SassBatch(new SassService()).run(SassArguments.parse(args), workingDirectory,
+                new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)), this.out,
+                new PrintStream(this.err, true, "UTF-8"));
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        final Path dir = Files.createTempDirectory("sassj");
+        Files.createDirectories(dir.resolve("src/themes"));
+        Files.write(dir.resolve("src/_colors.scss"), "$color: #336699;".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("src/main.scss"), "@import 'colors'; .a { color: $color; }".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("src/themes/dark.scss"), "@import 'colors'; .b { color: $color; }".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SassBatch.EXIT_OK, this.run(dir, "", "-o", "out", "-I", "src", "-j", "2", "--json", "src"));
+        assertTrue(Files.exists(dir.resolve("out/main.css")));
+        assertTrue(Files.exists(dir.resolve("out/themes/dark.css")));
+        final String[] events = new String(this.out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, events.length);
+        assertTrue(events[0].startsWith("{\"event\":\"start\",\"files\":2"));
+        assertTrue(events[3].startsWith("{\"event\":\"done\",\"compiled\":2,\"failed\":0"));
+    }
+
+    @Test
+    public void testStdin() throws Exception {
+        final Path dir = Files.createTempDirectory("sassj");
+        assertEquals(SassBatch.EXIT_OK, this.run(dir, ".a { .b { color: red; } }", "--style=compressed"));
+        assertEquals(".a .b{color:red}", new String(this.out.toByteArray(), StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final Path dir = Files.createTempDirectory("sassj");
+        Files.write(dir.resolve("broken.scss"), ".a { color: ".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SassBatch.EXIT_FAILED, this.run(dir, "", "broken.scss"));
+        assertTrue(this.err.size() > 0);
+    }
+
+    @Test
+    public void testMultipleInputsRequireOutputDirectory() throws Exception {
+        final Path dir = Files.createTempDirectory("sassj");
+        Files.write(dir.resolve("a.scss"), ".a { color: red; }".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SassBatch.EXIT_USAGE, this.run(dir, "", "a.scss", "-"));
+    }
+
+    @Test
+    public void testCssFileName() {
+        assertEquals("themes/dark.css", SassBatch.toCssFileName("themes/dark.scss"));
+        assertEquals("legacy.css", SassBatch.toCssFileName("legacy.sass"));
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a deterministic, synthetic SCSS corpus that resembles a large CSS framework: a configuration partial,
+ * mixin libraries, thousands of component partials (deeply nested rules, mixins with content blocks, placeholders,
+ * {@code @for} and {@code @each} loops, functions) and entry files that import a slice of the components each.
+ * <p>The same parameters (including the seed) always produce byte-identical files, so load test results of
+ * different runs (and machines) can be compared.</p>
+ * @see SassLoadHarness
+ */
+public final class SassCorpusGenerator {
+
+    private static final String[] PROPERTIES = {
+            "margin", "padding", "width", "min-height", "border-width", "font-size", "line-height", "letter-spacing"
+    };
+
+    private static final String[] PSEUDO_CLASSES = {
+            ":hover", ":focus", ":active", ":first-child", ":last-child", "::before", "::after", ":not(.disabled)"
+    };
+
+    private long seed = 42L;
+    private int partials = 2000;
+    private int mixins = 50;
+    private int entries = 20;
+    private int componentsPerEntry = 150;
+    private int depth = 6;
+    private int loopIterations = 10;
+
+    public SassCorpusGenerator() {
+        super();
+    }
+
+    public SassCorpusGenerator setSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the number of component partials.
+     * @param partials
+     *     Number of component partials.
+     * @return
+     *     This generator.
+     */
+    public SassCorpusGenerator setPartials(final int partials) {
+        this.partials = partials;
+        return this;
+    }
+
+    public SassCorpusGenerator setMixins(final int mixins) {
+        this.mixins = mixins;
+        return this;
+    }
+
+    public SassCorpusGenerator setEntries(final int entries) {
+        this.entries = entries;
+        return this;
+    }
+
+    /**
+     * Sets the number of components that each entry file imports. Determines the size of the compiled CSS of
+     * each entry (roughly 2 KB per component with the default depth and loop iterations).
+     * @param componentsPerEntry
+     *     Number of components per entry file.
+     * @return
+     *     This generator.
+     */
+    public SassCorpusGenerator setComponentsPerEntry(final int componentsPerEntry) {
+        this.componentsPerEntry = componentsPerEntry;
+        return this;
+    }
+
+    public SassCorpusGenerator setDepth(final int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public SassCorpusGenerator setLoopIterations(final int loopIterations) {
+        this.loopIterations = loopIterations;
+        return this;
+    }
+
+    /**
+     * Writes the corpus to the given directory.
+     * @param directory
+     *     Target directory. Will be created if it doesn't exist.
+     * @return
+     *     All entry files, in a stable order.
+     * @throws IOException
+     *     If writing fails.
+     */
+    @Nonnull
+    public List<Path> generate(@Nonnull final Path directory) throws IOException {
+        final Random random = new Random(this.seed);
+        Files.createDirectories(directory.resolve("mixins"));
+        Files.createDirectories(directory.resolve("components"));
+
+        write(directory.resolve("_config.scss"), this.config(random));
+        for (int i = 0; i < this.mixins; i++) {
+            write(directory.resolve("mixins").resolve("_mixin-" + i + ".scss"), this.mixin(random, i));
+        }
+        for (int i = 0; i < this.partials; i++) {
+            write(directory.resolve("components").resolve("_component-" + i + ".scss"), this.component(random, i));
+        }
+        final List<Path> entryFiles = new ArrayList<>(this.entries);
+        for (int i = 0; i < this.entries; i++) {
+            final Path entryFile = directory.resolve("entry-" + i + ".scss");
+            write(entryFile, this.entry(random));
+            entryFiles.add(entryFile);
+        }
+        return Collections.unmodifiableList(entryFiles);
+    }
+
+    @Nonnull
+    private String config(@Nonnull final Random random) {
+        final StringBuilder scss = new StringBuilder();
+        scss.append("$base-unit: 4px !default;\n");
+        scss.append("$breakpoints: (small: 576px, medium: 768px, large: 992px, xlarge: 1200px) !default;\n");
+        scss.append("$palette: (\n");
+        for (int i = 0; i < 16; i++) {
+            scss.append("  color-").append(i).append(": ").append(color(random)).append(i < 15 ? ",\n" : "\n");
+        }
+        scss.append(") !default;\n\n");
+        scss.append("@function spacing($factor) {\n  @return $base-unit * $factor;\n}\n\n");
+        scss.append("@function tint($color, $percentage) {\n  @return mix(white, $color, $percentage);\n}\n\n");
+        scss.append("%clearfix {\n  &::after {\n    content: \"\";\n    display: table;\n    clear: both;\n  }\n}\n\n");
+        scss.append("%focus-ring {\n  outline: 2px solid map-get($palette, color-0);\n  outline-offset: 2px;\n}\n");
+        return scss.toString();
+    }
+
+    @Nonnull
+    private String mixin(@Nonnull final Random random, final int index) {
+        final StringBuilder scss = new StringBuilder();
+        scss.append("@mixin respond-").append(index).append("($breakpoint) {\n");
+        scss.append("  @if map-has-key($breakpoints, $breakpoint) {\n");
+        scss.append("    @media (min-width: map-get($breakpoints, $breakpoint)) {\n      @content;\n    }\n");
+        scss.append("  } @else {\n    @content;\n  }\n}\n\n");
+        scss.append("@mixin box-").append(index).append("($factor: ").append(1 + random.nextInt(4)).append(", $color: map-get($palette, color-")
+            .append(random.nextInt(16)).append(")) {\n");
+        scss.append("  padding: spacing($factor) spacing($factor * 2);\n");
+        scss.append("  border: 1px solid darken($color, ").append(5 + random.nextInt(20)).append("%);\n");
+        scss.append("  background-color: tint($color, ").append(10 + random.nextInt(80)).append("%);\n");
+        scss.append("  @extend %clearfix;\n}\n");
+        return scss.toString();
+    }
+
+    @Nonnull
+    private String component(@Nonnull final Random random, final int index) {
+        final StringBuilder scss = new StringBuilder();
+        final String name = "c" + index;
+        final int mixin = this.mixins == 0 ? -1 : random.nextInt(this.mixins);
+        scss.append("$").append(name).append("-color: map-get($palette, color-").append(random.nextInt(16)).append(");\n\n");
+        scss.append(".").append(name).append(" {\n");
+        this.nest(scss, random, name, mixin, 1);
+        scss.append("}\n\n");
+        scss.append("@for $i from 1 through ").append(this.loopIterations).append(" {\n");
+        scss.append("  .").append(name).append("-size-#{$i} {\n");
+        scss.append("    ").append(PROPERTIES[random.nextInt(PROPERTIES.length)]).append(": spacing($i);\n");
+        scss.append("    z-index: $i * ").append(1 + random.nextInt(10)).append(";\n  }\n}\n\n");
+        scss.append("@each $key, $value in $palette {\n");
+        scss.append("  .").append(name).append("-#{$key} {\n");
+        scss.append("    color: $value;\n    border-color: darken($value, 10%);\n  }\n}\n");
+        return scss.toString();
+    }
+
+    private void nest(@Nonnull final StringBuilder scss, @Nonnull final Random random, @Nonnull final String name,
+                      final int mixin, final int level) {
+        final String indent = indent(level);
+        for (int i = 0; i < 3; i++) {
+            scss.append(indent).append(PROPERTIES[random.nextInt(PROPERTIES.length)]).append(": spacing(")
+                .append(1 + random.nextInt(8)).append(");\n");
+        }
+        scss.append(indent).append("color: $").append(name).append("-color;\n");
+        if (mixin >= 0 && level == 1) {
+            scss.append(indent).append("@include box-").append(mixin).append(";\n");
+            scss.append(indent).append("@include respond-").append(mixin).append("(medium) {\n");
+            scss.append(indent).append("  width: ").append(50 + random.nextInt(50)).append("%;\n");
+            scss.append(indent).append("}\n");
+        }
+        scss.append(indent).append("&").append(PSEUDO_CLASSES[random.nextInt(PSEUDO_CLASSES.length)]).append(" {\n");
+        scss.append(indent).append("  @extend %focus-ring;\n");
+        scss.append(indent).append("  color: tint($").append(name).append("-color, ").append(10 + random.nextInt(50)).append("%);\n");
+        scss.append(indent).append("}\n");
+        if (level < this.depth) {
+            scss.append(indent).append("> .").append(name).append("__level-").append(level).append(" {\n");
+            this.nest(scss, random, name, mixin, level + 1);
+            scss.append(indent).append("}\n");
+        }
+    }
+
+    @Nonnull
+    private String entry(@Nonnull final Random random) {
+        final StringBuilder scss = new StringBuilder();
+        scss.append("@import \"config\";\n");
+        for (int i = 0; i < this.mixins; i++) {
+            scss.append("@import \"mixins/mixin-").append(i).append("\";\n");
+        }
+        if (this.partials > 0) {
+            final int first = random.nextInt(this.partials);
+            for (int i = 0; i < Math.min(this.componentsPerEntry, this.partials); i++) {
+                scss.append("@import \"components/component-").append((first + i) % this.partials).append("\";\n");
+            }
+        }
+        return scss.toString();
+    }
+
+    @Nonnull
+    private static String color(@Nonnull final Random random) {
+        return String.format("#%06x", random.nextInt(0x1000000));
+    }
+
+    @Nonnull
+    private static String indent(final int level) {
+        final StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < level; i++) {
+            indent.append("  ");
+        }
+        return indent.toString();
+    }
+
+    private static void write(@Nonnull final Path file, @Nonnull final String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
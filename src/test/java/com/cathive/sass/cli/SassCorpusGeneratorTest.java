@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @see com.cathive.sass.cli.SassCorpusGenerator
+ */
+public class SassCorpusGeneratorTest {
+
+    private Path workingDirectory;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        final Path first = this.workingDirectory.resolve("first");
+        final Path second = this.workingDirectory.resolve("second");
+        final List<Path> entries = new SassCorpusGenerator().setPartials(100).setEntries(3).setComponentsPerEntry(10).generate(first);
+        new SassCorpusGenerator().setPartials(100).setEntries(3).setComponentsPerEntry(10).generate(second);
+
+        assertEquals(3, entries.size());
+        final List<Path> files = files(first);
+        assertEquals(1 + 50 + 100 + 3, files.size());
+        assertEquals(files, files(second));
+        for (final Path file : files) {
+            assertArrayEquals(file.toString(), Files.readAllBytes(first.resolve(file)), Files.readAllBytes(second.resolve(file)));
+        }
+
+        final Path other = this.workingDirectory.resolve("other");
+        new SassCorpusGenerator().setSeed(7L).setPartials(100).setEntries(3).setComponentsPerEntry(10).generate(other);
+        assertFalse(Arrays.equals(Files.readAllBytes(first.resolve("components/_component-0.scss")),
+                                            Files.readAllBytes(other.resolve("components/_component-0.scss"))));
+    }
+
+    private static List<Path> files(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).map(directory::relativize).sorted().collect(Collectors.toList());
+        }
+    }
+
+}
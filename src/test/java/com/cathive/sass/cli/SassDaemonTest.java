@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassService;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.cli.SassDaemon
+ */
+public class SassDaemonTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Path directory = Files.createTempDirectory("sassj-daemon");
+        final SassDaemon daemon = new SassDaemon(new SassService(), directory, 0L);
+        daemon.start();
+        try {
+            assertNotNull(SassDaemonProtocol.readEndpoint(directory));
+            assertEquals(SassDaemonProtocol.isUnixDomainSocketSupported() ? "unix" : "tcp", daemon.getTransport());
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ByteArrayOutputStream err = new ByteArrayOutputStream();
+            final int status = new SassDaemonClient(directory).compile(
+                    new String[]{ "--client", "missing.scss" }, directory,
+                    new ByteArrayInputStream(new byte[0]), out, new PrintStream(err, true, "UTF-8"));
+            assertEquals(SassBatch.EXIT_USAGE, status);
+            assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("missing.scss"));
+        } finally {
+            assertTrue(new SassDaemonClient(directory).stop());
+        }
+        daemon.awaitTermination();
+        assertNull(SassDaemonProtocol.readEndpoint(directory));
+        assertFalse(new SassDaemonClient(directory).stop());
+    }
+
+    @Test
+    public void testIdleShutdown() throws Exception {
+        final Path directory = Files.createTempDirectory("sassj-daemon");
+        final SassDaemon daemon = new SassDaemon(new SassService(), directory, 100L);
+        daemon.start();
+        daemon.awaitTermination();
+        assertNull(SassDaemonProtocol.readEndpoint(directory));
+    }
+
+    @Test
+    public void testOversizedToken() throws Exception {
+        final Path directory = Files.createTempDirectory("sassj-daemon");
+        final SassDaemon daemon = new SassDaemon(new SassService(), directory, 0L);
+        daemon.start();
+        try (final SocketChannel channel = SassDaemonProtocol.connect(SassDaemonProtocol.readEndpoint(directory))) {
+            final DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(SassDaemonProtocol.MAGIC);
+            out.writeInt(SassDaemonProtocol.VERSION);
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            // The daemon hangs up without reading (or allocating) the token.
+            assertEquals(-1, Channels.newInputStream(channel).read());
+        } finally {
+            assertTrue(new SassDaemonClient(directory).stop());
+        }
+        daemon.awaitTermination();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadBytesLimit() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SassDaemonProtocol.writeBytes(new DataOutputStream(bytes), new byte[65]);
+        SassDaemonProtocol.readBytes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), SassDaemonProtocol.MAX_TOKEN_LENGTH);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSingleDaemonPerDirectory() throws Exception {
+        final Path directory = Files.createTempDirectory("sassj-daemon");
+        try (final SassDaemon daemon = new SassDaemon(new SassService(), directory, 0L)) {
+            daemon.start();
+            new SassDaemon(new SassService(), directory, 0L).start();
+        }
+    }
+
+}
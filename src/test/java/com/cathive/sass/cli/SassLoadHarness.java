@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.cathive.sass.SassContext;
+import com.cathive.sass.SassService;
+
+import javax.annotation.Nonnull;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link SassService} with a synthetic corpus and reports throughput and latency percentiles.
+ * <p>This is not a unit test. Two load models are supported:</p>
+ * <ul>
+ *     <li>{@code closed}: a fixed number of threads compile one entry after the other, i.e. the next request is
+ *     only issued after the previous one has finished. Measures the maximum throughput at that concurrency.</li>
+ *     <li>{@code open}: requests arrive at a fixed rate, independent of how fast they are served. Latencies are
+ *     measured from the time a request was scheduled to arrive, so queueing delays are not hidden
+ *     ("coordinated omission").</li>
+ * </ul>
+ * <p>Arguments (all optional, {@code --name=value}): {@code corpus} (directory the corpus is generated into),
+ * {@code seed}, {@code partials}, {@code entries}, {@code components} (per entry), {@code mode} ({@code closed} or
+ * {@code open}), {@code concurrency}, {@code rate} (requests per second), {@code warmup} and {@code duration}
+ * (seconds), {@code coalesce} ({@code true}/{@code false}, disabled by default so that every request is compiled)
+ * and {@code output} (file that the results are appended to as a JSON line).</p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.cathive.sass.cli.SassLoadHarness \
+ *     -Dexec.args="--mode=open --rate=50 --duration=60"
+ * </pre>
+ * @see SassCorpusGenerator
+ */
+public final class SassLoadHarness {
+
+    private SassLoadHarness() {
+        super();
+    }
+
+    /**
+     * Runs the load test.
+     * @param args
+     *     Arguments as described above.
+     * @throws Exception
+     *     If the load test can't be run.
+     */
+    public static void main(final String... args) throws Exception {
+
+        final Map<String, String> arguments = new HashMap<>();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            arguments.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        final Path corpus = Paths.get(argument(arguments, "corpus", "target/sass-corpus")).toAbsolutePath();
+        final long seed = Long.parseLong(argument(arguments, "seed", "42"));
+        final String mode = argument(arguments, "mode", "closed");
+        final int concurrency = Integer.parseInt(argument(arguments, "concurrency", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        final double rate = Double.parseDouble(argument(arguments, "rate", "20"));
+        final long warmUp = TimeUnit.SECONDS.toNanos(Long.parseLong(argument(arguments, "warmup", "10")));
+        final long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(argument(arguments, "duration", "30")));
+        final boolean coalesce = Boolean.parseBoolean(argument(arguments, "coalesce", "false"));
+        final Path output = Paths.get(argument(arguments, "output", "target/load-test.json"));
+        if (!"closed".equals(mode) && !"open".equals(mode)) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+
+        final List<Path> entries = new SassCorpusGenerator()
+                .setSeed(seed)
+                .setPartials(Integer.parseInt(argument(arguments, "partials", "2000")))
+                .setEntries(Integer.parseInt(argument(arguments, "entries", "20")))
+                .setComponentsPerEntry(Integer.parseInt(argument(arguments, "components", "150")))
+                .generate(corpus);
+        System.out.printf("Corpus: %d entries in %s%n", entries.size(), corpus);
+
+        final SassService service = new SassService();
+        service.setCoalesceCompiles(coalesce);
+
+        final Load load = new Load(service, entries);
+        System.out.printf("Warm-up: %d s%n", TimeUnit.NANOSECONDS.toSeconds(warmUp));
+        load.run(mode, concurrency, rate, warmUp);
+        final Load measured = new Load(service, entries);
+        System.out.printf("Measuring: %s, %d s%n", "closed".equals(mode) ? concurrency + " threads" : rate + " requests/s",
+                          TimeUnit.NANOSECONDS.toSeconds(duration));
+        final long elapsed = measured.run(mode, concurrency, rate, duration);
+
+        final long[] latencies = measured.latencies();
+        Arrays.sort(latencies);
+        final double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        final double throughput = latencies.length / seconds;
+        System.out.printf("Completed: %d (%d failed), %.1f compiles/s, %.1f MB/s of CSS%n", latencies.length,
+                          measured.failedCount.get(), throughput, measured.outputBytes.get() / seconds / (1024 * 1024));
+        System.out.printf("Latency: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                          millis(percentile(latencies, 0.5)), millis(percentile(latencies, 0.9)),
+                          millis(percentile(latencies, 0.99)), millis(percentile(latencies, 0.999)),
+                          millis(percentile(latencies, 1.0)));
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (final OutputStream out = Files.newOutputStream(output, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            final Map<String, Object> event = JsonLines.event("load");
+            event.put("timestamp", System.currentTimeMillis());
+            event.put("libsassVersion", service.getLibsassVersion());
+            event.put("seed", seed);
+            event.put("entries", entries.size());
+            event.put("mode", mode);
+            event.put("concurrency", "closed".equals(mode) ? concurrency : null);
+            event.put("rate", "open".equals(mode) ? rate : null);
+            event.put("coalesce", coalesce);
+            event.put("durationSeconds", seconds);
+            event.put("completed", latencies.length);
+            event.put("failed", measured.failedCount.get());
+            event.put("throughput", throughput);
+            event.put("outputBytes", measured.outputBytes.get());
+            event.put("meanMillis", millis(mean(latencies)));
+            event.put("p50Millis", millis(percentile(latencies, 0.5)));
+            event.put("p90Millis", millis(percentile(latencies, 0.9)));
+            event.put("p99Millis", millis(percentile(latencies, 0.99)));
+            event.put("p999Millis", millis(percentile(latencies, 0.999)));
+            event.put("maxMillis", millis(percentile(latencies, 1.0)));
+            new JsonLines(out).write(event);
+        }
+        System.out.printf("Results appended to %s%n", output.toAbsolutePath());
+
+    }
+
+    @Nonnull
+    private static String argument(@Nonnull final Map<String, String> arguments, @Nonnull final String name, @Nonnull final String defaultValue) {
+        final String value = arguments.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static long percentile(@Nonnull final long[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        return sorted[Math.max(0, Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1))];
+    }
+
+    private static long mean(@Nonnull final long[] values) {
+        long sum = 0L;
+        for (final long value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? 0L : sum / values.length;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A single measurement phase.
+     */
+    private static final class Load {
+
+        private final SassService service;
+        private final List<Path> entries;
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong outputBytes = new AtomicLong();
+
+        /** Latencies in nanoseconds (of successful compilations only). */
+        private long[] latencies = new long[1024];
+        private int latencyCount;
+
+        private Load(@Nonnull final SassService service, @Nonnull final List<Path> entries) {
+            this.service = service;
+            this.entries = entries;
+        }
+
+        /**
+         * Runs this phase.
+         * @return
+         *     The elapsed time in nanoseconds (until all requests have been completed).
+         */
+        private long run(@Nonnull final String mode, final int concurrency, final double rate, final long duration) throws InterruptedException {
+            final long start = System.nanoTime();
+            final long end = start + duration;
+            if ("closed".equals(mode)) {
+                final ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+                for (int i = 0; i < concurrency; i++) {
+                    threads.execute(() -> {
+                        while (System.nanoTime() < end) {
+                            this.compile(System.nanoTime());
+                        }
+                    });
+                }
+                threads.shutdown();
+                threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } else {
+                // Requests must not wait for a free thread, otherwise the arrival rate would depend on the service.
+                final ExecutorService threads = Executors.newCachedThreadPool();
+                final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                for (long arrival = start; arrival < end; arrival += interval) {
+                    final long delay = arrival - System.nanoTime();
+                    if (delay > 0L) {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                    final long scheduled = arrival;
+                    threads.execute(() -> this.compile(scheduled));
+                }
+                threads.shutdown();
+                threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            return System.nanoTime() - start;
+        }
+
+        /**
+         * Compiles the next entry.
+         * @param scheduled
+         *     Time (as of {@link System#nanoTime()}) the request has been issued or scheduled to arrive.
+         */
+        private void compile(final long scheduled) {
+            final Path entry = this.entries.get((int) (this.requestCount.getAndIncrement() % this.entries.size()));
+            try {
+                final SassContext context = this.service.createContext(entry);
+                final String css = this.service.compile(context);
+                this.record(System.nanoTime() - scheduled);
+                this.outputBytes.addAndGet(css.length());
+            } catch (final Exception e) {
+                if (this.failedCount.getAndIncrement() == 0) {
+                    System.err.println("Compilation of " + entry + " failed: " + e);
+                }
+            }
+        }
+
+        private synchronized void record(final long latency) {
+            if (this.latencyCount == this.latencies.length) {
+                this.latencies = Arrays.copyOf(this.latencies, this.latencies.length * 2);
+            }
+            this.latencies[this.latencyCount++] = latency;
+        }
+
+        @Nonnull
+        private synchronized long[] latencies() {
+            return Arrays.copyOf(this.latencies, this.latencyCount);
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cathive.sass.cli;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time-to-first-CSS of one-shot invocations of the sassj distribution.
+ * <p>This is not a unit test. It is run by the {@code dist} Maven profile after the distribution has been built and
+ * compares the following configurations:</p>
+ * <ul>
+ *     <li>{@code jar}: the JDK that runs the build with the plain class path.</li>
+ *     <li>{@code runtime}: the trimmed runtime image (with its default CDS archive).</li>
+ *     <li>{@code launcher}: {@code bin/sassj}, i.e. the runtime image, the AppCDS archive of the training run and
+ *     the pre-extracted native library.</li>
+ *     <li>{@code daemon}: {@code bin/sassj --client} talking to a warm daemon.</li>
+ * </ul>
+ * <p>For each configuration the median, 90th percentile and minimum of the time until the first byte of CSS has
+ * been written and of the time until the process has exited are printed and appended as JSON lines to
+ * {@code startup-benchmark.json} in the distribution directory, so that they can be tracked over time.</p>
+ */
+public final class SassStartupBenchmark {
+
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private SassStartupBenchmark() {
+        super();
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args
+     *     Distribution directory, input file and (optionally) the number of iterations per configuration.
+     * @throws Exception
+     *     If the benchmark can't be run.
+     */
+    public static void main(final String... args) throws Exception {
+
+        final Path distribution = Paths.get(args[0]).toAbsolutePath();
+        final String input = Paths.get(args[1]).toAbsolutePath().toString();
+        final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final String classPath = distribution.resolve("lib").toString() + File.separator + "*";
+        final String launcher = distribution.resolve("bin").resolve(WINDOWS ? "sassj.cmd" : "sassj").toString();
+        final Path daemonDirectory = Files.createTempDirectory("sassj-benchmark");
+        final String daemonOptions = "-D" + SassDaemon.DIRECTORY_PROPERTY + "=" + daemonDirectory;
+
+        final Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("jar", Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp", classPath, "com.cathive.sass.SassJ", input));
+        configurations.put("runtime", Arrays.asList(
+                distribution.resolve("runtime").resolve("bin").resolve("java").toString(), "-cp", classPath, "com.cathive.sass.SassJ", input));
+        configurations.put("launcher", Arrays.asList(launcher, input));
+        configurations.put("daemon", Arrays.asList(launcher, "--client", input));
+
+        final JsonLines results;
+        try (final OutputStream out = Files.newOutputStream(distribution.resolve("startup-benchmark.json"),
+                                                            StandardOpenOption.CREATE,
+                                                            StandardOpenOption.APPEND)) {
+            results = new JsonLines(out);
+            System.out.printf("%-10s %12s %12s %12s %12s%n", "", "first CSS", "p90", "min", "exit");
+            for (final Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+                final long[] firstCss = new long[iterations];
+                final long[] exit = new long[iterations];
+                try {
+                    // Warm-up (file system caches, and the daemon is started).
+                    run(configuration.getValue(), daemonOptions, new long[2]);
+                    for (int i = 0; i < iterations; i++) {
+                        final long[] timings = new long[2];
+                        run(configuration.getValue(), daemonOptions, timings);
+                        firstCss[i] = timings[0];
+                        exit[i] = timings[1];
+                    }
+                } catch (final IOException e) {
+                    System.out.printf("%-10s failed: %s%n", configuration.getKey(), e.getMessage());
+                    continue;
+                }
+                Arrays.sort(firstCss);
+                Arrays.sort(exit);
+                System.out.printf("%-10s %9.1f ms %9.1f ms %9.1f ms %9.1f ms%n", configuration.getKey(),
+                                  millis(percentile(firstCss, 0.5)), millis(percentile(firstCss, 0.9)),
+                                  millis(firstCss[0]), millis(percentile(exit, 0.5)));
+                final Map<String, Object> event = JsonLines.event("startup");
+                event.put("configuration", configuration.getKey());
+                event.put("timestamp", System.currentTimeMillis());
+                event.put("iterations", iterations);
+                event.put("firstCssMedianMillis", millis(percentile(firstCss, 0.5)));
+                event.put("firstCssP90Millis", millis(percentile(firstCss, 0.9)));
+                event.put("firstCssMinMillis", millis(firstCss[0]));
+                event.put("exitMedianMillis", millis(percentile(exit, 0.5)));
+                results.write(event);
+            }
+        } finally {
+            new SassDaemonClient(daemonDirectory).stop();
+        }
+
+    }
+
+    /**
+     * Runs the given command once.
+     * @param timings
+     *     Receives the nanoseconds until the first byte of output and until the process has exited.
+     */
+    private static void run(final List<String> command, final String daemonOptions, final long[] timings) throws IOException, InterruptedException {
+        final ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put("SASSJ_OPTS", daemonOptions);
+        final long start = System.nanoTime();
+        final Process process = builder.start();
+        process.getOutputStream().close();
+        try (final InputStream out = process.getInputStream()) {
+            if (out.read() < 0) {
+                throw new IOException("No output: " + command);
+            }
+            timings[0] = System.nanoTime() - start;
+            ByteStreams.copy(out, ByteStreams.nullOutputStream());
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Exit status " + process.exitValue() + ": " + command);
+        }
+        timings[1] = System.nanoTime() - start;
+    }
+
+    private static long percentile(final long[] sorted, final double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -20,12 +20,17 @@ package com.cathive.sass.management;
 import org.junit.Test;
 
 import javax.management.MBeanServer;
+import javax.management.openmbean.CompositeData;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Benjamin P. Jung
@@ -49,4 +54,35 @@ public class SassCompilerTest {
 
     }
 
+    @Test
+    public void testCompileDirectory() throws Exception {
+
+        final Path input = Files.createTempDirectory("sass-in");
+        final Path output = Files.createTempDirectory("sass-out");
+        Files.createDirectories(input.resolve("themes"));
+        Files.write(input.resolve("_colors.scss"), "$color: #336699;".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("main.scss"), "@import 'colors'; .a { color: $color; }".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("themes/dark.scss"), ".b { color: #000; }".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("themes/broken.scss"), ".c { color: ".getBytes(StandardCharsets.UTF_8));
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectInstance mbean = SassCompiler.registerMBean();
+        try {
+            final CompositeData summary = (CompositeData) server.invoke(
+                    mbean.getObjectName(), "compileDirectory",
+                    new Object[]{ input.toString(), output.toString(), null, 2 },
+                    new String[]{ String.class.getName(), String.class.getName(), String[].class.getName(), int.class.getName() });
+            assertEquals(3, summary.get("fileCount"));
+            assertEquals(2, summary.get("compiledCount"));
+            assertEquals(1, summary.get("failedCount"));
+            assertEquals(1, ((String[]) summary.get("failures")).length);
+            assertTrue(((String[]) summary.get("failures"))[0].startsWith("themes"));
+            assertEquals(Files.size(output.resolve("main.css")) + Files.size(output.resolve("themes/dark.css")), summary.get("outputBytes"));
+            assertTrue(new String(Files.readAllBytes(output.resolve("main.css")), StandardCharsets.UTF_8).contains("#336699"));
+        } finally {
+            SassCompiler.unregisterMBean();
+        }
+
+    }
+
 }
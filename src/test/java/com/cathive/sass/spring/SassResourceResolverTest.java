@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.spring;
+
+import com.cathive.sass.SassCompileCache;
+import com.cathive.sass.SassService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @see com.cathive.sass.spring.SassResourceResolver
+ */
+public class SassResourceResolverTest {
+
+    private Path workingDirectory;
+    private Path colorsScssPath;
+    private List<Resource> locations;
+    private SassResourceCompiler compiler;
+
+    @Before
+    public void init() throws Exception {
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.colorsScssPath = this.workingDirectory.resolve("_colors.scss");
+        Files.write(this.colorsScssPath, "$primary: red;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(this.workingDirectory.resolve("main.scss"),
+                    "@import \"colors\";\n.button { color: $primary; }\n".getBytes(StandardCharsets.UTF_8));
+        this.locations = Collections.<Resource>singletonList(new FileSystemResource(this.workingDirectory.toFile().getAbsolutePath() + "/"));
+        this.compiler = new SassResourceCompiler(new SassService());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testResolveCompiledResource() throws Exception {
+
+        final ResourceResolverChain chain = new Chain(new SassResourceResolver(this.compiler), new PathResourceResolver());
+
+        final Resource resource = chain.resolveResource(null, "main.css", this.locations);
+        assertNotNull(resource);
+        assertEquals("main.css", resource.getFilename());
+        assertTrue(content(resource).contains("color: red"));
+        assertNull(chain.resolveResource(null, "missing.css", this.locations));
+
+        assertNotNull(chain.resolveResource(null, "main.css", this.locations));
+        assertEquals(1, this.compiler.getHitCount());
+
+        // Modifying an imported file leads to recompilation.
+        Files.write(this.colorsScssPath, "$primary: blue;\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.colorsScssPath, FileTime.fromMillis(System.currentTimeMillis() + 60000L));
+        assertTrue(content(chain.resolveResource(null, "main.css", this.locations)).contains("color: blue"));
+        assertEquals(2, this.compiler.getMissCount());
+
+    }
+
+    @Test
+    public void testCompileCache() throws Exception {
+
+        final SassService service = new SassService();
+        service.setCompileCache(new SassCompileCache(this.workingDirectory.resolve("cache")));
+        final ResourceResolverChain chain = new Chain(new SassResourceResolver(new SassResourceCompiler(service)), new PathResourceResolver());
+        assertTrue(content(chain.resolveResource(null, "main.css", this.locations)).contains("color: red"));
+
+        // A new compiler takes the result from the compile cache but still learns about the imported files.
+        final SassResourceCompiler compiler = new SassResourceCompiler(service);
+        final ResourceResolverChain cachedChain = new Chain(new SassResourceResolver(compiler), new PathResourceResolver());
+        assertTrue(content(cachedChain.resolveResource(null, "main.css", this.locations)).contains("color: red"));
+        assertTrue(content(cachedChain.resolveResource(null, "main.css", this.locations)).contains("color: red"));
+        assertEquals(1, compiler.getHitCount());
+
+        Files.write(this.colorsScssPath, "$primary: blue;\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.colorsScssPath, FileTime.fromMillis(System.currentTimeMillis() + 60000L));
+        assertTrue(content(cachedChain.resolveResource(null, "main.css", this.locations)).contains("color: blue"));
+        assertEquals(2, compiler.getMissCount());
+
+    }
+
+    @Test
+    public void testVersionResourceResolver() throws Exception {
+
+        final VersionResourceResolver versionResolver = new VersionResourceResolver();
+        versionResolver.addContentVersionStrategy("/**");
+        final ResourceResolverChain chain = new Chain(versionResolver, new SassResourceResolver(this.compiler), new PathResourceResolver());
+
+        final String versionedPath = chain.resolveUrlPath("main.css", this.locations);
+        assertNotNull(versionedPath);
+        assertNotEquals("main.css", versionedPath);
+        assertTrue(versionedPath.endsWith(".css"));
+        assertNotNull(chain.resolveResource(null, versionedPath, this.locations));
+
+        // A change of an imported file results in a new URL.
+        Files.write(this.colorsScssPath, "$primary: blue;\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(this.colorsScssPath, FileTime.fromMillis(System.currentTimeMillis() + 60000L));
+        assertNotEquals(versionedPath, chain.resolveUrlPath("main.css", this.locations));
+
+    }
+
+    private static String content(final Resource resource) throws IOException {
+        return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Minimal resolver chain. (Spring's own implementation is not public.)
+     */
+    private static final class Chain implements ResourceResolverChain {
+
+        private final List<ResourceResolver> resolvers;
+        private final int index;
+
+        private Chain(final ResourceResolver... resolvers) {
+            this(Arrays.asList(resolvers), 0);
+        }
+
+        private Chain(final List<ResourceResolver> resolvers, final int index) {
+            this.resolvers = resolvers;
+            this.index = index;
+        }
+
+        @Override
+        public Resource resolveResource(final HttpServletRequest request, final String requestPath, final List<? extends Resource> locations) {
+            if (this.index >= this.resolvers.size()) {
+                return null;
+            }
+            return this.resolvers.get(this.index).resolveResource(request, requestPath, locations, new Chain(this.resolvers, this.index + 1));
+        }
+
+        @Override
+        public String resolveUrlPath(final String resourcePath, final List<? extends Resource> locations) {
+            if (this.index >= this.resolvers.size()) {
+                return null;
+            }
+            return this.resolvers.get(this.index).resolveUrlPath(resourcePath, locations, new Chain(this.resolvers, this.index + 1));
+        }
+
+    }
+
+}
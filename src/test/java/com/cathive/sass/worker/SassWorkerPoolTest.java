@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2014,2015 The Cat Hive Developers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cathive.sass.worker;
+
+import com.cathive.sass.SassCompilationException;
+import com.cathive.sass.SassContext;
+import com.cathive.sass.SassFileContext;
+import com.cathive.sass.SassOptionsSnapshot;
+import com.cathive.sass.SassOutputStyle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @see com.cathive.sass.worker.SassWorkerPool
+ */
+public class SassWorkerPoolTest {
+
+    private Path workingDirectory;
+    private Path simpleScssPath;
+    private Path brokenScssPath;
+    private SassOptionsSnapshot options;
+    private SassWorkerPool pool;
+
+    @Before
+    public void init() throws Exception {
+
+        this.workingDirectory = Files.createTempDirectory("sass-java");
+        this.simpleScssPath = this.workingDirectory.resolve("simple.scss");
+        this.brokenScssPath = this.workingDirectory.resolve("broken.scss");
+
+        Files.copy(this.getClass().getClassLoader().getResourceAsStream("simple.scss"), this.simpleScssPath);
+        Files.write(this.brokenScssPath, ".broken { color: $undefined; }".getBytes(StandardCharsets.UTF_8));
+
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        context.getOptions().setOutputStyle(SassOutputStyle.COMPRESSED);
+        this.options = SassOptionsSnapshot.of(context.getOptions());
+
+        this.pool = new SassWorkerPool(2);
+        this.pool.setMaxCompilesPerWorker(3);
+        this.pool.start();
+
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        this.pool.close();
+        Files.walkFileTree(this.workingDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        final SassContext context = SassFileContext.create(this.simpleScssPath);
+        this.options.applyTo(context.getOptions());
+        assertEquals(context.compile(), this.pool.submit(this.simpleScssPath, this.options).get());
+    }
+
+    @Test
+    public void testCompilationFailure() throws Exception {
+        try {
+            this.pool.submit(this.brokenScssPath, this.options).get();
+            fail("Compilation should have failed.");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof SassCompilationException);
+            assertEquals(this.brokenScssPath.toString(), ((SassCompilationException) e.getCause()).getFileName());
+        }
+    }
+
+    @Test
+    public void testRecycling() throws Exception {
+        final List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(this.pool.submit(this.simpleScssPath, this.options));
+        }
+        for (final CompletableFuture<String> result : results) {
+            assertTrue(!result.get().isEmpty());
+        }
+        assertEquals(10, this.pool.getCompileCount());
+        assertTrue(this.pool.getRestartCount() >= 2);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(this.pool.submit(this.simpleScssPath, this.options));
+        }
+        this.pool.close();
+        for (final CompletableFuture<String> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof SassWorkerException);
+            }
+        }
+        try {
+            this.pool.submit(this.simpleScssPath, this.options);
+            fail("A closed pool must not accept compilations.");
+        } catch (final IllegalStateException e) {
+            // Expected.
+        }
+
+        // Permits of drained jobs must not keep the worker threads spinning.
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (hasWorkerThreads() && System.nanoTime() < deadline) {
+            Thread.sleep(50L);
+        }
+        assertFalse(hasWorkerThreads());
+    }
+
+    private static boolean hasWorkerThreads() {
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("sass-worker-") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}